@@ -0,0 +1,57 @@
+package org.basex.bench;
+
+import java.io.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Abstract benchmark state: creates a database from an XMark document, including all
+ * value and full-text indexes, before the benchmarks of a trial are run.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+@State(Scope.Benchmark)
+public abstract class DatabaseBench {
+  /** Scale of the document (see {@link Datasets}). */
+  @Param("1")
+  public int scale;
+  /** Database context. */
+  protected Context context;
+  /** Database instance. */
+  protected Data data;
+
+  /**
+   * Creates the database.
+   * @throws IOException I/O exception
+   */
+  @Setup
+  public void createDB() throws IOException {
+    context = new Context();
+    context.soptions.set(StaticOptions.DBPATH, Datasets.dbpath());
+    context.options.set(MainOptions.FTINDEX, true);
+    new CreateDB(name(), Datasets.xmark(scale).path()).execute(context);
+    data = context.data();
+  }
+
+  /**
+   * Drops the database and closes the context.
+   * @throws IOException I/O exception
+   */
+  @TearDown
+  public void dropDB() throws IOException {
+    new DropDB(name()).execute(context);
+    context.close();
+  }
+
+  /**
+   * Returns the name of the database.
+   * @return name
+   */
+  private String name() {
+    return "xmark" + scale;
+  }
+}
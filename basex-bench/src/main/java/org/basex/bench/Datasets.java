@@ -0,0 +1,270 @@
+package org.basex.bench;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.io.*;
+import org.basex.util.*;
+
+/**
+ * Generates the documents that are used by the benchmarks.
+ *
+ * The XML documents follow the structure of the XMark benchmark (regions with items,
+ * categories, people, open and closed auctions). The JSON documents contain an array of
+ * person records. All documents are generated with a fixed seed; documents with the same
+ * scale will always be identical.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class Datasets {
+  /** Regions. */
+  private static final String[] REGIONS = {
+    "africa", "asia", "australia", "europe", "namerica", "samerica"
+  };
+  /** Words used for texts. */
+  static final String[] WORDS = {
+    "abroad", "accept", "almost", "auction", "bargain", "better", "bidder", "captain",
+    "chance", "cheap", "collect", "condition", "credit", "delivery", "describe", "doubtful",
+    "earth", "excellent", "famous", "fine", "gold", "great", "honest", "humble", "idle",
+    "journey", "keeper", "lady", "letter", "market", "master", "merchant", "noble", "offer",
+    "order", "payment", "peace", "piteous", "precious", "quality", "rare", "reason", "royal",
+    "seller", "service", "shipping", "silver", "simple", "stock", "strange", "suit", "trade",
+    "treasure", "value", "venus", "voyage", "wealth", "worthy", "yield", "zeal"
+  };
+  /** Locations. */
+  private static final String[] LOCATIONS = {
+    "United States", "Germany", "Japan", "Brazil", "Kenya", "Australia", "Canada", "India"
+  };
+  /** Temporary directory. */
+  private static final String DIR = Prop.TMP + "basex-bench" + File.separator;
+
+  /** Random number generator. */
+  private final Random random = new Random(42);
+  /** Output. */
+  private final StringBuilder sb = new StringBuilder();
+
+  /** Private constructor. */
+  private Datasets() { }
+
+  /**
+   * Returns an XMark document for the specified scale. The document will be generated if
+   * it does not exist yet. A scale of {@code 1} results in roughly 0.4 MB of XML.
+   * @param scale scale
+   * @return file reference
+   * @throws IOException I/O exception
+   */
+  public static IOFile xmark(final int scale) throws IOException {
+    final IOFile file = new IOFile(DIR, "xmark" + scale + IO.XMLSUFFIX);
+    if(!file.exists()) {
+      file.parent().md();
+      file.write(Token.token(new Datasets().site(scale)));
+    }
+    return file;
+  }
+
+  /**
+   * Returns a JSON document for the specified scale. The document will be generated if
+   * it does not exist yet. A scale of {@code 1} results in roughly 0.7 MB of JSON.
+   * @param scale scale
+   * @return file reference
+   * @throws IOException I/O exception
+   */
+  public static IOFile json(final int scale) throws IOException {
+    final IOFile file = new IOFile(DIR, "people" + scale + IO.JSONSUFFIX);
+    if(!file.exists()) {
+      file.parent().md();
+      file.write(Token.token(new Datasets().people(scale)));
+    }
+    return file;
+  }
+
+  /**
+   * Returns the database path for the benchmarks.
+   * @return path
+   */
+  public static String dbpath() {
+    return DIR + "data";
+  }
+
+  /**
+   * Returns a random word.
+   * @return word
+   */
+  private String word() {
+    return WORDS[random.nextInt(WORDS.length)];
+  }
+
+  /**
+   * Generates an XMark document.
+   * @param scale scale
+   * @return document
+   */
+  private String site(final int scale) {
+    final int items = 200 * scale, people = 250 * scale, open = 120 * scale;
+    final int closed = 100 * scale, cats = 10 * scale;
+
+    sb.append("<?xml version=\"1.0\" standalone=\"yes\"?>\n<site>\n<regions>\n");
+    for(int r = 0, i = 0; r < REGIONS.length; r++) {
+      sb.append('<').append(REGIONS[r]).append(">\n");
+      for(final int e = items * (r + 1) / REGIONS.length; i < e; i++) item(i, cats);
+      sb.append("</").append(REGIONS[r]).append(">\n");
+    }
+    sb.append("</regions>\n<categories>\n");
+    for(int c = 0; c < cats; c++) {
+      sb.append("<category id=\"category").append(c).append("\">\n<name>");
+      text(3);
+      sb.append("</name>\n<description>\n<text>");
+      text(20);
+      sb.append("</text>\n</description>\n</category>\n");
+    }
+    sb.append("</categories>\n<people>\n");
+    for(int p = 0; p < people; p++) person(p, cats);
+    sb.append("</people>\n<open_auctions>\n");
+    for(int o = 0; o < open; o++) {
+      sb.append("<open_auction id=\"open_auction").append(o).append("\">\n");
+      sb.append("<initial>").append(price()).append("</initial>\n");
+      for(int b = random.nextInt(6); b > 0; b--) {
+        sb.append("<bidder>\n<date>").append(date()).append("</date>\n");
+        sb.append("<personref person=\"person").append(random.nextInt(people));
+        sb.append("\"/>\n<increase>").append(price()).append("</increase>\n</bidder>\n");
+      }
+      sb.append("<itemref item=\"item").append(random.nextInt(items)).append("\"/>\n");
+      sb.append("<seller person=\"person").append(random.nextInt(people)).append("\"/>\n");
+      sb.append("<quantity>1</quantity>\n<type>Regular</type>\n</open_auction>\n");
+    }
+    sb.append("</open_auctions>\n<closed_auctions>\n");
+    for(int c = 0; c < closed; c++) {
+      sb.append("<closed_auction>\n<seller person=\"person").append(random.nextInt(people));
+      sb.append("\"/>\n<buyer person=\"person").append(random.nextInt(people));
+      sb.append("\"/>\n<itemref item=\"item").append(random.nextInt(items));
+      sb.append("\"/>\n<price>").append(price()).append("</price>\n<date>").append(date());
+      sb.append("</date>\n<quantity>1</quantity>\n<annotation>\n<description>\n<text>");
+      text(25);
+      sb.append("</text>\n</description>\n</annotation>\n</closed_auction>\n");
+    }
+    return sb.append("</closed_auctions>\n</site>\n").toString();
+  }
+
+  /**
+   * Generates an item.
+   * @param i item id
+   * @param cats number of categories
+   */
+  private void item(final int i, final int cats) {
+    sb.append("<item id=\"item").append(i).append("\">\n<location>");
+    sb.append(LOCATIONS[random.nextInt(LOCATIONS.length)]).append("</location>\n");
+    sb.append("<quantity>").append(1 + random.nextInt(3)).append("</quantity>\n<name>");
+    text(3);
+    sb.append("</name>\n<payment>Creditcard</payment>\n<description>\n<parlist>\n");
+    for(int l = 1 + random.nextInt(3); l > 0; l--) {
+      sb.append("<listitem>\n<text>");
+      text(30);
+      sb.append(" <keyword>");
+      text(4);
+      sb.append("</keyword>\n</text>\n</listitem>\n");
+    }
+    sb.append("</parlist>\n</description>\n<shipping>Will ship internationally</shipping>\n");
+    for(int c = 1 + random.nextInt(4); c > 0; c--) {
+      sb.append("<incategory category=\"category").append(random.nextInt(cats)).append("\"/>\n");
+    }
+    sb.append("<mailbox>\n");
+    for(int m = random.nextInt(3); m > 0; m--) {
+      sb.append("<mail>\n<from>").append(word()).append("</from>\n<to>").append(word());
+      sb.append("</to>\n<date>").append(date()).append("</date>\n<text>");
+      text(40);
+      sb.append("</text>\n</mail>\n");
+    }
+    sb.append("</mailbox>\n</item>\n");
+  }
+
+  /**
+   * Generates a person.
+   * @param p person id
+   * @param cats number of categories
+   */
+  private void person(final int p, final int cats) {
+    sb.append("<person id=\"person").append(p).append("\">\n<name>").append(name());
+    sb.append("</name>\n<emailaddress>mailto:").append(word()).append(p);
+    sb.append("@example.com</emailaddress>\n");
+    if(random.nextBoolean()) {
+      sb.append("<address>\n<street>").append(random.nextInt(100)).append(' ').append(word());
+      sb.append(" St</street>\n<city>").append(word()).append("</city>\n<country>");
+      sb.append(LOCATIONS[random.nextInt(LOCATIONS.length)]).append("</country>\n</address>\n");
+    }
+    if(random.nextBoolean()) {
+      sb.append("<profile income=\"").append(price() * 100).append("\">\n");
+      for(int i = random.nextInt(4); i > 0; i--) {
+        sb.append("<interest category=\"category").append(random.nextInt(cats));
+        sb.append("\"/>\n");
+      }
+      sb.append("<education>College</education>\n<business>");
+      sb.append(random.nextBoolean() ? "Yes" : "No").append("</business>\n");
+      sb.append("<age>").append(18 + random.nextInt(60)).append("</age>\n</profile>\n");
+    }
+    sb.append("</person>\n");
+  }
+
+  /**
+   * Generates a JSON document with person records.
+   * @param scale scale
+   * @return document
+   */
+  private String people(final int scale) {
+    final int people = 2500 * scale;
+    sb.append("[\n");
+    for(int p = 0; p < people; p++) {
+      if(p > 0) sb.append(",\n");
+      sb.append("{\"id\":").append(p).append(",\"name\":\"").append(name());
+      sb.append("\",\"active\":").append(random.nextBoolean());
+      sb.append(",\"score\":").append(random.nextInt(10000) / 100d);
+      sb.append(",\"address\":{\"city\":\"").append(word()).append("\",\"country\":\"");
+      sb.append(LOCATIONS[random.nextInt(LOCATIONS.length)]).append("\"},\"tags\":[");
+      for(int t = random.nextInt(5); t > 0; t--) {
+        sb.append('"').append(word()).append('"').append(t > 1 ? "," : "");
+      }
+      sb.append("],\"note\":\"");
+      text(20);
+      sb.append("\"}");
+    }
+    return sb.append("\n]\n").toString();
+  }
+
+  /**
+   * Adds a text with the specified number of words.
+   * @param words number of words
+   */
+  private void text(final int words) {
+    for(int w = 0; w < words; w++) {
+      if(w > 0) sb.append(' ');
+      sb.append(word());
+    }
+  }
+
+  /**
+   * Returns a name.
+   * @return name
+   */
+  private String name() {
+    final String w1 = word(), w2 = word();
+    return Character.toUpperCase(w1.charAt(0)) + w1.substring(1) + ' ' +
+        Character.toUpperCase(w2.charAt(0)) + w2.substring(1);
+  }
+
+  /**
+   * Returns a price.
+   * @return price
+   */
+  private int price() {
+    return 1 + random.nextInt(500);
+  }
+
+  /**
+   * Returns a date.
+   * @return date
+   */
+  private String date() {
+    return String.format("%02d/%02d/%d", 1 + random.nextInt(12), 1 + random.nextInt(28),
+        1998 + random.nextInt(4));
+  }
+}
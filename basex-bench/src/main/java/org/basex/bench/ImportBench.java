@@ -0,0 +1,104 @@
+package org.basex.bench;
+
+import java.io.*;
+
+import org.basex.build.*;
+import org.basex.build.json.*;
+import org.basex.build.xml.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.basex.io.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for parsing documents and building databases.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+@State(Scope.Benchmark)
+public class ImportBench {
+  /** Scale of the documents (see {@link Datasets}). */
+  @Param("1")
+  public int scale;
+  /** Database context. */
+  private Context context;
+  /** XML document. */
+  private IOFile xml;
+  /** JSON document. */
+  private IOFile json;
+
+  /**
+   * Generates the documents.
+   * @throws IOException I/O exception
+   */
+  @Setup
+  public void init() throws IOException {
+    context = new Context();
+    context.soptions.set(StaticOptions.DBPATH, Datasets.dbpath());
+    xml = Datasets.xmark(scale);
+    json = Datasets.json(scale);
+  }
+
+  /** Drops the database created by {@link #xmlDisk()} and closes the context. */
+  @TearDown
+  public void close() {
+    DropDB.drop(name(), context.soptions);
+    context.close();
+  }
+
+  /**
+   * Parses an XML document with the internal parser and builds a main-memory database.
+   * @return number of nodes
+   * @throws IOException I/O exception
+   */
+  @Benchmark
+  public int xmlMemory() throws IOException {
+    return MemBuilder.build(new XMLParser(xml, context.options)).meta.size;
+  }
+
+  /**
+   * Parses an XML document with the Java default parser and builds a main-memory database.
+   * @return number of nodes
+   * @throws IOException I/O exception
+   */
+  @Benchmark
+  public int saxMemory() throws IOException {
+    return MemBuilder.build(new SAXWrapper(xml, context.options)).meta.size;
+  }
+
+  /**
+   * Parses an XML document with the internal parser and builds a disk-based database.
+   * @return number of nodes
+   * @throws IOException I/O exception
+   */
+  @Benchmark
+  public int xmlDisk() throws IOException {
+    try(final DiskBuilder builder = new DiskBuilder(name(),
+        new XMLParser(xml, context.options), context.soptions, context.options)) {
+      final Data data = builder.build();
+      final int size = data.meta.size;
+      data.close();
+      return size;
+    }
+  }
+
+  /**
+   * Parses a JSON document and builds a main-memory database.
+   * @return number of nodes
+   * @throws IOException I/O exception
+   */
+  @Benchmark
+  public int jsonMemory() throws IOException {
+    return MemBuilder.build(new JsonParser(json, context.options)).meta.size;
+  }
+
+  /**
+   * Returns the name of the database created by {@link #xmlDisk()}.
+   * @return name
+   */
+  private String name() {
+    return "import" + scale;
+  }
+}
@@ -0,0 +1,73 @@
+package org.basex.bench;
+
+import org.basex.index.query.*;
+import org.basex.util.*;
+import org.basex.util.ft.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for index lookups.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public class IndexBench extends DatabaseBench {
+  /** Texts to be looked up in the text index. */
+  private static final byte[][] TEXTS = Token.tokens("Creditcard", "Regular", "College",
+      "Yes", "No", "Germany", "Japan", "Will ship internationally", "1", "2");
+  /** Number of attribute values to be looked up. */
+  private static final int ATTRIBUTES = 100;
+
+  /**
+   * Looks up texts in the text index.
+   * @return checksum
+   */
+  @Benchmark
+  public long text() {
+    long sum = 0;
+    for(final byte[] text : TEXTS) sum += iterate(data.iter(new StringToken(true, text)));
+    return sum;
+  }
+
+  /**
+   * Looks up attribute values in the attribute index.
+   * @return checksum
+   */
+  @Benchmark
+  public long attribute() {
+    long sum = 0;
+    for(int a = 0; a < ATTRIBUTES; a++) {
+      final byte[] value = Token.token("person" + a);
+      sum += iterate(data.iter(new StringToken(false, value)));
+    }
+    return sum;
+  }
+
+  /**
+   * Looks up words in the full-text index.
+   * @return checksum
+   */
+  @Benchmark
+  public long fulltext() {
+    long sum = 0;
+    final FTLexer lexer = new FTLexer(new FTOpt());
+    for(final String word : Datasets.WORDS) {
+      lexer.init(Token.token(word));
+      lexer.hasNext();
+      lexer.nextToken();
+      sum += iterate(data.iter(lexer));
+    }
+    return sum;
+  }
+
+  /**
+   * Consumes the results of an index iterator.
+   * @param iter index iterator
+   * @return checksum
+   */
+  private static long iterate(final IndexIterator iter) {
+    long sum = 0;
+    while(iter.more()) sum += iter.pre();
+    return sum;
+  }
+}
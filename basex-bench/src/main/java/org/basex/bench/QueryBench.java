@@ -0,0 +1,47 @@
+package org.basex.bench;
+
+import org.basex.query.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for evaluating queries on a database.
+ *
+ * The queries cover iterative and cached path evaluation, predicates that can be rewritten
+ * for index access, and FLWOR expressions with grouping and ordering.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public class QueryBench extends DatabaseBench {
+  /** Query. */
+  @Param({
+    // iterative path
+    "count(/site/regions/*/item/name)",
+    // cached path (descendant steps)
+    "count(//item//keyword)",
+    // value index access
+    "count(//item[payment = 'Creditcard'])",
+    // full-text index access
+    "count(//text[. contains text 'gold'])",
+    // join
+    "count(for $p in //person for $a in //closed_auction[buyer/@person = $p/@id] return $a)",
+    // group by
+    "for $i in //item group by $l := $i/location return <group location='{ $l }' " +
+      "count='{ count($i) }'/>",
+    // order by
+    "for $p in //person order by $p/name, $p/@id descending return $p/@id/string()"
+  })
+  public String query;
+
+  /**
+   * Evaluates the query and returns the result.
+   * @return result
+   * @throws QueryException query exception
+   */
+  @Benchmark
+  public Object evaluate() throws QueryException {
+    try(final QueryProcessor qp = new QueryProcessor(query, context)) {
+      return qp.value();
+    }
+  }
+}
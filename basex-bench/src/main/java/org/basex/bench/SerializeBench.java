@@ -0,0 +1,61 @@
+package org.basex.bench;
+
+import java.io.*;
+
+import org.basex.io.out.*;
+import org.basex.io.serial.*;
+import org.basex.query.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for serializing XML and JSON.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public class SerializeBench extends DatabaseBench {
+  /** Serialization parameters for JSON. */
+  private final SerializerOptions jsonOptions = new SerializerOptions();
+  /** JSON map. */
+  private Item json;
+
+  /**
+   * Parses the JSON document.
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  @Setup
+  public void parse() throws IOException, QueryException {
+    jsonOptions.set(SerializerOptions.METHOD, SerialMethod.JSON);
+    final String path = Datasets.json(scale).path();
+    try(final QueryProcessor qp = new QueryProcessor(
+        "declare variable $path external; " +
+        "json:parse(file:read-text($path), map { 'format': 'map' })", context)) {
+      json = (Item) qp.bind("path", path).value();
+    }
+  }
+
+  /**
+   * Serializes the XML document.
+   * @throws IOException I/O exception
+   */
+  @Benchmark
+  public void xml() throws IOException {
+    final Serializer ser = Serializer.get(new NullOutput());
+    ser.serialize(new DBNode(data));
+    ser.close();
+  }
+
+  /**
+   * Serializes the JSON value.
+   * @throws IOException I/O exception
+   */
+  @Benchmark
+  public void json() throws IOException {
+    final Serializer ser = Serializer.get(new NullOutput(), jsonOptions);
+    ser.serialize(json);
+    ser.close();
+  }
+}
@@ -0,0 +1,71 @@
+package org.basex.bench;
+
+import java.util.*;
+
+import org.basex.data.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for reading entries from the table and text storage of a database.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public class StorageBench extends DatabaseBench {
+  /** Number of random accesses. */
+  private static final int ACCESSES = 100000;
+  /** Randomly chosen pre values. */
+  private int[] pres;
+
+  /** Chooses the pre values for random access. */
+  @Setup
+  public void choose() {
+    final Random random = new Random(42);
+    final int size = data.meta.size;
+    pres = new int[ACCESSES];
+    for(int p = 0; p < ACCESSES; p++) pres[p] = random.nextInt(size);
+  }
+
+  /**
+   * Reads the kind, size and parent of all nodes in document order.
+   * @return checksum
+   */
+  @Benchmark
+  public long sequential() {
+    long sum = 0;
+    final int size = data.meta.size;
+    for(int pre = 0; pre < size; pre++) {
+      final int kind = data.kind(pre);
+      sum += data.size(pre, kind) + data.parent(pre, kind);
+    }
+    return sum;
+  }
+
+  /**
+   * Reads the kind, size and parent of randomly chosen nodes.
+   * @return checksum
+   */
+  @Benchmark
+  public long random() {
+    long sum = 0;
+    for(final int pre : pres) {
+      final int kind = data.kind(pre);
+      sum += data.size(pre, kind) + data.parent(pre, kind);
+    }
+    return sum;
+  }
+
+  /**
+   * Reads all texts in document order.
+   * @return checksum
+   */
+  @Benchmark
+  public long texts() {
+    long sum = 0;
+    final int size = data.meta.size;
+    for(int pre = 0; pre < size; pre++) {
+      if(data.kind(pre) == Data.TEXT) sum += data.text(pre, true).length;
+    }
+    return sum;
+  }
+}
@@ -4,6 +4,7 @@ import static org.basex.core.Text.*;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.*;
 import java.util.*;
 
 import org.basex.api.client.*;
@@ -38,6 +39,8 @@ public final class BaseXServer extends CLI implements Runnable {
   private StringList commands;
   /** Server socket. */
   private ServerSocket socket;
+  /** Dispatcher for client requests ({@code null} if one thread is used per client). */
+  private ClientDispatcher dispatcher;
   /** Start as daemon. */
   private boolean service;
   /** Quiet flag. */
@@ -104,9 +107,15 @@ public final class BaseXServer extends CLI implements Runnable {
       // execute initial command-line arguments
       for(final String c : commands) execute(c);
 
-      socket = new ServerSocket();
+      // sessions will only be parked if their sockets have been created via channels
+      final int threads = sopts.get(StaticOptions.SERVERTHREADS);
+      socket = threads > 0 ? ServerSocketChannel.open().socket() : new ServerSocket();
       socket.setReuseAddress(true);
-      socket.bind(new InetSocketAddress(addr, port));
+      socket.bind(new InetSocketAddress(addr, port), sopts.get(StaticOptions.SERVERBACKLOG));
+      if(threads > 0) {
+        dispatcher = new ClientDispatcher(threads);
+        dispatcher.start();
+      }
       esocket = new ServerSocket();
       esocket.setReuseAddress(true);
       esocket.bind(new InetSocketAddress(addr, eport));
@@ -165,7 +174,8 @@ public final class BaseXServer extends CLI implements Runnable {
             }, to);
             auth.add(cl);
           }
-          cl.start();
+          if(dispatcher != null) dispatcher.dispatch(cl);
+          else cl.start();
         }
       } catch(final SocketException ex) {
         break;
@@ -201,6 +211,7 @@ public final class BaseXServer extends CLI implements Runnable {
     for(final ClientListener cs : context.sessions) {
       cs.quit();
     }
+    if(dispatcher != null) dispatcher.close();
 
     try {
       // close interactive input if server was stopped by another process
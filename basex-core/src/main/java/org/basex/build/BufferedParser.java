@@ -0,0 +1,236 @@
+package org.basex.build;
+
+import java.io.*;
+
+import org.basex.core.*;
+import org.basex.data.*;
+import org.basex.data.atomic.*;
+import org.basex.io.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * This parser caches the events of a single parser in a compact buffer and replays them
+ * to the builder. It allows resources to be parsed in parallel and added to the database
+ * in their original order.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class BufferedParser extends Parser {
+  /** Event: open document. */
+  private static final int DOC = 0;
+  /** Event: close document. */
+  private static final int CDOC = 1;
+  /** Event: open element. */
+  private static final int ELEM = 2;
+  /** Event: empty element. */
+  private static final int EMPTY = 3;
+  /** Event: close element. */
+  private static final int CELEM = 4;
+  /** Event: text. */
+  private static final int TEXT = 5;
+  /** Event: comment. */
+  private static final int COMM = 6;
+  /** Event: processing instruction. */
+  private static final int PI = 7;
+  /** Event: encoding. */
+  private static final int ENC = 8;
+
+  /** Events. */
+  private final ByteList events = new ByteList();
+  /** Tokens of the events. */
+  private final TokenList tokens = new TokenList();
+  /** Number of attributes and namespaces of the element events. */
+  private final IntList sizes = new IntList();
+  /** Error that was raised while parsing the input (can be {@code null}). */
+  IOException error;
+  /** Number of events that have been replayed. */
+  private int pos;
+
+  /**
+   * Constructor. Parses the input and caches all events. Parsing errors will not be
+   * thrown, but assigned to {@link #error}.
+   * @param source input source
+   * @param options main options
+   * @param target target path
+   * @param check check if the input can be stored in a database
+   */
+  BufferedParser(final IO source, final MainOptions options, final String target,
+      final boolean check) {
+    super(source, options);
+    try {
+      final Parser parser = singleParser(source, options, target);
+      try {
+        parser.parse(new Recorder(parser));
+      } finally {
+        parser.close();
+      }
+      // check namespaces and database limits by building a temporary instance
+      if(check) MemBuilder.build("", this);
+    } catch(final IOException ex) {
+      error = ex;
+    }
+  }
+
+  @Override
+  public void parse(final Builder build) throws IOException {
+    final Atts att = new Atts(), nsp = new Atts();
+    final int es = events.size();
+    for(int e = 0, t = 0, s = 0; e < es; e++) {
+      pos = e;
+      switch(events.get(e)) {
+        case DOC:   build.openDoc(tokens.get(t++)); break;
+        case CDOC:  build.closeDoc(); break;
+        case CELEM: build.closeElem(); break;
+        case TEXT:  build.text(tokens.get(t++)); break;
+        case COMM:  build.comment(tokens.get(t++)); break;
+        case PI:    build.pi(tokens.get(t++)); break;
+        case ENC:   build.encoding(Token.string(tokens.get(t++))); break;
+        default:
+          final byte[] name = tokens.get(t++);
+          att.clear();
+          nsp.clear();
+          for(int a = sizes.get(s++); a > 0; a--) att.add(tokens.get(t++), tokens.get(t++));
+          for(int n = sizes.get(s++); n > 0; n--) nsp.add(tokens.get(t++), tokens.get(t++));
+          if(events.get(e) == ELEM) build.openElem(name, att, nsp);
+          else build.emptyElem(name, att, nsp);
+      }
+    }
+    pos = es;
+  }
+
+  @Override
+  public String det() {
+    return source.path();
+  }
+
+  @Override
+  public double prog() {
+    final int es = events.size();
+    return es == 0 ? 1 : (double) pos / es;
+  }
+
+  /**
+   * Builder that records all events.
+   */
+  private final class Recorder extends Builder {
+    /**
+     * Constructor.
+     * @param parser parser
+     */
+    Recorder(final Parser parser) {
+      super("", parser);
+    }
+
+    @Override
+    public void openDoc(final byte[] value) {
+      add(DOC, value);
+    }
+
+    @Override
+    public void closeDoc() {
+      events.add(CDOC);
+    }
+
+    @Override
+    public void openElem(final byte[] name, final Atts att, final Atts nsp) {
+      add(ELEM, name, att, nsp);
+    }
+
+    @Override
+    public void emptyElem(final byte[] name, final Atts att, final Atts nsp) {
+      add(EMPTY, name, att, nsp);
+    }
+
+    @Override
+    public void closeElem() {
+      events.add(CELEM);
+    }
+
+    @Override
+    public void text(final byte[] value) {
+      if(value.length != 0) add(TEXT, value);
+    }
+
+    @Override
+    public void comment(final byte[] value) {
+      add(COMM, value);
+    }
+
+    @Override
+    public void pi(final byte[] pi) {
+      add(PI, pi);
+    }
+
+    @Override
+    public void encoding(final String encoding) {
+      add(ENC, Token.token(encoding));
+    }
+
+    /**
+     * Adds an event with a single token.
+     * @param event event
+     * @param token token
+     */
+    private void add(final int event, final byte[] token) {
+      events.add(event);
+      tokens.add(token);
+    }
+
+    /**
+     * Adds an element event.
+     * @param event event
+     * @param name element name
+     * @param att attributes
+     * @param nsp namespaces
+     */
+    private void add(final int event, final byte[] name, final Atts att, final Atts nsp) {
+      add(event, name);
+      final int as = att.size(), ns = nsp.size();
+      sizes.add(as);
+      for(int a = 0; a < as; a++) tokens.add(att.name(a), att.value(a));
+      sizes.add(ns);
+      for(int n = 0; n < ns; n++) tokens.add(nsp.name(n), nsp.value(n));
+    }
+
+    @Override
+    public Data build() {
+      throw Util.notExpected();
+    }
+
+    @Override
+    public DataClip dataClip() {
+      throw Util.notExpected();
+    }
+
+    @Override
+    public void close() { }
+
+    @Override
+    protected void addDoc(final byte[] value) {
+      throw Util.notExpected();
+    }
+
+    @Override
+    protected void addElem(final int dist, final int name, final int asize, final int uri,
+        final boolean ne) {
+      throw Util.notExpected();
+    }
+
+    @Override
+    protected void addAttr(final int name, final byte[] value, final int dist, final int uri) {
+      throw Util.notExpected();
+    }
+
+    @Override
+    protected void addText(final byte[] value, final int dist, final byte kind) {
+      throw Util.notExpected();
+    }
+
+    @Override
+    protected void setSize(final int pre, final int size) {
+      throw Util.notExpected();
+    }
+  }
+}
@@ -80,7 +80,7 @@ public abstract class Builder extends Proc {
    * @param value document name
    * @throws IOException I/O exception
    */
-  public final void openDoc(final byte[] value) throws IOException {
+  public void openDoc(final byte[] value) throws IOException {
     path.put(0, Data.DOC, level);
     pstack.set(level++, meta.size);
     addDoc(value);
@@ -91,7 +91,7 @@ public abstract class Builder extends Proc {
    * Closes a document node.
    * @throws IOException I/O exception
    */
-  public final void closeDoc() throws IOException {
+  public void closeDoc() throws IOException {
     final int pre = pstack.get(--level);
     setSize(pre, meta.size - pre);
     meta.ndocs.incrementAndGet();
@@ -105,7 +105,7 @@ public abstract class Builder extends Proc {
    * @param nsp namespaces
    * @throws IOException I/O exception
    */
-  public final void openElem(final byte[] name, final Atts att, final Atts nsp) throws IOException {
+  public void openElem(final byte[] name, final Atts att, final Atts nsp) throws IOException {
     addElem(name, att, nsp);
     ++level;
   }
@@ -117,7 +117,7 @@ public abstract class Builder extends Proc {
    * @param nsp namespaces
    * @throws IOException I/O exception
    */
-  public final void emptyElem(final byte[] name, final Atts att, final Atts nsp)
+  public void emptyElem(final byte[] name, final Atts att, final Atts nsp)
       throws IOException {
     addElem(name, att, nsp);
     final int pre = pstack.get(level);
@@ -129,7 +129,7 @@ public abstract class Builder extends Proc {
    * Closes an element.
    * @throws IOException I/O exception
    */
-  public final void closeElem() throws IOException {
+  public void closeElem() throws IOException {
     checkStop();
     --level;
     final int pre = pstack.get(level);
@@ -142,7 +142,7 @@ public abstract class Builder extends Proc {
    * @param value text value
    * @throws IOException I/O exception
    */
-  public final void text(final byte[] value) throws IOException {
+  public void text(final byte[] value) throws IOException {
     if(value.length != 0) addText(value, Data.TEXT);
   }
 
@@ -151,7 +151,7 @@ public abstract class Builder extends Proc {
    * @param value comment text
    * @throws IOException I/O exception
    */
-  public final void comment(final byte[] value) throws IOException {
+  public void comment(final byte[] value) throws IOException {
     addText(value, Data.COMM);
   }
 
@@ -160,7 +160,7 @@ public abstract class Builder extends Proc {
    * @param pi processing instruction name and value
    * @throws IOException I/O exception
    */
-  public final void pi(final byte[] pi) throws IOException {
+  public void pi(final byte[] pi) throws IOException {
     addText(pi, Data.PI);
   }
 
@@ -168,7 +168,7 @@ public abstract class Builder extends Proc {
    * Sets the document encoding.
    * @param encoding encoding
    */
-  public final void encoding(final String encoding) {
+  public void encoding(final String encoding) {
     meta.encoding = Strings.normEncoding(encoding);
   }
 
@@ -4,6 +4,7 @@ import static org.basex.core.Text.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.regex.*;
 import java.util.zip.*;
 
@@ -25,6 +26,10 @@ import org.basex.util.list.*;
 public final class DirParser extends Parser {
   /** Number of skipped files to log. */
   private static final int SKIPLOG = 10;
+  /** Maximum size of a resource that will be parsed in parallel. */
+  private static final long MAXFILE = 1 << 24;
+  /** Maximum accumulated size of the resources that are parsed in parallel. */
+  private static final long MAXBUFFER = 1 << 26;
   /** Skipped files. */
   private final StringList skipped = new StringList();
   /** File pattern. */
@@ -45,6 +50,15 @@ public final class DirParser extends Parser {
   /** Database path for storing binary files. */
   private IOFile rawPath;
 
+  /** Maximum number of parser threads. */
+  private final int threads;
+  /** Parser threads (only assigned if resources are parsed in parallel). */
+  private ExecutorService pool;
+  /** Resources that are currently parsed, in the order in which they will be added. */
+  private final ArrayDeque<Future<BufferedParser>> parsed = new ArrayDeque<>();
+  /** Accumulated size of the resources that are currently parsed. */
+  private long buffered;
+
   /** Last source. */
   private IO lastSrc;
   /** Parser reference. */
@@ -69,6 +83,8 @@ public final class DirParser extends Parser {
     rawParser = options.get(MainOptions.PARSER) == MainParser.RAW;
     filter = !source.isDir() && !source.isArchive() ? null :
       Pattern.compile(IOFile.regex(options.get(MainOptions.CREATEFILTER)));
+    final int th = options.get(MainOptions.PARSETHREADS);
+    threads = th > 0 ? th : Runtime.getRuntime().availableProcessors();
   }
 
   /**
@@ -86,7 +102,28 @@ public final class DirParser extends Parser {
   public void parse(final Builder build) throws IOException {
     build.meta.filesize = 0;
     build.meta.original = source.path();
-    parse(build, source);
+    // parse multiple resources in parallel: the builder adds the cached events in order
+    if(threads > 1 && filter != null && !rawParser) {
+      pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+          final Thread t = new Thread(r, Util.className(DirParser.class));
+          t.setDaemon(true);
+          return t;
+        }
+      });
+    }
+    try {
+      parse(build, source);
+      while(!parsed.isEmpty()) add(build);
+    } finally {
+      if(pool != null) {
+        for(final Future<BufferedParser> f : parsed) f.cancel(true);
+        parsed.clear();
+        pool.shutdownNow();
+        pool = null;
+      }
+    }
   }
 
   /**
@@ -181,6 +218,15 @@ public final class DirParser extends Parser {
         }
       } else {
         // store input as XML
+        if(pool != null) {
+          final long length = source.length();
+          if(length != -1 && length <= MAXFILE) {
+            submit(b, targ);
+            return;
+          }
+          // large resources are streamed, as their cached events would consume too much memory
+          while(!parsed.isEmpty()) add(b);
+        }
         boolean ok = true;
         IO in = source;
         if(skipCorrupt) {
@@ -212,6 +258,64 @@ public final class DirParser extends Parser {
     }
   }
 
+  /**
+   * Submits the current source to the parser threads. Entries of archives will be read
+   * in advance, because their streams are consumed sequentially.
+   * @param b builder instance
+   * @param targ target path
+   * @throws IOException I/O exception
+   */
+  private void submit(final Builder b, final String targ) throws IOException {
+    final IO in = source instanceof IOStream ? new IOContent(source.read(), source.path()) :
+      source;
+    // add parsed resources to the database
+    final long length = in.length();
+    while(!parsed.isEmpty() && (parsed.size() >= threads << 2 ||
+        buffered + length > MAXBUFFER || parsed.peek().isDone())) {
+      add(b);
+    }
+    buffered += length;
+    parsed.add(pool.submit(new Callable<BufferedParser>() {
+      @Override
+      public BufferedParser call() {
+        return new BufferedParser(in, options, targ, skipCorrupt);
+      }
+    }));
+  }
+
+  /**
+   * Adds the next parsed resource to the database.
+   * @param b builder instance
+   * @throws IOException I/O exception
+   */
+  private void add(final Builder b) throws IOException {
+    final BufferedParser bp;
+    try {
+      bp = parsed.poll().get();
+    } catch(final InterruptedException ex) {
+      throw new IOException(ex);
+    } catch(final ExecutionException ex) {
+      final Throwable th = ex.getCause();
+      if(th instanceof RuntimeException) throw (RuntimeException) th;
+      if(th instanceof Error) throw (Error) th;
+      throw new IOException(th);
+    }
+    buffered -= bp.source.length();
+    b.checkStop();
+    if(bp.error == null) {
+      parser = bp;
+      bp.parse(b);
+      parser = null;
+    } else if(skipCorrupt) {
+      Util.debug(bp.error);
+      skipped.add(bp.source.path());
+    } else {
+      throw bp.error;
+    }
+    // dump debug data
+    if(Prop.debug && (++c & 0x3FF) == 0) Util.err(";");
+  }
+
   @Override
   public String info() {
     final TokenBuilder tb = new TokenBuilder();
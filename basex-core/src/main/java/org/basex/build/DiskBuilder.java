@@ -6,6 +6,7 @@ import static org.basex.data.DataText.*;
 import java.io.*;
 
 import org.basex.core.*;
+import org.basex.core.MainOptions.MainCodec;
 import org.basex.core.cmd.*;
 import org.basex.data.*;
 import org.basex.data.atomic.*;
@@ -16,6 +17,7 @@ import org.basex.io.out.*;
 import org.basex.io.out.DataOutput;
 import org.basex.io.random.*;
 import org.basex.util.*;
+import org.basex.util.list.*;
 
 /**
  * This class creates a database instance on disk.
@@ -25,14 +27,6 @@ import org.basex.util.*;
  * @author Christian Gruen
  */
 public final class DiskBuilder extends Builder implements AutoCloseable {
-  /** Text compressor. */
-  private static final ThreadLocal<Compress> COMP = new ThreadLocal<Compress>() {
-    @Override
-    protected Compress initialValue() {
-      return new Compress();
-    }
-  };
-
   /** Database table. */
   private DataOutput tout;
   /** Database texts. */
@@ -42,6 +36,13 @@ public final class DiskBuilder extends Builder implements AutoCloseable {
   /** Output stream for temporary values. */
   private DataOutput sout;
 
+  /** Codecs for texts and attribute values. */
+  private final ValueCodec[] codecs = new ValueCodec[2];
+  /** Sample values for training the codecs (entries are {@code null} if not required). */
+  private final TokenList[] samples = new TokenList[2];
+  /** Number of bytes of the sample values. */
+  private final int[] sampled = new int[2];
+
   /** Static options. */
   private final StaticOptions sopts;
   /** Closed flag. */
@@ -63,6 +64,32 @@ public final class DiskBuilder extends Builder implements AutoCloseable {
     meta = new MetaData(dbname, opts, sopts);
   }
 
+  /**
+   * Trains the value codecs with texts and attribute values of an existing database.
+   * The values are chosen evenly from the whole database. This method must be called
+   * before the database is built.
+   * @param data database
+   */
+  public void sample(final Data data) {
+    if(meta.codec != MainCodec.DICT) return;
+    final TokenList[] smp = { new TokenList(), new TokenList() };
+    final int[] bytes = new int[2];
+    final int size = data.meta.size, step = Math.max(1, size / (ValueCodec.SAMPLE >>> 6));
+    for(int s = 0; s < step; s++) {
+      for(int pre = s; pre < size; pre += step) {
+        final int k = data.kind(pre);
+        if(k == Data.ELEM || k == Data.DOC) continue;
+        final int i = k == Data.ATTR ? 1 : 0;
+        if(bytes[i] >= ValueCodec.SAMPLE) continue;
+        final byte[] value = data.text(pre, i == 0);
+        smp[i].add(value);
+        bytes[i] += value.length;
+      }
+      if(bytes[0] >= ValueCodec.SAMPLE && bytes[1] >= ValueCodec.SAMPLE) break;
+    }
+    for(int i = 0; i < 2; i++) codecs[i] = ValueCodec.train(smp[i]);
+  }
+
   @Override
   public DiskData build() throws IOException {
     meta.assign(parser);
@@ -80,6 +107,10 @@ public final class DiskBuilder extends Builder implements AutoCloseable {
 
     elemNames = new Names(meta);
     attrNames = new Names(meta);
+    for(int i = 0; i < 2; i++) {
+      if(codecs[i] == null) codecs[i] = ValueCodec.get(meta.codec, null);
+      if(codecs[i].untrained()) samples[i] = new TokenList();
+    }
     try {
       tout = new DataOutput(new TableOutput(meta, DATATBL));
       xout = new DataOutput(meta.dbfile(DATATXT), bs);
@@ -105,8 +136,9 @@ public final class DiskBuilder extends Builder implements AutoCloseable {
     }
     meta.dbfile(DATATMP).delete();
 
-    // return database instance
-    return new DiskData(meta, elemNames, attrNames, path, ns);
+    // train codecs if not enough values were found, and return database instance
+    for(int i = 0; i < 2; i++) train(i);
+    return new DiskData(meta, elemNames, attrNames, path, ns, codecs[0], codecs[1]);
   }
 
   @Override
@@ -204,8 +236,29 @@ public final class DiskBuilder extends Builder implements AutoCloseable {
     // store text
     final DataOutput store = text ? xout : vout;
     final long off = store.size();
-    final byte[] val = COMP.get().pack(value);
+    final int i = text ? 0 : 1;
+    final byte[] val;
+    if(samples[i] == null) {
+      val = codecs[i].pack(value);
+    } else {
+      // codec is trained with the first values, which are stored uncompressed
+      val = value;
+      samples[i].add(value);
+      sampled[i] += value.length;
+      if(sampled[i] >= ValueCodec.SAMPLE) train(i);
+    }
     store.writeToken(val);
     return val == value ? off : off | IO.OFFCOMP;
   }
+
+  /**
+   * Trains a codec with the collected sample values.
+   * @param i index of codec
+   */
+  private void train(final int i) {
+    final TokenList smp = samples[i];
+    if(smp == null) return;
+    if(!smp.isEmpty()) codecs[i] = ValueCodec.train(smp);
+    samples[i] = null;
+  }
 }
@@ -28,7 +28,7 @@ public abstract class Parser extends Proc {
   /** Main options. */
   protected final MainOptions options;
   /** Target path (empty, or suffixed with a single slash). */
-  String target = "";
+  protected String target = "";
 
   /**
    * Constructor.
@@ -1,21 +1,40 @@
 package org.basex.build.csv;
 
 import static org.basex.core.Text.*;
+import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.build.*;
 import org.basex.io.parse.csv.*;
 import org.basex.query.value.item.*;
 import org.basex.util.*;
+import org.basex.util.list.*;
 
 /**
- * This class converts CSV data to XML, using direct or attributes conversion.
+ * <p>This class converts CSV data to XML, using direct or attributes conversion.</p>
+ *
+ * <p>If {@link CsvParserOptions#TYPES} is enabled, the first records are cached, and the
+ * types of the columns are inferred from their values. The values of numeric columns
+ * are then normalized, so that integers can be inlined in the table and compared
+ * in the value indexes.</p>
  *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
 public final class CsvBuilder extends CsvConverter {
+  /** Number of records used for inferring column types. */
+  private static final int SAMPLE = 1000;
+  /** Column type: integer. */
+  private static final int INTEGER = 1;
+  /** Column type: decimal. */
+  private static final int DECIMAL = 2;
+  /** Column type: double. */
+  private static final int DOUBLE = 3;
+  /** Column type: string. */
+  private static final int STRING = 4;
+
   /** Attributes. */
   private final Atts atts = new Atts();
   /** Namespaces. */
@@ -26,6 +45,12 @@ public final class CsvBuilder extends CsvConverter {
   private Builder builder;
   /** Current line. */
   private int line;
+  /** Column types ({@code null} if types are not inferred). */
+  private IntList types;
+  /** Cached entries ({@code null} if no records are cached). */
+  private TokenList entries;
+  /** Offsets of the cached records. */
+  private IntList records;
 
   /**
    * Constructor.
@@ -37,15 +62,23 @@ public final class CsvBuilder extends CsvConverter {
     super(opts);
     this.builder = builder;
     builder.openElem(CsvConverter.CSV, atts, nsp);
+    if(opts.get(CsvParserOptions.TYPES)) {
+      types = new IntList();
+      entries = new TokenList();
+      records = new IntList();
+    }
   }
 
   @Override
   public void record() throws IOException {
-    if(record) builder.closeElem();
-    builder.openElem(RECORD, atts, nsp);
-    record = true;
-    col = 0;
-    line++;
+    if(entries != null) {
+      if(records.size() < SAMPLE) {
+        records.add(entries.size());
+        return;
+      }
+      flush();
+    }
+    addRecord();
   }
 
   @Override
@@ -55,6 +88,62 @@ public final class CsvBuilder extends CsvConverter {
 
   @Override
   public void entry(final byte[] entry) throws IOException {
+    if(entries != null) entries.add(entry);
+    else addEntry(entry);
+  }
+
+  @Override
+  public Str finish() throws IOException {
+    if(entries != null) flush();
+    if(record) builder.closeElem();
+    builder.closeElem();
+    return null;
+  }
+
+  /**
+   * Infers the column types from the cached records and adds the cached records.
+   * @throws IOException I/O exception
+   */
+  private void flush() throws IOException {
+    final TokenList ents = entries;
+    final IntList recs = records;
+    entries = null;
+    records = null;
+
+    final int es = ents.size(), rs = recs.size();
+    for(int r = 0; r < rs; r++) {
+      final int e = r + 1 < rs ? recs.get(r + 1) : es;
+      for(int s = recs.get(r), c = 0; s < e; s++, c++) {
+        final int type = type(ents.get(s));
+        if(type > (c < types.size() ? types.get(c) : 0)) types.set(c, type);
+      }
+    }
+    for(int r = 0; r < rs; r++) {
+      addRecord();
+      final int e = r + 1 < rs ? recs.get(r + 1) : es;
+      for(int s = recs.get(r); s < e; s++) addEntry(ents.get(s));
+    }
+  }
+
+  /**
+   * Adds a record.
+   * @throws IOException I/O exception
+   */
+  private void addRecord() throws IOException {
+    if(record) builder.closeElem();
+    builder.openElem(RECORD, atts, nsp);
+    record = true;
+    col = 0;
+    line++;
+  }
+
+  /**
+   * Adds an entry.
+   * @param entry entry
+   * @throws IOException I/O exception
+   */
+  private void addEntry(final byte[] entry) throws IOException {
+    final int c = col;
     final byte[] elem = ENTRY, name = headers.get(col++);
     if(ats) {
       if(name == null) {
@@ -67,15 +156,64 @@ public final class CsvBuilder extends CsvConverter {
     } else {
       builder.openElem(name != null ? name : elem, atts, nsp);
     }
-    builder.text(entry);
+    builder.text(types != null && c < types.size() ? normalize(entry, types.get(c)) : entry);
     builder.closeElem();
   }
 
-  @Override
-  public Str finish() throws IOException {
-    if(record) builder.closeElem();
-    builder.closeElem();
-    return null;
+  /**
+   * Returns the type of a value.
+   * @param value value
+   * @return type ({@code 0} for empty values)
+   */
+  private static int type(final byte[] value) {
+    final byte[] v = trim(value);
+    final int vl = v.length;
+    if(vl == 0) return 0;
+
+    int p = v[0] == '-' || v[0] == '+' ? 1 : 0, type = INTEGER;
+    final int s = p;
+    while(p < vl && digit(v[p])) p++;
+    // integers with leading zeros are treated as strings (codes, zip numbers, ...)
+    if(p - s > 1 && v[s] == '0') return STRING;
+    int digits = p - s;
+    if(p < vl && v[p] == '.') {
+      final int f = ++p;
+      while(p < vl && digit(v[p])) p++;
+      digits += p - f;
+      type = DECIMAL;
+    }
+    if(digits == 0) return STRING;
+    if(p < vl && (v[p] == 'e' || v[p] == 'E')) {
+      if(++p < vl && (v[p] == '-' || v[p] == '+')) p++;
+      final int e = p;
+      while(p < vl && digit(v[p])) p++;
+      if(p == e) return STRING;
+      type = DOUBLE;
+    }
+    return p == vl ? type : STRING;
+  }
+
+  /**
+   * Normalizes a value of a numeric column. Whitespaces and positive signs are removed,
+   * and trailing zeros are removed from decimals.
+   * @param value value
+   * @param column column type
+   * @return normalized or original value
+   */
+  private static byte[] normalize(final byte[] value, final int column) {
+    final int type = type(value);
+    if(column == STRING || type == 0 || type > column) return value;
+
+    byte[] v = trim(value);
+    if(v[0] == '+') v = Arrays.copyOfRange(v, 1, v.length);
+    if(type == DECIMAL) {
+      int vl = v.length;
+      while(v[vl - 1] == '0') vl--;
+      if(v[vl - 1] == '.') vl--;
+      if(vl == 0 || vl == 1 && v[0] == '-') return ZERO;
+      if(vl != v.length) v = Arrays.copyOf(v, vl);
+    }
+    return v;
   }
 
   @Override
@@ -85,6 +223,6 @@ public final class CsvBuilder extends CsvConverter {
 
   @Override
   public double prog() {
-    return (double) nli.size() / nli.length();
+    return nli == null ? 0 : (double) nli.size() / nli.length();
   }
 }
@@ -0,0 +1,243 @@
+package org.basex.build.csv;
+
+import static org.basex.util.Strings.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.basex.core.*;
+import org.basex.io.*;
+import org.basex.io.parse.csv.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * This class splits CSV input into chunks at record boundaries, parses the chunks in
+ * parallel, and passes on the parsed records to the builder in their original order.
+ * As boundaries are detected on byte level, the input must not be encoded in UTF-16
+ * or UTF-32.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class CsvChunks extends Proc {
+  /** Minimum size of a chunk. */
+  static final int CHUNK = 1 << 22;
+
+  /** Input. */
+  private final IO source;
+  /** CSV options. */
+  private final CsvParserOptions copts;
+  /** Number of threads. */
+  private final int threads;
+  /** Quotes flag. */
+  private final boolean quotes;
+  /** Backslash flag. */
+  private final boolean backslashes;
+  /** Number of bytes read so far. */
+  private long read;
+
+  /**
+   * Constructor.
+   * @param source input
+   * @param copts CSV options
+   * @param threads number of threads
+   */
+  CsvChunks(final IO source, final CsvParserOptions copts, final int threads) {
+    this.source = source;
+    this.copts = copts;
+    this.threads = threads;
+    quotes = copts.get(CsvOptions.QUOTES);
+    backslashes = copts.get(CsvOptions.BACKSLASHES);
+  }
+
+  /**
+   * Checks if the specified input is large enough to be split, and if its encoding
+   * allows a split on byte level.
+   * @param source input
+   * @param copts CSV options
+   * @return result of check
+   * @throws IOException I/O exception
+   */
+  static boolean supported(final IO source, final CsvParserOptions copts) throws IOException {
+    if(source.length() <= CHUNK) return false;
+    final String enc = normEncoding(copts.get(CsvParserOptions.ENCODING));
+    if(enc == UTF16 || enc == UTF16LE || enc == UTF16BE || enc == UTF32) return false;
+    // check for UTF-16 byte order mark
+    try(final InputStream in = source.inputStream()) {
+      final int a = in.read(), b = in.read();
+      return !(a == 0xFF && b == 0xFE || a == 0xFE && b == 0xFF);
+    }
+  }
+
+  /**
+   * Parses the input and passes on the records to the specified builder.
+   * @param conv converter
+   * @throws IOException I/O exception
+   */
+  void parse(final CsvBuilder conv) throws IOException {
+    final ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable r) {
+        final Thread t = new Thread(r, Util.className(CsvChunks.class));
+        t.setDaemon(true);
+        return t;
+      }
+    });
+    final ArrayDeque<Future<Chunk>> chunks = new ArrayDeque<>();
+    try(final InputStream in = source.inputStream()) {
+      byte[] buffer = new byte[CHUNK << 1];
+      int size = 0, min = CHUNK;
+      boolean eof = false, first = true;
+      while(true) {
+        while(!eof && size < min) {
+          if(size == buffer.length) buffer = Arrays.copyOf(buffer, Array.newSize(size));
+          final int r = in.read(buffer, size, buffer.length - size);
+          if(r == -1) eof = true;
+          else size += r;
+        }
+        final int end = eof ? size : boundary(buffer, size);
+        if(end == 0) {
+          // no record boundary found: read more bytes
+          if(eof) break;
+          min = size + CHUNK;
+          continue;
+        }
+
+        final IOContent chunk = new IOContent(Arrays.copyOf(buffer, end));
+        final CsvParserOptions opts = new CsvParserOptions(copts);
+        if(!first) opts.set(CsvOptions.HEADER, false);
+        chunks.add(pool.submit(new Callable<Chunk>() {
+          @Override
+          public Chunk call() throws IOException {
+            final Chunk c = new Chunk(opts);
+            c.convert(chunk);
+            return c;
+          }
+        }));
+        System.arraycopy(buffer, end, buffer, 0, size - end);
+        size -= end;
+        read += end;
+        min = CHUNK;
+        first = false;
+
+        // add parsed chunks to the database
+        while(chunks.size() >= threads << 1 || !chunks.isEmpty() && chunks.peek().isDone()) {
+          add(chunks.poll(), conv);
+        }
+        if(eof && size == 0) break;
+      }
+      while(!chunks.isEmpty()) add(chunks.poll(), conv);
+      conv.finish();
+    } finally {
+      for(final Future<Chunk> f : chunks) f.cancel(true);
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Returns the position after the last record boundary of the specified buffer.
+   * The quoting rules of the CSV parser are considered.
+   * @param buffer buffer
+   * @param size number of bytes in the buffer
+   * @return position, or {@code 0} if no boundary was found
+   */
+  private int boundary(final byte[] buffer, final int size) {
+    boolean quoted = false;
+    int end = 0;
+    for(int b = 0; b < size; b++) {
+      final byte ch = buffer[b];
+      if(quoted) {
+        if(backslashes && ch == '\\') b++;
+        else if(ch == '"') quoted = false;
+      } else if(quotes && ch == '"') {
+        quoted = true;
+      } else if(ch == '\n' || ch == '\r') {
+        end = b + 1;
+      } else if(backslashes && ch == '\\') {
+        b++;
+      }
+    }
+    return end;
+  }
+
+  /**
+   * Passes on the records of a parsed chunk to the converter.
+   * @param future chunk
+   * @param conv converter
+   * @throws IOException I/O exception
+   */
+  private void add(final Future<Chunk> future, final CsvBuilder conv) throws IOException {
+    final Chunk chunk;
+    try {
+      chunk = future.get();
+    } catch(final InterruptedException ex) {
+      throw new IOException(ex);
+    } catch(final ExecutionException ex) {
+      final Throwable th = ex.getCause();
+      if(th instanceof IOException) throw (IOException) th;
+      if(th instanceof RuntimeException) throw (RuntimeException) th;
+      if(th instanceof Error) throw (Error) th;
+      throw new IOException(th);
+    }
+    checkStop();
+
+    for(final byte[] header : chunk.names) conv.header(header);
+    final TokenList entries = chunk.entries;
+    final IntList records = chunk.records;
+    final int es = entries.size(), rs = records.size();
+    for(int r = 0; r < rs; r++) {
+      conv.record();
+      final int e = r + 1 < rs ? records.get(r + 1) : es;
+      for(int s = records.get(r); s < e; s++) conv.entry(entries.get(s));
+    }
+  }
+
+  @Override
+  public double prog() {
+    final long l = source.length();
+    return l > 0 ? (double) read / l : 0;
+  }
+
+  /**
+   * Converter that caches the parsed headers and records of a chunk.
+   */
+  private static final class Chunk extends CsvConverter {
+    /** Headers. */
+    private final TokenList names = new TokenList(1);
+    /** Entries. */
+    private final TokenList entries = new TokenList();
+    /** Offsets of the records. */
+    private final IntList records = new IntList();
+
+    /**
+     * Constructor.
+     * @param opts CSV options
+     */
+    Chunk(final CsvParserOptions opts) {
+      super(opts);
+    }
+
+    @Override
+    protected void header(final byte[] value) {
+      names.add(value);
+    }
+
+    @Override
+    protected void record() {
+      records.add(entries.size());
+    }
+
+    @Override
+    protected void entry(final byte[] value) {
+      entries.add(value);
+    }
+
+    @Override
+    protected Item finish() {
+      return null;
+    }
+  }
+}
@@ -14,6 +14,9 @@ import org.basex.query.value.item.*;
  * <p>The parser provides some options, which can be specified via the
  * {@link MainOptions#CSVPARSER} option.</p>
  *
+ * <p>Large inputs are split into chunks at record boundaries, which are parsed in
+ * parallel (see {@link MainOptions#PARSETHREADS}).</p>
+ *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
@@ -29,7 +32,15 @@ public final class CsvParser extends SingleParser {
 
   @Override
   protected void parse() throws IOException {
-    proc(new CsvBuilder(options.get(MainOptions.CSVPARSER), builder)).convert(source);
+    final CsvParserOptions copts = options.get(MainOptions.CSVPARSER);
+    final CsvBuilder cb = new CsvBuilder(copts, builder);
+    final int th = options.get(MainOptions.PARSETHREADS);
+    final int threads = th > 0 ? th : Runtime.getRuntime().availableProcessors();
+    if(threads > 1 && CsvChunks.supported(source, copts)) {
+      proc(new CsvChunks(source, copts, threads)).parse(cb);
+    } else {
+      proc(cb).convert(source);
+    }
   }
 
   /**
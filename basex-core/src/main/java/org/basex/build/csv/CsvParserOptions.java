@@ -11,6 +11,8 @@ import org.basex.util.options.*;
 public final class CsvParserOptions extends CsvOptions {
   /** Option: encoding. */
   public static final StringOption ENCODING = new StringOption("encoding");
+  /** Option: infer column types and normalize numeric values (database import). */
+  public static final BooleanOption TYPES = new BooleanOption("types", false);
 
   /**
    * Default constructor.
@@ -0,0 +1,207 @@
+package org.basex.build.json;
+
+import static org.basex.io.parse.json.JsonConstants.*;
+import static org.basex.util.Token.*;
+
+import java.io.*;
+
+import org.basex.build.*;
+import org.basex.build.json.JsonOptions.*;
+import org.basex.io.parse.json.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+
+/**
+ * This class converts JSON data to XML, using direct or attributes conversion.
+ * Parse events are directly passed on to the database builder, so no intermediate
+ * representation of the document will be created.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class JsonBuilder extends JsonConverter {
+  /** Attributes. */
+  private final Atts atts = new Atts();
+  /** Namespaces. */
+  private final Atts nsp = new Atts();
+  /** Builder. */
+  private final Builder builder;
+  /** Attributes format. */
+  private final boolean ats;
+  /** Lax QName conversion. */
+  private final boolean lax;
+  /** Include string types. */
+  private final boolean strings;
+  /** Path prefix of the documents (only assigned if the input is line-delimited). */
+  private final String prefix;
+
+  /** Name of the next element. */
+  private byte[] name = JSON;
+  /** Name of the next pair (attributes format). */
+  private byte[] key;
+  /** Number of documents. */
+  private int docs;
+
+  /**
+   * Constructor.
+   * @param opts JSON options
+   * @param builder builder
+   * @param prefix path prefix of the documents (if {@code null}, a single document
+   *   has already been opened by the caller)
+   * @throws IOException I/O exception
+   */
+  JsonBuilder(final JsonParserOptions opts, final Builder builder, final String prefix)
+      throws IOException {
+    super(opts);
+    this.builder = builder;
+    this.prefix = prefix;
+    ats = opts.get(JsonOptions.FORMAT) == JsonFormat.ATTRIBUTES;
+    lax = opts.get(JsonOptions.LAX);
+    strings = opts.get(JsonOptions.STRINGS);
+    if(prefix != null) builder.openDoc(token(prefix + ++docs));
+  }
+
+  /**
+   * Checks if documents can be streamed with the specified options. Merged type
+   * information can only be assigned after the whole document has been parsed.
+   * @param opts JSON options
+   * @return result of check
+   */
+  static boolean supports(final JsonParserOptions opts) {
+    final JsonFormat format = opts.get(JsonOptions.FORMAT);
+    return (format == JsonFormat.DIRECT || format == JsonFormat.ATTRIBUTES) &&
+        !opts.get(JsonOptions.MERGE);
+  }
+
+  @Override
+  public void openObject() throws IOException {
+    open(OBJECT);
+  }
+
+  @Override
+  public void openPair(final byte[] nm) {
+    if(ats) {
+      name = PAIR;
+      key = nm;
+    } else {
+      name = XMLToken.encode(nm, lax);
+    }
+  }
+
+  @Override
+  public void closePair(final boolean add) throws IOException {
+    if(ats) builder.closeElem();
+  }
+
+  @Override
+  public void closeObject() throws IOException {
+    if(!ats) builder.closeElem();
+  }
+
+  @Override
+  public void openArray() throws IOException {
+    open(ARRAY);
+  }
+
+  @Override
+  public void openItem() {
+    name = ats ? ITEM : VALUE;
+  }
+
+  @Override
+  public void closeItem() throws IOException {
+    if(ats) builder.closeElem();
+  }
+
+  @Override
+  public void closeArray() throws IOException {
+    closeObject();
+  }
+
+  @Override
+  public void openConstr(final byte[] nm) throws IOException {
+    openObject();
+    openPair(nm);
+    openArray();
+  }
+
+  @Override
+  public void openArg() {
+    openItem();
+  }
+
+  @Override
+  public void closeArg() throws IOException {
+    closeItem();
+  }
+
+  @Override
+  public void closeConstr() throws IOException {
+    closeArray();
+    closePair(true);
+    closeObject();
+  }
+
+  @Override
+  public void numberLit(final byte[] value) throws IOException {
+    literal(NUMBER, value);
+  }
+
+  @Override
+  public void stringLit(final byte[] value) throws IOException {
+    literal(STRING, value);
+  }
+
+  @Override
+  public void nullLit() throws IOException {
+    literal(NULL, EMPTY);
+  }
+
+  @Override
+  public void booleanLit(final byte[] value) throws IOException {
+    literal(BOOLEAN, value);
+  }
+
+  @Override
+  public boolean next() throws IOException {
+    if(prefix == null) return false;
+    finish();
+    builder.closeDoc();
+    builder.openDoc(token(prefix + ++docs));
+    name = JSON;
+    return true;
+  }
+
+  @Override
+  public Item finish() throws IOException {
+    if(ats) builder.closeElem();
+    return null;
+  }
+
+  /**
+   * Adds an element with a single value.
+   * @param type JSON type
+   * @param value value
+   * @throws IOException I/O exception
+   */
+  private void literal(final byte[] type, final byte[] value) throws IOException {
+    open(type);
+    builder.text(value);
+    if(!ats) builder.closeElem();
+  }
+
+  /**
+   * Opens a new element with the given type.
+   * @param type JSON type
+   * @throws IOException I/O exception
+   */
+  private void open(final byte[] type) throws IOException {
+    if(key != null) {
+      atts.add(NAME, key);
+      key = null;
+    }
+    if(strings || type != STRING) atts.add(TYPE, type);
+    builder.openElem(name, atts, nsp);
+    atts.reset();
+  }
+}
@@ -17,6 +17,8 @@ public class JsonOptions extends Options {
   public static final BooleanOption STRINGS = new BooleanOption("strings", false);
   /** Option: lax conversion of names to QNames. */
   public static final BooleanOption LAX = new BooleanOption("lax", false);
+  /** Option: line-delimited input and output (one value per line). */
+  public static final BooleanOption LINES = new BooleanOption("lines", false);
   /** Option: format. */
   public static final EnumOption<JsonFormat> FORMAT = new EnumOption<>("format", JsonFormat.DIRECT);
 
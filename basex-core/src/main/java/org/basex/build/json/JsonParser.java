@@ -2,10 +2,12 @@ package org.basex.build.json;
 
 import java.io.*;
 
-import org.basex.build.xml.*;
+import org.basex.build.*;
 import org.basex.core.*;
 import org.basex.io.*;
 import org.basex.io.parse.json.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.type.*;
 
 /**
  * This class parses files in the JSON format
@@ -14,17 +16,23 @@ import org.basex.io.parse.json.*;
  * <p>The parser provides some options, which can be specified via the
  * {@link MainOptions#JSONPARSER} option.</p>
  *
+ * <p>If the input is converted to the direct or attributes format, and if types are
+ * not merged, all events will be passed on to the builder while the input is parsed.
+ * If line-delimited input is parsed, each line will be stored as a separate document.</p>
+ *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
-public final class JsonParser extends XMLParser {
+public final class JsonParser extends SingleParser {
+  /** Parser options. */
+  private final JsonParserOptions jopts;
+
   /**
    * Constructor.
    * @param source document source
    * @param opts database options
-   * @throws IOException I/O exception
    */
-  public JsonParser(final IO source, final MainOptions opts) throws IOException {
+  public JsonParser(final IO source, final MainOptions opts) {
     this(source, opts, opts.get(MainOptions.JSONPARSER));
   }
 
@@ -33,11 +41,48 @@ public final class JsonParser extends XMLParser {
    * @param source document source
    * @param opts database options
    * @param jopts parser options
+   */
+  public JsonParser(final IO source, final MainOptions opts, final JsonParserOptions jopts) {
+    super(source, opts);
+    this.jopts = jopts;
+  }
+
+  @Override
+  public void parse(final Builder build) throws IOException {
+    if(jopts.get(JsonOptions.LINES) && JsonBuilder.supports(jopts)) {
+      builder = build;
+      new JsonBuilder(jopts, build, target + source.name() + '/').convert(source);
+      build.closeDoc();
+    } else {
+      super.parse(build);
+    }
+  }
+
+  @Override
+  protected void parse() throws IOException {
+    if(JsonBuilder.supports(jopts)) {
+      new JsonBuilder(jopts, builder, null).convert(source);
+    } else {
+      final ANode doc = (ANode) JsonConverter.get(jopts).convert(source);
+      for(final ANode node : doc.children()) add(node);
+    }
+  }
+
+  /**
+   * Adds a node of a converted document to the builder.
+   * @param node node
    * @throws IOException I/O exception
    */
-  public JsonParser(final IO source, final MainOptions opts, final JsonParserOptions jopts)
-      throws IOException {
-    super(toXML(source, jopts), opts);
+  private void add(final ANode node) throws IOException {
+    if(node.type == NodeType.TXT) {
+      builder.text(node.string());
+    } else {
+      for(final ANode attr : node.attributes()) atts.add(attr.name(), attr.string());
+      builder.openElem(node.name(), atts, nsp);
+      atts.reset();
+      for(final ANode child : node.children()) add(child);
+      builder.closeElem();
+    }
   }
 
   /**
@@ -48,6 +48,10 @@ public final class Context {
   private DBNodes current;
   /** Process locking. */
   private final Locking locks;
+  /** Reservations for lock upgrades. */
+  private final Reservations reservations;
+  /** Total time spent waiting for locks (nanoseconds). */
+  private volatile long lockWait;
   /** User reference. */
   private User user;
   /** Data reference. */
@@ -92,6 +96,7 @@ public final class Context {
     databases = ctx.databases;
     blocker = ctx.blocker;
     locks = ctx.locks;
+    reservations = ctx.reservations;
     users = ctx.users;
     repo = ctx.repo;
     log = ctx.log;
@@ -109,7 +114,9 @@ public final class Context {
     blocker = new ClientBlocker();
     databases = new Databases(soptions);
     locks = soptions.get(StaticOptions.GLOBALLOCK) ? new ProcLocking(soptions) :
+      soptions.get(StaticOptions.STRIPEDLOCK) ? new StripedLocking(soptions) :
       new DBLocking(soptions);
+    reservations = new Reservations();
     users = new Users(soptions);
     repo = new Repo(soptions);
     log = new Log(soptions);
@@ -254,7 +261,32 @@ public final class Context {
     pr.databases(lr);
     final StringList read = prepareLock(lr.read, lr.readAll);
     final StringList write = prepareLock(lr.write, lr.writeAll);
+    final long start = System.nanoTime();
+    reservations.reserve(pr, prepareLock(lr.upgrade, false));
+    reservations.admit(pr, write);
     locks.acquire(pr, read, write);
+    lockWait += System.nanoTime() - start;
+  }
+
+  /**
+   * Replaces the locks of a registered process. Databases that have been reserved for
+   * a lock upgrade (see {@link LockResult#upgrade}) cannot be written by other processes
+   * in the meantime.
+   * @param pr process
+   */
+  public void relock(final Proc pr) {
+    assert pr.registered() : "Not registered:" + pr;
+    locks.release(pr);
+    reservations.dismiss(pr);
+
+    final LockResult lr = new LockResult();
+    pr.databases(lr);
+    final StringList read = prepareLock(lr.read, lr.readAll);
+    final StringList write = prepareLock(lr.write, lr.writeAll);
+    final long start = System.nanoTime();
+    reservations.admit(pr, write);
+    locks.acquire(pr, read, write);
+    lockWait += System.nanoTime() - start;
   }
 
   /**
@@ -265,9 +297,27 @@ public final class Context {
     assert pr.registered() : "Not registered:" + pr;
     pr.registered(false);
     locks.release(pr);
+    reservations.dismiss(pr);
+    reservations.release(pr);
     pr.stopTimeout();
   }
 
+  /**
+   * Returns the total time this context has spent waiting for locks.
+   * @return time in nanoseconds
+   */
+  public long lockWait() {
+    return lockWait;
+  }
+
+  /**
+   * Returns contention statistics of the locking algorithm.
+   * @return table, or {@code null} if no statistics are collected
+   */
+  public Table lockStatistics() {
+    return locks.statistics();
+  }
+
   /**
    * Prepares the string list for locking.
    * @param sl string list
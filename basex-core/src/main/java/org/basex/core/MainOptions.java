@@ -22,6 +22,9 @@ public final class MainOptions extends Options {
   public static final BooleanOption MAINMEM = new BooleanOption("MAINMEM", false);
   /** Flag for opening a database after creating it. */
   public static final BooleanOption CREATEONLY = new BooleanOption("CREATEONLY", false);
+  /** Codec for compressing text and attribute values of new databases. */
+  public static final EnumOption<MainCodec> VALUECODEC =
+      new EnumOption<>("VALUECODEC", MainCodec.BITS);
 
   // Parsing
 
@@ -33,6 +36,8 @@ public final class MainOptions extends Options {
   public static final BooleanOption SKIPCORRUPT = new BooleanOption("SKIPCORRUPT", false);
   /** Flag for adding remaining files as raw files. */
   public static final BooleanOption ADDRAW = new BooleanOption("ADDRAW", false);
+  /** Maximum number of threads used for parsing files or CSV chunks (0: number of processors). */
+  public static final NumberOption PARSETHREADS = new NumberOption("PARSETHREADS", 1);
   /** Define CSV parser options. */
   public static final OptionsOption<CsvParserOptions> CSVPARSER =
       new OptionsOption<>("CSVPARSER", new CsvParserOptions());
@@ -82,6 +87,8 @@ public final class MainOptions extends Options {
   public static final NumberOption INDEXSPLITSIZE = new NumberOption("INDEXSPLITSIZE", 0);
   /** Maximum number of fulltext index entries to keep in memory during index creation. */
   public static final NumberOption FTINDEXSPLITSIZE = new NumberOption("FTINDEXSPLITSIZE", 0);
+  /** Maximum number of threads used for index creation (0: number of processors). */
+  public static final NumberOption INDEXTHREADS = new NumberOption("INDEXTHREADS", 0);
 
   /** Maximum length of index entries. */
   public static final NumberOption MAXLEN = new NumberOption("MAXLEN", 96);
@@ -91,6 +98,8 @@ public final class MainOptions extends Options {
   public static final BooleanOption UPDINDEX = new BooleanOption("UPDINDEX", false);
   /** Flag for automatic index updates. */
   public static final BooleanOption AUTOOPTIMIZE = new BooleanOption("AUTOOPTIMIZE", false);
+  /** Flag for optimizing databases while they can still be read. */
+  public static final BooleanOption ONLINEOPTIMIZE = new BooleanOption("ONLINEOPTIMIZE", false);
 
   // Full-Text
 
@@ -119,6 +128,12 @@ public final class MainOptions extends Options {
   public static final NumberOption INLINELIMIT = new NumberOption("INLINELIMIT", 100);
   /** Flag for tail-call optimization. */
   public static final NumberOption TAILCALLS = new NumberOption("TAILCALLS", 256);
+  /** Number of tuples to sort in main memory before writing a sorted run to disk. */
+  public static final NumberOption SORTSPLITSIZE = new NumberOption("SORTSPLITSIZE", 0);
+  /** Number of groups to build in main memory before writing them to disk. */
+  public static final NumberOption GROUPSPLITSIZE = new NumberOption("GROUPSPLITSIZE", 0);
+  /** Number of parallel tasks for the outer for clause of FLWOR expressions (0: processors). */
+  public static final NumberOption QUERYTHREADS = new NumberOption("QUERYTHREADS", 1);
   /** Favor global database when opening resources. */
   public static final BooleanOption DEFAULTDB = new BooleanOption("DEFAULTDB", false);
   /** Caches the query results. */
@@ -156,6 +171,10 @@ public final class MainOptions extends Options {
 
   /** Flushes the database after each update. */
   public static final BooleanOption AUTOFLUSH = new BooleanOption("AUTOFLUSH", true);
+  /** Writes updates to a write-ahead log, which is replayed after a crash. */
+  public static final BooleanOption WAL = new BooleanOption("WAL", false);
+  /** Evaluates read-only queries on snapshots of databases without value or full-text indexes. */
+  public static final BooleanOption SNAPSHOT = new BooleanOption("SNAPSHOT", false);
   /** Writes original files back after updates. */
   public static final BooleanOption WRITEBACK = new BooleanOption("WRITEBACK", false);
   /** Maximum number of index occurrences to print. */
@@ -184,6 +203,19 @@ public final class MainOptions extends Options {
     }
   }
 
+  /** Value codec. */
+  public enum MainCodec {
+    /** No compression.            */ NONE,
+    /** Bit-packed characters.     */ BITS,
+    /** Byte-oriented LZ77.        */ LZ,
+    /** LZ77 with a dictionary.    */ DICT;
+
+    @Override
+    public String toString() {
+      return super.toString().toLowerCase(Locale.ENGLISH);
+    }
+  }
+
   /**
    * Default constructor.
    */
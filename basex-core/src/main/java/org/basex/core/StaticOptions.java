@@ -36,6 +36,12 @@ public final class StaticOptions extends Options {
   public static final BooleanOption LANGKEYS = new BooleanOption("LANGKEYS", false);
   /** Applied locking algorithm: local (database) vs. global (process) locking. */
   public static final BooleanOption GLOBALLOCK = new BooleanOption("GLOBALLOCK", false);
+  /** Use striped database locks with separate admission of readers and writers. */
+  public static final BooleanOption STRIPEDLOCK = new BooleanOption("STRIPEDLOCK", false);
+  /** Number of buffered pages per database file (rounded up to a power of two). */
+  public static final NumberOption BUFFERS = new NumberOption("BUFFERS", 16);
+  /** Maximum number of cached entries per index. */
+  public static final NumberOption INDEXCACHE = new NumberOption("INDEXCACHE", 1 << 16);
 
   /** Comment: written to options file. */
   public static final Comment C_CLIENT = new Comment("Client/Server Architecture");
@@ -48,6 +54,10 @@ public final class StaticOptions extends Options {
   public static final NumberOption SERVERPORT = new NumberOption("SERVERPORT", 1984);
   /** Server: port, used for sending events. */
   public static final NumberOption EVENTPORT = new NumberOption("EVENTPORT", 1985);
+  /** Server: number of worker threads for processing client requests (0: one thread per client). */
+  public static final NumberOption SERVERTHREADS = new NumberOption("SERVERTHREADS", 0);
+  /** Server: maximum number of pending connections (0: default). */
+  public static final NumberOption SERVERBACKLOG = new NumberOption("SERVERBACKLOG", 0);
   /** Default user. */
   public static final StringOption USER = new StringOption("USER", "");
   /** Default password. */
@@ -112,6 +122,8 @@ public final class StaticOptions extends Options {
     language = get(LANG);
     langkeys = get(LANGKEYS);
     debug = get(DEBUG);
+    buffers = get(BUFFERS);
+    indexcache = get(INDEXCACHE);
     final String ph = get(PROXYHOST);
     if(!ph.isEmpty()) {
       setSystem("http.proxyHost", ph);
@@ -173,6 +173,8 @@ public interface Text {
   String LI_SIZE = LI + "Size: ";
   /** Index info. */
   String LI_ENTRIES = LI + "Entries: ";
+  /** Index info. */
+  String LI_CACHE = LI + "Cache: % entries, % hits, % misses, % evictions";
 
   /** Index info. */
   String HASH = "Hash";
@@ -71,6 +71,8 @@ public abstract class AQuery extends Command {
           qp(query, context);
           parse(p);
           if(r == 0) plan(false);
+          // read databases from snapshots and release their locks
+          if(runs == 1 && registered() && qp.qc.snapshots()) context.relock(this);
 
           qp.compile();
           info.compiling += p.time();
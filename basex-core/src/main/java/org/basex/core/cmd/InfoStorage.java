@@ -59,6 +59,12 @@ public final class InfoStorage extends AQuery {
         }
       }
       out.print(table(data, ps, pe));
+      if(start == null && !data.inMemory()) {
+        out.print(NL);
+        out.print(((DiskData) data).buffers().finish());
+        out.print(NL);
+        out.print(((DiskData) data).codecs().finish());
+      }
     }
     return true;
   }
@@ -3,11 +3,15 @@ package org.basex.core.cmd;
 import static org.basex.core.Text.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.core.*;
+import org.basex.core.locks.*;
 import org.basex.core.users.*;
 import org.basex.data.*;
 import org.basex.index.*;
+import org.basex.index.name.*;
+import org.basex.index.path.*;
 import org.basex.util.*;
 import org.basex.util.list.*;
 
@@ -16,14 +20,28 @@ import org.basex.util.list.*;
  * the currently opened database. Indexes and statistics are refreshed,
  * which is especially helpful after updates.
  *
+ * If {@link MainOptions#ONLINEOPTIMIZE} is enabled, the new structures are built beside
+ * the live ones while the database is only locked for reading. The database is reserved
+ * for the subsequent lock upgrade: other writers are blocked until the write lock has been
+ * acquired and the old structures have been replaced.
+ *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
 public final class Optimize extends ACreate {
+  /** Indexes to be optimized. */
+  private static final IndexType[] INDEXES = {
+    IndexType.ATTRIBUTE, IndexType.TEXT, IndexType.FULLTEXT
+  };
+
   /** Current pre value. */
   private int pre;
   /** Data size. */
   private int size;
+  /** Indicates if the database can still be read while it is optimized. */
+  private boolean online;
+  /** Indicates if the write lock is required. */
+  private boolean swap;
 
   /**
    * Default constructor.
@@ -38,6 +56,15 @@ public final class Optimize extends ACreate {
     final MetaData meta = data.meta;
     size = meta.size;
 
+    if(online && registered()) {
+      try {
+        if(!online((DiskData) data)) return false;
+        return info(DB_OPTIMIZED_X, meta.name, perf);
+      } catch(final IOException ex) {
+        return error(Util.message(ex));
+      }
+    }
+
     if(!startUpdate()) return false;
     try {
       optimize(data, options, this);
@@ -49,6 +76,100 @@ public final class Optimize extends ACreate {
     }
   }
 
+  /**
+   * Optimizes the database while it can still be read.
+   * @param data data
+   * @return success flag
+   * @throws IOException I/O Exception during index rebuild
+   */
+  private boolean online(final DiskData data) throws IOException {
+    // build new structures beside the live ones
+    final MetaData md = data.meta;
+    PathSummary paths = null;
+    Names elems = null, attrs = null;
+    int docs = 0;
+    if(!md.uptodate) {
+      paths = new PathSummary(data);
+      elems = new Names(data.elemNames);
+      attrs = new Names(data.attrNames);
+      docs = stats(data, paths, elems, attrs, this);
+    }
+    final ArrayList<IndexType> types = new ArrayList<>();
+    for(final IndexType type : INDEXES) {
+      if(created(type, md) && !exists(type, md)) {
+        proc(data.indexBuilder(type, options)).shadow();
+        types.add(type);
+      }
+    }
+    proc(null);
+
+    // upgrade to write lock. the database is reserved, so other writers are blocked.
+    // updates that bypass the locking (e.g., by the embedded API) will still be logged
+    data.startLog();
+    boolean ok = false;
+    try {
+      swap = true;
+      context.relock(this);
+      ok = startUpdate();
+    } finally {
+      if(!ok) {
+        data.stopLog();
+        for(final IndexType type : types) data.dropShadow(type);
+      }
+    }
+    if(!ok) return false;
+
+    try {
+      for(final IndexType type : types) {
+        if(!data.swapIndex(type)) create(type, data, options, this);
+      }
+      if(data.stopLog() || !md.uptodate && paths == null) {
+        // statistics are outdated: recompute them
+        paths = data.paths;
+        elems = data.elemNames;
+        attrs = data.attrNames;
+        paths.init();
+        elems.init();
+        attrs.init();
+        docs = stats(data, paths, elems, attrs, this);
+      }
+      if(paths != null) {
+        data.paths = paths;
+        data.elemNames = elems;
+        data.attrNames = attrs;
+        md.ndocs.set(docs);
+        md.uptodate = true;
+        md.dirty = true;
+      }
+      // drop obsolete indexes, and reassign autooptimize flag
+      for(final IndexType type : INDEXES) {
+        if(!created(type, md) && exists(type, md)) drop(type, data);
+      }
+      autoopt(md, options);
+      return true;
+    } finally {
+      if(!finishUpdate()) return false;
+    }
+  }
+
+  @Override
+  public boolean updating(final Context ctx) {
+    final Data data = ctx.data();
+    online = ctx.options.get(MainOptions.ONLINEOPTIMIZE) && data != null && !data.inMemory();
+    swap = false;
+    return super.updating(ctx);
+  }
+
+  @Override
+  public void databases(final LockResult lr) {
+    if(online && !swap) {
+      lr.read.add(DBLocking.CTX);
+      lr.upgrade.add(DBLocking.CTX);
+    } else {
+      super.databases(lr);
+    }
+  }
+
   @Override
   public double prog() {
     return (double) pre / size;
@@ -95,57 +216,102 @@ public final class Optimize extends ACreate {
       data.elemNames.init();
       data.attrNames.init();
       md.dirty = true;
+      md.ndocs.set(stats(data, data.paths, data.elemNames, data.attrNames, cmd));
+      md.uptodate = true;
+    }
+    autoopt(md, options);
+
+    // rebuild value indexes
+    for(final IndexType type : INDEXES) {
+      optimize(type, data, options, created(type, md), exists(type, md),
+          type == IndexType.FULLTEXT ? enforceFT : enforce, cmd);
+    }
+  }
+
+  /**
+   * Computes the path summary and the statistics of the element and attribute names.
+   * @param data data
+   * @param paths path summary
+   * @param elems element names
+   * @param attrs attribute names
+   * @param cmd calling command instance (may be {@code null})
+   * @return number of documents
+   */
+  private static int stats(final Data data, final PathSummary paths, final Names elems,
+      final Names attrs, final Optimize cmd) {
+
+    final MetaData md = data.meta;
+    final IntList pars = new IntList();
+    final IntList elms = new IntList();
+    int n = 0;
 
-      final IntList pars = new IntList();
-      final IntList elms = new IntList();
-      int n = 0;
-
-      for(int pre = 0; pre < md.size; ++pre) {
-        final byte kind = (byte) data.kind(pre);
-        final int par = data.parent(pre, kind);
-        while(!pars.isEmpty() && pars.peek() > par) {
-          pars.pop();
-          elms.pop();
-        }
-        final int level = pars.size();
-        if(kind == Data.DOC) {
-          data.paths.put(0, Data.DOC, level);
-          pars.push(pre);
-          elms.push(0);
-          ++n;
-        } else if(kind == Data.ELEM) {
-          final int id = data.name(pre);
-          data.elemNames.index(data.elemNames.key(id), null, true);
-          data.paths.put(id, Data.ELEM, level);
-          pars.push(pre);
-          elms.push(id);
-        } else if(kind == Data.ATTR) {
-          final int id = data.name(pre);
-          final byte[] val = data.text(pre, false);
-          data.attrNames.index(data.attrNames.key(id), val, true);
-          data.paths.put(id, Data.ATTR, level, val, md);
-        } else {
-          final byte[] val = data.text(pre, true);
-          if(kind == Data.TEXT && level > 1) data.elemNames.index(elms.peek(), val);
-          data.paths.put(0, kind, level, val, md);
-        }
-        if(cmd != null) cmd.pre = pre;
+    for(int pre = 0; pre < md.size; ++pre) {
+      final byte kind = (byte) data.kind(pre);
+      final int par = data.parent(pre, kind);
+      while(!pars.isEmpty() && pars.peek() > par) {
+        pars.pop();
+        elms.pop();
       }
-      md.ndocs.set(n);
-      md.uptodate = true;
+      final int level = pars.size();
+      if(kind == Data.DOC) {
+        paths.put(0, Data.DOC, level);
+        pars.push(pre);
+        elms.push(0);
+        ++n;
+      } else if(kind == Data.ELEM) {
+        final int id = data.name(pre);
+        elems.index(elems.key(id), null, true);
+        paths.put(id, Data.ELEM, level);
+        pars.push(pre);
+        elms.push(id);
+      } else if(kind == Data.ATTR) {
+        final int id = data.name(pre);
+        final byte[] val = data.text(pre, false);
+        attrs.index(attrs.key(id), val, true);
+        paths.put(id, Data.ATTR, level, val, md);
+      } else {
+        final byte[] val = data.text(pre, true);
+        if(kind == Data.TEXT && level > 1) elems.index(elms.peek(), val);
+        paths.put(0, kind, level, val, md);
+      }
+      if(cmd != null) cmd.pre = pre;
     }
+    return n;
+  }
 
-    // reassign autooptimize flag
+  /**
+   * Reassigns the autooptimize flag.
+   * @param md meta data
+   * @param options main options
+   */
+  private static void autoopt(final MetaData md, final MainOptions options) {
     final boolean autoopt = options.get(MainOptions.AUTOOPTIMIZE);
     if(autoopt != md.autoopt) {
       md.autoopt = autoopt;
       md.dirty = true;
     }
+  }
 
-    // rebuild value indexes
-    optimize(IndexType.ATTRIBUTE, data, options, md.createattr, md.attrindex, enforce, cmd);
-    optimize(IndexType.TEXT,      data, options, md.createtext, md.textindex, enforce, cmd);
-    optimize(IndexType.FULLTEXT,  data, options, md.createftxt, md.ftxtindex, enforceFT, cmd);
+  /**
+   * Checks if the specified index is to be created.
+   * @param type index type
+   * @param md meta data
+   * @return result of check
+   */
+  private static boolean created(final IndexType type, final MetaData md) {
+    return type == IndexType.TEXT ? md.createtext : type == IndexType.ATTRIBUTE ?
+      md.createattr : md.createftxt;
+  }
+
+  /**
+   * Checks if the specified index exists.
+   * @param type index type
+   * @param md meta data
+   * @return result of check
+   */
+  private static boolean exists(final IndexType type, final MetaData md) {
+    return type == IndexType.TEXT ? md.textindex : type == IndexType.ATTRIBUTE ?
+      md.attrindex : md.ftxtindex;
   }
 
   /**
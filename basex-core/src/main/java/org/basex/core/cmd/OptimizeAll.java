@@ -127,6 +127,7 @@ public final class OptimizeAll extends ACreate {
     final String tname = sopts.random(name);
     final DBParser parser = new DBParser(odata, options, cmd);
     try(final DiskBuilder builder = new DiskBuilder(tname, parser, sopts, options)) {
+      builder.sample(odata);
       final DiskData dt = builder.build();
       try {
         if(ometa.createtext) create(IndexType.TEXT, dt, options, cmd);
@@ -1,5 +1,7 @@
 package org.basex.core.cmd;
 
+import static org.basex.util.Prop.*;
+
 import java.io.*;
 
 import org.basex.core.*;
@@ -8,6 +10,7 @@ import org.basex.core.parse.*;
 import org.basex.core.parse.Commands.Cmd;
 import org.basex.core.parse.Commands.CmdShow;
 import org.basex.core.users.*;
+import org.basex.util.*;
 
 /**
  * Evaluates the 'show sessions' command and shows server sessions.
@@ -26,6 +29,11 @@ public final class ShowSessions extends Command {
   @Override
   protected boolean run() throws IOException {
     out.println(context.sessions.info());
+    final Table table = context.lockStatistics();
+    if(table != null) {
+      out.print(NL);
+      out.print(table.finish());
+    }
     return true;
   }
 
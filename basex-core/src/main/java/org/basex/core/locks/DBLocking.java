@@ -7,6 +7,7 @@ import java.util.concurrent.*;
 import java.util.concurrent.locks.*;
 
 import org.basex.core.*;
+import org.basex.util.*;
 import org.basex.util.list.*;
 
 /**
@@ -33,7 +34,7 @@ public final class DBLocking implements Locking {
   private static final boolean FAIR = true;
 
   /** Prefix for internal special locks. */
-  private static final String PREFIX = "%";
+  public static final String PREFIX = "%";
   /** Special lock identifier for collection available via current context; will be substituted. */
   public static final String COLL = PREFIX + "COLL";
   /** Special lock identifier for database opened in current context; will be substituted. */
@@ -243,6 +244,11 @@ public final class DBLocking implements Locking {
     }
   }
 
+  @Override
+  public Table statistics() {
+    return null;
+  }
+
   /**
    * Marks a lock as used.
    * @param lock Lock to set used
@@ -15,6 +15,8 @@ public class LockResult {
   public final StringList read = new StringList(1);
   /** List of databases to write lock. */
   public final StringList write = new StringList(1);
+  /** List of read-locked databases that will be write-locked later on (see {@link Context#relock}). */
+  public final StringList upgrade = new StringList(1);
   /** Flag if global read lock is required. */
   public boolean readAll;
   /** Flag if global write lock is required. */
@@ -1,6 +1,7 @@
 package org.basex.core.locks;
 
 import org.basex.core.*;
+import org.basex.util.*;
 import org.basex.util.list.*;
 
 /**
@@ -27,4 +28,10 @@ public interface Locking {
    * @param pr process
    */
   void release(final Proc pr);
+
+  /**
+   * Returns contention statistics.
+   * @return table, or {@code null} if no statistics are collected
+   */
+  Table statistics();
 }
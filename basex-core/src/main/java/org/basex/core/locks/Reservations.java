@@ -0,0 +1,113 @@
+package org.basex.core.locks;
+
+import java.util.*;
+import java.util.Map.Entry;
+
+import org.basex.core.*;
+import org.basex.util.list.*;
+
+/**
+ * Reservations of databases whose locks will be upgraded (see {@link LockResult#upgrade}).
+ *
+ * A database will only be reserved if no writers of this database have been admitted.
+ * Writers of a reserved database are blocked before they request their locks. This way,
+ * no other process can write the database while the owner of the reservation releases its
+ * read lock and acquires the write lock.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class Reservations {
+  /** Reserved databases and their owners. */
+  private final HashMap<String, Proc> owners = new HashMap<>();
+  /** Admitted writers and their databases ({@code null}: all databases). */
+  private final HashMap<Proc, StringList> writers = new HashMap<>();
+
+  /**
+   * Reserves the specified databases. Waits until all admitted writers of these databases
+   * have been dismissed, and until other reservations have been released.
+   * @param pr process
+   * @param dbs sorted database names
+   */
+  public synchronized void reserve(final Proc pr, final StringList dbs) {
+    for(final String db : dbs) {
+      while(owners.containsKey(db) || writing(db)) pause();
+      owners.put(db, pr);
+    }
+  }
+
+  /**
+   * Admits a writer. Waits until the databases to be written are not reserved anymore
+   * by other processes.
+   * @param pr process
+   * @param write names of databases to be written ({@code null}: all databases)
+   */
+  public synchronized void admit(final Proc pr, final StringList write) {
+    if(write != null && write.isEmpty()) return;
+    while(reserved(pr, write)) pause();
+    writers.put(pr, write);
+  }
+
+  /**
+   * Dismisses a writer.
+   * @param pr process
+   */
+  public synchronized void dismiss(final Proc pr) {
+    if(writers.containsKey(pr)) {
+      writers.remove(pr);
+      notifyAll();
+    }
+  }
+
+  /**
+   * Releases all reservations of a process.
+   * @param pr process
+   */
+  public synchronized void release(final Proc pr) {
+    final Iterator<Entry<String, Proc>> iter = owners.entrySet().iterator();
+    boolean released = false;
+    while(iter.hasNext()) {
+      if(iter.next().getValue() == pr) {
+        iter.remove();
+        released = true;
+      }
+    }
+    if(released) notifyAll();
+  }
+
+  /**
+   * Checks if one of the specified databases has been reserved by another process.
+   * @param pr process
+   * @param write names of databases to be written ({@code null}: all databases)
+   * @return result of check
+   */
+  private boolean reserved(final Proc pr, final StringList write) {
+    for(final Entry<String, Proc> entry : owners.entrySet()) {
+      if(entry.getValue() != pr && (write == null || write.contains(entry.getKey()))) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Checks if an admitted writer will write the specified database.
+   * @param db database name
+   * @return result of check
+   */
+  private boolean writing(final String db) {
+    for(final StringList write : writers.values()) {
+      if(write == null || write.contains(db)) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Waits until the reservations or admitted writers change.
+   */
+  private void pause() {
+    try {
+      wait();
+    } catch(final InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
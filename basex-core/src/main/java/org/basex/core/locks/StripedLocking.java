@@ -0,0 +1,404 @@
+package org.basex.core.locks;
+
+import static org.basex.util.Token.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+import org.basex.core.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * Manages read and write locks on arbitrary strings (usually database names).
+ *
+ * In contrast to {@link DBLocking}, transactions are not funneled through a single queue:
+ * <ul>
+ *   <li>Reading and updating transactions are admitted via separate lanes. Each lane admits
+ *       a maximum of {@link StaticOptions#PARALLEL} transactions.</li>
+ *   <li>The locks of all objects are stored in a concurrent map, which is looked up
+ *       without global synchronization. Read-only transactions on different objects never
+ *       block each other.</li>
+ *   <li>Objects are locked in sorted order to prevent deadlocks.</li>
+ * </ul>
+ *
+ * Locks can only be released by the same thread which acquired them.
+ * Contention statistics are collected for each object and can be requested
+ * via {@link #statistics()}.
+ *
+ * This locking is activated by setting {@link StaticOptions#STRIPEDLOCK} to {@code true}.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class StripedLocking implements Locking {
+  /** Fair scheduling; prevents starvation. */
+  private static final boolean FAIR = true;
+  /** Table header: name. */
+  private static final byte[] NAME = token("NAME");
+  /** Table header: queued threads. */
+  private static final byte[] QUEUE = token("QUEUE");
+  /** Table header: number of locks. */
+  private static final byte[] LOCKS = token("LOCKS");
+  /** Table header: number of contended locks. */
+  private static final byte[] WAITS = token("WAITS");
+  /** Table header: total waiting time. */
+  private static final byte[] TIME = token("WAIT TIME");
+  /** Statistics name of the admission lane for reading transactions. */
+  private static final String READERS = "%READERS";
+  /** Statistics name of the admission lane for updating transactions. */
+  private static final String WRITERS = "%WRITERS";
+
+  /** Admission lane for reading transactions. */
+  private final Semaphore readers;
+  /** Admission lane for updating transactions. */
+  private final Semaphore writers;
+  /**
+   * Lock for global write locking.
+   * Exclusive lock if globally writing, shared lock otherwise.
+   */
+  private final ReentrantReadWriteLock writeAll = new ReentrantReadWriteLock(FAIR);
+  /**
+   * Global state of local writers and global readers. A positive number indicates the number
+   * of running local writers, a negative number the number of running global readers.
+   * Also used as monitor for waiting threads.
+   */
+  private final AtomicInteger global = new AtomicInteger();
+  /** Locks for all objects that are currently in use. */
+  private final ConcurrentMap<String, ObjectLock> locks = new ConcurrentHashMap<>();
+  /** Contention statistics for all objects. */
+  private final ConcurrentMap<String, Stats> stats = new ConcurrentHashMap<>();
+  /** Locks held by the running transactions. */
+  private final ConcurrentMap<Long, Held> held = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor.
+   * @param sopts static options
+   */
+  public StripedLocking(final StaticOptions sopts) {
+    final int parallel = Math.max(sopts.get(StaticOptions.PARALLEL), 1);
+    readers = new Semaphore(parallel, FAIR);
+    writers = new Semaphore(parallel, FAIR);
+  }
+
+  @Override
+  public void acquire(final Proc pr, final StringList read, final StringList write) {
+    final long thread = Thread.currentThread().getId();
+    if(held.containsKey(thread))
+      throw new IllegalMonitorStateException("Thread already holds one or more locks.");
+
+    // transactions that read all and write single objects are executed exclusively
+    final boolean updating = write == null || !write.isEmpty();
+    final boolean all = write == null || read == null && updating;
+    final Held h = new Held(updating, all, read == null && !all, updating && !all);
+
+    // admission
+    if(h.updating) admit(writers, WRITERS);
+    else admit(readers, READERS);
+
+    // global locking
+    if(h.writeAll) writeAll.writeLock().lock();
+    else writeAll.readLock().lock();
+    if(h.localWrite) enter(1);
+    if(h.readAll) enter(-1);
+
+    // local locking; read locks are obsolete if all objects are write-locked
+    if(!all) {
+      final StringList ws = write.sort().unique();
+      final StringList rs = read == null ? new StringList(0) : read.sort().unique();
+      int w = 0, r = 0;
+      final int wl = ws.size(), rl = rs.size();
+      while(w < wl || r < rl) {
+        final int c = w == wl ? 1 : r == rl ? -1 : ws.get(w).compareTo(rs.get(r));
+        if(c <= 0) {
+          // prefer writing to reading
+          lock(ws.get(w++), true, h);
+          if(c == 0) r++;
+        } else {
+          lock(rs.get(r++), false, h);
+        }
+      }
+    }
+    held.put(thread, h);
+  }
+
+  @Override
+  public void release(final Proc pr) {
+    final Held h = held.remove(Thread.currentThread().getId());
+    if(h == null) throw new IllegalMonitorStateException("Thread holds no locks.");
+
+    // release local locks in reverse order
+    for(int o = h.objects.size() - 1; o >= 0; o--) {
+      final ObjectLock ol = h.objects.get(o);
+      if(h.writes.get(o)) ol.lock.writeLock().unlock();
+      else ol.lock.readLock().unlock();
+      unuse(ol);
+    }
+
+    // release global locks
+    if(h.readAll) exit(-1);
+    if(h.localWrite) exit(1);
+    if(h.writeAll) writeAll.writeLock().unlock();
+    else writeAll.readLock().unlock();
+
+    // allow another transaction to run
+    (h.updating ? writers : readers).release();
+  }
+
+  @Override
+  public Table statistics() {
+    final Table table = new Table();
+    table.header.add(NAME);
+    table.header.add(QUEUE);
+    table.header.add(LOCKS);
+    table.header.add(WAITS);
+    table.header.add(TIME);
+    for(int i = 0; i < 5; ++i) table.align.add(i != 0);
+
+    for(final Map.Entry<String, Stats> entry : stats.entrySet()) {
+      final String name = entry.getKey();
+      final Stats st = entry.getValue();
+      final int queue;
+      if(name.equals(READERS)) {
+        queue = readers.getQueueLength();
+      } else if(name.equals(WRITERS)) {
+        queue = writers.getQueueLength();
+      } else {
+        final ObjectLock ol = locks.get(name);
+        queue = ol == null ? 0 : ol.lock.getQueueLength();
+      }
+      final TokenList tl = new TokenList();
+      tl.add(name);
+      tl.add(queue);
+      tl.add(st.locks.get());
+      tl.add(st.waits.get());
+      tl.add(Performance.getTime(st.time.get(), 1));
+      table.contents.add(tl);
+    }
+    return table.sort();
+  }
+
+  /**
+   * Returns the state of an admission lane.
+   * @param lane lane
+   * @return string
+   */
+  private static String lane(final Semaphore lane) {
+    return lane.availablePermits() + " available, " + lane.getQueueLength() + " queued";
+  }
+
+  /**
+   * Enters the specified group (local writers: {@code 1}, global readers: {@code -1}).
+   * Waits until no transaction of the other group is running.
+   * @param dir group
+   */
+  private void enter(final int dir) {
+    while(true) {
+      final int g = global.get();
+      if(g * dir >= 0) {
+        if(global.compareAndSet(g, g + dir)) return;
+      } else {
+        synchronized(global) {
+          while(global.get() * dir < 0) {
+            try {
+              global.wait();
+            } catch(final InterruptedException ex) {
+              Thread.currentThread().interrupt();
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Leaves the specified group and notifies waiting transactions.
+   * @param dir group (local writers: {@code 1}, global readers: {@code -1})
+   */
+  private void exit(final int dir) {
+    if(global.addAndGet(-dir) == 0) {
+      synchronized(global) {
+        global.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Enters an admission lane and records contention.
+   * @param lane lane
+   * @param name name of statistics entry
+   */
+  private void admit(final Semaphore lane, final String name) {
+    final Stats st = stats(name);
+    // fair attempt without waiting
+    boolean admitted = false;
+    try {
+      admitted = lane.tryAcquire(0, TimeUnit.NANOSECONDS);
+    } catch(final InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    if(!admitted) {
+      final long start = System.nanoTime();
+      lane.acquireUninterruptibly();
+      st.waited(start);
+    }
+  }
+
+  /**
+   * Locks the specified object and records contention.
+   * @param name name of object
+   * @param write write lock
+   * @param h held locks
+   */
+  private void lock(final String name, final boolean write, final Held h) {
+    final ObjectLock ol = use(name);
+    final Lock lock = write ? ol.lock.writeLock() : ol.lock.readLock();
+    final Stats st = stats(name);
+    // fair attempt without waiting
+    boolean locked = false;
+    try {
+      locked = lock.tryLock(0, TimeUnit.NANOSECONDS);
+    } catch(final InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    if(!locked) {
+      final long start = System.nanoTime();
+      lock.lock();
+      st.waited(start);
+    }
+    h.objects.add(ol);
+    h.writes.add(write);
+  }
+
+  /**
+   * Returns the statistics for the specified name and increases its lock counter.
+   * @param name name
+   * @return statistics
+   */
+  private Stats stats(final String name) {
+    Stats st = stats.get(name);
+    if(st == null) {
+      final Stats s = new Stats();
+      st = stats.putIfAbsent(name, s);
+      if(st == null) st = s;
+    }
+    st.locks.incrementAndGet();
+    return st;
+  }
+
+  /**
+   * Returns the lock of the specified object and increases its usage counter.
+   * @param name name of object
+   * @return lock
+   */
+  private ObjectLock use(final String name) {
+    while(true) {
+      ObjectLock ol = locks.get(name);
+      if(ol == null) {
+        final ObjectLock nl = new ObjectLock(name);
+        ol = locks.putIfAbsent(name, nl);
+        if(ol == null) ol = nl;
+      }
+      // lock may have been discarded in the meantime
+      for(int u; (u = ol.users.get()) >= 0;) {
+        if(ol.users.compareAndSet(u, u + 1)) return ol;
+      }
+    }
+  }
+
+  /**
+   * Decreases the usage counter of the specified lock and discards unused locks.
+   * @param ol lock
+   */
+  private void unuse(final ObjectLock ol) {
+    if(ol.users.decrementAndGet() == 0 && ol.users.compareAndSet(0, -1))
+      locks.remove(ol.name, ol);
+  }
+
+  /**
+   * Present current locking status. Not to be seen as a programming API but only for
+   * debugging purposes.
+   */
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder(Prop.NL);
+    sb.append("Locking" + Prop.NL);
+    final String ind = "| ";
+    sb.append(ind + "Readers: " + lane(readers) + Prop.NL);
+    sb.append(ind + "Writers: " + lane(writers) + Prop.NL);
+    sb.append(ind + "Held locks by object:" + Prop.NL);
+    for(final Map.Entry<String, ObjectLock> e : locks.entrySet())
+      sb.append(ind + ind + e.getKey() + " -> " + e.getValue().lock + Prop.NL);
+    return sb.toString();
+  }
+
+  /** Lock of a single object. */
+  private static final class ObjectLock {
+    /** Read/write lock. */
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(FAIR);
+    /** Number of transactions using this lock ({@code -1}: discarded). */
+    final AtomicInteger users = new AtomicInteger();
+    /** Name of object. */
+    final String name;
+
+    /**
+     * Constructor.
+     * @param name name of object
+     */
+    ObjectLock(final String name) {
+      this.name = name;
+    }
+  }
+
+  /** Contention statistics of a single object. */
+  private static final class Stats {
+    /** Number of acquired locks. */
+    final AtomicLong locks = new AtomicLong();
+    /** Number of locks that could not be acquired immediately. */
+    final AtomicLong waits = new AtomicLong();
+    /** Total waiting time (nanoseconds). */
+    final AtomicLong time = new AtomicLong();
+
+    /**
+     * Records a contended lock.
+     * @param start start time of waiting (nanoseconds)
+     */
+    void waited(final long start) {
+      waits.incrementAndGet();
+      time.addAndGet(System.nanoTime() - start);
+    }
+  }
+
+  /** Locks held by a single transaction. */
+  private static final class Held {
+    /** Locked objects, in the order of locking. */
+    final ArrayList<ObjectLock> objects = new ArrayList<>();
+    /** Lock types of the objects ({@code true}: write lock). */
+    final BoolList writes = new BoolList();
+    /** Updating transaction. */
+    final boolean updating;
+    /** Global write lock. */
+    final boolean writeAll;
+    /** Global read lock. */
+    final boolean readAll;
+    /** Local write locks. */
+    final boolean localWrite;
+
+    /**
+     * Constructor.
+     * @param updating updating transaction
+     * @param writeAll global write lock
+     * @param readAll global read lock
+     * @param localWrite local write locks
+     */
+    Held(final boolean updating, final boolean writeAll, final boolean readAll,
+        final boolean localWrite) {
+      this.updating = updating;
+      this.writeAll = writeAll;
+      this.readAll = readAll;
+      this.localWrite = localWrite;
+    }
+  }
+}
@@ -110,6 +110,10 @@ public abstract class Data {
   IdPreMap idmap;
   /** States if distance caching is active. */
   public boolean cache;
+  /** States if a bulk update is active. */
+  boolean bulk;
+  /** States if the ID -> PRE mapping will be compacted after a bulk update. */
+  private boolean rebuild;
 
   /**
    * Default constructor.
@@ -257,6 +261,15 @@ public abstract class Data {
     return meta.updindex ? idmap.pre(id) : findPre(id);
   }
 
+  /**
+   * Indicates if the pre values of all nodes are identical to their ids.
+   * This can only be detected if the database has updatable indexes.
+   * @return result of check
+   */
+  public final boolean identity() {
+    return meta.updindex && idmap.identity();
+  }
+
   /**
    * Returns a pre value for the specified id.
    * @param ids unique node ids
@@ -600,8 +613,10 @@ public abstract class Data {
     if(meta.updindex) {
       indexAdd();
       // update ID -> PRE map:
-      idmap.delete(tpre, id(tpre), -tsize);
-      idmap.insert(tpre, meta.lastid - size + 1, size);
+      if(!rebuild) {
+        idmap.delete(tpre, id(tpre), -tsize);
+        idmap.insert(tpre, meta.lastid - size + 1, size);
+      }
     }
 
     // update table:
@@ -672,7 +687,7 @@ public abstract class Data {
     // preserve empty root node
     if(kind(pre) == DOC) meta.ndocs.decrementAndGet();
 
-    if(meta.updindex) {
+    if(meta.updindex && !rebuild) {
       // delete node and descendants from ID -> PRE map:
       idmap.delete(pre, id(pre), -s);
     }
@@ -832,7 +847,7 @@ public abstract class Data {
 
     if(meta.updindex) {
       // add the entries to the ID -> PRE mapping:
-      idmap.insert(tpre, id(tpre), size);
+      if(!rebuild) idmap.insert(tpre, id(tpre), size);
       indexAdd();
     }
 
@@ -1067,6 +1082,43 @@ public abstract class Data {
    */
   protected abstract long index(final int pre, final int id, final byte[] value, final int kind);
 
+  /**
+   * Starts a bulk update. Until {@link #bulkEnd()} is called, entries that are added to
+   * the value indexes will be collected and added in a single pass.
+   * @param ids skip updates of the ID -> PRE mapping and compact it when the bulk update
+   *   is finished (recommended if the number of structural updates is large)
+   */
+  public final void bulkStart(final boolean ids) {
+    bulk = true;
+    // disk-based value indexes resolve their keys via the ID -> PRE mapping
+    rebuild = ids && meta.updindex && (inMemory() || !meta.textindex && !meta.attrindex);
+  }
+
+  /**
+   * Finishes a bulk update.
+   */
+  public final void bulkEnd() {
+    bulk = false;
+    if(rebuild) {
+      rebuild = false;
+      compact();
+    }
+    indexFlush();
+  }
+
+  /**
+   * Folds the records of the ID -> PRE mapping into a direct mapping.
+   */
+  final void compact() {
+    final int size = meta.size;
+    final int[] ids = new int[size];
+    for(int pre = 0; pre < size; pre++) ids[pre] = id(pre);
+    idmap.compact(ids, size);
+  }
+
+  /** Adds the index entries that have been collected by a bulk update. */
+  void indexFlush() { }
+
   /** Notify the index structures that an update operation is started. */
   void indexBegin() { }
 
@@ -14,12 +14,16 @@ public interface DataText {
   /** Database version; older version cannot open these instances. */
   String STORAGE = "7.8";
   /** Index version; older version cannot open indexes of these instances. */
-  String ISTORAGE = "7.8";
+  String ISTORAGE = "8.0";
+  /** Storage version of instances with other than the default value codec. */
+  String CSTORAGE = "8.2";
 
   /** Database version. */
   String DBSTR = "STORAGE";
   /** Database version. */
   String IDBSTR = "ISTORAGE";
+  /** Value codec. */
+  String DBCODEC = "CODEC";
   /** Last modification time. */
   String DBTIME = "TIME";
   /** Number of nodes. */
@@ -88,6 +92,8 @@ public interface DataText {
   String DBPATH = "PATH";
   /** Namespace. */
   String DBNS = "NS";
+  /** Dictionaries of the value codec. */
+  String DBDICT = "DICT";
 
   // DATABASE FILES ===============================================================================
 
@@ -105,12 +111,18 @@ public interface DataText {
   String DATAFTX = "ftx";
   /** Database - Stopword list. */
   String DATASWL = "swl";
+  /** Prefix of index files that are built beside the files of the live index. */
+  String SHADOW = "_";
   /** Database - Updating flag. */
   String DATAUPD = "upd";
   /** Database - Document path index. */
   String DATAPTH = "pth";
   /** Database - ID->PRE mapping. */
   String DATAIDP = "idp";
+  /** Database - Direct ID->PRE mapping. */
+  String DATAIDB = "idb";
+  /** Database - Write-ahead log. */
+  String DATAWAL = "wal";
 
   // XML SERIALIZATION ============================================================================
 
@@ -257,4 +269,21 @@ public interface DataText {
   byte[] TABLEURI = token("URI");
   /** Table kinds. */
   byte[][] TABLEKINDS = tokens("DOC ", "ELEM", "TEXT", "ATTR", "COMM", "PI  ");
+
+  /** File header. */
+  byte[] TABLEFILE = token("FILE");
+  /** Buffers header. */
+  byte[] TABLEBUFFERS = token("BUFFERS");
+  /** Hits header. */
+  byte[] TABLEHITS = token("HITS");
+  /** Misses header. */
+  byte[] TABLEMISSES = token("MISSES");
+  /** Codec header. */
+  byte[] TABLECODEC = token("CODEC");
+  /** Values header. */
+  byte[] TABLEVALUES = token("VALUES");
+  /** Compression ratio header. */
+  byte[] TABLERATIO = token("RATIO");
+  /** Decoding throughput header. */
+  byte[] TABLEDECODING = token("DECODING (MB/s)");
 }
@@ -7,6 +7,7 @@ import java.io.*;
 
 import org.basex.build.*;
 import org.basex.core.*;
+import org.basex.core.MainOptions.MainCodec;
 import org.basex.core.cmd.*;
 import org.basex.index.*;
 import org.basex.index.ft.*;
@@ -15,6 +16,7 @@ import org.basex.index.path.*;
 import org.basex.index.value.*;
 import org.basex.io.*;
 import org.basex.io.in.DataInput;
+import org.basex.io.out.*;
 import org.basex.io.out.DataOutput;
 import org.basex.io.random.*;
 import org.basex.util.*;
@@ -26,29 +28,51 @@ import org.basex.util.list.*;
  * for textual content in a compressed disk structure.
  * The table mapping is documented in {@link Data}.
  *
+ * <p>Snapshots of a database can be created via {@link #snapshot()}. A snapshot is a
+ * read-only database instance, which is not affected by subsequent updates. While
+ * snapshots exist, changed table blocks will be written to new blocks, and texts will
+ * only be appended to the text files.</p>
+ *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  * @author Tim Petrowsky
  */
 public final class DiskData extends Data {
-  /** Text compressor. */
-  private static final ThreadLocal<Compress> COMP = new ThreadLocal<Compress>() {
-    @Override
-    protected Compress initialValue() {
-      return new Compress();
-    }
-  };
+  /** Maximum number of values that are decoded for the codec statistics. */
+  private static final int STATS = 100000;
 
   /** Texts access file. */
   private DataAccess texts;
   /** Values access file. */
   private DataAccess values;
+  /** Codec for texts. */
+  private ValueCodec textCodec;
+  /** Codec for attribute values. */
+  private ValueCodec attrCodec;
   /** Texts buffered for subsequent index updates. */
   private TokenObjMap<IntList> txtBuffer;
   /** Attribute values buffered for subsequent index updates. */
   private TokenObjMap<IntList> atvBuffer;
+  /** Texts to be added to the index by a bulk update, indexed by ids. */
+  private IntObjMap<byte[]> txtBulk = new IntObjMap<>();
+  /** Attribute values to be added to the index by a bulk update, indexed by ids. */
+  private IntObjMap<byte[]> atvBulk = new IntObjMap<>();
+  /** Indicates if updates are logged. */
+  private boolean log;
+  /** Indicates if the database has been updated since the logging was started. */
+  private boolean logged;
+  /** Write-ahead log ({@code null} if updates are not written to the log). */
+  private WriteAheadLog wal;
+  /** Indicates if files have been replaced by the current transaction. */
+  private boolean replaced;
   /** Closed flag. */
   private boolean closed;
+  /** Database from which this snapshot was created ({@code null} if this is no snapshot). */
+  private final DiskData origin;
+  /** Number of open snapshots. */
+  private volatile int snapshots;
+  /** Indicates if an update operation is running. */
+  private boolean updating;
 
   /**
    * Default constructor, called from {@link Open#open}.
@@ -57,24 +81,21 @@ public final class DiskData extends Data {
    */
   public DiskData(final MetaData meta) throws IOException {
     super(meta);
+    // recover updates that have not been written back before a crash
+    WriteAheadLog.recover(meta.path);
+    origin = null;
 
+    final byte[][] dicts;
     try(final DataInput in = new DataInput(meta.dbfile(DATAINF))) {
-      meta.read(in);
-      while(true) {
-        final String k = string(in.readToken());
-        if(k.isEmpty()) break;
-        if(k.equals(DBTAGS))      elemNames = new Names(in, meta);
-        else if(k.equals(DBATTS)) attrNames = new Names(in, meta);
-        else if(k.equals(DBPATH)) paths = new PathSummary(this, in);
-        else if(k.equals(DBNS))   nspaces = new Namespaces(in);
-        else if(k.equals(DBDOCS)) resources.read(in);
-      }
+      dicts = read(in);
     }
+    textCodec = ValueCodec.get(meta.codec, dicts[0]);
+    attrCodec = ValueCodec.get(meta.codec, dicts[1]);
 
     // open data and indexes
     init();
     if(meta.updindex) {
-      idmap = new IdPreMap(meta.dbfile(DATAIDP));
+      idmap = new IdPreMap(meta.dbfile(DATAIDP), meta.dbfile(DATAIDB));
       if(meta.textindex) textIndex = new UpdatableDiskValues(this, true);
       if(meta.attrindex) attrIndex = new UpdatableDiskValues(this, false);
     } else {
@@ -91,21 +112,76 @@ public final class DiskData extends Data {
    * @param attrNames attribute names
    * @param paths path summary
    * @param n namespaces
+   * @param textCodec codec for texts
+   * @param attrCodec codec for attribute values
    * @throws IOException I/O Exception
    */
   public DiskData(final MetaData meta, final Names elemNames, final Names attrNames,
-      final PathSummary paths, final Namespaces n) throws IOException {
+      final PathSummary paths, final Namespaces n, final ValueCodec textCodec,
+      final ValueCodec attrCodec) throws IOException {
 
     super(meta);
+    this.textCodec = textCodec;
+    this.attrCodec = attrCodec;
     this.elemNames = elemNames;
     this.attrNames = attrNames;
     this.paths = paths;
     this.nspaces = n;
     paths.data(this);
     if(meta.updindex) idmap = new IdPreMap(meta.lastid);
+    origin = null;
     init();
   }
 
+  /**
+   * Snapshot constructor, called from {@link #snapshot()}.
+   * @param data database
+   * @param info serialized meta data
+   * @throws IOException I/O Exception
+   */
+  private DiskData(final DiskData data, final byte[] info) throws IOException {
+    super(new MetaData(data.meta));
+    origin = data;
+    read(new DataInput(new IOContent(info)));
+    // document paths are read lazily from a file that may be rewritten by updates
+    resources.copy(data.resources);
+    textCodec = data.textCodec;
+    attrCodec = data.attrCodec;
+    if(data.idmap != null) idmap = new IdPreMap(data.idmap);
+    // value indexes are updated in place and cannot be used by snapshots
+    meta.textindex = false;
+    meta.attrindex = false;
+    meta.ftxtindex = false;
+    table = ((TableDiskAccess) data.table).snapshot(meta);
+    texts = data.texts.snapshot();
+    values = data.values.snapshot();
+  }
+
+  /**
+   * Reads the meta data and the name, path and resource structures.
+   * @param in input stream
+   * @return dictionaries of the text and attribute value codecs (entries may be {@code null})
+   * @throws IOException I/O Exception
+   */
+  private byte[][] read(final DataInput in) throws IOException {
+    final byte[][] dicts = new byte[2][];
+    meta.read(in);
+    while(true) {
+      final String k = string(in.readToken());
+      if(k.isEmpty()) break;
+      if(k.equals(DBTAGS))      elemNames = new Names(in, meta);
+      else if(k.equals(DBATTS)) attrNames = new Names(in, meta);
+      else if(k.equals(DBPATH)) paths = new PathSummary(this, in);
+      else if(k.equals(DBNS))   nspaces = new Namespaces(in);
+      else if(k.equals(DBDOCS)) resources.read(in);
+      else if(k.equals(DBDICT)) {
+        dicts[0] = in.readToken();
+        dicts[1] = in.readToken();
+      }
+    }
+    return dicts;
+  }
+
   /**
    * Initializes the database.
    * @throws IOException I/O exception
@@ -123,29 +199,87 @@ public final class DiskData extends Data {
   private void write() throws IOException {
     if(meta.dirty) {
       try(final DataOutput out = new DataOutput(meta.dbfile(DATAINF))) {
-        meta.write(out);
-        out.writeToken(token(DBTAGS));
-        elemNames.write(out);
-        out.writeToken(token(DBATTS));
-        attrNames.write(out);
-        out.writeToken(token(DBPATH));
-        paths.write(out);
-        out.writeToken(token(DBNS));
-        nspaces.write(out);
-        out.writeToken(token(DBDOCS));
-        resources.write(out);
-        out.write(0);
+        write(out);
+      }
+      if(idmap != null) {
+        idmap.write(meta.dbfile(DATAIDP));
+        if(idmap.dirty()) idmap.writeBase(meta.dbfile(DATAIDB));
       }
-      if(idmap != null) idmap.write(meta.dbfile(DATAIDP));
       meta.dirty = false;
     }
   }
 
+  /**
+   * Writes the meta data to the specified output stream.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  private void write(final DataOutput out) throws IOException {
+    meta.write(out);
+    out.writeToken(token(DBTAGS));
+    elemNames.write(out);
+    out.writeToken(token(DBATTS));
+    attrNames.write(out);
+    out.writeToken(token(DBPATH));
+    paths.write(out);
+    out.writeToken(token(DBNS));
+    nspaces.write(out);
+    out.writeToken(token(DBDOCS));
+    resources.write(out);
+    if(meta.codec == MainCodec.DICT) {
+      out.writeToken(token(DBDICT));
+      out.writeToken(textCodec.dictionary());
+      out.writeToken(attrCodec.dictionary());
+    }
+    out.write(0);
+  }
+
+  /**
+   * Returns a read-only snapshot of the database, which is not affected by subsequent
+   * updates. If an update operation is running, the function waits until it has been
+   * finished. The snapshot must be closed after use.
+   * @return snapshot
+   * @throws IOException I/O exception
+   */
+  public synchronized DiskData snapshot() throws IOException {
+    try {
+      while(updating) wait();
+    } catch(final InterruptedException ex) {
+      throw new IOException(ex);
+    }
+    texts.flush();
+    values.flush();
+    final ArrayOutput ao = new ArrayOutput();
+    try(final DataOutput out = new DataOutput(ao)) {
+      write(out);
+    }
+    final DiskData data = new DiskData(this, ao.finish());
+    snapshots++;
+    return data;
+  }
+
+  /**
+   * Releases a closed snapshot.
+   */
+  private synchronized void release() {
+    snapshots--;
+  }
+
   @Override
   public synchronized void close() {
     if(closed) return;
     closed = true;
+    if(origin != null) {
+      try {
+        table.close();
+      } catch(final IOException ex) {
+        Util.stack(ex);
+      }
+      origin.release();
+      return;
+    }
     try {
+      if(wal != null) wal.end();
       write();
       table.close();
       texts.close();
@@ -153,6 +287,11 @@ public final class DiskData extends Data {
       close(IndexType.TEXT);
       close(IndexType.ATTRIBUTE);
       close(IndexType.FULLTEXT);
+      if(wal != null) {
+        WriteAheadLog.sync(meta.path);
+        wal.close();
+        if(replaced) meta.updateFile().delete();
+      }
     } catch(final IOException ex) {
       Util.stack(ex);
     }
@@ -175,27 +314,210 @@ public final class DiskData extends Data {
   public void createIndex(final IndexType type, final MainOptions options, final Command cmd)
       throws IOException {
 
+    replace();
     // close existing index
     close(type);
-    final IndexBuilder ib;
+    final IndexBuilder ib = indexBuilder(type, options);
+    if(cmd != null) cmd.proc(ib);
+    set(type, ib.build());
+  }
+
+  /**
+   * Returns a builder for the specified index.
+   * @param type index type
+   * @param options main options
+   * @return builder
+   * @throws IOException I/O exception
+   */
+  public IndexBuilder indexBuilder(final IndexType type, final MainOptions options)
+      throws IOException {
     switch(type) {
-      case TEXT:      ib = new DiskValuesBuilder(this, options, true); break;
-      case ATTRIBUTE: ib = new DiskValuesBuilder(this, options, false); break;
-      case FULLTEXT:  ib = new FTBuilder(this, options); break;
+      case TEXT:      return new DiskValuesBuilder(this, options, true);
+      case ATTRIBUTE: return new DiskValuesBuilder(this, options, false);
+      case FULLTEXT:  return new FTBuilder(this, options);
       default:        throw Util.notExpected();
     }
-    if(cmd != null) cmd.proc(ib);
-    set(type, ib.build());
   }
 
   @Override
   public boolean dropIndex(final IndexType type) {
     // close and drop index (return true if no index exists)
+    replace();
     final Index index = index(type);
     close(type);
     return index == null || index.drop();
   }
 
+  /**
+   * Starts logging updates. Indexes that have been built beside the live indexes will be
+   * discarded if the database is updated in the meantime (see {@link #swapIndex}).
+   */
+  public synchronized void startLog() {
+    log = true;
+    logged = false;
+  }
+
+  /**
+   * Stops logging updates.
+   * @return {@code true} if the database has been updated since the logging was started
+   */
+  public synchronized boolean stopLog() {
+    log = false;
+    return logged;
+  }
+
+  /**
+   * Replaces the specified index with the index that has been built beside it (see
+   * {@link IndexBuilder#shadow()}). If the database has been updated in the meantime,
+   * the new index will be discarded: updates are not tracked for indexes that do not
+   * exist yet, and the keys of the new index are resolved via the updated texts.
+   * @param type index type
+   * @return {@code true} if the index was replaced
+   * @throws IOException I/O exception
+   */
+  public synchronized boolean swapIndex(final IndexType type) throws IOException {
+    final String name = name(type);
+    if(logged) {
+      dropShadow(type);
+      return false;
+    }
+
+    // replace files of the live index
+    replace();
+    dropIndex(type);
+    for(final IOFile file : meta.path.children(SHADOW + ".*")) {
+      final String fn = file.name().substring(SHADOW.length());
+      if(fn.startsWith(name) || type == IndexType.FULLTEXT && fn.startsWith(DATASWL)) {
+        final IOFile target = new IOFile(meta.path, fn);
+        target.delete();
+        if(!file.rename(target)) throw new IOException(file + " cannot be renamed.");
+      }
+    }
+
+    final boolean text = type == IndexType.TEXT;
+    final Index index;
+    if(type == IndexType.FULLTEXT) {
+      index = new FTIndex(this);
+      meta.ftxtindex = true;
+    } else {
+      index = meta.updindex ? new UpdatableDiskValues(this, text) :
+        new DiskValues(this, text);
+      if(text) meta.textindex = true;
+      else meta.attrindex = true;
+    }
+    set(type, index);
+    return true;
+  }
+
+  /**
+   * Deletes the files of an index that has been built beside the live index.
+   * @param type index type
+   */
+  public void dropShadow(final IndexType type) {
+    meta.drop(SHADOW + name(type) + ".+");
+    if(type == IndexType.FULLTEXT) meta.drop(SHADOW + DATASWL);
+  }
+
+  /**
+   * Returns the name prefix of the files of the specified index.
+   * @param type index type
+   * @return name
+   */
+  private static String name(final IndexType type) {
+    return type == IndexType.TEXT ? DATATXT : type == IndexType.ATTRIBUTE ? DATAATV : DATAFTX;
+  }
+
+  /**
+   * Returns a table with the statistics of the buffered database files.
+   * @return table
+   */
+  public Table buffers() {
+    final Table t = new Table();
+    t.header.add(TABLEFILE);
+    t.header.add(TABLEBUFFERS);
+    t.header.add(TABLEHITS);
+    t.header.add(TABLEMISSES);
+    for(int i = 0; i < 4; ++i) t.align.add(true);
+    buffers(t, DATATBL, table.buffers());
+    buffers(t, DATATXT, texts.buffers());
+    buffers(t, DATAATV, values.buffers());
+    return t;
+  }
+
+  /**
+   * Adds buffer statistics to the specified table.
+   * @param table table
+   * @param file file name
+   * @param bm buffer manager
+   */
+  private static void buffers(final Table table, final String file, final Buffers bm) {
+    final TokenList tl = new TokenList();
+    tl.add(file);
+    tl.add(bm.size());
+    tl.add(bm.hits());
+    tl.add(bm.misses());
+    table.contents.add(tl);
+  }
+
+  /**
+   * Returns a table with the statistics of the value codecs. The statistics are computed
+   * from a sample of the stored texts and attribute values.
+   * @return table
+   */
+  public Table codecs() {
+    final Table t = new Table();
+    t.header.add(TABLEFILE);
+    t.header.add(TABLECODEC);
+    t.header.add(TABLEVALUES);
+    t.header.add(TABLERATIO);
+    t.header.add(TABLEDECODING);
+    for(int i = 0; i < 5; ++i) t.align.add(i != 1);
+    codecs(t, DATATXT, true);
+    codecs(t, DATAATV, false);
+    return t;
+  }
+
+  /**
+   * Adds codec statistics to the specified table.
+   * @param table table
+   * @param file file name
+   * @param text text or attribute flag
+   */
+  private void codecs(final Table table, final String file, final boolean text) {
+    final ValueCodec codec = text ? textCodec : attrCodec;
+    final DataAccess da = (text ? texts : values).reader();
+    final int size = meta.size, step = Math.max(1, size / STATS);
+    long vals = 0, plain = 0, stored = 0, decoded = 0, time = 0;
+    for(int pre = 0; pre < size; pre += step) {
+      final int k = kind(pre);
+      if(text ? k == ELEM || k == ATTR : k != ATTR) continue;
+      final long o = textOff(pre);
+      if(number(o)) continue;
+      final byte[] val;
+      synchronized(da) {
+        val = da.readToken(o & IO.OFFCOMP - 1);
+      }
+      int vl = val.length;
+      if(compressed(o)) {
+        final long t = System.nanoTime();
+        vl = codec.unpack(val).length;
+        time += System.nanoTime() - t;
+        decoded += vl;
+      }
+      vals++;
+      plain += vl;
+      stored += val.length;
+    }
+
+    final TokenList tl = new TokenList();
+    tl.add(file);
+    tl.add(codec.toString());
+    tl.add(vals);
+    tl.add(plain == 0 ? token("-") : token(Math.round(stored * 1000d / plain) / 1000d));
+    tl.add(time == 0 ? token("-") : token(Math.round(decoded * 10000d / time) / 10d));
+    table.contents.add(tl);
+  }
+
   /**
    * Assigns the specified index.
    * @param type index to be opened
@@ -213,31 +535,169 @@ public final class DiskData extends Data {
 
   @Override
   public void startUpdate(final MainOptions opts) throws IOException {
+    if(origin != null) throw Util.notExpected("Snapshot of '%' cannot be updated.", meta.name);
     if(!table.lock(true)) throw new BaseXException(Text.DB_PINNED_X, meta.name);
-    if(opts.get(MainOptions.AUTOFLUSH)) {
-      final IOFile uf = meta.updateFile();
-      if(uf.exists()) throw new BaseXException(Text.DB_UPDATED_X, meta.name);
-      if(!uf.touch()) throw Util.notExpected("%: could not create lock file.", meta.name);
+    if(opts.get(MainOptions.WAL)) {
+      begin();
+    } else {
+      // updates that have been logged before must be written back first
+      if(wal != null) stopWal();
+      if(opts.get(MainOptions.AUTOFLUSH)) {
+        final IOFile uf = meta.updateFile();
+        if(uf.exists()) throw new BaseXException(Text.DB_UPDATED_X, meta.name);
+        if(!uf.touch()) throw Util.notExpected("%: could not create lock file.", meta.name);
+      }
+    }
+    synchronized(this) {
+      updating = true;
     }
   }
 
   @Override
   public synchronized void finishUpdate(final MainOptions opts) {
-    // remove updating file
+    try {
+      finish(opts);
+    } finally {
+      updating = false;
+      notifyAll();
+    }
+  }
+
+  /**
+   * Finalizes an update operation.
+   * @param opts main options
+   */
+  private void finish(final MainOptions opts) {
+    if(log) logged = true;
+    // fold the records of the ID -> PRE mapping if they slow down lookups
+    if(!closed && idmap != null && idmap.fragmented()) compact();
     final boolean auto = opts.get(MainOptions.AUTOFLUSH);
-    if(auto) {
+    if(wal != null) {
+      // db:optimize(..., true) will close the database before this function is called
+      if(!closed) {
+        try {
+          commit(auto);
+        } catch(final IOException ex) {
+          throw Util.notExpected(ex);
+        }
+      }
+    } else if(auto) {
+      // remove updating file
       final IOFile uf = meta.updateFile();
       if(!uf.exists()) throw Util.notExpected("%: lock file does not exist.", meta.name);
       if(!uf.delete()) throw Util.notExpected("%: could not delete lock file.", meta.name);
     }
 
-    // db:optimize(..., true) will close the database before this function is called
     if(!closed) {
-      flush(auto);
+      if(wal == null) flush(auto);
       if(!table.lock(false)) throw Util.notExpected("Database '%': could not unlock.", meta.name);
     }
   }
 
+  /**
+   * Starts a transaction whose changes will be written to the write-ahead log.
+   * @throws IOException I/O exception
+   */
+  private synchronized void begin() throws IOException {
+    if(wal == null) wal = new WriteAheadLog(meta.path);
+    wal.begin();
+    ((TableDiskAccess) table).attach(wal);
+    texts.attach(wal);
+    values.attach(wal);
+    if(textIndex != null) ((DiskValues) textIndex).attach(wal);
+    if(attrIndex != null) ((DiskValues) attrIndex).attach(wal);
+  }
+
+  /**
+   * Commits the current transaction. All changed blocks and files are written to the
+   * write-ahead log, and the log is synchronized with the storage device. If files have
+   * been replaced by the transaction, or if the log has reached its maximum size,
+   * all files will be written back and synchronized.
+   * @param auto write back all buffered data
+   * @throws IOException I/O exception
+   */
+  private void commit(final boolean auto) throws IOException {
+    // files will be written back if the ID -> PRE mapping has been compacted
+    final boolean compacted = idmap != null && idmap.dirty();
+    if(!replaced) {
+      ((TableDiskAccess) table).log();
+      texts.log();
+      values.log();
+      if(textIndex != null) ((DiskValues) textIndex).log();
+      if(attrIndex != null) ((DiskValues) attrIndex).log();
+      if(meta.dirty) {
+        ArrayOutput ao = new ArrayOutput();
+        try(final DataOutput out = new DataOutput(ao)) {
+          write(out);
+        }
+        wal.image(meta.dbfile(DATAINF).name(), ao.finish());
+        if(idmap != null) {
+          ao = new ArrayOutput();
+          try(final DataOutput out = new DataOutput(ao)) {
+            idmap.write(out);
+          }
+          wal.image(meta.dbfile(DATAIDP).name(), ao.finish());
+          if(compacted) {
+            ao = new ArrayOutput();
+            try(final DataOutput out = new DataOutput(ao)) {
+              idmap.writeBase(out);
+            }
+            wal.image(meta.dbfile(DATAIDB).name(), ao.finish());
+          }
+        }
+      }
+      wal.commit();
+      flush(auto);
+    }
+    if(replaced || compacted || wal.size() > WriteAheadLog.CHECKPOINT) checkpoint();
+  }
+
+  /**
+   * Writes back all buffered data, synchronizes all files with the storage device,
+   * and resets the write-ahead log.
+   * @throws IOException I/O exception
+   */
+  private void checkpoint() throws IOException {
+    wal.end();
+    flush(true);
+    WriteAheadLog.sync(meta.path);
+    wal.reset();
+    if(replaced) {
+      replaced = false;
+      if(!meta.updateFile().delete()) {
+        throw Util.notExpected("%: could not delete lock file.", meta.name);
+      }
+    }
+  }
+
+  /**
+   * Writes back all logged updates and stops logging.
+   * @throws IOException I/O exception
+   */
+  private synchronized void stopWal() throws IOException {
+    checkpoint();
+    wal.close();
+    wal = null;
+    ((TableDiskAccess) table).attach(null);
+    texts.attach(null);
+    values.attach(null);
+    if(textIndex != null) ((DiskValues) textIndex).attach(null);
+    if(attrIndex != null) ((DiskValues) attrIndex).attach(null);
+  }
+
+  /**
+   * Called before files of an index are replaced or deleted. As these changes are not
+   * written to the write-ahead log, the database will be marked as updating until all
+   * files have been synchronized at the end of the transaction.
+   */
+  private void replace() {
+    if(replaced || wal == null || !wal.active()) return;
+    replaced = true;
+    if(!meta.updateFile().touch()) {
+      throw Util.notExpected("%: could not create lock file.", meta.name);
+    }
+  }
+
   @Override
   public synchronized void flush(final boolean all) {
     try {
@@ -276,10 +736,12 @@ public final class DiskData extends Data {
   public int textLen(final int pre, final boolean text) {
     final long o = textOff(pre);
     if(number(o)) return numDigits((int) o);
-    final DataAccess da = text ? texts : values;
-    final int l = da.readNum(o & IO.OFFCOMP - 1);
-    // compressed: next number contains number of compressed bytes
-    return compressed(o) ? da.readNum() : l;
+    final DataAccess da = (text ? texts : values).reader();
+    synchronized(da) {
+      final int l = da.readNum(o & IO.OFFCOMP - 1);
+      // compressed: next number contains number of compressed bytes
+      return compressed(o) ? da.readNum() : l;
+    }
   }
 
   /**
@@ -289,8 +751,8 @@ public final class DiskData extends Data {
    * @return text
    */
   private byte[] txt(final long off, final boolean text) {
-    final byte[] txt = (text ? texts : values).readToken(off & IO.OFFCOMP - 1);
-    return compressed(off) ? COMP.get().unpack(txt) : txt;
+    final byte[] txt = (text ? texts : values).reader().readToken(off & IO.OFFCOMP - 1);
+    return compressed(off) ? (text ? textCodec : attrCodec).unpack(txt) : txt;
   }
 
   /**
@@ -317,8 +779,8 @@ public final class DiskData extends Data {
   protected void delete(final int pre, final boolean text) {
     // old entry (offset or value)
     final long old = textOff(pre);
-    // fill unused space with zero-bytes
-    if(!number(old)) (text ? texts : values).free(old & IO.OFFCOMP - 1, 0);
+    // fill unused space with zero-bytes (skipped if the entry may be read by a snapshot)
+    if(!number(old) && snapshots == 0) (text ? texts : values).free(old & IO.OFFCOMP - 1, 0);
   }
 
   @Override
@@ -331,7 +793,15 @@ public final class DiskData extends Data {
       final byte[] oldval = text(pre, text);
       final DiskValues index = (DiskValues) (text ? textIndex : attrIndex);
       // don't index document names
-      if(index != null && kind != DOC) index.replace(oldval, value, id);
+      if(index != null && kind != DOC && bulk) {
+        // delete old value (if it has already been indexed)
+        final IntObjMap<byte[]> adds = text ? txtBulk : atvBulk;
+        if(adds.get(id) == null) index.delete(oldval, id);
+        // add new value when the bulk update is finished
+        adds.put(id, value.length <= meta.maxlen ? value : null);
+      } else if(index != null && kind != DOC) {
+        index.replace(oldval, value, id);
+      }
     }
 
     // reference to text store
@@ -346,14 +816,14 @@ public final class DiskData extends Data {
       textOff(pre, v | IO.OFFNUM);
     } else {
       // text to be stored (possibly packed)
-      final byte[] val = COMP.get().pack(value);
+      final byte[] val = (text ? textCodec : attrCodec).pack(value);
       // old entry (offset or value)
       final long old = textOff(pre);
 
       // find text store offset
       final long off;
-      if(number(old)) {
-        // numeric entry: append new entry at the end
+      if(number(old) || snapshots != 0) {
+        // numeric entry, or old entry may be read by a snapshot: append new entry at the end
         off = len;
       } else {
         // text size (0 if value will be inlined)
@@ -374,25 +844,110 @@ public final class DiskData extends Data {
 
   @Override
   protected void indexAdd() {
-    if(!txtBuffer.isEmpty()) ((DiskValues) textIndex).add(txtBuffer);
-    if(!atvBuffer.isEmpty()) ((DiskValues) attrIndex).add(atvBuffer);
+    indexAdd(true, txtBuffer);
+    indexAdd(false, atvBuffer);
+  }
+
+  /**
+   * Adds index entries.
+   * @param text text or attribute index
+   * @param map keys and ids
+   */
+  private void indexAdd(final boolean text, final TokenObjMap<IntList> map) {
+    if(map.isEmpty()) return;
+    if(bulk) {
+      final IntObjMap<byte[]> adds = text ? txtBulk : atvBulk;
+      for(final byte[] key : map) {
+        for(final int id : map.get(key).finish()) adds.put(id, key);
+      }
+      return;
+    }
+    ((DiskValues) (text ? textIndex : attrIndex)).add(map);
   }
 
   @Override
   void indexDelete() {
-    if(!txtBuffer.isEmpty()) ((DiskValues) textIndex).delete(txtBuffer);
-    if(!atvBuffer.isEmpty()) ((DiskValues) attrIndex).delete(atvBuffer);
+    indexDelete(true, txtBuffer);
+    indexDelete(false, atvBuffer);
+  }
+
+  /**
+   * Deletes index entries.
+   * @param text text or attribute index
+   * @param keys keys and ids
+   */
+  private void indexDelete(final boolean text, final TokenObjMap<IntList> keys) {
+    final TokenObjMap<IntList> map = bulk ? skip(text, keys) : keys;
+    if(map.isEmpty()) return;
+    ((DiskValues) (text ? textIndex : attrIndex)).delete(map);
+  }
+
+  /**
+   * Removes index entries that have been collected by a bulk update, and that have not
+   * been added to the index yet.
+   * @param text text or attribute index
+   * @param map keys and ids
+   * @return remaining keys and ids
+   */
+  private TokenObjMap<IntList> skip(final boolean text, final TokenObjMap<IntList> map) {
+    final IntObjMap<byte[]> adds = text ? txtBulk : atvBulk;
+    if(adds.isEmpty()) return map;
+
+    final TokenObjMap<IntList> entries = new TokenObjMap<>();
+    for(final byte[] key : map) {
+      final IntList ids = new IntList();
+      for(final int id : map.get(key).finish()) {
+        final byte[] k = adds.get(id);
+        if(k != null && eq(k, key)) adds.put(id, null);
+        else ids.add(id);
+      }
+      if(!ids.isEmpty()) entries.put(key, ids);
+    }
+    return entries;
+  }
+
+  @Override
+  void indexFlush() {
+    indexFlush(true, txtBulk);
+    indexFlush(false, atvBulk);
+    txtBulk = new IntObjMap<>();
+    atvBulk = new IntObjMap<>();
+  }
+
+  /**
+   * Adds the index entries that have been collected by a bulk update in a single pass.
+   * @param text text or attribute index
+   * @param adds keys, indexed by ids
+   */
+  private void indexFlush(final boolean text, final IntObjMap<byte[]> adds) {
+    final TokenObjMap<IntList> map = new TokenObjMap<>();
+    final int as = adds.size();
+    for(int a = 1; a <= as; a++) {
+      final int id = adds.key(a);
+      final byte[] key = adds.get(id);
+      if(key == null) continue;
+      IntList ids = map.get(key);
+      if(ids == null) {
+        ids = new IntList(1);
+        map.put(key, ids);
+      }
+      ids.add(id);
+    }
+    indexAdd(text, map);
   }
 
   @Override
   protected long index(final int pre, final int id, final byte[] value, final int kind) {
     final DataAccess store;
+    final ValueCodec codec;
     final TokenObjMap<IntList> map;
     if(kind == ATTR) {
       store = values;
+      codec = attrCodec;
       map = meta.attrindex ? atvBuffer : null;
     } else {
       store = texts;
+      codec = textCodec;
       // don't index document names
       map = meta.textindex && kind != DOC ? txtBuffer : null;
     }
@@ -414,7 +969,7 @@ public final class DiskData extends Data {
 
     // store text
     final long off = store.length();
-    final byte[] val = COMP.get().pack(value);
+    final byte[] val = codec.pack(value);
     store.writeToken(off, val);
     return val == value ? off : off | IO.OFFCOMP;
   }
@@ -5,10 +5,12 @@ import static org.basex.data.DataText.*;
 import static org.basex.util.Strings.*;
 
 import java.io.*;
+import java.util.*;
 import java.util.concurrent.atomic.*;
 
 import org.basex.build.*;
 import org.basex.core.*;
+import org.basex.core.MainOptions.MainCodec;
 import org.basex.core.cmd.*;
 import org.basex.io.*;
 import org.basex.io.in.DataInput;
@@ -68,6 +70,9 @@ public final class MetaData {
   /** Full-text stopword file. */
   public volatile String stopwords = "";
 
+  /** Codec for text and attribute values. */
+  public volatile MainCodec codec;
+
   /** Maximum number of categories. */
   public volatile int maxcats;
   /** Maximum token length. */
@@ -125,6 +130,17 @@ public final class MetaData {
     maxcats = options.get(MainOptions.MAXCATS);
     stopwords = options.get(MainOptions.STOPWORDS);
     language = Language.get(options);
+    codec = options.get(MainOptions.VALUECODEC);
+  }
+
+  /**
+   * Constructor for the meta data of a database snapshot.
+   * The remaining meta data will be assigned via {@link #read(DataInput)}.
+   * @param meta meta data of the database
+   */
+  MetaData(final MetaData meta) {
+    name = meta.name;
+    path = meta.path;
   }
 
   // STATIC METHODS ==========================================================
@@ -271,6 +287,8 @@ public final class MetaData {
    */
   void read(final DataInput in) throws IOException {
     String storage = "", istorage = "";
+    // databases without codec information use the default codec
+    codec = MainCodec.BITS;
     while(true) {
       final String k = Token.string(in.readToken());
       if(k.isEmpty()) break;
@@ -285,6 +303,8 @@ public final class MetaData {
         else if(k.equals(DBENC))      encoding   = v;
         else if(k.equals(DBFTSW))     stopwords  = v;
         else if(k.equals(DBFTLN))     language   = Language.get(v);
+        else if(k.equals(DBCODEC))    codec      = MainCodec.valueOf(
+            v.toUpperCase(Locale.ENGLISH));
         else if(k.equals(DBSIZE))     size       = toInt(v);
         else if(k.equals(DBNDOCS))    ndocs      = new AtomicInteger(toInt(v));
         else if(k.equals(DBSCTYPE))   scoring    = toInt(v);
@@ -314,7 +334,7 @@ public final class MetaData {
 
     // check version of database storage
     if(!storage.equals(STORAGE) && new Version(storage).compareTo(new Version(
-        STORAGE)) > 0) throw new BuildException(H_DB_FORMAT, storage);
+        CSTORAGE)) > 0) throw new BuildException(H_DB_FORMAT, storage);
     // check version of database indexes
     oldindex = !istorage.equals(ISTORAGE) &&
         new Version(istorage).compareTo(new Version(ISTORAGE)) > 0;
@@ -329,7 +349,7 @@ public final class MetaData {
    * @throws IOException I/O Exception
    */
   void write(final DataOutput out) throws IOException {
-    writeInfo(out, DBSTR,      STORAGE);
+    writeInfo(out, DBSTR,      codec == MainCodec.BITS ? STORAGE : CSTORAGE);
     writeInfo(out, DBFNAME,    original);
     writeInfo(out, DBTIME,     time);
     writeInfo(out, IDBSTR,     ISTORAGE);
@@ -354,6 +374,7 @@ public final class MetaData {
     writeInfo(out, DBMAXCATS,  maxcats);
     writeInfo(out, DBUPTODATE, uptodate);
     writeInfo(out, DBLASTID,   lastid);
+    writeInfo(out, DBCODEC,    codec.toString());
     if(language != null) writeInfo(out, DBFTLN, language.toString());
     out.write(0);
   }
@@ -278,11 +278,19 @@ public final class AtomicUpdateCache {
    * @param mergeTexts adjacent text nodes are to be expected and must be merged
    */
   public void execute(final boolean mergeTexts) {
+    // new index entries are added in a single pass. The ID -> PRE mapping will be rebuilt
+    // if single updates would be more expensive than a sequential scan of the table
+    final long ss = struct.size();
+    data.bulkStart(ss * ss > data.meta.size);
     data.cache = true;
-    applyUpdates();
-    adjustDistances();
-    if(mergeTexts) resolveTextAdjacency();
-    data.cache = false;
+    try {
+      applyUpdates();
+      adjustDistances();
+      if(mergeTexts) resolveTextAdjacency();
+    } finally {
+      data.cache = false;
+      data.bulkEnd();
+    }
     clear();
   }
 
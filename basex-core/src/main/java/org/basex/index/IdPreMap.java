@@ -18,8 +18,18 @@ import org.basex.util.list.*;
 public class IdPreMap {
   /** Invalid id-value. */
   private static final int INV = -1;
+  /** Minimum number of records that will trigger a compaction. */
+  private static final int COMPACT = 1 << 10;
   /** Base ID value. */
   private int baseid;
+  /**
+   * Direct mapping of the base ids to the PRE values of the last compaction
+   * ({@link #INV} for deleted ids). {@code null} if the base ids were identical to their
+   * PRE values. The array will never be modified.
+   */
+  private int[] base;
+  /** Indicates if the direct mapping has been changed since it was last written. */
+  private boolean dirty;
   /** PRE values of the inserted/deleted IDs. */
   private int[] pres;
   /** Inserted first ID values. */
@@ -50,9 +60,11 @@ public class IdPreMap {
   /**
    * Construct a map by reading it from a file.
    * @param f file to read from
+   * @param d file with the direct mapping
    * @throws IOException I/O error while reading from the file
    */
-  public IdPreMap(final IOFile f) throws IOException {
+  public IdPreMap(final IOFile f, final IOFile d) throws IOException {
+    final int bl;
     try(final DataInput in = new DataInput(f)) {
       baseid = in.readNum();
       rows = in.readNum();
@@ -61,9 +73,32 @@ public class IdPreMap {
       nids = in.readNums();
       incs = in.readNums();
       oids = in.readNums();
+      // files of older versions contain no direct mapping
+      bl = in.available() > 0 ? in.readNum() : 0;
+    }
+    if(bl > 0) {
+      try(final DataInput in = new DataInput(d)) {
+        base = in.readNums();
+      }
+      if(base.length != bl) throw new IOException("Invalid ID -> PRE mapping: " + d);
     }
   }
 
+  /**
+   * Copy constructor.
+   * @param map map to be copied
+   */
+  public IdPreMap(final IdPreMap map) {
+    baseid = map.baseid;
+    base = map.base;
+    rows = map.rows;
+    pres = map.pres.clone();
+    fids = map.fids.clone();
+    nids = map.nids.clone();
+    incs = map.incs.clone();
+    oids = map.oids.clone();
+  }
+
   /**
    * Write the map to the specified file.
    * @param f file to write to
@@ -71,37 +106,126 @@ public class IdPreMap {
    */
   public void write(final IOFile f) throws IOException {
     try(final DataOutput out = new DataOutput(f)) {
-      out.writeNum(baseid);
-      out.writeNum(rows);
-      out.writeNums(pres);
-      out.writeNums(fids);
-      out.writeNums(nids);
-      out.writeNums(incs);
-      out.writeNums(oids);
+      write(out);
     }
   }
 
+  /**
+   * Write the map to the specified output stream.
+   * @param out output stream
+   * @throws IOException I/O error while writing to the stream
+   */
+  public void write(final DataOutput out) throws IOException {
+    out.writeNum(baseid);
+    out.writeNum(rows);
+    out.writeNums(pres);
+    out.writeNums(fids);
+    out.writeNums(nids);
+    out.writeNums(incs);
+    out.writeNums(oids);
+    out.writeNum(base == null ? 0 : base.length);
+  }
+
+  /**
+   * Indicates if the direct mapping has been changed since it was last written.
+   * @return result of check
+   */
+  public boolean dirty() {
+    return dirty;
+  }
+
+  /**
+   * Writes the direct mapping to the specified file.
+   * @param f file to write to
+   * @throws IOException I/O error while writing to the file
+   */
+  public void writeBase(final IOFile f) throws IOException {
+    try(final DataOutput out = new DataOutput(f)) {
+      writeBase(out);
+    }
+    dirty = false;
+  }
+
+  /**
+   * Writes the direct mapping to the specified output stream.
+   * @param out output stream
+   * @throws IOException I/O error while writing to the stream
+   */
+  public void writeBase(final DataOutput out) throws IOException {
+    out.writeNums(base == null ? new int[0] : base);
+  }
+
   /**
    * Find the PRE value of a given ID.
    * @param id ID
    * @return PRE or -1 if the ID is already deleted
    */
   public int pre(final int id) {
-    // no updates or id is not affected by updates
-    if(rows == 0 || id < pres[0]) return id;
-
     if(id > baseid) {
       // id was inserted by update
       for(int i = 0; i < rows; ++i) {
-        // if(fids[i] == id) return pres[i]; // is this optimization?
         if(fids[i] <= id && id <= nids[i]) return pres[i] + id - fids[i];
       }
+      return -1;
+    }
+
+    // no updates or id is not affected by updates
+    final int bid = base(id);
+    if(rows == 0 || bid < pres[0]) return bid;
+    // id is affected by updates
+    final int i = sortedLastIndexOf(oids, bid);
+    return bid + incs[i < 0 ? -i - 2 : i];
+  }
+
+  /**
+   * Returns the PRE value that has been assigned to a base id by the last compaction.
+   * @param id base id
+   * @return PRE value, or {@link #INV} if the id has been deleted
+   */
+  private int base(final int id) {
+    return base == null ? id : base[id];
+  }
+
+  /**
+   * Indicates if the PRE values of all ids are identical to the ids.
+   * @return result of check
+   */
+  public boolean identity() {
+    return rows == 0 && base == null;
+  }
+
+  /**
+   * Indicates if the records should be folded into the direct mapping.
+   * This is the case if their number exceeds the square root of the number of ids.
+   * @return result of check
+   */
+  public boolean fragmented() {
+    return rows >= COMPACT && (long) rows * rows >= baseid;
+  }
+
+  /**
+   * Folds all records into the direct mapping.
+   * @param ids ids of all records, ordered by their PRE values
+   * @param size number of records
+   */
+  public void compact(final int[] ids, final int size) {
+    int max = -1;
+    boolean identity = true;
+    for(int pre = 0; pre < size; pre++) {
+      max = Math.max(max, ids[pre]);
+      identity &= ids[pre] == pre;
+    }
+    if(identity) {
+      base = null;
     } else {
-      // id is affected by updates
-      final int i = sortedLastIndexOf(oids, id);
-      return id + incs[i < 0 ? -i - 2 : i];
+      final int[] map = new int[max + 1];
+      Arrays.fill(map, INV);
+      for(int pre = 0; pre < size; pre++) map[ids[pre]] = pre;
+      base = map;
     }
-    return -1;
+    baseid = max;
+    rows = 0;
+    dirty = true;
   }
 
   /**
@@ -124,7 +248,7 @@ public class IdPreMap {
    * @param c number of inserted records
    */
   public void insert(final int pre, final int id, final int c) {
-    if(rows == 0 && pre == id && id == baseid + 1) {
+    if(rows == 0 && base == null && pre == id && id == baseid + 1) {
       // no mapping and we append at the end => nothing to do
       baseid += c;
       return;
@@ -182,15 +306,16 @@ public class IdPreMap {
    * @param c number of deleted records
    */
   public void delete(final int pre, final int id, final int c) {
-    if(rows == 0 && pre == id && id - c == baseid + 1) {
+    if(rows == 0 && base == null && pre == id && id - c == baseid + 1) {
       // no mapping and we delete at the end => nothing to do
       baseid += c;
       return;
     }
+    final int bid = id > baseid ? id : base(id);
 
     if(rows == 0) {
       // no previous updates: add a new record
-      add(0, pre, INV, INV, c, id);
+      add(0, pre, INV, INV, c, bid);
       return;
     }
 
@@ -216,7 +341,7 @@ public class IdPreMap {
       remove(removeStart, removeEnd);
     } else {
       inc = startIndex > 0 ? incs[startIndex - 1] : 0;
-      oid = id;
+      oid = bid;
       endIndex = startIndex;
     }
 
@@ -3,47 +3,69 @@ package org.basex.index;
 import static org.basex.core.Text.*;
 
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.util.*;
+import org.basex.util.list.*;
 
 /**
  * This interface defines the functions which are needed for building
  * new index structures.
  *
+ * If more than one thread is available, and if the database is large enough, the pre
+ * values of the database are split into contiguous partitions, which are indexed in
+ * parallel. Each partition writes its temporary index structures to separate files
+ * (runs), which are finally merged.
+ *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
 public abstract class IndexBuilder extends Proc {
+  /** Minimum number of database nodes per partition. */
+  private static final int PARTITION = 1 << 15;
+
   /** Data reference. */
   protected final Data data;
   /** Total parsing value. */
   protected final int size;
+  /** Number of partitions. */
+  protected final int partitions;
   /** Number of index operations to perform before writing a partial index to disk. */
   private final int splitSize;
 
   /** Maximum memory to consume. */
   private final long maxMem = (long) (Runtime.getRuntime().maxMemory() * 0.8);
 
-  /** Current pre value. */
-  protected int pre;
+  /** Number of processed pre values. */
+  private int pre;
   /** Total number of index operations (may get pretty large). */
-  protected long count;
+  private long count;
   /** Number of partial index structures. */
   protected int splits;
-  /** Threshold for freeing memory when estimating main memory consumption. */
-  private int gcCount;
+  /** Partitions of the partial index structures. */
+  private final IntList runs = new IntList();
+  /** Number of partial index structures that have been written due to memory shortage. */
+  private int flushes;
+  /** Indicates if indexing of a partition has failed. */
+  private volatile boolean failed;
+  /** Indicates if the index is built beside the live index (see {@link #shadow()}). */
+  protected boolean shadow;
 
   /**
    * Constructor.
    * @param data reference
    * @param max maximum number of operations per partial index
+   * @param threads maximum number of threads ({@code 0}: number of available processors)
    */
-  protected IndexBuilder(final Data data, final int max) {
+  protected IndexBuilder(final Data data, final int max, final int threads) {
     this.data = data;
     size = data.meta.size;
     splitSize = max;
+    final int th = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    partitions = Math.max(1, Math.min(th, size / PARTITION));
     if(Performance.memory() >= maxMem) Performance.gc(1);
   }
 
@@ -55,46 +77,109 @@ public abstract class IndexBuilder extends Proc {
   public abstract Index build() throws IOException;
 
   /**
-   * Checks if the command was interrupted, and prints some debug output.
+   * Builds the index files beside the files of the live index, which can still be accessed
+   * while the new index is built. The new files are activated via
+   * {@link DiskData#swapIndex}.
+   * @throws IOException I/O Exception
    */
-  protected final void check() {
-    checkStop();
-    if(Prop.debug && (pre & 0x1FFFFF) == 0) Util.err(".");
+  public final void shadow() throws IOException {
+    shadow = true;
+    build();
   }
 
   /**
-   * Decides whether in-memory temporary index structures are so large
-   * that we must flush them to disk before continuing.
-   * @return true if structures shall be flushed to disk
+   * Returns the name of an index file.
+   * @param name name of the live index file
+   * @return name, prefixed with {@link DataText#SHADOW} if the index is built beside
+   * the live index
+   */
+  protected final String name(final String name) {
+    return shadow ? DataText.SHADOW + name : name;
+  }
+
+  /**
+   * Indexes the nodes of the specified partition.
+   * @param part partition
+   * @throws IOException I/O Exception
+   */
+  protected abstract void index(Partition part) throws IOException;
+
+  /**
+   * Indexes all partitions. If there is more than one partition, all partitions will be
+   * indexed in parallel.
    * @throws IOException I/O Exception
    */
-  protected final boolean split() throws IOException {
-    // checks if a fixed split size has been specified
-    final boolean split;
-    if(splitSize > 0) {
-      split = count >= (splits + 1L) * splitSize;
-    } else {
-      // if not, estimate how much main memory is left
-      split = Performance.memory() >= maxMem;
-      // stop operation if index splitting degenerates
-      int gc = gcCount;
-      if(split) {
-        if(gc >= 0) throw new BaseXException(OUT_OF_MEM + H_OUT_OF_MEM);
-        gc = 30;
-      } else {
-        gc = Math.max(-1, gc - 1);
+  protected final void index() throws IOException {
+    if(partitions == 1) {
+      index(new Partition(0, 0, size));
+      return;
+    }
+
+    final ArrayList<Callable<Void>> tasks = new ArrayList<>(partitions);
+    for(int p = 0; p < partitions; p++) {
+      final Partition part = new Partition(p, (int) ((long) size * p / partitions),
+          (int) ((long) size * (p + 1) / partitions));
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws IOException {
+          try {
+            index(part);
+            return null;
+          } catch(final IOException | RuntimeException | Error ex) {
+            failed = true;
+            throw ex;
+          }
+        }
+      });
+    }
+
+    final ExecutorService pool = Executors.newFixedThreadPool(partitions);
+    Throwable error = null;
+    try {
+      for(final Future<Void> future : pool.invokeAll(tasks)) {
+        try {
+          future.get();
+        } catch(final ExecutionException ex) {
+          // remember first error that was not caused by another partition
+          final Throwable th = ex.getCause();
+          if(error == null || error instanceof ProcException) error = th;
+        }
       }
-      gcCount = gc;
+    } catch(final InterruptedException ex) {
+      error = new ProcException();
+    } finally {
+      pool.shutdownNow();
     }
-    if(split && Prop.debug) Util.err("|");
-    return split;
+    if(error instanceof IOException) throw (IOException) error;
+    if(error instanceof RuntimeException) throw (RuntimeException) error;
+    if(error instanceof Error) throw (Error) error;
+    if(error != null) throw Util.notExpected(error);
   }
 
   /**
-   * Performs memory cleanup after writing partial memory if necessary.
+   * Registers a new partial index structure.
+   * @param part partition
+   * @return file id of the partial index structure
    */
-  protected final void finishSplit() {
-    if(splitSize <= 0) Performance.gc(1);
+  protected final synchronized int run(final Partition part) {
+    runs.add(part.id);
+    return splits++;
+  }
+
+  /**
+   * Returns the file ids of all partial index structures, sorted by their partitions.
+   * As the partitions cover ascending pre ranges, the ids of equal index keys will be
+   * sorted if the structures are merged in this order.
+   * @return file ids
+   */
+  protected final int[] runs() {
+    final int rs = runs.size();
+    final long[] order = new long[rs];
+    for(int r = 0; r < rs; r++) order[r] = (long) runs.get(r) << 32 | r;
+    Arrays.sort(order);
+    final int[] ids = new int[rs];
+    for(int r = 0; r < rs; r++) ids[r] = (int) order[r];
+    return ids;
   }
 
   /**
@@ -105,6 +190,7 @@ public abstract class IndexBuilder extends Proc {
     if(!Prop.debug) return;
 
     final StringBuilder sb = new StringBuilder();
+    if(partitions > 1) sb.append(' ').append(partitions).append(" partitions,");
     if(splits > 1) sb.append(' ').append(splits).append(" splits,");
     sb.append(' ').append(count).append(" operations, ");
     sb.append(perf).append(" (").append(Performance.getMemory()).append(')');
@@ -120,4 +206,134 @@ public abstract class IndexBuilder extends Proc {
   public final double prog() {
     return (double) pre / (size + (splits > 0 ? size / 50 : 0));
   }
+
+  /**
+   * Partition of the database, which is indexed by a single thread.
+   */
+  protected final class Partition {
+    /** Partition id. */
+    public final int id;
+    /** First pre value. */
+    public final int start;
+    /** Pre value after the last node of the partition. */
+    public final int end;
+    /** Number of partial index structures written by this partition. */
+    public int splits;
+
+    /** Number of index operations since the last partial index was written. */
+    private long ops;
+    /** Last reported pre value. */
+    private int last;
+    /** Number of memory-triggered flushes that have been seen by this partition. */
+    private int flushed;
+    /** Threshold for freeing memory when estimating main memory consumption. */
+    private int gcCount;
+
+    /**
+     * Constructor.
+     * @param id partition id
+     * @param start first pre value
+     * @param end pre value after the last node
+     */
+    private Partition(final int id, final int start, final int end) {
+      this.id = id;
+      this.start = start;
+      this.end = end;
+      last = start;
+    }
+
+    /**
+     * Registers an index operation.
+     */
+    public void add() {
+      ops++;
+    }
+
+    /**
+     * Checks if the command was interrupted, reports the progress, and prints some
+     * debug output.
+     * @param p current pre value
+     */
+    public void check(final int p) {
+      checkStop();
+      if(failed) throw new ProcException();
+      progress(p);
+    }
+
+    /**
+     * Decides whether in-memory temporary index structures are so large
+     * that we must flush them to disk before continuing. If memory is exhausted,
+     * all other partitions will flush their structures as well.
+     * @return true if structures shall be flushed to disk
+     * @throws IOException I/O Exception
+     */
+    public boolean split() throws IOException {
+      // checks if a fixed split size has been specified
+      if(splitSize > 0) return ops >= splitSize;
+
+      final boolean split;
+      synchronized(IndexBuilder.this) {
+        if(flushed != flushes) {
+          // another partition has run out of memory
+          split = true;
+        } else {
+          // estimate how much main memory is left
+          split = Performance.memory() >= maxMem;
+          // stop operation if index splitting degenerates
+          int gc = gcCount;
+          if(split) {
+            if(gc >= 0) throw new BaseXException(OUT_OF_MEM + H_OUT_OF_MEM);
+            gc = 30;
+            flushes++;
+          } else {
+            gc = Math.max(-1, gc - 1);
+          }
+          gcCount = gc;
+        }
+        flushed = flushes;
+      }
+      if(split && Prop.debug) Util.err("|");
+      return split;
+    }
+
+    /**
+     * Performs memory cleanup after writing a partial index.
+     */
+    public void finishSplit() {
+      operations();
+      splits++;
+      if(splitSize <= 0) Performance.gc(1);
+    }
+
+    /**
+     * Finalizes indexing of this partition.
+     */
+    public void finish() {
+      progress(end);
+      operations();
+    }
+
+    /**
+     * Reports the progress.
+     * @param p current pre value
+     */
+    private void progress(final int p) {
+      synchronized(IndexBuilder.this) {
+        final int old = pre;
+        pre += p - last;
+        if(Prop.debug && old >>> 21 != pre >>> 21) Util.err(".");
+      }
+      last = p;
+    }
+
+    /**
+     * Reports the number of index operations.
+     */
+    private void operations() {
+      synchronized(IndexBuilder.this) {
+        count += ops;
+      }
+      ops = 0;
+    }
+  }
 }
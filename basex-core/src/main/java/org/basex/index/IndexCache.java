@@ -2,26 +2,33 @@ package org.basex.index;
 
 import static org.basex.util.Token.*;
 
-import java.lang.ref.*;
-import java.util.concurrent.locks.*;
-
+import org.basex.core.*;
 import org.basex.util.*;
 
 /**
  * This class caches sizes and offsets from index results.
  *
+ * The maximum number of entries is specified via {@link Prop#indexcache}. The cache is
+ * divided into segments, which are locked independently. If a segment is full, the clock
+ * algorithm (second chance) is used to choose an entry that will be replaced: entries
+ * that have been requested again since they were added will be kept.
+ *
  * @author BaseX Team 2005-15, BSD License
  * @author Dimitar Popov
  */
 public final class IndexCache {
-  /** Queue used to collect unused keys. */
-  private final ReferenceQueue<IndexEntry> queue = new ReferenceQueue<>();
-  /** Read-write lock. */
-  private final ReentrantReadWriteLock rwl = new ReentrantReadWriteLock(true);
-  /** Hash table buckets. */
-  private BucketEntry[] buckets = new BucketEntry[Array.CAPACITY];
-  /** Number of entries in the cache. */
-  private int size;
+  /** Number of segments (must be a power of two). */
+  private static final int SEGMENTS = 16;
+  /** Segments. */
+  private final Segment[] segments = new Segment[SEGMENTS];
+
+  /**
+   * Constructor.
+   */
+  public IndexCache() {
+    final int capacity = Math.max(1, (Prop.indexcache + SEGMENTS - 1) / SEGMENTS);
+    for(int s = 0; s < SEGMENTS; s++) segments[s] = new Segment(capacity);
+  }
 
   /**
    * Gets cached entry for the specified key.
@@ -30,21 +37,7 @@ public final class IndexCache {
    */
   public IndexEntry get(final byte[] key) {
     final int hash = hash(key);
-    rwl.readLock().lock();
-
-    try {
-      final int i = indexFor(hash, buckets.length);
-      BucketEntry e = buckets[i];
-      while(e != null) {
-        final IndexEntry entry = e.get();
-        if(entry != null && e.hash == hash && eq(entry.key, key)) return entry;
-        e = e.next;
-      }
-    } finally {
-      rwl.readLock().unlock();
-    }
-
-    return null;
+    return segment(hash).get(key, hash);
   }
 
   /**
@@ -57,31 +50,7 @@ public final class IndexCache {
    */
   public IndexEntry add(final byte[] key, final int sz, final long off) {
     final int hash = hash(key);
-    rwl.writeLock().lock();
-
-    try {
-      purge();
-      final int i = indexFor(hash, buckets.length);
-      BucketEntry current = buckets[i], prev = current;
-      while(current != null) {
-        final BucketEntry next = current.next;
-        final IndexEntry entry = current.get();
-        if(entry == null) {
-          delete(i, current, prev, next);
-        } else if(current.hash == hash && eq(entry.key, key)) {
-          update(entry, sz, off);
-          return entry;
-        }
-        prev = current;
-        current = next;
-      }
-
-      final IndexEntry entry = new IndexEntry(key, sz, off);
-      add(i, hash, entry);
-      return entry;
-    } finally {
-      rwl.writeLock().unlock();
-    }
+    return segment(hash).add(key, hash, sz, off);
   }
 
   /**
@@ -90,142 +59,237 @@ public final class IndexCache {
    */
   public void delete(final byte[] key) {
     final int hash = hash(key);
-    rwl.writeLock().lock();
-
-    try {
-      purge();
-      final int i = indexFor(hash, buckets.length);
-      BucketEntry e = buckets[i], prev = e;
-      while(e != null) {
-        final BucketEntry next = e.next;
-        final IndexEntry entry = e.get();
-        if(entry == null) {
-          delete(i, e, prev, next);
-        } else if(e.hash == hash && eq(entry.key, key)) {
-          delete(i, e, prev, next);
-          break;
-        }
-        prev = e;
-        e = next;
-      }
-    } finally {
-      rwl.writeLock().unlock();
-    }
+    segment(hash).delete(key, hash);
   }
 
   /**
-   * Purges stale entries from the cache.
+   * Returns the number of cached entries.
+   * @return number of entries
    */
-  private void purge() {
-    for(Object x; (x = queue.poll()) != null;) {
-      final BucketEntry e = (BucketEntry) x;
-      final int i = indexFor(e.hash, buckets.length);
-      BucketEntry prev = buckets[i], p = prev;
-      while(p != null) {
-        final BucketEntry next = p.next;
-        if(p == e) {
-          delete(i, e, prev, next);
-          break;
-        }
-        prev = p;
-        p = next;
+  public int size() {
+    int size = 0;
+    for(final Segment s : segments) {
+      synchronized(s) {
+        size += s.size;
       }
     }
+    return size;
   }
 
   /**
-   * Add a new index entry to the bucket with the specified index.
-   * @param i bucket index
-   * @param hash hash of the new index key
-   * @param entry index entry
+   * Returns statistics on the cache usage.
+   * @return entries, hits, misses and evictions
    */
-  private void add(final int i, final int hash, final IndexEntry entry) {
-    buckets[i] = new BucketEntry(hash, buckets[i], entry, queue);
-    if(++size == buckets.length) rehash();
+  public long[] stats() {
+    final long[] stats = new long[4];
+    for(final Segment s : segments) {
+      synchronized(s) {
+        stats[0] += s.size;
+        stats[1] += s.hits;
+        stats[2] += s.misses;
+        stats[3] += s.evictions;
+      }
+    }
+    return stats;
   }
 
   /**
-   * Update an existing index entry.
-   * @param entry index entry to update
-   * @param sz new size
-   * @param off new offset
+   * Adds statistics on the cache usage to the specified token builder.
+   * @param tb token builder
    */
-  private static void update(final IndexEntry entry, final int sz, final long off) {
-    entry.size = sz;
-    entry.offset = off;
+  public void info(final TokenBuilder tb) {
+    final long[] stats = stats();
+    tb.addExt(Text.LI_CACHE, stats[0], stats[1], stats[2], stats[3]).add(Prop.NL);
   }
 
   /**
-   * Deletes a cached entry from the buckets with the specified index.
-   * @param i buckets index
-   * @param e cached entry to delete
-   * @param p previous cache entry
-   * @param n next cache entry
+   * Returns the segment for the specified hash value.
+   * @param hash hash value
+   * @return segment
    */
-  private void delete(final int i, final BucketEntry e, final BucketEntry p, final BucketEntry n) {
-    if(p == e) buckets[i] = n;
-    else p.next = n;
-    e.next = null;
-    --size;
+  private Segment segment(final int hash) {
+    // the lower bits are used for the bucket index
+    return segments[hash * 0x9E3779B9 >>> 28 & SEGMENTS - 1];
   }
 
-  /**
-   * Resizes the hash table.
-   */
-  private void rehash() {
-    purge();
-
-    final int s = size << 1;
-    final BucketEntry[] tmp = new BucketEntry[s];
-
-    final int l = buckets.length;
-    for(int i = 0; i < l; ++i) {
-      BucketEntry e = buckets[i];
-      buckets[i] = null;
-      while(e != null) {
-        final BucketEntry next = e.next;
-        final int p = indexFor(e.hash, tmp.length);
-        e.next = tmp[p];
-        tmp[p] = e;
-        e = next;
+  /** Cache segment. All methods are synchronized on the segment instance. */
+  private static final class Segment {
+    /** Maximum number of entries. */
+    private final int capacity;
+    /** Clock: cached entries. */
+    private final CacheEntry[] clock;
+    /** Hash table buckets. */
+    private CacheEntry[] buckets = new CacheEntry[Array.CAPACITY];
+    /** Clock hand. */
+    private int hand;
+    /** Number of entries. */
+    int size;
+    /** Number of cache hits. */
+    long hits;
+    /** Number of cache misses. */
+    long misses;
+    /** Number of evicted entries. */
+    long evictions;
+
+    /**
+     * Constructor.
+     * @param capacity maximum number of entries
+     */
+    Segment(final int capacity) {
+      this.capacity = capacity;
+      clock = new CacheEntry[capacity];
+    }
+
+    /**
+     * Gets cached entry for the specified key.
+     * @param key key
+     * @param hash hash value
+     * @return cached entry or {@code null}
+     */
+    synchronized IndexEntry get(final byte[] key, final int hash) {
+      final CacheEntry e = find(key, hash);
+      if(e == null) {
+        misses++;
+        return null;
       }
+      e.ref = true;
+      hits++;
+      return e.entry;
     }
-    buckets = tmp;
-  }
 
-  /**
-   * Returns buckets index for a hash code.
-   * @param h hash code
-   * @param n number of available buckets
-   * @return index of a buckets
-   */
-  private static int indexFor(final int h, final int n) {
-    return h & n - 1;
+    /**
+     * Adds or updates a cache entry.
+     * @param key key
+     * @param hash hash value
+     * @param sz number of index hits
+     * @param off offset to id list
+     * @return cache entry
+     */
+    synchronized IndexEntry add(final byte[] key, final int hash, final int sz,
+        final long off) {
+      CacheEntry e = find(key, hash);
+      if(e != null) {
+        e.entry.size = sz;
+        e.entry.offset = off;
+        e.ref = true;
+        return e.entry;
+      }
+
+      e = new CacheEntry(hash, new IndexEntry(key, sz, off));
+      if(size == capacity) {
+        // choose entry to be replaced: skip referenced entries
+        while(clock[hand].ref) {
+          clock[hand].ref = false;
+          hand = (hand + 1) % capacity;
+        }
+        unlink(clock[hand]);
+        evictions++;
+        size--;
+        e.slot = hand;
+        hand = (hand + 1) % capacity;
+      } else {
+        e.slot = size;
+        if(size == buckets.length) rehash();
+      }
+      clock[e.slot] = e;
+      size++;
+
+      final int i = hash & buckets.length - 1;
+      e.next = buckets[i];
+      buckets[i] = e;
+      return e.entry;
+    }
+
+    /**
+     * Deletes a cache entry.
+     * @param key key
+     * @param hash hash value
+     */
+    synchronized void delete(final byte[] key, final int hash) {
+      final CacheEntry e = find(key, hash);
+      if(e == null) return;
+
+      unlink(e);
+      // move last entry to the free slot
+      final CacheEntry last = clock[--size];
+      clock[size] = null;
+      if(last != e) {
+        last.slot = e.slot;
+        clock[e.slot] = last;
+      }
+      if(hand >= size) hand = 0;
+    }
+
+    /**
+     * Returns the entry for the specified key.
+     * @param key key
+     * @param hash hash value
+     * @return entry or {@code null}
+     */
+    private CacheEntry find(final byte[] key, final int hash) {
+      for(CacheEntry e = buckets[hash & buckets.length - 1]; e != null; e = e.next) {
+        if(e.hash == hash && eq(e.entry.key, key)) return e;
+      }
+      return null;
+    }
+
+    /**
+     * Removes an entry from the hash table.
+     * @param e entry
+     */
+    private void unlink(final CacheEntry e) {
+      final int i = e.hash & buckets.length - 1;
+      if(buckets[i] == e) {
+        buckets[i] = e.next;
+      } else {
+        CacheEntry p = buckets[i];
+        while(p.next != e) p = p.next;
+        p.next = e.next;
+      }
+      e.next = null;
+    }
+
+    /**
+     * Resizes the hash table.
+     */
+    private void rehash() {
+      final int s = buckets.length << 1;
+      final CacheEntry[] tmp = new CacheEntry[s];
+      for(final CacheEntry b : buckets) {
+        CacheEntry e = b;
+        while(e != null) {
+          final CacheEntry next = e.next;
+          final int i = e.hash & s - 1;
+          e.next = tmp[i];
+          tmp[i] = e;
+          e = next;
+        }
+      }
+      buckets = tmp;
+    }
   }
 
-  /**
-   * Cache buckets entry. Used to implement a linked list of cache entries for
-   * each buckets. It also stores the hash of the current entry for better
-   * performance.
-   */
-  private static class BucketEntry extends SoftReference<IndexEntry> {
-    /** Hash code of the stored cache entry key. */
+  /** Cache entry. */
+  private static final class CacheEntry {
+    /** Hash code of the entry key. */
     final int hash;
-    /** Next buckets entry or {@code null} if the last one for this buckets. */
-    BucketEntry next;
+    /** Index entry. */
+    final IndexEntry entry;
+    /** Next entry in the same bucket. */
+    CacheEntry next;
+    /** Position in the clock. */
+    int slot;
+    /** Reference flag (second chance). */
+    boolean ref;
 
     /**
      * Constructor.
-     * @param h hash code of the cache entry key
-     * @param n next buckets entry or {@code null} if the last one
-     * @param v stored cache entry
-     * @param rq reference queue
+     * @param hash hash code of the entry key
+     * @param entry index entry
      */
-    BucketEntry(final int h, final BucketEntry n, final IndexEntry v,
-        final ReferenceQueue<IndexEntry> rq) {
-      super(v, rq);
-      hash = h;
-      next = n;
+    CacheEntry(final int hash, final IndexEntry entry) {
+      this.hash = hash;
+      this.entry = entry;
     }
   }
 }
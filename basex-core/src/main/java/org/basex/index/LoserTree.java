@@ -0,0 +1,101 @@
+package org.basex.index;
+
+/**
+ * Loser tree (tournament tree) for merging sorted runs. The run with the smallest current
+ * entry is determined with {@code log(k)} comparisons, where {@code k} is the number of runs.
+ * Runs with equal entries are returned in the order in which they were supplied.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ * @param <T> run type
+ */
+public abstract class LoserTree<T> {
+  /** Runs. */
+  protected final T[] runs;
+  /** Number of runs. */
+  private final int size;
+  /** Losers of the inner nodes; the winner is stored at position 0. */
+  private final int[] tree;
+
+  /**
+   * Constructor.
+   * @param runs runs to be merged
+   */
+  protected LoserTree(final T[] runs) {
+    this.runs = runs;
+    size = runs.length;
+    tree = new int[Math.max(1, size)];
+    tree[0] = size == 0 ? -1 : play(1);
+  }
+
+  /**
+   * Returns the run with the smallest current entry.
+   * @return run offset, or {@code -1} if all runs are exhausted
+   */
+  public final int winner() {
+    final int w = tree[0];
+    return w == -1 || done(runs[w]) ? -1 : w;
+  }
+
+  /**
+   * Chooses the next winner. Must be called after the current entry of the winner
+   * has been consumed.
+   */
+  public final void next() {
+    int w = tree[0];
+    for(int n = w + size >>> 1; n > 0; n >>>= 1) {
+      final int l = tree[n];
+      if(less(l, w)) {
+        tree[n] = w;
+        w = l;
+      }
+    }
+    tree[0] = w;
+  }
+
+  /**
+   * Checks if the specified run is exhausted.
+   * @param run run
+   * @return result of check
+   */
+  protected abstract boolean done(T run);
+
+  /**
+   * Compares the current entries of two runs, neither of which is exhausted.
+   * @param run1 first run
+   * @param run2 second run
+   * @return difference
+   */
+  protected abstract int compare(T run1, T run2);
+
+  /**
+   * Initializes the specified subtree.
+   * @param node node
+   * @return winner of the subtree
+   */
+  private int play(final int node) {
+    if(node >= size) return node - size;
+    final int l = play(node << 1), r = play((node << 1) + 1);
+    if(less(l, r)) {
+      tree[node] = r;
+      return l;
+    }
+    tree[node] = l;
+    return r;
+  }
+
+  /**
+   * Checks if the current entry of the first run is smaller than the one of the second run.
+   * Exhausted runs are greater than all others.
+   * @param r1 first run
+   * @param r2 second run
+   * @return result of check
+   */
+  private boolean less(final int r1, final int r2) {
+    final T run1 = runs[r1], run2 = runs[r2];
+    if(done(run1)) return false;
+    if(done(run2)) return true;
+    final int c = compare(run1, run2);
+    return c < 0 || c == 0 && r1 < r2;
+  }
+}
@@ -21,12 +21,10 @@ import org.basex.util.list.*;
  * @author Christian Gruen
  */
 public final class FTBuilder extends IndexBuilder {
-  /** Value trees. */
-  private final FTIndexTrees tree;
-  /** Word parser. */
-  private final FTLexer lex;
-  /** Number of indexed tokens. */
-  private long ntok;
+  /** Full-text options. */
+  private final FTOpt fto = new FTOpt();
+  /** Temporary index trees (assigned if the index is built without partial structures). */
+  private FTIndexTrees index;
 
   /**
    * Constructor.
@@ -35,126 +33,135 @@ public final class FTBuilder extends IndexBuilder {
    * @throws IOException IOException
    */
   public FTBuilder(final Data data, final MainOptions options) throws IOException {
-    super(data, options.get(MainOptions.FTINDEXSPLITSIZE));
-    tree = new FTIndexTrees(data.meta.maxlen);
+    super(data, options.get(MainOptions.FTINDEXSPLITSIZE), options.get(MainOptions.INDEXTHREADS));
 
-    final FTOpt fto = new FTOpt();
     fto.set(FTFlag.DC, options.get(MainOptions.DIACRITICS));
     fto.set(FTFlag.ST, options.get(MainOptions.STEMMING));
     fto.cs = options.get(MainOptions.CASESENS) ? FTCase.SENSITIVE : FTCase.INSENSITIVE;
-    fto.sw = new StopWords(data, options);
+    fto.sw = new StopWords(options);
     fto.ln = Language.get(options);
 
     if(!Tokenizer.supportFor(fto.ln))
       throw new BaseXException(NO_TOKENIZER_X, fto.ln);
     if(options.get(MainOptions.STEMMING) && !Stemmer.supportFor(fto.ln))
       throw new BaseXException(NO_STEMMER_X, fto.ln);
-
-    lex = new FTLexer(fto);
   }
 
-  /**
-   * Extracts and indexes words from the specified data reference.
-   * @throws IOException I/O Exception
-   */
-  private void index() throws IOException {
+  @Override
+  public FTIndex build() throws IOException {
     // delete old index
     abort();
+    try(final DataOutput out = new DataOutput(data.meta.dbfile(name(DATASWL)))) {
+      fto.sw.write(out);
+    }
 
     final Performance perf = Prop.debug ? new Performance() : null;
     Util.debug(det());
 
-    for(pre = 0; pre < size; ++pre) {
-      if((pre & 0xFFFF) == 0) check();
+    index();
+    if(index != null) {
+      writeIndex(index, -1, 0);
+      index = null;
+    } else {
+      // merge partial index structures
+      merge();
+    }
+
+    finishIndex(perf);
+    // index that has been built beside the live index will be activated later
+    if(shadow) return null;
+
+    data.meta.ftxtindex = true;
+    return new FTIndex(data);
+  }
+
+  @Override
+  protected void index(final Partition part) throws IOException {
+    final FTIndexTrees tree = new FTIndexTrees(data.meta.maxlen);
+    final FTLexer lex = new FTLexer(fto);
+    final StopWords sw = fto.sw;
+    final int maxlen = data.meta.maxlen;
+
+    /* Number of indexed tokens. */
+    long ntok = 0;
+    for(int pre = part.start; pre < part.end; ++pre) {
+      if((pre & 0xFFFF) == 0) part.check(pre);
 
       final int k = data.kind(pre);
       if(k != Data.TEXT) continue;
 
       /* Current lexer position. */
-      final StopWords sw = lex.ftOpt().sw;
       lex.init(data.text(pre, true));
       int pos = -1;
       while(lex.hasNext()) {
         final byte[] tok = lex.nextToken();
         ++pos;
         // skip too long and stopword tokens
-        if(tok.length <= data.meta.maxlen && (sw.isEmpty() || !sw.contains(tok))) {
+        if(tok.length <= maxlen && (sw.isEmpty() || !sw.contains(tok))) {
           // check if main memory is exhausted
-          if((ntok++ & 0x0FFF) == 0 && split()) {
-            writeIndex(true);
-            finishSplit();
+          if((ntok++ & 0x0FFF) == 0 && part.split()) {
+            writeIndex(tree, run(part), part.splits);
+            part.finishSplit();
           }
-          tree.index(tok, pre, pos, splits);
-          count++;
+          tree.index(tok, pre, pos, part.splits);
+          part.add();
         }
       }
     }
+    part.finish();
 
-    // finalize partial or all index structures
-    write(splits > 0);
-
-    data.meta.ftxtindex = true;
-    finishIndex(perf);
-  }
-
-  @Override
-  public FTIndex build() throws IOException {
-    index();
-    return new FTIndex(data);
+    // write final index if no partial structures exist
+    if(partitions == 1 && part.splits == 0) index = tree;
+    else writeIndex(tree, run(part), part.splits);
   }
 
   /**
-   * Writes the index data to disk.
-   * @param partial write partial index
+   * Merges the partial index structures.
    * @throws IOException I/O exception
    */
-  private void write(final boolean partial) throws IOException {
-    writeIndex(partial);
-    if(!partial) return;
-
-    // merges temporary index files
-    try(final DataOutput outX = new DataOutput(data.meta.dbfile(DATAFTX + 'x'));
-        final DataOutput outY = new DataOutput(data.meta.dbfile(DATAFTX + 'y'));
-        final DataOutput outZ = new DataOutput(data.meta.dbfile(DATAFTX + 'z'))) {
+  private void merge() throws IOException {
+    final String name = name(DATAFTX);
+    try(final DataOutput outX = new DataOutput(data.meta.dbfile(name + 'x'));
+        final DataOutput outY = new DataOutput(data.meta.dbfile(name + 'y'));
+        final DataOutput outZ = new DataOutput(data.meta.dbfile(name + 'z'))) {
 
       final IntList ind = new IntList();
 
       // open all temporary sorted lists
-      final FTList[] v = new FTList[splits];
-      for(int b = 0; b < splits; ++b) v[b] = new FTList(data, b);
-
-      final IntList il = new IntList();
-      while(check(v)) {
-        il.reset();
-        int m = 0;
-        il.add(m);
-        // find next token to write on disk
-        for(int i = 0; i < splits; ++i) {
-          if(m == i || v[i].tok.length == 0) continue;
-          final int l = v[i].tok.length - v[m].tok.length;
-          final int d = diff(v[m].tok, v[i].tok);
-          if(l < 0 || l == 0 && d > 0 || v[m].tok.length == 0) {
-            m = i;
-            il.reset();
-            il.add(m);
-          } else if(d == 0 && v[i].tok.length > 0) {
-            il.add(i);
-          }
+      final int[] runs = runs();
+      final int rs = runs.length;
+      final FTList[] v = new FTList[rs];
+      for(int r = 0; r < rs; ++r) v[r] = new FTList(data, name + runs[r]);
+      // tokens are sorted by their length first
+      final LoserTree<FTList> lt = new LoserTree<FTList>(v) {
+        @Override
+        protected boolean done(final FTList run) {
+          return run.tok.length == 0;
         }
+        @Override
+        protected int compare(final FTList run1, final FTList run2) {
+          final int l = run1.tok.length - run2.tok.length;
+          return l != 0 ? l : diff(run1.tok, run2.tok);
+        }
+      };
+
+      for(int w; (w = lt.winner()) != -1;) {
+        checkStop();
 
-        if(ind.isEmpty() || ind.get(ind.size() - 2) < v[m].tok.length) {
-          ind.add(v[m].tok.length);
+        final byte[] tok = v[w].tok;
+        if(ind.isEmpty() || ind.get(ind.size() - 2) < tok.length) {
+          ind.add(tok.length);
           ind.add((int) outY.size());
         }
 
         // write token
-        outY.writeBytes(v[m].tok);
+        outY.writeBytes(tok);
         // pointer on full-text data
         outY.write5(outZ.size());
         // merge and write data size
-        outY.write4(merge(outZ, il, v));
+        outY.write4(merge(outZ, lt, v));
       }
-      writeInd(outX, ind, ind.get(ind.size() - 2) + 1, (int) outY.size());
+      writeInd(outX, ind, ind.isEmpty() ? 1 : ind.get(ind.size() - 2) + 1, (int) outY.size());
     }
   }
 
@@ -180,12 +187,16 @@ public final class FTBuilder extends IndexBuilder {
   }
 
   /**
-   * Writes the current index to disk.
-   * @param partial partial flag
+   * Writes index trees to disk.
+   * @param tree index trees
+   * @param run file id of the partial structure, or {@code -1} for the final index
+   * @param cf number of partial structures that have already been written for the trees
    * @throws IOException I/O exception
    */
-  private void writeIndex(final boolean partial) throws IOException {
-    final String name = DATAFTX + (partial ? splits : "");
+  private void writeIndex(final FTIndexTrees tree, final int run, final int cf)
+      throws IOException {
+
+    final String name = name(DATAFTX) + (run != -1 ? run : "");
     try(final DataOutput outX = new DataOutput(data.meta.dbfile(name + 'x'));
         final DataOutput outY = new DataOutput(data.meta.dbfile(name + 'y'));
         final DataOutput outZ = new DataOutput(data.meta.dbfile(name + 'z'))) {
@@ -195,7 +206,7 @@ public final class FTBuilder extends IndexBuilder {
       long dr = 0;
       int tr = 0;
       int j = 0;
-      while(tree.more(splits)) {
+      while(tree.more(cf)) {
         final FTIndexTree t = tree.nextTree();
         t.next();
         final byte[] key = t.nextTok();
@@ -220,20 +231,17 @@ public final class FTBuilder extends IndexBuilder {
       writeInd(outX, ind, ++j, tr);
     }
     tree.initFT();
-
-    // increase split counter
-    splits++;
   }
 
   /**
-   * Merges temporary indexes for the current token.
+   * Merges the full-text data of all temporary lists with the current token.
    * @param out full-text data
-   * @param il array mapping
-   * @param v full-text list
+   * @param lt loser tree
+   * @param v full-text lists
    * @return written size
    * @throws IOException I/O exception
    */
-  private static int merge(final DataOutput out, final IntList il, final FTList[] v)
+  private static int merge(final DataOutput out, final LoserTree<FTList> lt, final FTList[] v)
       throws IOException {
 
     final TokenBuilder tbp = new TokenBuilder();
@@ -241,15 +249,18 @@ public final class FTBuilder extends IndexBuilder {
     tbp.add(new byte[4]);
     tbo.add(new byte[4]);
     // merge full-text data of all sorted lists with the same token
-    int s = 0;
-    final int is = il.size();
-    for(int j = 0; j < is; ++j) {
-      final int m = il.get(j);
-      for(final int p : v[m].prv) tbp.add(Num.num(p));
-      for(final int p : v[m].pov) tbo.add(Num.num(p));
-      s += v[m].size;
-      v[m].next();
-    }
+    int s = 0, w = lt.winner();
+    final byte[] tok = v[w].tok;
+    do {
+      final FTList l = v[w];
+      for(final int p : l.prv) tbp.add(Num.num(p));
+      for(final int p : l.pov) tbo.add(Num.num(p));
+      s += l.size;
+      l.next();
+      lt.next();
+      w = lt.winner();
+    } while(w != -1 && eq(v[w].tok, tok));
+
     // write compressed pre and pos arrays
     final byte[] pr = tbp.finish();
     Num.size(pr, pr.length);
@@ -282,19 +293,10 @@ public final class FTBuilder extends IndexBuilder {
     }
   }
 
-  /**
-   * Checks if any unprocessed pre values are remaining.
-   * @param lists lists
-   * @return boolean
-   */
-  private static boolean check(final FTList[] lists) {
-    for(final FTList l : lists) if(l.tok.length > 0) return true;
-    return false;
-  }
-
   @Override
   protected void abort() {
-    data.meta.drop(DATAFTX + ".*");
+    data.meta.drop(name(DATAFTX) + ".*");
+    if(shadow) return;
     data.meta.ftxtindex = false;
   }
 
@@ -228,6 +228,7 @@ public final class FTIndex implements Index {
     final IndexStats stats = new IndexStats(options.get(MainOptions.MAXSTAT));
     addOccs(stats);
     stats.print(tb);
+    cache.info(tb);
     return tb.finish();
   }
 
@@ -426,6 +427,19 @@ public final class FTIndex implements Index {
         return true;
       }
 
+      @Override
+      public synchronized boolean skipTo(final int p) {
+        // binary search for the first remaining entry with an equal or larger pre value
+        int l = c, h = size;
+        while(l < h) {
+          final int m = l + h >>> 1;
+          if(ftc.pre.get(ftc.order[m]) < p) l = m + 1;
+          else h = m;
+        }
+        c = l;
+        return more();
+      }
+
       @Override
       public synchronized FTMatches matches() {
         return all;
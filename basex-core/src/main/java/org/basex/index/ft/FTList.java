@@ -1,6 +1,5 @@
 package org.basex.index.ft;
 
-import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
@@ -54,18 +53,18 @@ final class FTList {
   /**
    * Constructor, initializing the index structure.
    * @param data data
-   * @param prefix prefix
+   * @param prefix file prefix
    * @throws IOException I/O exception
    */
-  FTList(final Data data, final int prefix) throws IOException {
-    files = data.meta.dbfile(DATAFTX + prefix + 'y');
-    filed = data.meta.dbfile(DATAFTX + prefix + 'z');
+  FTList(final Data data, final String prefix) throws IOException {
+    files = data.meta.dbfile(prefix + 'y');
+    filed = data.meta.dbfile(prefix + 'z');
     str = new DataAccess(files);
     dat = new DataAccess(filed);
     tp = new int[data.meta.maxlen + 3];
     final int tl = tp.length;
     for(int t = 0; t < tl; t++) tp[t] = -1;
-    sizes = data.meta.dbfile(DATAFTX + prefix + 'x');
+    sizes = data.meta.dbfile(prefix + 'x');
     try(final DataAccess li = new DataAccess(sizes)) {
       int is = li.readNum();
       while(--is >= 0) {
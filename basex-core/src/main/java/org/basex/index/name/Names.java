@@ -47,6 +47,17 @@ public final class Names extends TokenSet implements Index {
     for(int s = 1; s < size; ++s) stats[s] = new Stats(in);
   }
 
+  /**
+   * Copy constructor. The names are copied, and the statistics are reset.
+   * @param names names to be copied
+   */
+  public Names(final Names names) {
+    super(names);
+    stats = new Stats[keys.length];
+    meta = names.meta;
+    init();
+  }
+
   @Override
   public void init() {
     for(int s = 1; s < size; ++s) stats[s] = new Stats();
@@ -104,8 +104,15 @@ public abstract class FTIndexIterator extends IndexIterator {
       public boolean more() {
         int d = 0;
         while(true) {
-          if(d <= 0) ii1 = i1.more() ? i1 : null;
-          if(d >= 0) ii2 = i2.more() ? i2 : null;
+          // leapfrog: skip all results of the iterator that is behind
+          if(d < 0) {
+            ii1 = i1.skipTo(ii2.pre()) ? i1 : null;
+          } else if(d > 0) {
+            ii2 = i2.skipTo(ii1.pre()) ? i2 : null;
+          } else {
+            ii1 = i1.more() ? i1 : null;
+            ii2 = i2.more() ? i2 : null;
+          }
           if(ii1 == null || ii2 == null) return false;
           d = ii1.pre() - ii2.pre();
           if(d != 0) continue;
@@ -34,4 +34,19 @@ public abstract class IndexIterator {
    * @return result approximate number of results
    */
   public abstract int size();
+
+  /**
+   * Skips all results with pre values smaller than the specified value and returns
+   * true if a result with an equal or larger pre value exists. The iterator will be
+   * positioned after the current result even if it is equal to or larger than the
+   * specified value. The result can be retrieved via {@link #pre()}.
+   * @param pre pre value
+   * @return result of check
+   */
+  public boolean skipTo(final int pre) {
+    while(more()) {
+      if(pre() >= pre) return true;
+    }
+    return false;
+  }
 }
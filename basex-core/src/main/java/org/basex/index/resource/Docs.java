@@ -80,6 +80,16 @@ final class Docs {
     }
   }
 
+  /**
+   * Assigns a copy of the document paths of the specified index. Called by snapshots,
+   * as the paths on disk will be rewritten by subsequent updates.
+   * @param docs document index of the original database
+   */
+  synchronized void copy(final Docs docs) {
+    pathList = new TokenList(docs.paths().toArray());
+    pathIndex = true;
+  }
+
   /**
    * Returns the {@code pre} values of all document nodes.
    * @return document nodes (internal representation!)
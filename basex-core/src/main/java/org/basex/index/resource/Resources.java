@@ -52,6 +52,14 @@ public final class Resources implements Index {
     docs.write(out);
   }
 
+  /**
+   * Copies the resource information of the database from which a snapshot is created.
+   * @param res resources of the original database
+   */
+  public synchronized void copy(final Resources res) {
+    docs.copy(res.docs);
+  }
+
   /**
    * Returns the {@code pre} values of all document nodes.
    * @return document nodes (internal representation!)
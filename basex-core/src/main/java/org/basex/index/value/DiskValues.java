@@ -25,6 +25,9 @@ import org.basex.util.list.*;
  * @author Christian Gruen
  */
 public class DiskValues implements Index {
+  /** Number of ids that are decoded at once by lazy iterators. */
+  private static final int BLOCK = 256;
+
   /** ID references. */
   final DataAccess idxr;
   /** ID lists. */
@@ -40,8 +43,8 @@ public class DiskValues implements Index {
 
   /** Value type (texts/attributes). */
   private final boolean text;
-  /** Synchronization object. */
-  private final Object monitor = new Object();
+  /** Indicates if the id lists are block-compressed (see {@link IdBlocks}). */
+  private final boolean blocks;
 
   /**
    * Constructor, initializing the index structure.
@@ -65,7 +68,10 @@ public class DiskValues implements Index {
     this.text = text;
     idxl = new DataAccess(data.meta.dbfile(pref + 'l'));
     idxr = new DataAccess(data.meta.dbfile(pref + 'r'));
-    size.set(idxl.read4());
+    // a set sign bit indicates block-compressed id lists
+    final int s = idxl.read4();
+    blocks = s < 0;
+    size.set(s & Integer.MAX_VALUE);
   }
 
   @Override
@@ -77,17 +83,19 @@ public class DiskValues implements Index {
     tb.add(LI_STRUCTURE).add(SORTED_LIST).add(NL);
     final IndexStats stats = new IndexStats(options.get(MainOptions.MAXSTAT));
 
-    synchronized(monitor) {
+    final DataAccess il = idxl.reader(), ir = idxr.reader();
+    synchronized(il) {
       final long l = idxl.length() + idxr.length();
       tb.add(LI_SIZE).add(Performance.format(l, true)).add(NL);
       final int s = size();
       for(int m = 0; m < s; ++m) {
-        final long pos = idxr.read5(m * 5L);
-        final int oc = idxl.readNum(pos);
-        if(stats.adding(oc)) stats.add(data.text(pre(idxl.readNum()), text));
+        final long pos = ir.read5(m * 5L);
+        final int oc = il.readNum(pos);
+        if(stats.adding(oc)) stats.add(data.text(pre(il.readNum()), text));
       }
     }
     stats.print(tb);
+    cache.info(tb);
     return tb.finish();
   }
 
@@ -114,7 +122,7 @@ public class DiskValues implements Index {
 
   @Override
   public void close() {
-    synchronized(monitor) {
+    synchronized(idxl) {
       idxl.close();
       idxr.close();
     }
@@ -134,6 +142,14 @@ public class DiskValues implements Index {
   @SuppressWarnings("unused")
   public void delete(final TokenObjMap<IntList> map) { }
 
+  /**
+   * Deletes a record from the index. Nothing happens if the key does not exist.
+   * @param key record key
+   * @param id record id
+   */
+  @SuppressWarnings("unused")
+  public void delete(final byte[] key, final int id) { }
+
   /**
    * Replaces an index entry in the index.
    * @param old old record key
@@ -159,6 +175,25 @@ public class DiskValues implements Index {
     idxr.flush();
   }
 
+  /**
+   * Assigns a write-ahead log to which the changes of the current transaction will be
+   * written.
+   * @param log write-ahead log ({@code null} if updates are not logged)
+   */
+  public final void attach(final WriteAheadLog log) {
+    idxl.attach(log);
+    idxr.attach(log);
+  }
+
+  /**
+   * Writes the changes of the current transaction to the write-ahead log.
+   * @throws IOException I/O exception
+   */
+  public final void log() throws IOException {
+    idxl.log();
+    idxr.log();
+  }
+
   /**
    * Returns the {@code pre} value for the specified id.
    * @param id id value
@@ -168,6 +203,14 @@ public class DiskValues implements Index {
     return id;
   }
 
+  /**
+   * Indicates if all id values are identical to their pre values.
+   * @return result of check
+   */
+  boolean identity() {
+    return true;
+  }
+
   /**
    * Binary search for key in the {@link #idxr}.
    * <p><em>Important:</em> This method is thread-safe.</p>
@@ -188,15 +231,13 @@ public class DiskValues implements Index {
    */
   int get(final byte[] key, final int first, final int last) {
     int l = first, h = last - 1;
-    synchronized(monitor) {
-      while(l <= h) {
-        final int m = l + h >>> 1;
-        final byte[] txt = indexEntry(m).key;
-        final int d = diff(txt, key);
-        if(d == 0) return m;
-        if(d < 0) l = m + 1;
-        else h = m - 1;
-      }
+    while(l <= h) {
+      final int m = l + h >>> 1;
+      final byte[] txt = indexEntry(m).key;
+      final int d = diff(txt, key);
+      if(d == 0) return m;
+      if(d < 0) l = m + 1;
+      else h = m - 1;
     }
     return -(l + 1);
   }
@@ -225,12 +266,13 @@ public class DiskValues implements Index {
     final int count;
     final long offset;
 
-    synchronized(monitor) {
+    final DataAccess il = idxl.reader();
+    synchronized(il) {
       // get position in heap file
-      final long pos = idxr.read5(p * 5L);
+      final long pos = idxr.reader().read5(p * 5L);
       // the first heap entry represents the number of hits
-      count = idxl.readNum(pos);
-      offset = idxl.cursor();
+      count = il.readNum(pos);
+      offset = il.cursor();
     }
 
     return cache.add(tok, count, offset);
@@ -274,12 +316,10 @@ public class DiskValues implements Index {
       @Override
       public byte[] next() {
         if(++ix < s) {
-          synchronized(monitor) {
-            final IndexEntry entry = indexEntry(ix);
-            if(startsWith(entry.key, prefix)) {
-              count = entry.size;
-              return entry.key;
-            }
+          final IndexEntry entry = indexEntry(ix);
+          if(startsWith(entry.key, prefix)) {
+            count = entry.size;
+            return entry.key;
           }
         }
         count = -1;
@@ -307,11 +347,9 @@ public class DiskValues implements Index {
       @Override
       public byte[] next() {
         if(++ix <= last) {
-          synchronized(monitor) {
-            final IndexEntry entry = indexEntry(ix);
-            count = entry.size;
-            return entry.key;
-          }
+          final IndexEntry entry = indexEntry(ix);
+          count = entry.size;
+          return entry.key;
         }
         count = -1;
         return null;
@@ -338,11 +376,9 @@ public class DiskValues implements Index {
       @Override
       public byte[] next() {
         if(--ix >= first) {
-          synchronized(monitor) {
-            final IndexEntry entry = indexEntry(ix);
-            count = entry.size;
-            return entry.key;
-          }
+          final IndexEntry entry = indexEntry(ix);
+          count = entry.size;
+          return entry.key;
         }
         count = -1;
         return null;
@@ -357,27 +393,38 @@ public class DiskValues implements Index {
 
   /**
    * Read a key at the given position.
-   * <p><em>Important:</em> This method is NOT thread-safe, since it is used in loops.</p>
+   * <p><em>Important:</em> This method is thread-safe.</p>
    * @param index key position
    * @return key
    */
   private IndexEntry indexEntry(final int index) {
     // try the cache first
-    byte[] key = ctext.get(index);
+    final byte[] key;
+    synchronized(ctext) {
+      key = ctext.get(index);
+    }
     if(key != null) {
       final IndexEntry entry = cache.get(key);
       if(entry != null) return entry;
     }
 
     // read text and cache result
-    final long pos = idxr.read5(index * 5L);
-    final int sz = idxl.readNum(pos);
-    final long off = pos + Num.length(sz);
+    final DataAccess il = idxl.reader();
+    final int sz;
+    final long off;
+    final byte[] k;
+    synchronized(il) {
+      final long pos = idxr.reader().read5(index * 5L);
+      sz = il.readNum(pos);
+      off = pos + Num.length(sz);
+      k = key != null ? key : data.text(pre(il.readNum()), text);
+    }
     if(key == null) {
-      key = data.text(pre(idxl.readNum()), text);
-      ctext.put(index, key);
+      synchronized(ctext) {
+        ctext.put(index, k);
+      }
     }
-    return cache.add(key, sz, off);
+    return cache.add(k, sz, off);
   }
 
   /**
@@ -388,15 +435,34 @@ public class DiskValues implements Index {
    * @return iterator
    */
   private IndexIterator iter(final int sz, final long offset) {
+    // ids are sorted: decode them lazily
+    if(identity()) return new BlockIterator(sz, offset);
+
     final IntList pres = new IntList(sz);
-    synchronized(monitor) {
-      idxl.cursor(offset);
+    final DataAccess il = idxl.reader();
+    synchronized(il) {
+      il.cursor(offset);
+      pres(il, sz, pres);
+    }
+    return iter(pres.sort());
+  }
+
+  /**
+   * Adds the pre values of an id list. The cursor must point to the first id.
+   * @param il data access
+   * @param sz number of ids
+   * @param pres list for the pre values
+   */
+  private void pres(final DataAccess il, final int sz, final IntList pres) {
+    if(blocks) {
+      // block-compressed lists are only created for non-updatable indexes, which store pres
+      IdBlocks.decode(il, sz, pres);
+    } else {
       for(int i = 0, id = 0; i < sz; i++) {
-        id += idxl.readNum();
+        id += il.readNum();
         pres.add(pre(id));
       }
     }
-    return iter(pres.sort());
   }
 
   /**
@@ -408,22 +474,21 @@ public class DiskValues implements Index {
   private IndexIterator idRange(final StringRange tok) {
     // check if min and max are positive integers with the same number of digits
     final IntList pres = new IntList();
-    synchronized(monitor) {
+    final DataAccess il = idxl.reader(), ir = idxr.reader();
+    synchronized(il) {
       final int i = get(tok.min);
       final int s = size();
       for(int l = i < 0 ? -i - 1 : tok.mni ? i : i + 1; l < s; l++) {
-        final int ps = idxl.readNum(idxr.read5(l * 5L));
-        int id = idxl.readNum();
-        final int pre = pre(id);
+        final int ps = il.readNum(ir.read5(l * 5L));
+        final long pos = il.cursor();
+        final int pre = pre(il.readNum());
 
         // value is too large: skip traversal
         final int d = diff(data.text(pre, text), tok.max);
         if(d > 0 || !tok.mxi && d == 0) break;
         // add pre values
-        for(int p = 0; p < ps; ++p) {
-          pres.add(pre(id));
-          id += idxl.readNum();
-        }
+        il.cursor(pos);
+        pres(il, ps, pres);
       }
     }
     return iter(pres.sort());
@@ -442,20 +507,19 @@ public class DiskValues implements Index {
     final boolean simple = len != 0 && min > 0 && (long) min == min && token(min).length == len;
 
     final IntList pres = new IntList();
-    synchronized(monitor) {
+    final DataAccess il = idxl.reader(), ir = idxr.reader();
+    synchronized(il) {
       final int s = size();
       for(int l = 0; l < s; ++l) {
-        final int ds = idxl.readNum(idxr.read5(l * 5L));
-        int id = idxl.readNum();
-        final int pre = pre(id);
+        final int ds = il.readNum(ir.read5(l * 5L));
+        final long pos = il.cursor();
+        final int pre = pre(il.readNum());
 
         final double v = data.textDbl(pre, text);
         if(v >= min && v <= max) {
           // value is in range
-          for(int d = 0; d < ds; ++d) {
-            pres.add(pre(id));
-            id += idxl.readNum();
-          }
+          il.cursor(pos);
+          pres(il, ds, pres);
         } else if(simple && v > max && data.textLen(pre, text) == len) {
           // if limits are integers, if min, max and current value have the same
           // string length, and if current value is larger than max, test can be
@@ -491,9 +555,153 @@ public class DiskValues implements Index {
       public int size() {
         return s;
       }
+
+      @Override
+      public boolean skipTo(final int pre) {
+        final int i = pres.sortedIndexOf(pre);
+        p = Math.max(p + 1, i < 0 ? -i - 1 : i);
+        return p < s;
+      }
     };
   }
 
+  /**
+   * Iterator that lazily decodes a sorted id list in blocks.
+   */
+  private final class BlockIterator extends IndexIterator {
+    /** Decoded ids. */
+    private final int[] block;
+    /** Number of ids. */
+    private final int size;
+    /** Number of blocks (only assigned for block-compressed lists). */
+    private int nb;
+    /** File offset of the next id to be decoded, or start of the blocks. */
+    private long offset;
+    /** First id of the list (only assigned for block-compressed lists). */
+    private int first;
+    /** Next block to be decoded. */
+    private int next;
+    /** Last decoded id. */
+    private int id;
+    /** Number of ids in the current block. */
+    private int bs;
+    /** Current position in the block. */
+    private int b = -1;
+
+    /**
+     * Constructor.
+     * @param size number of ids
+     * @param offset file offset of the first id
+     */
+    BlockIterator(final int size, final long offset) {
+      this.size = size;
+      this.offset = offset;
+      block = new int[Math.min(size, blocks ? IdBlocks.BLOCK : BLOCK)];
+      if(blocks) nb = -1;
+    }
+
+    @Override
+    public boolean more() {
+      if(++b < bs) return true;
+      if(!decode(next)) return false;
+      b = 0;
+      return true;
+    }
+
+    @Override
+    public int pre() {
+      return block[b];
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public boolean skipTo(final int pre) {
+      if(b + 1 >= bs || block[bs - 1] < pre) {
+        if(nb == -1) header();
+        if(nb > 1) {
+          // block-compressed list: find last block with a smaller or equal first id
+          final DataAccess il = idxl.reader();
+          int l = next, h = nb - 1;
+          synchronized(il) {
+            while(l < h) {
+              final int m = l + h + 1 >>> 1;
+              if(IdBlocks.first(il, offset, m) <= pre) l = m;
+              else h = m - 1;
+            }
+          }
+          next = l;
+        }
+        do {
+          b = bs;
+          if(!decode(next)) return false;
+          b = -1;
+        } while(block[bs - 1] < pre);
+      }
+      // binary search in the remaining entries of the current block
+      int l = b + 1, h = bs - 1;
+      while(l < h) {
+        final int m = l + h >>> 1;
+        if(block[m] < pre) l = m + 1;
+        else h = m;
+      }
+      b = l;
+      return true;
+    }
+
+    /**
+     * Decodes a block of ids.
+     * @param n block to be decoded
+     * @return {@code false} if all ids have been decoded
+     */
+    private boolean decode(final int n) {
+      final DataAccess il = idxl.reader();
+      if(nb != 0) {
+        // block-compressed list
+        if(nb == -1) header();
+        if(n >= nb) return false;
+        if(size == 1) {
+          block[0] = first;
+          bs = 1;
+        } else {
+          synchronized(il) {
+            bs = IdBlocks.decode(il, offset, first, size, n, block);
+          }
+        }
+      } else {
+        // sequential list
+        final int c = Math.min(BLOCK, size - n * BLOCK);
+        if(c <= 0) return false;
+        synchronized(il) {
+          il.cursor(offset);
+          for(int i = 0; i < c; i++) {
+            id += il.readNum();
+            block[i] = id;
+          }
+          offset = il.cursor();
+        }
+        bs = c;
+      }
+      next = n + 1;
+      return true;
+    }
+
+    /**
+     * Reads the header of a block-compressed list.
+     */
+    private void header() {
+      final DataAccess il = idxl.reader();
+      synchronized(il) {
+        first = il.readNum(offset);
+        offset = il.cursor();
+      }
+      nb = IdBlocks.blocks(size);
+    }
+  }
+
   @Override
   public String toString() {
     final int sz = size();
@@ -505,12 +713,17 @@ public class DiskValues implements Index {
       for(int m = 0; m < sz; m++) {
         final long pos = idxr.read5(m * 5L);
         final int oc = idxl.readNum(pos);
-        int id = idxl.readNum();
+        final IntList ids = new IntList(oc);
+        if(blocks) {
+          IdBlocks.decode(idxl, oc, ids);
+        } else {
+          for(int n = 0, id = 0; n < oc; n++) ids.add(id += idxl.readNum());
+        }
+        final int id = ids.get(0);
         tb.add("  ").addInt(m).add(". key: \"").add(data.text(pre(id), text)).add("\"; offset: ");
         tb.addLong(pos).add("; id/dists: ").addInt(id).add('/').addInt(pre(id));
         for(int n = 1; n < oc; n++) {
-          id += idxl.readNum();
-          tb.add(",").addInt(id).add('/').addInt(pre(id));
+          tb.add(",").addInt(ids.get(n)).add('/').addInt(pre(ids.get(n)));
         }
         tb.add("\n");
       }
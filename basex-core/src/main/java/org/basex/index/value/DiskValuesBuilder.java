@@ -35,10 +35,10 @@ import org.basex.util.list.*;
  * @author Christian Gruen
  */
 public final class DiskValuesBuilder extends IndexBuilder {
-  /** Temporary value tree. */
-  private IndexTree index = new IndexTree();
   /** Index type (attributes/texts). */
   private final boolean text;
+  /** Temporary value tree (assigned if the index is built without partial structures). */
+  private IndexTree index;
 
   /**
    * Constructor.
@@ -47,7 +47,7 @@ public final class DiskValuesBuilder extends IndexBuilder {
    * @param text value type (text/attribute)
    */
   public DiskValuesBuilder(final Data data, final MainOptions options, final boolean text) {
-    super(data, options.get(MainOptions.INDEXSPLITSIZE));
+    super(data, options.get(MainOptions.INDEXSPLITSIZE), options.get(MainOptions.INDEXTHREADS));
     this.text = text;
   }
 
@@ -59,38 +59,53 @@ public final class DiskValuesBuilder extends IndexBuilder {
     final Performance perf = Prop.debug ? new Performance() : null;
     Util.debug(det());
 
+    index();
+    if(index != null) {
+      writeIndex(index, -1);
+      index = null;
+    } else {
+      // merge partial index structures
+      Performance.gc(1);
+      merge();
+    }
+
+    finishIndex(perf);
+    // index that has been built beside the live index will be activated later
+    if(shadow) return null;
+
+    if(text) data.meta.textindex = true;
+    else data.meta.attrindex = true;
+    return data.meta.updindex ? new UpdatableDiskValues(data, text) : new DiskValues(data, text);
+  }
+
+  @Override
+  protected void index(final Partition part) throws IOException {
     final int k = text ? Data.TEXT : Data.ATTR;
+    final boolean updindex = data.meta.updindex;
+    final int maxlen = data.meta.maxlen;
 
-    for(pre = 0; pre < size; ++pre) {
+    IndexTree tree = new IndexTree();
+    for(int pre = part.start; pre < part.end; ++pre) {
       if((pre & 0x0FFF) == 0) {
-        check();
+        part.check(pre);
         // check if main memory is exhausted
-        if(split()) {
-          writeIndex(true);
-          index = new IndexTree();
-          finishSplit();
+        if(part.split()) {
+          writeIndex(tree, run(part));
+          tree = new IndexTree();
+          part.finishSplit();
         }
       }
       // skip too long values
-      if(data.kind(pre) == k && data.textLen(pre, text) <= data.meta.maxlen) {
-        index.index(data.text(pre, text), data.meta.updindex ? data.id(pre) : pre);
-        count++;
+      if(data.kind(pre) == k && data.textLen(pre, text) <= maxlen) {
+        tree.index(data.text(pre, text), updindex ? data.id(pre) : pre);
+        part.add();
       }
     }
+    part.finish();
 
-    writeIndex(splits > 0);
-    // merge partial index structures
-    if(splits > 1) {
-      index = null;
-      Performance.gc(1);
-      merge();
-    }
-
-    if(text) data.meta.textindex = true;
-    else data.meta.attrindex = true;
-
-    finishIndex(perf);
-    return data.meta.updindex ? new UpdatableDiskValues(data, text) : new DiskValues(data, text);
+    // write final index if no partial structures exist
+    if(partitions == 1 && part.splits == 0) index = tree;
+    else writeIndex(tree, run(part));
   }
 
   /**
@@ -98,79 +113,80 @@ public final class DiskValuesBuilder extends IndexBuilder {
    * @throws IOException I/O exception
    */
   private void merge() throws IOException {
-    final String f = text ? DATATXT : DATAATV;
+    final String f = name(text ? DATATXT : DATAATV);
     int sz = 0;
     try(final DataOutput outL = new DataOutput(data.meta.dbfile(f + 'l'));
         final DataOutput outR = new DataOutput(data.meta.dbfile(f + 'r'))) {
       outL.write4(0);
 
       // initialize cached index iterators
-      final IntList ml = new IntList();
-      final IntList il = new IntList();
-      final DiskValuesMerger[] vm = new DiskValuesMerger[splits];
-      for(int i = 0; i < splits; ++i) vm[i] = new DiskValuesMerger(data, text, i);
+      final int[] runs = runs();
+      final int rs = runs.length;
+      final DiskValuesMerger[] vm = new DiskValuesMerger[rs];
+      for(int r = 0; r < rs; ++r) {
+        vm[r] = new DiskValuesMerger(data, text, name(text ? DATATXT : DATAATV) + runs[r]);
+      }
+      final LoserTree<DiskValuesMerger> lt = new LoserTree<DiskValuesMerger>(vm) {
+        @Override
+        protected boolean done(final DiskValuesMerger run) {
+          return run.values.length == 0;
+        }
+        @Override
+        protected int compare(final DiskValuesMerger run1, final DiskValuesMerger run2) {
+          return diff(run1.key, run2.key);
+        }
+      };
 
       // parse through all values
-      while(true) {
+      final IntList il = new IntList();
+      int w = lt.winner();
+      while(w != -1) {
         checkStop();
 
-        // find first index which is not completely parsed yet
-        int min = -1;
-        while(++min < splits && vm[min].values.length == 0);
-        if(min == splits) break;
-
-        // find index entry with smallest key
-        ml.reset();
-        for(int i = min; i < splits; ++i) {
-          if(vm[i].values.length == 0) continue;
-          final int d = diff(vm[min].key, vm[i].key);
-          if(d < 0) continue;
-          if(d > 0) {
-            min = i;
-            ml.reset();
-          }
-          ml.add(i);
-        }
-
-        // parse through all values, cache and sort id values
-        final int ms = ml.size();
-        for(int m = 0; m < ms; ++m) {
-          final DiskValuesMerger t = vm[ml.get(m)];
+        // cache id values of all entries with the smallest key
+        final byte[] key = vm[w].key;
+        do {
+          final DiskValuesMerger t = vm[w];
           final int vl = t.values.length;
           for(int l = 4, v; l < vl; l += Num.length(v)) {
             v = Num.get(t.values, l);
             il.add(v);
           }
           t.next();
-        }
+          lt.next();
+          w = lt.winner();
+        } while(w != -1 && eq(vm[w].key, key));
+
         // write final structure to disk
-        write(outL, outR, il);
+        write(outL, outR, il, blocks());
         ++sz;
       }
     }
 
     // write number of entries to first position
     try(final DataAccess da = new DataAccess(data.meta.dbfile(f + 'l'))) {
-      da.write4(sz);
+      da.write4(header(sz));
     }
   }
 
   /**
-   * Writes the current index tree to disk.
-   * @param partial partial flag
+   * Writes an index tree to disk.
+   * @param tree index tree
+   * @param run file id of the partial structure, or {@code -1} for the final index
    * @throws IOException I/O exception
    */
-  private void writeIndex(final boolean partial) throws IOException {
+  private void writeIndex(final IndexTree tree, final int run) throws IOException {
     // write id arrays and references
-    final String name = (text ? DATATXT : DATAATV) + (partial ? splits : "");
+    final boolean partial = run != -1;
+    final String name = name(text ? DATATXT : DATAATV) + (partial ? run : "");
     try(final DataOutput outL = new DataOutput(data.meta.dbfile(name + 'l'));
         final DataOutput outR = new DataOutput(data.meta.dbfile(name + 'r'))) {
-      outL.write4(index.size());
+      outL.write4(partial ? tree.size() : header(tree.size()));
 
       final IntList il = new IntList();
-      index.init();
-      while(index.more()) {
-        final byte[] values = index.values.get(index.next());
+      tree.init();
+      while(tree.more()) {
+        final byte[] values = tree.values.get(tree.next());
         final int vs = Num.size(values);
 
         if(partial) {
@@ -183,7 +199,7 @@ public final class DiskValuesBuilder extends IndexBuilder {
             il.add(Num.get(values, ip));
           }
           // write final structure to disk
-          write(outL, outR, il);
+          write(outL, outR, il, blocks());
         }
       }
     }
@@ -191,12 +207,29 @@ public final class DiskValuesBuilder extends IndexBuilder {
     // temporarily write texts
     if(partial) {
       try(final DataOutput outT = new DataOutput(data.meta.dbfile(name + 't'))) {
-        index.init();
-        while(index.more()) outT.writeToken(index.keys.get(index.next()));
+        tree.init();
+        while(tree.more()) outT.writeToken(tree.keys.get(tree.next()));
       }
     }
-    // increase split counter
-    splits++;
+  }
+
+  /**
+   * Indicates if block-compressed id lists will be written.
+   * Updatable indexes are modified in place and use plain id lists.
+   * @return result of check
+   */
+  private boolean blocks() {
+    return !data.meta.updindex;
+  }
+
+  /**
+   * Returns the header of the final index file.
+   * @param sz number of index entries
+   * @return header
+   */
+  private int header(final int sz) {
+    // set sign bit to indicate block-compressed id lists
+    return blocks() ? sz | Integer.MIN_VALUE : sz;
   }
 
   /**
@@ -204,27 +237,33 @@ public final class DiskValuesBuilder extends IndexBuilder {
    * @param outL index values
    * @param outR references
    * @param il values
+   * @param blocks write block-compressed id lists
    * @throws IOException I/O exception
    */
-  private static void write(final DataOutput outL, final DataOutput outR, final IntList il)
-      throws IOException {
+  private static void write(final DataOutput outL, final DataOutput outR, final IntList il,
+      final boolean blocks) throws IOException {
 
     // sort values before writing
     il.sort();
     final int is = il.size();
     outR.write5(outL.size());
     outL.writeNum(is);
-    for(int i = 0, o = 0; i < is; i++) {
-      final int v = il.get(i);
-      outL.writeNum(v - o);
-      o = v;
+    if(blocks) {
+      IdBlocks.write(outL, il);
+    } else {
+      for(int i = 0, o = 0; i < is; i++) {
+        final int v = il.get(i);
+        outL.writeNum(v - o);
+        o = v;
+      }
     }
     il.reset();
   }
 
   @Override
   protected void abort() {
-    data.meta.drop((text ? DATATXT : DATAATV) + ".+");
+    data.meta.drop(name(text ? DATATXT : DATAATV) + ".+");
+    if(shadow) return;
     if(text) data.meta.textindex = false;
     else data.meta.attrindex = false;
   }
@@ -1,6 +1,5 @@
 package org.basex.index.value;
 
-import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
@@ -33,11 +32,11 @@ final class DiskValuesMerger {
    * Constructor.
    * @param data data reference
    * @param text text flag
-   * @param i merge id
+   * @param pref file prefix
    * @throws IOException I/O exception
    */
-  DiskValuesMerger(final Data data, final boolean text, final int i) throws IOException {
-    pref = (text ? DATATXT : DATAATV) + i;
+  DiskValuesMerger(final Data data, final boolean text, final String pref) throws IOException {
+    this.pref = pref;
     dk = new DataInput(data.meta.dbfile(pref + 't'));
     dv = new DiskValues(data, text, pref);
     this.data = data;
@@ -0,0 +1,162 @@
+package org.basex.index.value;
+
+import java.io.*;
+
+import org.basex.io.out.DataOutput;
+import org.basex.io.random.*;
+import org.basex.util.list.*;
+
+/**
+ * This class writes and reads block-compressed id lists of the value indexes.
+ *
+ * <p>An id list is stored in the following format:</p>
+ * <ul>
+ * <li> The first id is stored in the {@link org.basex.util.Num} format.</li>
+ * <li> All ids are divided into blocks of {@link #BLOCK} ids. If there is more than one
+ *   block, a skip table follows, which contains the first id and the relative offset of
+ *   each block [int, int].</li>
+ * <li> Each block starts with the number of bits that are used per id [byte], followed by
+ *   the bit-packed distances between the ids of the block. The first id of a block is
+ *   taken from the skip table or, if there is only one block, from the list header.</li>
+ * </ul>
+ * <p>If a list contains only a single id, no blocks will be written. Empty lists will not
+ * be written at all.</p>
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class IdBlocks {
+  /** Number of ids per block. */
+  static final int BLOCK = 128;
+  /** Size of a skip table entry. */
+  private static final int SKIP = 8;
+
+  /** Private constructor. */
+  private IdBlocks() { }
+
+  /**
+   * Writes a sorted id list. The number of ids must be written by the caller.
+   * @param out output stream
+   * @param ids sorted ids
+   * @throws IOException I/O exception
+   */
+  static void write(final DataOutput out, final IntList ids) throws IOException {
+    final int is = ids.size();
+    if(is == 0) return;
+    out.writeNum(ids.get(0));
+    if(is == 1) return;
+
+    final int nb = blocks(is);
+    final IntList offsets = new IntList(nb);
+    final ByteList bl = new ByteList();
+    for(int b = 0; b < nb; b++) {
+      offsets.add(bl.size());
+      final int s = b * BLOCK, e = Math.min(is, s + BLOCK);
+      int max = 0;
+      for(int i = s + 1; i < e; i++) max = Math.max(max, ids.get(i) - ids.get(i - 1));
+      final int bits = 32 - Integer.numberOfLeadingZeros(max);
+      bl.add(bits);
+
+      long buffer = 0;
+      int n = 0;
+      for(int i = s + 1; i < e; i++) {
+        buffer |= (long) (ids.get(i) - ids.get(i - 1)) << n;
+        for(n += bits; n >= 8; n -= 8) {
+          bl.add((int) buffer);
+          buffer >>>= 8;
+        }
+      }
+      if(n > 0) bl.add((int) buffer);
+    }
+
+    if(nb > 1) {
+      for(int b = 0; b < nb; b++) {
+        out.write4(ids.get(b * BLOCK));
+        out.write4(offsets.get(b));
+      }
+    }
+    out.write(bl.finish());
+  }
+
+  /**
+   * Returns the number of blocks for the specified number of ids.
+   * @param size number of ids
+   * @return number of blocks
+   */
+  static int blocks(final int size) {
+    return (size + BLOCK - 1) / BLOCK;
+  }
+
+  /**
+   * Returns the first id of a block.
+   * @param da data access
+   * @param start start of the blocks (after the first id of the list)
+   * @param b block
+   * @return id
+   */
+  static int first(final DataAccess da, final long start, final int b) {
+    return da.read4(start + (long) b * SKIP);
+  }
+
+  /**
+   * Decodes a block.
+   * @param da data access
+   * @param start start of the blocks (after the first id of the list)
+   * @param first first id of the list
+   * @param size number of ids in the list (at least two)
+   * @param b block
+   * @param ids array for the decoded ids
+   * @return number of decoded ids
+   */
+  static int decode(final DataAccess da, final long start, final int first, final int size,
+      final int b, final int[] ids) {
+
+    final int nb = blocks(size);
+    final int cnt = Math.min(BLOCK, size - b * BLOCK);
+    int id;
+    long pos;
+    if(nb == 1) {
+      id = first;
+      pos = start;
+    } else {
+      id = da.read4(start + (long) b * SKIP);
+      pos = start + (long) nb * SKIP + da.read4();
+    }
+
+    final int bits = da.read1(pos);
+    final byte[] packed = da.readBytes(pos + 1, ((cnt - 1) * bits + 7) >>> 3);
+    final long mask = (1L << bits) - 1;
+    ids[0] = id;
+    long buffer = 0;
+    for(int i = 1, n = 0, p = 0; i < cnt; i++) {
+      for(; n < bits; n += 8) buffer |= (packed[p++] & 0xFFL) << n;
+      id += (int) (buffer & mask);
+      buffer >>>= bits;
+      n -= bits;
+      ids[i] = id;
+    }
+    return cnt;
+  }
+
+  /**
+   * Decodes a complete id list. The cursor must point to the first id.
+   * @param da data access
+   * @param size number of ids
+   * @param ids list for the decoded ids
+   */
+  static void decode(final DataAccess da, final int size, final IntList ids) {
+    if(size == 0) return;
+    final int first = da.readNum();
+    if(size == 1) {
+      ids.add(first);
+      return;
+    }
+    final long start = da.cursor();
+    final int[] block = new int[BLOCK];
+    final int nb = blocks(size);
+    for(int b = 0; b < nb; b++) {
+      final int c = decode(da, start, first, size, b, block);
+      for(int i = 0; i < c; i++) ids.add(block[i]);
+    }
+  }
+}
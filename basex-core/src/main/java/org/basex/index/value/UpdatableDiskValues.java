@@ -3,6 +3,7 @@ package org.basex.index.value;
 import static org.basex.data.DataText.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.data.*;
 import org.basex.util.*;
@@ -35,6 +36,11 @@ public final class UpdatableDiskValues extends DiskValues {
     return data.pre(id);
   }
 
+  @Override
+  boolean identity() {
+    return data.identity();
+  }
+
   @Override
   public synchronized void add(final TokenObjMap<IntList> map) {
     // create a sorted list of the new keys and update the old keys
@@ -100,16 +106,21 @@ public final class UpdatableDiskValues extends DiskValues {
   }
 
   @Override
-  public synchronized void replace(final byte[] old, final byte[] key, final int id) {
-    // delete the id from the old key
-    final int p = get(old);
+  public synchronized void delete(final byte[] key, final int id) {
+    final int p = get(key);
     if(p >= 0) {
       final int[] tmp = { id };
-      if(deleteIds(p, old, tmp)) {
+      if(deleteIds(p, key, tmp)) {
         tmp[0] = p;
         deleteKeys(tmp);
       }
     }
+  }
+
+  @Override
+  public synchronized void replace(final byte[] old, final byte[] key, final int id) {
+    // delete the id from the old key
+    delete(old, id);
 
     final IntList newIds;
     int index = get(key);
@@ -266,13 +277,18 @@ public final class UpdatableDiskValues extends DiskValues {
 
   /**
    * Returns a new array which contains the id distances in ascending order.
+   * Duplicate ids are skipped.
    * @param ids id list
    * @return differences
    */
   private static int[] distances(final IntList ids) {
     final int[] tmp = ids.sort().finish();
-    for(int l = tmp.length - 1; l > 0; --l) tmp[l] -= tmp[l - 1];
-    return tmp;
+    int s = 0;
+    for(final int id : tmp) {
+      if(s == 0 || id != tmp[s - 1]) tmp[s++] = id;
+    }
+    for(int l = s - 1; l > 0; --l) tmp[l] -= tmp[l - 1];
+    return s == tmp.length ? tmp : Arrays.copyOf(tmp, s);
   }
 
   @Override
@@ -138,6 +138,11 @@ public class BufferInput extends InputStream {
     return bl.finish();
   }
 
+  @Override
+  public int available() throws IOException {
+    return bsize - bpos + (in != null ? in.available() : 0);
+  }
+
   @Override
   public final void close() throws IOException {
     if(in != null && !(in instanceof FilterInputStream)) in.close();
@@ -26,12 +26,12 @@ public final class JsonAttsConverter extends JsonXmlConverter {
   }
 
   @Override
-  void openObject() {
+  public void openObject() {
     addType(OBJECT);
   }
 
   @Override
-  void openPair(final byte[] name) {
+  public void openPair(final byte[] name) {
     final FElem e = new FElem(PAIR).add(NAME, name);
     curr.add(e);
     curr = e;
@@ -39,34 +39,34 @@ public final class JsonAttsConverter extends JsonXmlConverter {
   }
 
   @Override
-  void closePair(final boolean add) {
+  public void closePair(final boolean add) {
     curr = (FElem) curr.parent();
   }
 
   @Override
-  void closeObject() {
+  public void closeObject() {
   }
 
   @Override
-  void openArray() {
+  public void openArray() {
     addType(ARRAY);
     nm = null;
   }
 
   @Override
-  void openItem() {
+  public void openItem() {
     final FElem e = new FElem(ITEM);
     curr.add(e);
     curr = e;
   }
 
   @Override
-  void closeItem() {
+  public void closeItem() {
     curr = (FElem) curr.parent();
   }
 
   @Override
-  void closeArray() {
+  public void closeArray() {
   }
 
   @Override
@@ -23,7 +23,7 @@ public abstract class JsonConverter {
    * Constructor.
    * @param opts json options
    */
-  JsonConverter(final JsonParserOptions opts) {
+  protected JsonConverter(final JsonParserOptions opts) {
     jopts = opts;
   }
 
@@ -35,7 +35,10 @@ public abstract class JsonConverter {
    */
   public Item convert(final IO input) throws IOException {
     final String encoding = jopts.get(JsonParserOptions.ENCODING);
-    return convert(new NewlineInput(input).encoding(encoding).content(), input.path());
+    try(final NewlineInput in = new NewlineInput(input)) {
+      JsonParser.parse(in.encoding(encoding), input.path(), jopts, this);
+    }
+    return finish();
   }
 
   /**
@@ -46,8 +49,15 @@ public abstract class JsonConverter {
    * @return result
    */
   public Item convert(final byte[] input, final String path) throws QueryIOException {
-    JsonParser.parse(Token.string(input), path, jopts, this);
-    return finish();
+    try {
+      JsonParser.parse(new TextInput(new IOContent(input)), path, jopts, this);
+      return finish();
+    } catch(final QueryIOException ex) {
+      throw ex;
+    } catch(final IOException ex) {
+      // main-memory input will only raise parse errors
+      throw Util.notExpected(ex);
+    }
   }
 
   /**
@@ -66,106 +76,120 @@ public abstract class JsonConverter {
 
   /**
    * Called when a JSON object is opened.
-   * @throws QueryIOException query exception
+   * @throws IOException I/O exception
    */
-  abstract void openObject() throws QueryIOException;
+  public abstract void openObject() throws IOException;
 
   /**
    * Called when a pair of a JSON object is opened.
    * @param key the key of the entry
-   * @throws QueryIOException query exception
+   * @throws IOException I/O exception
    */
-  abstract void openPair(byte[] key) throws QueryIOException;
+  public abstract void openPair(byte[] key) throws IOException;
 
   /**
    * Called when a pair of a JSON object is closed.
    * @param add add pair
-   * @throws QueryIOException query exception
+   * @throws IOException I/O exception
    */
-  abstract void closePair(boolean add) throws QueryIOException;
+  public abstract void closePair(boolean add) throws IOException;
 
   /**
    * Called when a JSON object is closed.
+   * @throws IOException I/O exception
    */
-  abstract void closeObject();
+  public abstract void closeObject() throws IOException;
 
   /**
    * Called when a JSON array is opened.
-   * @throws QueryIOException query exception
+   * @throws IOException I/O exception
    */
-  abstract void openArray() throws QueryIOException;
+  public abstract void openArray() throws IOException;
 
   /**
    * Called when an item of a JSON array is opened.
+   * @throws IOException I/O exception
    */
-  abstract void openItem();
+  public abstract void openItem() throws IOException;
 
   /**
    * Called when an item of a JSON array is closed.
-   * @throws QueryIOException query exception
+   * @throws IOException I/O exception
    */
-  abstract void closeItem() throws QueryIOException;
+  public abstract void closeItem() throws IOException;
 
   /**
    * Called when a JSON array is closed.
-   * @throws QueryIOException query exception
+   * @throws IOException I/O exception
    */
-  abstract void closeArray() throws QueryIOException;
+  public abstract void closeArray() throws IOException;
 
   /**
    * Called when a constructor function is opened.
    * @param name name of the constructor
-   * @throws QueryIOException query exception
+   * @throws IOException I/O exception
    */
-  abstract void openConstr(byte[] name) throws QueryIOException;
+  public abstract void openConstr(byte[] name) throws IOException;
 
   /**
    * Called when an argument of a constructor function is opened.
+   * @throws IOException I/O exception
    */
-  abstract void openArg();
+  public abstract void openArg() throws IOException;
 
   /**
    * Called when an argument of a constructor function is closed.
-   * @throws QueryIOException query exception
+   * @throws IOException I/O exception
    */
-  abstract void closeArg() throws QueryIOException;
+  public abstract void closeArg() throws IOException;
 
   /**
    * Called when a constructor function is closed.
-   * @throws QueryIOException query exception
+   * @throws IOException I/O exception
    */
-  abstract void closeConstr() throws QueryIOException;
+  public abstract void closeConstr() throws IOException;
 
   /**
    * Called when a number literal is encountered.
    * @param value string representation of the number literal
-   * @throws QueryIOException query exception
+   * @throws IOException I/O exception
    */
-  abstract void numberLit(byte[] value) throws QueryIOException;
+  public abstract void numberLit(byte[] value) throws IOException;
 
   /**
    * Called when a string literal is encountered.
    * @param bs the string
-   * @throws QueryIOException query exception
+   * @throws IOException I/O exception
    */
-  abstract void stringLit(byte[] bs) throws QueryIOException;
+  public abstract void stringLit(byte[] bs) throws IOException;
 
   /**
    * Called when a {@code null} literal is encountered.
-   * @throws QueryIOException query exception
+   * @throws IOException I/O exception
    */
-  abstract void nullLit() throws QueryIOException;
+  public abstract void nullLit() throws IOException;
 
   /**
    * Called when a boolean literal is encountered.
    * @param b the boolean
-   * @throws QueryIOException query exception
+   * @throws IOException I/O exception
    */
-  abstract void booleanLit(byte[] b) throws QueryIOException;
+  public abstract void booleanLit(byte[] b) throws IOException;
+
+  /**
+   * Called if more input is found after a top-level value.
+   * @return {@code true} if another value is to be parsed
+   * @throws IOException I/O exception
+   */
+  @SuppressWarnings("unused")
+  public boolean next() throws IOException {
+    return false;
+  }
 
   /**
    * Returns the resulting XQuery value.
    * @return result
+   * @throws IOException I/O exception
    */
-  abstract Item finish();
+  public abstract Item finish() throws IOException;
 }
@@ -80,39 +80,39 @@ public final class JsonDirectConverter extends JsonXmlConverter {
   }
 
   @Override
-  void openObject() {
+  public void openObject() {
     curr = addElem(OBJECT);
   }
 
   @Override
-  void openPair(final byte[] key) {
+  public void openPair(final byte[] key) {
     name = XMLToken.encode(key, lax);
   }
 
   @Override
-  void closePair(final boolean add) { }
+  public void closePair(final boolean add) { }
 
   @Override
-  void closeObject() {
+  public void closeObject() {
     final FElem par = (FElem) curr.parent();
     if(par != null) curr = par;
   }
 
   @Override
-  void openArray() {
+  public void openArray() {
     curr = addElem(ARRAY);
   }
 
   @Override
-  void openItem() {
+  public void openItem() {
     name = VALUE;
   }
 
   @Override
-  void closeItem() { }
+  public void closeItem() { }
 
   @Override
-  void closeArray() {
+  public void closeArray() {
     closeObject();
   }
 
@@ -55,17 +55,17 @@ public final class JsonMapConverter extends JsonConverter {
   }
 
   @Override
-  void openObject() {
+  public void openObject() {
     maps.push(Map.EMPTY);
   }
 
   @Override
-  void openPair(final byte[] key) {
+  public void openPair(final byte[] key) {
     stack.push(Str.get(key));
   }
 
   @Override
-  void closePair(final boolean add) throws QueryIOException {
+  public void closePair(final boolean add) throws QueryIOException {
     final Value val = stack.pop();
     final Item key = (Item) stack.pop();
     if(add) {
@@ -78,26 +78,26 @@ public final class JsonMapConverter extends JsonConverter {
   }
 
   @Override
-  void closeObject() {
+  public void closeObject() {
     stack.push(maps.pop());
   }
 
   @Override
-  void openArray() {
+  public void openArray() {
     arrays.push(new ValueList());
   }
 
   @Override
-  void openItem() {
+  public void openItem() {
   }
 
   @Override
-  void closeItem() throws QueryIOException {
+  public void closeItem() throws QueryIOException {
     arrays.peek().add(stack.pop());
   }
 
   @Override
-  void closeArray() {
+  public void closeArray() {
     stack.push(arrays.pop().array());
   }
 
@@ -3,19 +3,25 @@ package org.basex.io.parse.json;
 import static org.basex.query.QueryError.*;
 import static org.basex.util.Token.*;
 
+import java.io.*;
+
 import org.basex.build.json.*;
 import org.basex.build.json.JsonParserOptions.*;
+import org.basex.core.*;
+import org.basex.io.in.*;
 import org.basex.query.*;
 import org.basex.util.*;
 import org.basex.util.hash.*;
 
 /**
  * A JSON parser generating parse events similar to a SAX XML parser.
+ * The input is consumed as a stream of codepoints, so the size of the input is only
+ * limited by the converter.
  *
  * @author BaseX Team 2005-15, BSD License
  * @author Leo Woerteler
  */
-final class JsonParser extends InputParser {
+final class JsonParser {
   /** Names of control characters not allowed in string literals. */
   private static final String[] CTRL = {
     // U+0000 -- U+001F
@@ -24,7 +30,13 @@ final class JsonParser extends InputParser {
     "DLE", "DC1", "DC2", "DC3", "DC4", "NAK", "SYN", "ETB",
     "CAN", "EM",  "SUB", "ESC", "FS",  "GS",  "RS",  "US",
   };
+  /** Constructor keyword. */
+  private static final byte[] NEW = token("new");
 
+  /** Input. */
+  private final TextInput input;
+  /** Input path (can be {@code null}). */
+  private final String path;
   /** Converter. */
   private final JsonConverter conv;
   /** Spec. */
@@ -36,14 +48,26 @@ final class JsonParser extends InputParser {
   /** Token builder for string literals. */
   private final TokenBuilder tb = new TokenBuilder();
 
+  /** Current character ({@code -1}: end of input). */
+  private int curr;
+  /** Line of the current character. */
+  private int line = 1;
+  /** Column of the current character. */
+  private int col = 1;
+
   /**
-   * Constructor taking the input string and the spec according to which it is parsed.
-   * @param in input string
+   * Constructor taking the input and the spec according to which it is parsed.
+   * @param in input
+   * @param path input path (can be {@code null)}
    * @param opts options
    * @param cnv converter
+   * @throws IOException I/O exception
    */
-  private JsonParser(final String in, final JsonParserOptions opts, final JsonConverter cnv) {
-    super(in);
+  private JsonParser(final TextInput in, final String path, final JsonParserOptions opts,
+      final JsonConverter cnv) throws IOException {
+    input = in;
+    this.path = path;
+    curr = in.read();
     liberal = opts.get(JsonParserOptions.LIBERAL);
     unescape = opts.get(JsonParserOptions.UNESCAPE);
     duplicates = opts.get(JsonParserOptions.DUPLICATES);
@@ -51,38 +75,37 @@ final class JsonParser extends InputParser {
   }
 
   /**
-   * Parses the input string, directs the parse events to the given handler and returns
-   * the resulting value.
-   * @param input input string
+   * Parses the input and directs the parse events to the given handler.
+   * @param input input
    * @param path input path (can be {@code null)}
    * @param opts options
    * @param conv converter
-   * @throws QueryIOException parse exception
+   * @throws IOException I/O exception
    */
-  static void parse(final String input, final String path, final JsonParserOptions opts,
-      final JsonConverter conv) throws QueryIOException {
-    final JsonParser parser = new JsonParser(input, opts, conv);
-    parser.file = path;
-    parser.parse();
+  static void parse(final TextInput input, final String path, final JsonParserOptions opts,
+      final JsonConverter conv) throws IOException {
+    new JsonParser(input, path, opts, conv).parse();
   }
 
   /**
-   * Parses a JSON expression.
-   * @throws QueryIOException query I/O exception
+   * Parses a JSON expression. Further values will only be parsed if they are accepted
+   * by the converter.
+   * @throws IOException I/O exception
    */
-  private void parse() throws QueryIOException {
+  private void parse() throws IOException {
     skipWs();
     value();
+    while(more() && conv.next()) value();
     if(more()) throw error("Unexpected trailing content: %", rest());
   }
 
   /**
    * Parses a JSON value.
-   * @throws QueryIOException query I/O exception
+   * @throws IOException I/O exception
    */
-  private void value() throws QueryIOException {
-    if(pos >= length) throw eof(", expected JSON value.");
-    switch(curr()) {
+  private void value() throws IOException {
+    if(!more()) throw eof(", expected JSON value.");
+    switch(curr) {
       case '[':
         array();
         break;
@@ -109,26 +132,27 @@ final class JsonParser extends InputParser {
         break;
       default:
         // boolean, null or constructor
-        if(consume("true")) conv.booleanLit(TRUE);
-        else if(consume("false")) conv.booleanLit(FALSE);
-        else if(consume("null")) conv.nullLit();
-        else if(liberal && consume("new") && Character.isWhitespace(curr())) constr();
-        else throw error("Unexpected JSON value: '%'", rest());
+        final byte[] word = word();
+        if(eq(word, TRUE)) conv.booleanLit(TRUE);
+        else if(eq(word, FALSE)) conv.booleanLit(FALSE);
+        else if(eq(word, NULL)) conv.nullLit();
+        else if(liberal && eq(word, NEW) && Character.isWhitespace(curr)) constr();
+        else throw error("Unexpected JSON value: '%'", Token.string(word) + rest());
         skipWs();
     }
   }
 
   /**
    * Parses a JSON object.
-   * @throws QueryIOException query I/O exception
+   * @throws IOException I/O exception
    */
-  private void object() throws QueryIOException {
+  private void object() throws IOException {
     consumeWs('{', true);
     conv.openObject();
     if(!consumeWs('}', false)) {
       final TokenSet set = new TokenSet();
       do {
-        final byte[] key = !liberal || curr() == '"' ? string() : unquoted();
+        final byte[] key = !liberal || curr == '"' ? string() : unquoted();
         final boolean dupl = set.contains(key);
         if(dupl && duplicates == JsonDuplicates.REJECT)
           throw error(BXJS_DUPLICATE_X, "Key '%' occurs more than once.", key);
@@ -138,7 +162,7 @@ final class JsonParser extends InputParser {
         value();
         conv.closePair(!dupl || duplicates == JsonDuplicates.USE_LAST);
         set.put(key);
-      } while(consumeWs(',', false) && !(liberal && curr() == '}'));
+      } while(consumeWs(',', false) && !(liberal && curr == '}'));
       consumeWs('}', true);
     }
     conv.closeObject();
@@ -146,9 +170,9 @@ final class JsonParser extends InputParser {
 
   /**
    * Parses a JSON array.
-   * @throws QueryIOException query I/O exception
+   * @throws IOException I/O exception
    */
-  private void array() throws QueryIOException {
+  private void array() throws IOException {
     consumeWs('[', true);
     conv.openArray();
     if(!consumeWs(']', false)) {
@@ -156,7 +180,7 @@ final class JsonParser extends InputParser {
         conv.openItem();
         value();
         conv.closeItem();
-      } while(consumeWs(',', false) && !(liberal && curr() == ']'));
+      } while(consumeWs(',', false) && !(liberal && curr == ']'));
       consumeWs(']', true);
     }
     conv.closeArray();
@@ -164,16 +188,16 @@ final class JsonParser extends InputParser {
 
   /**
    * Parses a JSON constructor function.
-   * @throws QueryIOException query I/O exception
+   * @throws IOException I/O exception
    */
-  private void constr() throws QueryIOException {
+  private void constr() throws IOException {
     skipWs();
-    if(!input.substring(pos).matches("^[a-zA-Z0-9_-]+\\(.*"))
-      throw error("Wrong constructor syntax: '%'", rest());
+    tb.reset();
+    while(curr >= 'a' && curr <= 'z' || curr >= 'A' && curr <= 'Z' ||
+        curr >= '0' && curr <= '9' || curr == '_' || curr == '-') tb.add(consume());
+    if(tb.isEmpty() || !consume('(')) throw error("Wrong constructor syntax: '%'", rest());
 
-    final int p = input.indexOf('(', pos);
-    conv.openConstr(token(input.substring(pos, p)));
-    pos = p + 1;
+    conv.openConstr(tb.toArray());
     skipWs();
     if(!consumeWs(')', false)) {
       do {
@@ -189,27 +213,35 @@ final class JsonParser extends InputParser {
   /**
    * Reads an unquoted string literal.
    * @return the string
-   * @throws QueryIOException query I/O exception
+   * @throws IOException I/O exception
    */
-  private byte[] unquoted() throws QueryIOException {
-    int cp = more() ? input.codePointAt(pos) : -1;
-    if(cp < 0 || !Character.isJavaIdentifierStart(cp))
+  private byte[] unquoted() throws IOException {
+    if(!more() || !Character.isJavaIdentifierStart(curr))
       throw error("Expected unquoted string, found %", rest());
     tb.reset();
-    do {
-      add(cp);
-      cp = input.codePointAt(pos += cp < 0x10000 ? 1 : 2);
-    } while(Character.isJavaIdentifierPart(cp));
+    do add(consume());
+    while(more() && Character.isJavaIdentifierPart(curr));
     skipWs();
     return tb.toArray();
   }
 
+  /**
+   * Reads a sequence of ASCII letters.
+   * @return letters
+   * @throws IOException I/O exception
+   */
+  private byte[] word() throws IOException {
+    tb.reset();
+    while(curr >= 'a' && curr <= 'z' || curr >= 'A' && curr <= 'Z') tb.add(consume());
+    return tb.toArray();
+  }
+
   /**
    * Parses a number literal.
    * @return string representation
-   * @throws QueryIOException query I/O exception
+   * @throws IOException I/O exception
    */
-  private byte[] number() throws QueryIOException {
+  private byte[] number() throws IOException {
     tb.reset();
 
     // integral part
@@ -222,7 +254,7 @@ final class JsonParser extends InputParser {
     }
 
     final boolean zero = ch == '0';
-    ch = curr();
+    ch = curr;
     if(zero && ch >= '0' && ch <= '9') throw error("No digit allowed after '0'");
     loop: while(true) {
       switch(ch) {
@@ -236,9 +268,8 @@ final class JsonParser extends InputParser {
         case '7':
         case '8':
         case '9':
-          add(ch);
-          pos++;
-          ch = curr();
+          add(consume());
+          ch = curr;
           break;
         case '.':
         case 'e':
@@ -252,12 +283,11 @@ final class JsonParser extends InputParser {
 
     if(consume('.')) {
       add('.');
-      ch = curr();
+      ch = curr;
       if(ch < '0' || ch > '9') throw error("Number expected after '.'");
       do {
-        add(ch);
-        pos++;
-        ch = curr();
+        add(consume());
+        ch = curr;
       } while(ch >= '0' && ch <= '9');
       if(ch != 'e' && ch != 'E') {
         skipWs();
@@ -267,15 +297,15 @@ final class JsonParser extends InputParser {
 
     // 'e' or 'E'
     add(consume());
-    ch = curr();
+    ch = curr;
     if(ch == '-' || ch == '+') {
       add(consume());
-      ch = curr();
+      ch = curr;
     }
 
     if(ch < '0' || ch > '9') throw error("Exponent expected");
     do add(consume());
-    while((ch = curr()) >= '0' && ch <= '9');
+    while((ch = curr) >= '0' && ch <= '9');
     skipWs();
     return tb.toArray();
   }
@@ -283,13 +313,13 @@ final class JsonParser extends InputParser {
   /**
    * Parses a string literal.
    * @return the string
-   * @throws QueryIOException query I/O exception
+   * @throws IOException I/O exception
    */
-  private byte[] string() throws QueryIOException {
-    if(!consume('"')) throw error("Expected string, found '%'", curr());
+  private byte[] string() throws IOException {
+    if(!consume('"')) throw error("Expected string, found '%'", found());
     tb.reset();
-    char hi = 0; // cached high surrogate
-    while(pos < length) {
+    int hi = 0; // cached high surrogate
+    while(more()) {
       int ch = consume();
       if(ch == '"') {
         if(hi != 0) add(hi);
@@ -329,11 +359,10 @@ final class JsonParser extends InputParser {
             ch = unescape ? '\n' : 'n';
             break;
           case 'u':
-            if(pos + 4 >= length) throw eof(", expected four-digit hex value");
             if(unescape) {
               ch = 0;
               for(int i = 0; i < 4; i++) {
-                final char x = consume();
+                final int x = hex();
                 if(x >= '0' && x <= '9')      ch = 16 * ch + x      - '0';
                 else if(x >= 'a' && x <= 'f') ch = 16 * ch + x + 10 - 'a';
                 else if(x >= 'A' && x <= 'F') ch = 16 * ch + x + 10 - 'A';
@@ -342,7 +371,7 @@ final class JsonParser extends InputParser {
             } else {
               add('u');
               for(int i = 0; i < 4; i++) {
-                final char x = consume();
+                final int x = hex();
                 if(x >= '0' && x <= '9' || x >= 'a' && x <= 'f' || x >= 'A' && x <= 'F') {
                   if(i < 3) add(x);
                   else ch = x;
@@ -350,6 +379,8 @@ final class JsonParser extends InputParser {
               }
             }
             break;
+          case -1:
+            throw eof(" in string literal");
           default:
             throw error("Unknown character escape: '\\%'", n);
         }
@@ -363,32 +394,45 @@ final class JsonParser extends InputParser {
         hi = 0;
       }
 
-      if(ch >= 0xD800 && ch <= 0xDBFF) hi = (char) ch;
+      if(ch >= 0xD800 && ch <= 0xDBFF) hi = ch;
       else add(ch);
     }
     throw eof(" in string literal");
   }
 
+  /**
+   * Consumes a character of a four-digit hex value.
+   * @return character
+   * @throws IOException I/O exception
+   */
+  private int hex() throws IOException {
+    if(!more()) throw eof(", expected four-digit hex value");
+    return consume();
+  }
+
   /**
    * Adds the specified character.
    * @param ch character
-   * @throws QueryIOException exception
+   * @throws IOException exception
    */
-  private void add(final int ch) throws QueryIOException {
+  private void add(final int ch) throws IOException {
     if(!XMLToken.valid(ch)) throw error(BXJS_INVALID_X, "Character \\u% is invalid.", ch);
     tb.add(ch);
   }
 
-  /** Consumes all whitespace characters from the remaining query. */
-  private void skipWs() {
-    while(pos < length) {
-      switch(input.charAt(pos)) {
+  /**
+   * Consumes all whitespace characters from the remaining input.
+   * @throws IOException I/O exception
+   */
+  private void skipWs() throws IOException {
+    while(true) {
+      switch(curr) {
         case ' ':
         case '\t':
         case '\r':
         case '\n':
         case '\u00A0': // non-breaking space
-          pos++;
+          consume();
           break;
         default:
           return;
@@ -396,18 +440,80 @@ final class JsonParser extends InputParser {
     }
   }
 
+  /**
+   * Checks if more characters are found.
+   * @return result of check
+   */
+  private boolean more() {
+    return curr != -1;
+  }
+
+  /**
+   * Returns the current character and reads the next one.
+   * @return current character ({@code -1}: end of input)
+   * @throws IOException I/O exception
+   */
+  private int consume() throws IOException {
+    final int ch = curr;
+    if(ch != -1) {
+      if(ch == '\n') {
+        line++;
+        col = 1;
+      } else {
+        col++;
+      }
+      curr = input.read();
+    }
+    return ch;
+  }
+
+  /**
+   * Consumes the specified character if it equals the current one.
+   * @param ch character to be consumed
+   * @return if the character was consumed
+   * @throws IOException I/O exception
+   */
+  private boolean consume(final int ch) throws IOException {
+    if(curr != ch) return false;
+    consume();
+    return true;
+  }
+
+  /**
+   * Returns the current character as string.
+   * @return string
+   */
+  private String found() {
+    return more() ? new TokenBuilder().add(curr).toString() : "";
+  }
+
+  /**
+   * Returns the next characters of the input. Should only be called before an error
+   * is raised, as the returned characters will be consumed.
+   * @return string
+   * @throws IOException I/O exception
+   */
+  private String rest() throws IOException {
+    final int l = line, c = col;
+    final TokenBuilder rest = new TokenBuilder();
+    for(int r = 0; r < 15 && more(); r++) rest.add(consume());
+    if(more()) rest.add(Text.DOTS);
+    line = l;
+    col = c;
+    return rest.toString();
+  }
+
   /**
    * Tries to consume the given character. If successful, following whitespace is skipped.
    * Otherwise if the error flag is set a parse error is thrown.
    * @param ch character to be consumed
    * @param err error flag
    * @return if the character was consumed
-   * @throws QueryIOException parse error
+   * @throws IOException parse error
    */
-  private boolean consumeWs(final char ch, final boolean err) throws QueryIOException {
-    if(consume() != ch) {
-      pos--;
-      if(err) throw error("Expected '%', found '%'", ch, curr());
+  private boolean consumeWs(final char ch, final boolean err) throws IOException {
+    if(!consume(ch)) {
+      if(err) throw error("Expected '%', found '%'", ch, found());
       return false;
     }
     skipWs();
@@ -418,9 +524,9 @@ final class JsonParser extends InputParser {
    * Throws an end-of-input error.
    * @param desc description
    * @return never
-   * @throws QueryIOException query I/O exception
+   * @throws IOException I/O exception
    */
-  private QueryIOException eof(final String desc) throws QueryIOException {
+  private QueryIOException eof(final String desc) throws IOException {
     throw error("Unexpected end of input%", desc);
   }
 
@@ -442,7 +548,7 @@ final class JsonParser extends InputParser {
    * @return build exception
    */
   private QueryIOException error(final QueryError err, final String msg, final Object... ext) {
-    final InputInfo info = new InputInfo(this);
-    return new QueryIOException(err.get(info, info.line(), info.column(), Util.inf(msg, ext)));
+    final InputInfo info = new InputInfo(path, line, col);
+    return new QueryIOException(err.get(info, line, col, Util.inf(msg, ext)));
   }
 }
@@ -1,24 +1,49 @@
 package org.basex.io.random;
 
+import java.util.*;
+
+import org.basex.util.*;
+
 /**
- * This class provides a simple, clock-based buffer management.
+ * This class provides a clock-based buffer management.
+ * The number of buffers is specified via {@link Prop#buffers}. Buffers are located via
+ * a hash index, and the clock algorithm (second chance) is used to choose buffers that
+ * will be replaced.
  *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
-final class Buffers {
-  /** Number of buffers (must be 1 << n). */
-  private static final int BUFFERS = 1 << 4;
+public final class Buffers {
   /** Buffers. */
-  private final Buffer[] buf = new Buffer[BUFFERS];
+  private final Buffer[] buf;
+  /** Reference flags (second chance). */
+  private final boolean[] refs;
+  /** Hash buckets, pointing to the first buffer + 1 (0: no buffer). */
+  private final int[] buckets;
+  /** Pointers to the next buffer + 1 in the same bucket. */
+  private final int[] next;
+  /** Shift for computing hash values. */
+  private final int shift;
   /** Current buffer offset. */
   private int off;
+  /** Clock hand. */
+  private int hand;
+  /** Number of cache hits. */
+  private long hits;
+  /** Number of cache misses. */
+  private long misses;
 
   /**
    * Constructor.
    */
   Buffers() {
-    for(int b = 0; b < BUFFERS; ++b) buf[b] = new Buffer();
+    final int size = size(Prop.buffers);
+    buf = new Buffer[size];
+    refs = new boolean[size];
+    buckets = new int[size];
+    next = new int[size];
+    shift = 64 - Integer.numberOfTrailingZeros(size);
+    for(int b = 0; b < size; ++b) buf[b] = new Buffer();
   }
 
   /**
@@ -39,15 +64,140 @@ final class Buffers {
 
   /**
    * Chooses a buffer and sets the offset.
+   * If no buffer exists for the specified pointer, a buffer will be chosen
+   * for replacement, and it will be indexed for the new pointer.
+   * The caller is responsible for writing back dirty data and assigning the new pointer.
    * @param p buffer pointer
    * @return true if cursor has changed
    */
   boolean cursor(final long p) {
-    final int o = off;
-    do {
-      if(buf[off].pos == p) return false;
-    } while((off = off + 1 & BUFFERS - 1) != o);
-    off = o + 1 & BUFFERS - 1;
+    // current buffer
+    if(buf[off].pos == p) {
+      ++hits;
+      return false;
+    }
+    // look up buffer in hash index
+    for(int b = buckets[hash(p)]; b != 0; b = next[b - 1]) {
+      if(buf[b - 1].pos == p) {
+        off = b - 1;
+        refs[off] = true;
+        ++hits;
+        return false;
+      }
+    }
+
+    // choose buffer to be replaced: skip referenced buffers
+    final int size = buf.length;
+    while(refs[hand]) {
+      refs[hand] = false;
+      hand = hand + 1 & size - 1;
+    }
+    off = hand;
+    hand = hand + 1 & size - 1;
+    refs[off] = true;
+
+    // update hash index
+    final long old = buf[off].pos;
+    if(old != -1) unlink(old);
+    final int h = hash(p);
+    next[off] = buckets[h];
+    buckets[h] = off + 1;
+    ++misses;
     return true;
   }
+
+  /**
+   * Assigns a new pointer to the current buffer. A buffer that is indexed for the same
+   * pointer will be invalidated.
+   * @param p buffer pointer
+   */
+  void move(final long p) {
+    for(int b = buckets[hash(p)]; b != 0; b = next[b - 1]) {
+      final Buffer bf = buf[b - 1];
+      if(bf.pos == p) {
+        unlink(p);
+        bf.pos = -1;
+        bf.dirty = false;
+        break;
+      }
+    }
+    final Buffer bf = buf[off];
+    unlink(bf.pos);
+    bf.pos = p;
+    final int h = hash(p);
+    next[off] = buckets[h];
+    buckets[h] = off + 1;
+  }
+
+  /**
+   * Invalidates all buffers. Dirty buffers will be discarded.
+   */
+  void clear() {
+    for(final Buffer b : buf) {
+      b.pos = -1;
+      b.dirty = false;
+    }
+    Arrays.fill(buckets, 0);
+    Arrays.fill(refs, false);
+  }
+
+  /**
+   * Returns the number of buffers.
+   * @return number of buffers
+   */
+  public int size() {
+    return buf.length;
+  }
+
+  /**
+   * Returns the number of cache hits.
+   * @return number of hits
+   */
+  public long hits() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of cache misses.
+   * @return number of misses
+   */
+  public long misses() {
+    return misses;
+  }
+
+  /**
+   * Removes the buffer with the specified pointer from the hash index.
+   * @param p buffer pointer
+   */
+  private void unlink(final long p) {
+    final int h = hash(p);
+    int prev = 0;
+    for(int b = buckets[h]; b != 0; prev = b, b = next[b - 1]) {
+      if(buf[b - 1].pos == p) {
+        if(prev == 0) buckets[h] = next[b - 1];
+        else next[prev - 1] = next[b - 1];
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns the bucket for the specified pointer.
+   * @param p buffer pointer
+   * @return bucket
+   */
+  private int hash(final long p) {
+    return (int) (p * 0x9E3779B97F4A7C15L >>> shift);
+  }
+
+  /**
+   * Returns a valid number of buffers (a power of two; at least 2).
+   * @param n requested number
+   * @return number of buffers
+   */
+  static int size(final int n) {
+    int s = 2;
+    while(s < n && s < 1 << 20) s <<= 1;
+    return s;
+  }
 }
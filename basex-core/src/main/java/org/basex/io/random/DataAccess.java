@@ -1,6 +1,7 @@
 package org.basex.io.random;
 
 import java.io.*;
+import java.nio.*;
 
 import org.basex.io.*;
 import org.basex.util.*;
@@ -8,6 +9,10 @@ import org.basex.util.*;
 /**
  * This class allows positional read and write access to a database file.
  *
+ * <p>As long as no data has been changed, parallel read operations can be performed
+ * via thread-confined readers (see {@link #reader()}), which have their own cursor and
+ * buffers and fetch blocks via positional reads.</p>
+ *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
  */
@@ -16,12 +21,23 @@ public final class DataAccess implements AutoCloseable {
   private final Buffers bm = new Buffers();
   /** Reference to the data input stream. */
   private final RandomAccessFile raf;
+  /** Name of the file. */
+  private final String name;
+  /** Thread-confined readers ({@code null} for readers). */
+  private final ThreadLocal<DataAccess> readers;
   /** File length. */
   private long length;
   /** Changed flag. */
   private boolean changed;
   /** Offset. */
   private int off;
+  /** Write-ahead log ({@code null} if updates are not logged). */
+  private WriteAheadLog wal;
+
+  /** Indicates if data has been changed since the last flush. */
+  private volatile boolean dirty;
+  /** Version of the flushed data (incremented with each flush of changed data). */
+  private volatile int version;
 
   /**
    * Constructor, initializing the file reader.
@@ -34,11 +50,64 @@ public final class DataAccess implements AutoCloseable {
       f = new RandomAccessFile(file.file(), "rw");
       length = f.length();
       raf = f;
+      name = file.name();
       cursor(0);
     } catch(final IOException ex) {
       if(f != null) f.close();
       throw ex;
     }
+    readers = new ThreadLocal<DataAccess>() {
+      @Override
+      protected DataAccess initialValue() {
+        return new DataAccess(DataAccess.this);
+      }
+    };
+  }
+
+  /**
+   * Constructor for a thread-confined reader.
+   * @param da data access
+   */
+  private DataAccess(final DataAccess da) {
+    raf = da.raf;
+    name = da.name;
+    readers = null;
+    version = -1;
+  }
+
+  /**
+   * Returns an instance for reading data.
+   * If no data has been changed since the last flush, a thread-confined reader will be
+   * returned, which can be used without blocking other threads. Otherwise, or if this
+   * instance is a reader, the instance itself will be returned.
+   * @return data access for reading data
+   */
+  public DataAccess reader() {
+    if(readers == null || dirty) return this;
+    final DataAccess da = readers.get();
+    final int v = version;
+    if(da.version != v) {
+      // reset buffers of outdated reader
+      da.bm.clear();
+      da.length = length;
+      da.version = v;
+      da.cursor(0);
+    }
+    return da;
+  }
+
+  /**
+   * Returns a snapshot of the current data. The snapshot reads blocks via positional
+   * reads and is restricted to the current file length. It remains valid as long as no
+   * existing data is overwritten, i.e., if new data is only appended to the file.
+   * @return snapshot
+   */
+  public synchronized DataAccess snapshot() {
+    flush();
+    final DataAccess da = new DataAccess(this);
+    da.length = length;
+    da.cursor(0);
+    return da;
   }
 
   /**
@@ -51,6 +120,10 @@ public final class DataAccess implements AutoCloseable {
         raf.setLength(length);
         changed = false;
       }
+      if(dirty) {
+        ++version;
+        dirty = false;
+      }
     } catch(final IOException ex) {
       Util.stack(ex);
     }
@@ -58,6 +131,7 @@ public final class DataAccess implements AutoCloseable {
 
   @Override
   public synchronized void close() {
+    if(readers == null) return;
     flush();
     try {
       raf.close();
@@ -66,6 +140,32 @@ public final class DataAccess implements AutoCloseable {
     }
   }
 
+  /**
+   * Assigns a write-ahead log to which the changes of the current transaction will be
+   * written.
+   * @param log write-ahead log ({@code null} if updates are not logged)
+   */
+  public synchronized void attach(final WriteAheadLog log) {
+    wal = log;
+    if(log != null) log.attach(name, raf, length);
+  }
+
+  /**
+   * Writes the changes of the current transaction to the write-ahead log.
+   * @throws IOException I/O exception
+   */
+  public synchronized void log() throws IOException {
+    if(wal != null) wal.log(name, bm, length, false);
+  }
+
+  /**
+   * Returns the buffer manager.
+   * @return buffer manager
+   */
+  public Buffers buffers() {
+    return bm;
+  }
+
   /**
    * Returns the current file position.
    * @return position in the file
@@ -221,9 +321,16 @@ public final class DataAccess implements AutoCloseable {
     try {
       if(bf.dirty) writeBlock(bf);
       bf.pos = b;
-      raf.seek(bf.pos);
-      if(bf.pos < raf.length())
-        raf.readFully(bf.data, 0, (int) Math.min(length - bf.pos, IO.BLOCKSIZE));
+      final int len = (int) Math.min(length - b, IO.BLOCKSIZE);
+      if(len <= 0) return;
+      if(readers == null) {
+        // reader: positional read, which does not change the position of the shared file
+        final ByteBuffer bb = ByteBuffer.wrap(bf.data, 0, len);
+        while(bb.hasRemaining() && raf.getChannel().read(bb, b + bb.position()) != -1);
+      } else if(b < raf.length()) {
+        raf.seek(b);
+        raf.readFully(bf.data, 0, len);
+      }
     } catch(final IOException ex) {
       Util.stack(ex);
     }
@@ -317,7 +424,7 @@ public final class DataAccess implements AutoCloseable {
       final Buffer bf = buffer();
       final int l = Math.min(last - o, IO.BLOCKSIZE - off);
       System.arraycopy(buffer, o, bf.data, off, l);
-      bf.dirty = true;
+      dirty(bf);
       off += l;
       o += l;
       // adjust file size
@@ -382,6 +489,7 @@ public final class DataAccess implements AutoCloseable {
   private synchronized void length(final long len) {
     if(len != length) {
       changed = true;
+      dirty = true;
       length = len;
     }
   }
@@ -403,7 +511,7 @@ public final class DataAccess implements AutoCloseable {
    */
   private void write(final int value) {
     final Buffer bf = buffer();
-    bf.dirty = true;
+    dirty(bf);
     bf.data[off++] = (byte) value;
     final long nl = bf.pos + off;
     if(nl > length) length(nl);
@@ -437,6 +545,17 @@ public final class DataAccess implements AutoCloseable {
     }
   }
 
+  /**
+   * Marks the specified buffer and the file as dirty.
+   * @param bf buffer
+   */
+  private void dirty(final Buffer bf) {
+    if(!bf.dirty) {
+      bf.dirty = true;
+      dirty = true;
+    }
+  }
+
   /**
    * Writes the specified block to disk.
    * @param buffer buffer to write
@@ -444,6 +563,7 @@ public final class DataAccess implements AutoCloseable {
    */
   private void writeBlock(final Buffer buffer) throws IOException {
     final long pos = buffer.pos, len = Math.min(IO.BLOCKSIZE, length - pos);
+    if(wal != null) wal.steal(name, pos);
     raf.seek(pos);
     raf.write(buffer.data, 0, (int) len);
     buffer.dirty = false;
@@ -0,0 +1,205 @@
+package org.basex.io.random;
+
+import java.util.*;
+
+import org.basex.io.*;
+import org.basex.util.*;
+
+/**
+ * This class organizes the pages of a table. For each page, the number of the block
+ * and the number of entries is stored. The entry counts are indexed by a Fenwick tree,
+ * which allows to compute the first pre value of a page, to find the page of a pre value,
+ * and to change the number of entries of a page in logarithmic time.
+ * If pages are added or removed, the tree will be rebuilt in linear time.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class PageDirectory {
+  /** Blocks of the pages. */
+  private int[] blocks;
+  /** Number of entries of the pages. */
+  private int[] sizes;
+  /** Fenwick tree with the number of entries (1-based). */
+  private int[] tree;
+  /** Number of pages. */
+  private int size;
+
+  /**
+   * Constructor.
+   * @param capacity initial capacity
+   */
+  private PageDirectory(final int capacity) {
+    final int c = Math.max(1, capacity);
+    blocks = new int[c];
+    sizes = new int[c];
+    tree = new int[c + 1];
+  }
+
+  /**
+   * Creates a directory for a table with consecutive, completely filled pages.
+   * @param pages number of pages
+   * @param entries total number of entries
+   * @return directory
+   */
+  static PageDirectory regular(final int pages, final int entries) {
+    final PageDirectory pd = new PageDirectory(pages);
+    for(int p = 0; p < pages; p++) {
+      pd.blocks[p] = p;
+      pd.sizes[p] = Math.min(IO.ENTRIES, entries - p * IO.ENTRIES);
+    }
+    pd.size = pages;
+    pd.rebuild();
+    return pd;
+  }
+
+  /**
+   * Creates a directory from the first pre values and blocks of the pages.
+   * @param fpres first pre values
+   * @param blocks blocks
+   * @param pages number of pages
+   * @param entries total number of entries
+   * @return directory
+   */
+  static PageDirectory get(final int[] fpres, final int[] blocks, final int pages,
+      final int entries) {
+    final PageDirectory pd = new PageDirectory(pages);
+    for(int p = 0; p < pages; p++) {
+      pd.blocks[p] = blocks[p];
+      pd.sizes[p] = (p + 1 < pages ? fpres[p + 1] : entries) - fpres[p];
+    }
+    pd.size = pages;
+    pd.rebuild();
+    return pd;
+  }
+
+  /**
+   * Returns a copy of this directory.
+   * @return copy
+   */
+  PageDirectory copy() {
+    final PageDirectory pd = new PageDirectory(0);
+    pd.blocks = blocks.clone();
+    pd.sizes = sizes.clone();
+    pd.tree = tree.clone();
+    pd.size = size;
+    return pd;
+  }
+
+  /**
+   * Returns the number of pages.
+   * @return number of pages
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the block of the specified page.
+   * @param p page index
+   * @return block
+   */
+  int block(final int p) {
+    return blocks[p];
+  }
+
+  /**
+   * Assigns a block to the specified page.
+   * @param p page index
+   * @param b block
+   */
+  void block(final int p, final int b) {
+    blocks[p] = b;
+  }
+
+  /**
+   * Returns the number of entries of the specified page.
+   * @param p page index
+   * @return number of entries
+   */
+  int entries(final int p) {
+    return sizes[p];
+  }
+
+  /**
+   * Returns the first pre value of the specified page.
+   * @param p page index
+   * @return pre value
+   */
+  int fpre(final int p) {
+    int s = 0;
+    for(int i = p; i > 0; i -= i & -i) s += tree[i];
+    return s;
+  }
+
+  /**
+   * Returns the index of the page containing the specified pre value.
+   * @param pre pre value (must be smaller than the total number of entries)
+   * @return page index
+   */
+  int find(final int pre) {
+    int p = 0, rem = pre;
+    for(int bit = Integer.highestOneBit(size); bit != 0; bit >>>= 1) {
+      final int n = p + bit;
+      if(n <= size && tree[n] <= rem) {
+        p = n;
+        rem -= tree[n];
+      }
+    }
+    return p;
+  }
+
+  /**
+   * Adds a value to the number of entries of the specified page.
+   * @param p page index
+   * @param n number of entries to be added (can be negative)
+   */
+  void add(final int p, final int n) {
+    sizes[p] += n;
+    for(int i = p + 1; i <= size; i += i & -i) tree[i] += n;
+  }
+
+  /**
+   * Inserts empty pages.
+   * @param p index of the first page
+   * @param n number of pages
+   */
+  void insert(final int p, final int n) {
+    final int s = size + n;
+    if(s > sizes.length) {
+      final int c = Math.max(Array.newSize(sizes.length), s);
+      blocks = Arrays.copyOf(blocks, c);
+      sizes = Arrays.copyOf(sizes, c);
+      tree = new int[c + 1];
+    }
+    System.arraycopy(blocks, p, blocks, p + n, size - p);
+    System.arraycopy(sizes, p, sizes, p + n, size - p);
+    Arrays.fill(sizes, p, p + n, 0);
+    size = s;
+    rebuild();
+  }
+
+  /**
+   * Deletes pages.
+   * @param p index of the first page
+   * @param n number of pages
+   */
+  void delete(final int p, final int n) {
+    System.arraycopy(blocks, p + n, blocks, p, size - p - n);
+    System.arraycopy(sizes, p + n, sizes, p, size - p - n);
+    size -= n;
+    rebuild();
+  }
+
+  /**
+   * Rebuilds the Fenwick tree in linear time.
+   */
+  private void rebuild() {
+    final int s = size;
+    for(int i = 1; i <= s; i++) tree[i] = sizes[i - 1];
+    for(int i = 1; i <= s; i++) {
+      final int j = i + (i & -i);
+      if(j <= s) tree[j] += tree[i];
+    }
+  }
+}
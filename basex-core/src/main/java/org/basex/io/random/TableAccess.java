@@ -46,6 +46,14 @@ public abstract class TableAccess {
    */
   public abstract boolean lock(final boolean write);
 
+  /**
+   * Returns the buffer manager.
+   * @return buffer manager, or {@code null} if the table is not buffered
+   */
+  public Buffers buffers() {
+    return null;
+  }
+
   /**
    * Reads a byte value and returns it as an integer value.
    * @param p pre value
@@ -3,6 +3,7 @@ package org.basex.io.random;
 import static org.basex.data.DataText.*;
 
 import java.io.*;
+import java.nio.*;
 import java.nio.channels.*;
 import java.util.*;
 
@@ -10,13 +11,21 @@ import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.io.*;
 import org.basex.io.in.DataInput;
+import org.basex.io.out.*;
 import org.basex.io.out.DataOutput;
 import org.basex.util.*;
 
 /**
  * This class stores the table on disk and reads it block-wise.
  *
- * NOTE: this class is not thread-safe.
+ * NOTE: this class is not thread-safe. As long as no data has been changed, however,
+ * read operations will be delegated to thread-confined readers, which have their own
+ * cursor and buffers and fetch blocks via positional reads.
+ *
+ * Snapshots of the table can be created, which are not affected by subsequent updates.
+ * Blocks that are referenced by a snapshot will not be overwritten: instead, changed
+ * blocks will be written to free blocks (copy-on-write), and the original blocks will
+ * be reused after all snapshots referencing them have been closed.
  *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
@@ -27,15 +36,30 @@ public final class TableDiskAccess extends TableAccess {
   private final Buffers bm = new Buffers();
   /** File storing all blocks. */
   private final RandomAccessFile file;
+  /** Name of the file. */
+  private final String name;
   /** Bitmap storing free (=0) and used (=1) pages. */
   private BitArray usedPages;
   /** File lock. */
   private FileLock fl;
-
-  /** First pre values (ascending order); will be initialized with the first update. */
-  private int[] fpres;
-  /** Page index; will be initialized with the first update. */
-  private int[] pages;
+  /** Thread-confined readers ({@code null} for readers). */
+  private final ThreadLocal<TableDiskAccess> readers;
+  /** Write-ahead log ({@code null} if updates are not logged). */
+  private WriteAheadLog wal;
+  /** Table from which this snapshot was created ({@code null} if this is no snapshot). */
+  private final TableDiskAccess origin;
+  /** Open snapshots of this table. */
+  private final ArrayList<TableDiskAccess> snapshots = new ArrayList<>(0);
+  /** Blocks referenced by snapshots ({@code null} if no snapshots exist). */
+  private volatile BitArray pinned;
+
+  /** Indicates if data has been changed since the last flush. */
+  private volatile boolean modified;
+  /** Version of the flushed data (incremented with each flush of changed data). */
+  private volatile int version;
+
+  /** Page directory; will be initialized with the first update. */
+  private PageDirectory dir;
 
   /** Page index. */
   private int page = -1;
@@ -71,8 +95,8 @@ public final class TableDiskAccess extends TableAccess {
       } else {
         // read page index and first pre values from disk
         used = u;
-        fpres = in.readNums();
-        pages = in.readNums();
+        final int[] fpres = in.readNums(), pages = in.readNums();
+        dir = PageDirectory.get(fpres, pages, u, meta.size);
       }
 
       // read block bitmap
@@ -83,8 +107,34 @@ public final class TableDiskAccess extends TableAccess {
     }
 
     // initialize data file
-    file = new RandomAccessFile(meta.dbfile(DATATBL).file(), "rw");
+    final IOFile tbl = meta.dbfile(DATATBL);
+    file = new RandomAccessFile(tbl.file(), "rw");
+    name = tbl.name();
     if(!lock(write)) throw new BaseXException(Text.DB_PINNED_X, md.name);
+
+    readers = new ThreadLocal<TableDiskAccess>() {
+      @Override
+      protected TableDiskAccess initialValue() {
+        return new TableDiskAccess(TableDiskAccess.this, meta, null);
+      }
+    };
+    origin = null;
+  }
+
+  /**
+   * Constructor for a thread-confined reader or a snapshot.
+   * @param ta table access
+   * @param md meta data
+   * @param origin table from which the snapshot is created ({@code null} for readers)
+   */
+  private TableDiskAccess(final TableDiskAccess ta, final MetaData md,
+      final TableDiskAccess origin) {
+    super(md);
+    file = ta.file;
+    name = ta.name;
+    readers = null;
+    version = -1;
+    this.origin = origin;
   }
 
   /**
@@ -107,26 +157,109 @@ public final class TableDiskAccess extends TableAccess {
   @Override
   public synchronized void flush(final boolean all) throws IOException {
     for(final Buffer b : bm.all()) if(b.dirty) writeBlock(b);
+    if(modified) {
+      ++version;
+      modified = false;
+    }
     if(!dirty || !all) return;
 
     try(final DataOutput out = new DataOutput(meta.dbfile(DATATBL + 'i'))) {
-      final int blcks = blocks;
-      out.writeNum(blcks);
-      out.writeNum(used);
+      writeIndex(out);
+    }
+    dirty = false;
+  }
 
-      // due to legacy issues, number of blocks is written several times
-      out.writeNum(blcks);
-      for(int a = 0; a < blocks; a++) out.writeNum(fpres[a]);
-      out.writeNum(blcks);
-      for(int a = 0; a < blocks; a++) out.writeNum(pages[a]);
+  /**
+   * Returns a snapshot of the current table. All buffered data will be written back
+   * before the snapshot is created. The snapshot must be closed after use.
+   * @param md meta data of the snapshot
+   * @return snapshot
+   * @throws IOException I/O exception
+   */
+  public synchronized TableDiskAccess snapshot(final MetaData md) throws IOException {
+    flush(false);
+    final TableDiskAccess ta = new TableDiskAccess(this, md, this);
+    ta.blocks = blocks;
+    ta.used = used;
+    if(dir != null) ta.dir = dir.copy();
+    snapshots.add(ta);
+    pin();
+    return ta;
+  }
 
-      out.writeLongs(usedPages.toArray());
+  /**
+   * Releases the blocks of a closed snapshot.
+   * @param ta snapshot
+   */
+  private synchronized void release(final TableDiskAccess ta) {
+    snapshots.remove(ta);
+    pin();
+  }
+
+  /**
+   * Computes the blocks that are referenced by snapshots.
+   */
+  private void pin() {
+    BitArray ba = null;
+    for(final TableDiskAccess ta : snapshots) {
+      if(ba == null) ba = new BitArray();
+      for(int p = 0; p < ta.used; p++) ba.set(ta.page(p));
+    }
+    pinned = ba;
+  }
+
+  /**
+   * Assigns a write-ahead log to which the changes of the current transaction will be
+   * written.
+   * @param log write-ahead log ({@code null} if updates are not logged)
+   */
+  public synchronized void attach(final WriteAheadLog log) {
+    wal = log;
+    if(log != null) log.attach(name, file, (long) blocks * IO.BLOCKSIZE);
+  }
+
+  /**
+   * Writes the changes of the current transaction to the write-ahead log.
+   * @throws IOException I/O exception
+   */
+  public synchronized void log() throws IOException {
+    if(wal == null) return;
+    wal.log(name, bm, (long) blocks * IO.BLOCKSIZE, true);
+    if(dirty) {
+      final ArrayOutput ao = new ArrayOutput();
+      try(final DataOutput out = new DataOutput(ao)) {
+        writeIndex(out);
+      }
+      wal.image(meta.dbfile(DATATBL + 'i').name(), ao.finish());
     }
-    dirty = false;
+  }
+
+  /**
+   * Writes the page index.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  private void writeIndex(final DataOutput out) throws IOException {
+    final int blcks = blocks;
+    out.writeNum(blcks);
+    out.writeNum(used);
+
+    // due to legacy issues, number of blocks is written several times
+    out.writeNum(blcks);
+    for(int a = 0, fp = 0; a < blcks; a++) {
+      out.writeNum(fp);
+      if(a < used) fp += dir.entries(a);
+    }
+    out.writeNum(blcks);
+    for(int a = 0; a < blcks; a++) out.writeNum(a < used ? dir.block(a) : 0);
+
+    out.writeLongs(usedPages.toArray());
   }
 
   @Override
   public synchronized void close() throws IOException {
+    if(origin != null) origin.release(this);
+    if(readers == null) return;
     flush(true);
     file.close();
   }
@@ -144,33 +277,54 @@ public final class TableDiskAccess extends TableAccess {
   }
 
   @Override
-  public synchronized int read1(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return b[o] & 0xFF;
+  public Buffers buffers() {
+    return bm;
   }
 
   @Override
-  public synchronized int read2(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+  public int read1(final int pre, final int off) {
+    final TableDiskAccess ta = reader();
+    if(ta != this) return ta.read1(pre, off);
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return b[o] & 0xFF;
+    }
   }
 
   @Override
-  public synchronized int read4(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
-      ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+  public int read2(final int pre, final int off) {
+    final TableDiskAccess ta = reader();
+    if(ta != this) return ta.read2(pre, off);
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+    }
   }
 
   @Override
-  public synchronized long read5(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
-      ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+  public int read4(final int pre, final int off) {
+    final TableDiskAccess ta = reader();
+    if(ta != this) return ta.read4(pre, off);
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
+        ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+    }
+  }
+
+  @Override
+  public long read5(final int pre, final int off) {
+    final TableDiskAccess ta = reader();
+    if(ta != this) return ta.read5(pre, off);
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
+        ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+    }
   }
 
   @Override
@@ -179,7 +333,7 @@ public final class TableDiskAccess extends TableAccess {
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
     b[o] = (byte) v;
-    bf.dirty = true;
+    dirty(bf);
   }
 
   @Override
@@ -189,7 +343,7 @@ public final class TableDiskAccess extends TableAccess {
     final byte[] b = bf.data;
     b[o] = (byte) (v >>> 8);
     b[o + 1] = (byte) v;
-    bf.dirty = true;
+    dirty(bf);
   }
 
   @Override
@@ -201,7 +355,7 @@ public final class TableDiskAccess extends TableAccess {
     b[o + 1] = (byte) (v >>> 16);
     b[o + 2] = (byte) (v >>> 8);
     b[o + 3] = (byte) v;
-    bf.dirty = true;
+    dirty(bf);
   }
 
   @Override
@@ -214,7 +368,7 @@ public final class TableDiskAccess extends TableAccess {
     b[o + 2] = (byte) (v >>> 16);
     b[o + 3] = (byte) (v >>> 8);
     b[o + 4] = (byte) v;
-    bf.dirty = true;
+    dirty(bf);
   }
 
   @Override
@@ -223,7 +377,7 @@ public final class TableDiskAccess extends TableAccess {
       final int off = cursor(i);
       final Buffer bf = bm.current();
       System.arraycopy(entries, o, bf.data, off, IO.NODESIZE);
-      bf.dirty = true;
+      dirty(bf);
     }
   }
 
@@ -236,69 +390,58 @@ public final class TableDiskAccess extends TableAccess {
     cursor(pre);
 
     // some useful variables to make code more readable
-    int from = pre - fpre;
+    final int from = pre - fpre;
     final int last = pre + nr;
 
     // check if all entries are in current block: handle and return
     if(last - 1 < npre) {
       final Buffer bf = bm.current();
       copy(bf.data, from + nr, bf.data, from, npre - last);
-      updatePre(nr);
+      dir.add(page, -nr);
+      meta.size -= nr;
+      npre -= nr;
 
       // if whole block was deleted, remove it from the index
       if(npre == fpre) {
         // mark the block as empty
-        usedPages.clear(pages[page]);
-
-        Array.move(fpres, page + 1, -1, used - page - 1);
-        Array.move(pages, page + 1, -1, used - page - 1);
-
-        --used;
-        readPage(page);
+        usedPages.clear(dir.block(page));
+        dir.delete(page, 1);
+        used = dir.size();
+        invalidate();
       }
       return;
     }
 
-    // handle blocks whose entries are to be deleted entirely
-
-    // first count them
-    int unused = 0;
-    while(npre < last) {
-      if(from == 0) {
-        ++unused;
-        // mark the blocks as empty; range clear cannot be used because the
-        // blocks may not be consecutive
-        usedPages.clear(pages[page]);
-      }
-      setPage(page + 1);
-      from = 0;
-    }
-
-    // if the last block is empty, clear the corresponding bit
-    readBlock(pages[page]);
-    final Buffer bf = bm.current();
-    if(npre == last) {
-      usedPages.clear((int) bf.pos);
-      ++unused;
-      if(page < used - 1) readPage(page + 1);
-      else ++page;
-    } else {
-      // delete entries at beginning of current (last) block
-      copy(bf.data, last - fpre, bf.data, 0, npre - last);
+    // handle first block: keep entries before the deleted ones
+    final int first = from == 0 ? page : page + 1;
+    if(from == 0) usedPages.clear(dir.block(page));
+    else dir.add(page, from - (npre - fpre));
+
+    // handle blocks whose entries are to be deleted entirely: mark them as empty;
+    // range clear cannot be used because the blocks may not be consecutive
+    int p = page, np = npre;
+    while(++p < used) {
+      final int e = np + dir.entries(p);
+      if(e > last) break;
+      usedPages.clear(dir.block(p));
+      np = e;
     }
 
-    // now remove them from the index
-    if(unused > 0) {
-      Array.move(fpres, page, -unused, used - page);
-      Array.move(pages, page, -unused, used - page);
-      used -= unused;
-      page -= unused;
+    // delete entries at beginning of the last block
+    if(p < used && np < last) {
+      page = p;
+      readBlock(dir.block(p));
+      final Buffer bf = bm.current();
+      final int n = last - np;
+      copy(bf.data, n, bf.data, 0, dir.entries(p) - n);
+      dir.add(p, -n);
     }
 
-    // update index entry for this block
-    fpres[page] = pre;
-    fpre = pre;
-    updatePre(nr);
+    // remove empty blocks from the index
+    if(p > first) dir.delete(first, p - first);
+    used = dir.size();
+    meta.size -= nr;
+    invalidate();
   }
 
   @Override
@@ -313,9 +456,12 @@ public final class TableDiskAccess extends TableAccess {
     int split = 0;
     if(used == 0) {
       // special case: insert new data into first block if database is empty
+      final int b = free();
+      usedPages.set(b);
+      dir.insert(0, 1);
+      dir.block(0, b);
+      used = 1;
       readPage(0);
-      usedPages.set(0);
-      ++used;
     } else if(pre > 0) {
       // find the offset within the block where the new records will be inserted
       split = cursor(pre - 1) + IO.NODESIZE;
@@ -335,10 +481,9 @@ public final class TableDiskAccess extends TableAccess {
     if(nold + nnew <= IO.BLOCKSIZE) {
       Array.move(bf.data, split, nnew, moved);
       System.arraycopy(entries, 0, bf.data, split, nnew);
-      bf.dirty = true;
+      dirty(bf);
+      dir.add(page, nr);
 
-      // increment first pre-values of blocks after the last modified block
-      for(int i = page + 1; i < used; ++i) fpres[i] += nr;
       // update cached variables (fpre is not changed)
       npre += nr;
       meta.size += nr;
@@ -355,29 +500,29 @@ public final class TableDiskAccess extends TableAccess {
     int nrem = IO.BLOCKSIZE - split;
     if(nrem > 0) {
       System.arraycopy(all, 0, bf.data, split, nrem);
-      bf.dirty = true;
+      dirty(bf);
     }
+    dir.add(page, IO.ENTRIES - (nold >>> IO.NODEPOWER));
 
     // number of new required blocks and remaining bytes
     final int req = all.length - nrem;
     int needed = req / IO.BLOCKSIZE;
     final int remain = req % IO.BLOCKSIZE;
 
+    // index of the page after which new blocks will be inserted
+    final int cur = page;
     if(remain > 0) {
       // check if the last entries can fit in the block after the current one
-      if(page + 1 < used) {
-        final int o = occSpace(page + 1) << IO.NODEPOWER;
+      if(cur + 1 < used) {
+        final int o = dir.entries(cur + 1) << IO.NODEPOWER;
         if(remain <= IO.BLOCKSIZE - o) {
           // copy the last records
-          readPage(page + 1);
+          readPage(cur + 1);
           bf = bm.current();
           System.arraycopy(bf.data, 0, bf.data, remain, o);
           System.arraycopy(all, all.length - remain, bf.data, 0, remain);
-          bf.dirty = true;
-          // reduce the pre value, since it will be later incremented with nr
-          fpres[page] -= remain >>> IO.NODEPOWER;
-          // go back to the previous block
-          readPage(page - 1);
+          dirty(bf);
+          dir.add(cur + 1, remain >>> IO.NODEPOWER);
         } else {
           // there is not enough space in the block - allocate a new one
           ++needed;
@@ -388,55 +533,90 @@ public final class TableDiskAccess extends TableAccess {
       }
     }
 
-    // number of expected blocks: existing blocks + needed block - empty blocks
-    final int exp = blocks + needed - (blocks - used);
-    if(exp > fpres.length) {
-      // resize directory arrays if existing ones are too small
-      final int ns = Math.max(fpres.length << 1, exp);
-      fpres = Arrays.copyOf(fpres, ns);
-      pages = Arrays.copyOf(pages, ns);
+    // write the all remaining entries to new blocks
+    dir.insert(cur + 1, needed);
+    used = dir.size();
+    for(int n = 1; n <= needed; n++) {
+      final int b = free();
+      usedPages.set(b);
+      page = cur + n;
+      dir.block(page, b);
+      readBlock(b);
+      final int len = write(all, nrem);
+      nrem += len;
+      dir.add(page, len >>> IO.NODEPOWER);
     }
-
-    // make place for the blocks where the new entries will be written
-    Array.move(fpres, page + 1, needed, used - page - 1);
-    Array.move(pages, page + 1, needed, used - page - 1);
-
-    // write the all remaining entries
-    while(needed-- > 0) {
-      freeBlock();
-      nrem += write(all, nrem);
-      fpres[page] = fpres[page - 1] + IO.ENTRIES;
-      pages[page] = (int) bm.current().pos;
-    }
-
-    // increment all fpre values after the last modified block
-    for(int i = page + 1; i < used; ++i) fpres[i] += nr;
-
     meta.size += nr;
-
-    // update cached variables
-    fpre = fpres[page];
-    npre = page + 1 < used && fpres[page + 1] < meta.size ? fpres[page + 1] : meta.size;
+    invalidate();
   }
 
   @Override
   protected void dirty() {
     // initialize data structures required for performing updates
-    if(fpres == null) {
-      final int b = blocks;
-      fpres = new int[b];
-      pages = new int[b];
-      for(int i = 0; i < b; i++) {
-        fpres[i] = i * IO.ENTRIES;
-        pages[i] = i;
-      }
+    if(dir == null) {
+      dir = PageDirectory.regular(used, meta.size);
       usedPages = new BitArray(used, true);
     }
     dirty = true;
+    modified = true;
   }
 
   // PRIVATE METHODS ==========================================================
 
+  /**
+   * Returns an instance for reading data.
+   * If no data has been changed since the last flush, a thread-confined reader will be
+   * returned. Otherwise, or if this instance is a reader, the instance itself will be returned.
+   * @return table access for reading data
+   */
+  private TableDiskAccess reader() {
+    if(readers == null || modified) return this;
+    final TableDiskAccess ta = readers.get();
+    final int v = version;
+    if(ta.version != v) {
+      // adopt page directory and reset buffers of outdated reader
+      ta.bm.clear();
+      ta.dir = dir;
+      ta.blocks = blocks;
+      ta.used = used;
+      ta.page = -1;
+      ta.fpre = -1;
+      ta.npre = -1;
+      ta.version = v;
+    }
+    return ta;
+  }
+
+  /**
+   * Marks the specified buffer and the table as dirty.
+   * @param bf buffer
+   */
+  private void dirty(final Buffer bf) {
+    if(!bf.dirty) {
+      final BitArray pnd = pinned;
+      if(pnd != null && pnd.get((int) bf.pos)) relocate(bf);
+      bf.dirty = true;
+      modified = true;
+    }
+  }
+
+  /**
+   * Assigns a free block to the specified buffer, as its original block is referenced by
+   * a snapshot. The buffer must contain the block of the current page.
+   * @param bf buffer
+   */
+  private void relocate(final Buffer bf) {
+    dirty();
+    final int old = dir.block(page);
+    if(old != bf.pos) throw Util.notExpected("Block % is not cached.", old);
+    final int b = free();
+    usedPages.clear(old);
+    usedPages.set(b);
+    dir.block(page, b);
+    bm.move(b);
+    if(b >= blocks) blocks = b + 1;
+  }
+
   /**
    * Searches for the block containing the entry for the specified pre value.
    * Reads the block and returns its offset inside the block.
@@ -444,28 +624,13 @@ public final class TableDiskAccess extends TableAccess {
    * @return offset of the entry in the block
    */
   private int cursor(final int pre) {
-    int fp = fpre;
-    int np = npre;
-    if(pre < fp || pre >= np) {
-      final int last = used - 1;
-      int l = 0;
-      int h = last;
-      int m = page;
-      while(l <= h) {
-        if(pre < fp) h = m - 1;
-        else if(pre >= np) l = m + 1;
-        else break;
-        m = h + l >>> 1;
-        fp = fpre(m);
-        np = m == last ? meta.size : fpre(m + 1);
-      }
-      if(l > h) throw Util.notExpected(
+    if(pre < fpre || pre >= npre) {
+      if(pre < 0 || pre >= meta.size) throw Util.notExpected(
           "Data Access out of bounds:" +
           "\n- pre value: " + pre +
           "\n- #used blocks: " + used +
-          "\n- #total locks: " + blocks +
-          "\n- access: " + m + " (" + l + " > " + h + ']');
-      readPage(m);
+          "\n- #total locks: " + blocks);
+      readPage(dir == null ? pre / IO.ENTRIES : dir.find(pre));
     }
     return pre - fpre << IO.NODEPOWER;
   }
@@ -477,7 +642,16 @@ public final class TableDiskAccess extends TableAccess {
   private void setPage(final int p) {
     page = p;
     fpre = fpre(p);
-    npre = p + 1 >= used ? meta.size : fpre(p + 1);
+    npre = dir != null ? fpre + dir.entries(p) : p + 1 >= used ? meta.size : fpre(p + 1);
+  }
+
+  /**
+   * Invalidates the page pointers.
+   */
+  private void invalidate() {
+    page = -1;
+    fpre = -1;
+    npre = -1;
   }
 
   /**
@@ -495,7 +669,7 @@ public final class TableDiskAccess extends TableAccess {
    * @return pre value
    */
   private int page(final int p) {
-    return pages == null ? p : pages[p];
+    return dir == null ? p : dir.block(p);
   }
 
   /**
@@ -504,7 +678,7 @@ public final class TableDiskAccess extends TableAccess {
    * @return pre value
    */
   private int fpre(final int p) {
-    return fpres == null ? p * IO.ENTRIES : fpres[p];
+    return dir == null ? p * IO.ENTRIES : dir.fpre(p);
   }
 
   /**
@@ -520,6 +694,11 @@ public final class TableDiskAccess extends TableAccess {
       bf.pos = b;
       if(b >= blocks) {
         blocks = b + 1;
+      } else if(readers == null) {
+        // reader: positional read, which does not change the position of the shared file
+        final ByteBuffer bb = ByteBuffer.wrap(bf.data);
+        final long pos = (long) b * IO.BLOCKSIZE;
+        while(bb.hasRemaining() && file.getChannel().read(bb, pos + bb.position()) != -1);
       } else {
         file.seek(bf.pos * IO.BLOCKSIZE);
         file.readFully(bf.data);
@@ -530,14 +709,16 @@ public final class TableDiskAccess extends TableAccess {
   }
 
   /**
-   * Moves the cursor to a free block (either new or existing empty one).
+   * Returns the first block that is neither used nor referenced by a snapshot.
+   * @return block
    */
-  private void freeBlock() {
-    final int b = usedPages.nextFree(0);
-    usedPages.set(b);
-    readBlock(b);
-    ++used;
-    ++page;
+  private int free() {
+    int b = usedPages.nextFree(0);
+    final BitArray pnd = pinned;
+    if(pnd != null) {
+      while(pnd.get(b) || usedPages.get(b)) b++;
+    }
+    return b;
   }
 
   /**
@@ -546,22 +727,12 @@ public final class TableDiskAccess extends TableAccess {
    * @throws IOException I/O exception
    */
   private void writeBlock(final Buffer bf) throws IOException {
+    if(wal != null) wal.steal(name, bf.pos * IO.BLOCKSIZE);
     file.seek(bf.pos * IO.BLOCKSIZE);
     file.write(bf.data);
     bf.dirty = false;
   }
 
-  /**
-   * Updates the firstPre index entries.
-   * @param nr number of entries to move
-   */
-  private void updatePre(final int nr) {
-    // update index entries for all following blocks and reduce counter
-    for(int i = page + 1; i < used; ++i) fpres[i] -= nr;
-    meta.size -= nr;
-    npre = page + 1 < used && fpres[page + 1] < meta.size ? fpres[page + 1] : meta.size;
-  }
-
   /**
    * Convenience method for copying blocks.
    * @param s source array
@@ -572,7 +743,7 @@ public final class TableDiskAccess extends TableAccess {
    */
   private void copy(final byte[] s, final int sp, final byte[] d, final int dp, final int l) {
     System.arraycopy(s, sp << IO.NODEPOWER, d, dp << IO.NODEPOWER, l << IO.NODEPOWER);
-    bm.current().dirty = true;
+    dirty(bm.current());
   }
 
   /**
@@ -586,16 +757,7 @@ public final class TableDiskAccess extends TableAccess {
     final Buffer bf = bm.current();
     final int len = Math.min(IO.BLOCKSIZE, s.length - o);
     System.arraycopy(s, o, bf.data, 0, len);
-    bf.dirty = true;
+    dirty(bf);
     return len;
   }
-
-  /**
-   * Calculate the occupied space in a block.
-   * @param i index of the block
-   * @return occupied space in number of records
-   */
-  private int occSpace(final int i) {
-    return (i + 1 < used ? fpres[i + 1] : meta.size) - fpres[i];
-  }
 }
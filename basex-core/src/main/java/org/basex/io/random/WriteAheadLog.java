@@ -0,0 +1,452 @@
+package org.basex.io.random;
+
+import static org.basex.data.DataText.*;
+import static org.basex.util.Token.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.zip.*;
+
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * This class provides a write-ahead log for the files of a database.
+ *
+ * <p>When a transaction is committed, the images of all changed blocks and the new
+ * lengths of the files are appended to the log, which is then synchronized with the
+ * storage device. The database files themselves may be written back later, without
+ * waiting for the device. If a changed block needs to be written to its file before
+ * the transaction is committed (e.g., because its buffer is reused), the original
+ * contents of the block will first be logged. If the database is opened again after a
+ * crash, the uncommitted blocks will be restored, and the committed blocks will be
+ * replayed (see {@link #recover(IOFile)}).</p>
+ *
+ * <p>As the updates of a database are serialized, the log is synchronized once per
+ * transaction. The log is truncated if all files have been synchronized with the
+ * storage device (checkpoint).</p>
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class WriteAheadLog implements AutoCloseable {
+  /** Log size that triggers a checkpoint. */
+  public static final long CHECKPOINT = 1L << 26;
+
+  /** Record: start of a transaction with the original file lengths. */
+  private static final int BEGIN = 1;
+  /** Record: original contents of a block. */
+  private static final int UNDO = 2;
+  /** Record: new contents of a block. */
+  private static final int REDO = 3;
+  /** Record: end of a transaction with the new file lengths. */
+  private static final int COMMIT = 4;
+
+  /** Log file. */
+  private final IOFile file;
+  /** File channel. */
+  private final FileChannel channel;
+  /** Files that are logged in the current transaction. */
+  private final HashMap<String, Target> targets = new HashMap<>();
+  /** New file lengths of the current transaction. */
+  private final HashMap<String, Long> lengths = new HashMap<>();
+
+  /** Number of written bytes. */
+  private long written;
+  /** Indicates if a transaction is active. */
+  private boolean active;
+  /** Indicates if the begin record of the current transaction has been written. */
+  private boolean begun;
+
+  /**
+   * Constructor.
+   * @param dir database directory
+   * @throws IOException I/O exception
+   */
+  public WriteAheadLog(final IOFile dir) throws IOException {
+    file = MetaData.file(dir, DATAWAL);
+    channel = new RandomAccessFile(file.file(), "rw").getChannel();
+    written = channel.size();
+  }
+
+  /**
+   * Starts a new transaction.
+   */
+  public synchronized void begin() {
+    targets.clear();
+    lengths.clear();
+    begun = false;
+    active = true;
+  }
+
+  /**
+   * Ends the current transaction without committing it. Must only be called if all
+   * files will be synchronized and the log will be reset afterwards.
+   */
+  public synchronized void end() {
+    active = false;
+  }
+
+  /**
+   * Indicates if a transaction is active.
+   * @return result of check
+   */
+  public synchronized boolean active() {
+    return active;
+  }
+
+  /**
+   * Returns the size of the log.
+   * @return size in bytes
+   */
+  public synchronized long size() {
+    return written;
+  }
+
+  /**
+   * Registers a file that may be changed by the current transaction.
+   * @param name name of the file
+   * @param raf file reference
+   * @param length logical file length
+   */
+  synchronized void attach(final String name, final RandomAccessFile raf, final long length) {
+    targets.put(name, new Target(raf, length));
+  }
+
+  /**
+   * Called before a changed block is written to its file. If a transaction is active,
+   * the original contents of the block are logged and synchronized.
+   * @param name name of the file
+   * @param pos file offset of the block
+   * @throws IOException I/O exception
+   */
+  synchronized void steal(final String name, final long pos) throws IOException {
+    final Target target = active ? targets.get(name) : null;
+    if(target == null || !target.stolen.add(pos)) return;
+    // blocks beyond the original file length will be truncated by the recovery
+    if(pos >= target.length) return;
+
+    if(!begun) {
+      final HashMap<String, Long> map = new HashMap<>();
+      for(final Map.Entry<String, Target> entry : targets.entrySet()) {
+        map.put(entry.getKey(), entry.getValue().length);
+      }
+      write(BEGIN, lengths(map));
+      begun = true;
+    }
+    write(UNDO, block(name, pos, read(target.raf, pos)));
+    channel.force(false);
+  }
+
+  /**
+   * Logs the new contents of the blocks of a file that have been changed by the current
+   * transaction.
+   * @param name name of the file
+   * @param bm buffers
+   * @param length new logical file length
+   * @param blocks indicates if buffer positions are block numbers
+   * @throws IOException I/O exception
+   */
+  synchronized void log(final String name, final Buffers bm, final long length,
+      final boolean blocks) throws IOException {
+
+    final Target target = targets.get(name);
+    if(target == null) return;
+    // blocks that have already been written to the file
+    for(final long pos : target.stolen) {
+      if(pos < length) write(REDO, block(name, pos, read(target.raf, pos)));
+    }
+    for(final Buffer bf : bm.all()) {
+      if(!bf.dirty) continue;
+      final long pos = blocks ? bf.pos * IO.BLOCKSIZE : bf.pos;
+      final int len = (int) Math.min(IO.BLOCKSIZE, length - pos);
+      if(len > 0) write(REDO, block(name, pos, Arrays.copyOf(bf.data, len)));
+    }
+    lengths.put(name, length);
+  }
+
+  /**
+   * Logs the new contents of a file that is completely rewritten by the current
+   * transaction.
+   * @param name name of the file
+   * @param contents file contents
+   * @throws IOException I/O exception
+   */
+  public synchronized void image(final String name, final byte[] contents)
+      throws IOException {
+    write(REDO, block(name, 0, contents));
+    lengths.put(name, (long) contents.length);
+  }
+
+  /**
+   * Commits the current transaction and synchronizes the log with the storage device.
+   * @throws IOException I/O exception
+   */
+  public synchronized void commit() throws IOException {
+    write(COMMIT, lengths(lengths));
+    channel.force(false);
+    active = false;
+  }
+
+  /**
+   * Resets the log. Must only be called after all files have been synchronized.
+   * @throws IOException I/O exception
+   */
+  public synchronized void reset() throws IOException {
+    channel.truncate(0);
+    channel.force(false);
+    written = 0;
+    active = false;
+  }
+
+  /**
+   * Closes and deletes the log. Must only be called after all files have been
+   * synchronized.
+   */
+  @Override
+  public synchronized void close() {
+    try {
+      channel.close();
+    } catch(final IOException ex) {
+      Util.stack(ex);
+    }
+    file.delete();
+  }
+
+  /**
+   * Appends a record to the log.
+   * @param type record type
+   * @param payload payload
+   * @throws IOException I/O exception
+   */
+  private void write(final int type, final byte[] payload) throws IOException {
+    final int pl = payload.length;
+    final CRC32 crc = new CRC32();
+    crc.update(type);
+    crc.update(payload);
+    final ByteBuffer bb = ByteBuffer.allocate(pl + 9);
+    bb.put((byte) type).putInt(pl).put(payload).putInt((int) crc.getValue()).flip();
+    long pos = written;
+    while(bb.hasRemaining()) pos += channel.write(bb, pos);
+    written = pos;
+  }
+
+  /**
+   * Creates the payload of a block record.
+   * @param name name of the file
+   * @param pos file offset
+   * @param data contents
+   * @return payload
+   */
+  private static byte[] block(final String name, final long pos, final byte[] data) {
+    final byte[] nm = token(name);
+    final ByteBuffer bb = ByteBuffer.allocate(nm.length + data.length + 10);
+    bb.putShort((short) nm.length).put(nm).putLong(pos).put(data);
+    return bb.array();
+  }
+
+  /**
+   * Creates the payload of a record with file lengths.
+   * @param map file names and lengths
+   * @return payload
+   */
+  private static byte[] lengths(final HashMap<String, Long> map) {
+    final TokenList names = new TokenList(map.size());
+    int size = 4;
+    for(final String name : map.keySet()) {
+      final byte[] nm = token(name);
+      names.add(nm);
+      size += nm.length + 10;
+    }
+    final ByteBuffer bb = ByteBuffer.allocate(size).putInt(names.size());
+    for(final byte[] nm : names) {
+      bb.putShort((short) nm.length).put(nm).putLong(map.get(string(nm)));
+    }
+    return bb.array();
+  }
+
+  /**
+   * Reads the current contents of a block from disk.
+   * @param raf file reference
+   * @param pos file offset
+   * @return contents
+   * @throws IOException I/O exception
+   */
+  private static byte[] read(final RandomAccessFile raf, final long pos) throws IOException {
+    final FileChannel fc = raf.getChannel();
+    final int len = (int) Math.max(0, Math.min(IO.BLOCKSIZE, fc.size() - pos));
+    final ByteBuffer bb = ByteBuffer.allocate(len);
+    while(bb.hasRemaining() && fc.read(bb, pos + bb.position()) != -1);
+    return bb.array();
+  }
+
+  // RECOVERY =====================================================================================
+
+  /**
+   * Recovers the files of a database if a log exists. The original contents of all blocks
+   * that have been written by an uncommitted transaction are restored, the blocks of all
+   * committed transactions are replayed, and the files are truncated to their last
+   * committed lengths. Incomplete records at the end of the log are ignored.
+   * @param dir database directory
+   * @throws IOException I/O exception
+   */
+  public static void recover(final IOFile dir) throws IOException {
+    final IOFile log = MetaData.file(dir, DATAWAL);
+    if(!log.exists()) return;
+
+    // parse valid records
+    final ByteBuffer bb = ByteBuffer.wrap(log.read());
+    final ArrayList<Record> records = new ArrayList<>();
+    int committed = 0;
+    while(bb.remaining() >= 9) {
+      final int type = bb.get(), pl = bb.getInt();
+      if(pl < 0 || pl + 4 > bb.remaining()) break;
+      final byte[] payload = new byte[pl];
+      bb.get(payload);
+      final CRC32 crc = new CRC32();
+      crc.update(type);
+      crc.update(payload);
+      if(bb.getInt() != (int) crc.getValue()) break;
+      records.add(new Record(type, payload));
+      if(type == COMMIT) committed = records.size();
+    }
+
+    final HashMap<String, RandomAccessFile> files = new HashMap<>();
+    try {
+      // restore blocks of uncommitted transaction
+      for(int r = records.size() - 1; r >= committed; r--) {
+        final Record rec = records.get(r);
+        if(rec.type == UNDO) rec.write(files, dir);
+      }
+      // replay blocks of committed transactions, assign last known lengths
+      final HashMap<String, Long> lengths = new HashMap<>();
+      for(int r = 0; r < records.size(); r++) {
+        final Record rec = records.get(r);
+        if(rec.type == REDO && r < committed) rec.write(files, dir);
+        else if(rec.type == BEGIN || rec.type == COMMIT) rec.lengths(lengths);
+      }
+      for(final Map.Entry<String, Long> entry : lengths.entrySet()) {
+        file(files, dir, entry.getKey()).setLength(entry.getValue());
+      }
+      for(final RandomAccessFile raf : files.values()) raf.getFD().sync();
+    } finally {
+      for(final RandomAccessFile raf : files.values()) raf.close();
+    }
+    if(!log.delete()) throw new IOException("Log cannot be deleted: " + log);
+  }
+
+  /**
+   * Synchronizes all files of a database directory with the storage device.
+   * @param dir database directory
+   * @throws IOException I/O exception
+   */
+  public static void sync(final IOFile dir) throws IOException {
+    final String wal = MetaData.file(dir, DATAWAL).name();
+    for(final IOFile child : dir.children()) {
+      if(child.isDir() || child.name().equals(wal)) continue;
+      try(final RandomAccessFile raf = new RandomAccessFile(child.file(), "rw")) {
+        raf.getFD().sync();
+      }
+    }
+  }
+
+  /**
+   * Returns a reference to a database file that is restored.
+   * @param files opened files
+   * @param dir database directory
+   * @param name name of the file
+   * @return file reference
+   * @throws IOException I/O exception
+   */
+  private static RandomAccessFile file(final HashMap<String, RandomAccessFile> files,
+      final IOFile dir, final String name) throws IOException {
+    RandomAccessFile raf = files.get(name);
+    if(raf == null) {
+      raf = new RandomAccessFile(new IOFile(dir, name).file(), "rw");
+      files.put(name, raf);
+    }
+    return raf;
+  }
+
+  /**
+   * File that is logged in the current transaction.
+   */
+  private static final class Target {
+    /** File reference. */
+    final RandomAccessFile raf;
+    /** Original logical file length. */
+    final long length;
+    /** Offsets of the blocks that have been written to the file. */
+    final HashSet<Long> stolen = new HashSet<>();
+
+    /**
+     * Constructor.
+     * @param raf file reference
+     * @param length original logical file length
+     */
+    Target(final RandomAccessFile raf, final long length) {
+      this.raf = raf;
+      this.length = length;
+    }
+  }
+
+  /**
+   * Parsed log record.
+   */
+  private static final class Record {
+    /** Record type. */
+    final int type;
+    /** Payload. */
+    final ByteBuffer payload;
+
+    /**
+     * Constructor.
+     * @param type record type
+     * @param payload payload
+     */
+    Record(final int type, final byte[] payload) {
+      this.type = type;
+      this.payload = ByteBuffer.wrap(payload);
+    }
+
+    /**
+     * Writes the contents of a block record to its file.
+     * @param files opened files
+     * @param dir database directory
+     * @throws IOException I/O exception
+     */
+    void write(final HashMap<String, RandomAccessFile> files, final IOFile dir)
+        throws IOException {
+      final String name = name();
+      final long pos = payload.getLong();
+      final RandomAccessFile raf = file(files, dir, name);
+      raf.seek(pos);
+      raf.write(payload.array(), payload.position(), payload.remaining());
+    }
+
+    /**
+     * Adds the file lengths of a begin or commit record to the specified map.
+     * @param lengths file lengths
+     */
+    void lengths(final HashMap<String, Long> lengths) {
+      for(int n = payload.getInt(); n > 0; n--) {
+        final String name = name();
+        lengths.put(name, payload.getLong());
+      }
+    }
+
+    /**
+     * Reads a file name.
+     * @return name
+     */
+    private String name() {
+      final byte[] nm = new byte[payload.getShort()];
+      payload.get(nm);
+      return string(nm);
+    }
+  }
+}
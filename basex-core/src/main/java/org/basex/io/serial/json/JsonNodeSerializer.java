@@ -76,6 +76,8 @@ public final class JsonNodeSerializer extends JsonSerializer {
   protected void serialize(final ANode node) throws IOException {
     final boolean doc = node.type == NodeType.DOC;
     final boolean elm = node.type == NodeType.ELM && eq(JSON, node.name());
+    // top-level nodes of line-delimited output are not separated by commas
+    if(lvl == 0) comma.set(0, false);
     if(custom || doc || elm) {
       final boolean c = custom;
       if(!custom) custom = elm;
@@ -30,6 +30,8 @@ public abstract class JsonSerializer extends OutputSerializer {
   private final boolean escape;
   /** Allow duplicate names. */
   private final boolean nodups;
+  /** Line-delimited output. */
+  private final boolean lines;
 
   /**
    * Constructor.
@@ -42,11 +44,18 @@ public abstract class JsonSerializer extends OutputSerializer {
     jopts = opts.get(SerializerOptions.JSON);
     escape = jopts.get(JsonSerialOptions.ESCAPE);
     nodups = opts.get(SerializerOptions.ALLOW_DUPLICATE_NAMES) == YesNo.NO;
+    lines = jopts.get(JsonOptions.LINES);
+    // values of line-delimited output must not contain newlines
+    if(lines) indent = false;
   }
 
   @Override
   public final void serialize(final Item item) throws IOException {
-    if(sep) throw SERJSON.getIO();
+    if(sep) {
+      // line-delimited output: write each item to a separate line
+      if(!lines || lvl != 0) throw SERJSON.getIO();
+      print('\n');
+    }
     if(lvl == 0) openResult();
 
     try {
@@ -164,7 +173,7 @@ public abstract class JsonSerializer extends OutputSerializer {
 
   @Override
   public void close() throws IOException {
-    if(!sep) print(NULL);
+    if(!sep && !lines) print(NULL);
     super.close();
   }
 }
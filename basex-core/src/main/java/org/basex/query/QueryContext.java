@@ -109,6 +109,8 @@ public final class QueryContext extends Proc implements AutoCloseable {
   public final StringList readLocks = new StringList(0);
   /** Strings to lock defined by lock:write option. */
   public final StringList writeLocks = new StringList(0);
+  /** Databases that are read from snapshots and need not be locked (see {@link #snapshots()}). */
+  private final StringList snapshots = new StringList(0);
 
   /** Number of successive tail calls. */
   public int tailCalls;
@@ -431,6 +433,39 @@ public final class QueryContext extends Proc implements AutoCloseable {
       if(updating) lr.writeAll = true;
       else lr.readAll = true;
     }
+    // databases that are read from snapshots will not be locked
+    for(final String db : snapshots) lr.read.delete(db);
+  }
+
+  /**
+   * Opens snapshots of the databases to be read, provided that the query is not updating,
+   * and that snapshot reads are enabled. Must be called after the query has been parsed, and
+   * while the databases are still read-locked. Afterwards, the locks of the process can be
+   * reacquired via {@link Context#relock}.
+   * @return {@code true} if at least one snapshot was opened
+   */
+  public boolean snapshots() {
+    if(updating || !context.options.get(MainOptions.SNAPSHOT)) return false;
+    final LockResult lr = new LockResult();
+    databases(lr);
+    if(lr.readAll) return false;
+    for(final String db : lr.read) {
+      if(!db.startsWith(DBLocking.PREFIX) && !readLocks.contains(db) && resources.snapshot(db))
+        snapshots.add(db);
+    }
+    return !snapshots.isEmpty();
+  }
+
+  /**
+   * Checks if this context is the specified context, or if it has been derived from it.
+   * @param qc query context
+   * @return result of check
+   */
+  public boolean derived(final QueryContext qc) {
+    for(QueryContext q = this; q != null; q = q.qcParent) {
+      if(q == qc) return true;
+    }
+    return false;
   }
 
   /**
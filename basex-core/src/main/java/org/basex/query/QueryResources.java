@@ -23,7 +23,8 @@ import org.basex.util.list.*;
 
 /**
  * This class provides access to all kinds of resources (databases, documents, database connections,
- * sessions) used by an XQuery expression.
+ * sessions) used by an XQuery expression. Resources may be accessed by parallel tasks
+ * of the same query, so all public access methods are synchronized.
  *
  * @author BaseX Team 2005-15, BSD License
  * @author Christian Gruen
@@ -43,6 +44,8 @@ public final class QueryResources {
   private final ArrayList<Data> datas = new ArrayList<>(1);
   /** Indicates if the first database in the context is globally opened. */
   private boolean globalData;
+  /** Opened databases from which snapshots have been created. */
+  private final IdentityHashMap<Data, Data> snapshots = new IdentityHashMap<>();
 
   /** Module loader. */
   private ModuleLoader modules;
@@ -88,7 +91,7 @@ public final class QueryResources {
    * Adds an external resource.
    * @param ext external resource
    */
-  public void add(final QueryResource ext) {
+  public synchronized void add(final QueryResource ext) {
     external.put(ext.getClass(), ext);
   }
 
@@ -99,7 +102,7 @@ public final class QueryResources {
    * @return resource
    */
   @SuppressWarnings("unchecked")
-  public <R extends QueryResource> R get(final Class<? extends R> resource) {
+  public synchronized <R extends QueryResource> R get(final Class<? extends R> resource) {
     return (R) external.get(resource);
   }
 
@@ -107,7 +110,7 @@ public final class QueryResources {
    * Closes all opened data references that have not been added by the global context.
    */
   void close() {
-    for(final Data data : datas) Close.close(data, qc.context);
+    for(final Data data : datas) close(data);
     datas.clear();
 
     // close dynamically loaded JAR files
@@ -123,7 +126,7 @@ public final class QueryResources {
    * @return database instance
    * @throws QueryException query exception
    */
-  public Data database(final String name, final InputInfo info) throws QueryException {
+  public synchronized Data database(final String name, final InputInfo info) throws QueryException {
     // check if a database with the same name has already been opened
     for(final Data data : datas) {
       if(data.inMemory()) continue;
@@ -139,6 +142,45 @@ public final class QueryResources {
     }
   }
 
+  /**
+   * Opens a snapshot of the specified database, which will then be read without locks.
+   * Must be called while the database is read-locked. If the database has a value or
+   * full-text index, which cannot be used by snapshots, it will be opened and read directly.
+   * @param name name of database
+   * @return {@code true} if a snapshot was opened
+   */
+  synchronized boolean snapshot(final String name) {
+    for(final Data data : datas) {
+      if(data.inMemory()) continue;
+      final String n = data.meta.name;
+      if(Prop.CASE ? n.equals(name) : n.equalsIgnoreCase(name)) return false;
+    }
+    final Context ctx = qc.context;
+    final Data data;
+    try {
+      data = Open.open(name, ctx, ctx.options);
+    } catch(final IOException ex) {
+      // error will be raised when the database is accessed
+      Util.debug(ex);
+      return false;
+    }
+    final MetaData meta = data.meta;
+    if(!(data instanceof DiskData) || meta.textindex || meta.attrindex || meta.ftxtindex) {
+      addData(data);
+      return false;
+    }
+    try {
+      final Data snapshot = ((DiskData) data).snapshot();
+      snapshots.put(snapshot, data);
+      addData(snapshot);
+      return true;
+    } catch(final IOException ex) {
+      Util.debug(ex);
+      addData(data);
+      return false;
+    }
+  }
+
   /**
    * Evaluates {@code fn:doc()}: opens an existing database document, or creates a new
    * database and node.
@@ -148,7 +190,7 @@ public final class QueryResources {
    * @return document
    * @throws QueryException query exception
    */
-  public DBNode doc(final QueryInput qi, final IO baseIO, final InputInfo info)
+  public synchronized DBNode doc(final QueryInput qi, final IO baseIO, final InputInfo info)
       throws QueryException {
 
     // favor default database
@@ -182,7 +224,7 @@ public final class QueryResources {
    * @return collection
    * @throws QueryException query exception
    */
-  public Value collection(final InputInfo info) throws QueryException {
+  public synchronized Value collection(final InputInfo info) throws QueryException {
     if(colls.isEmpty()) throw NODEFCOLL.get(info);
     return colls.get(0);
   }
@@ -196,7 +238,7 @@ public final class QueryResources {
    * @return collection
    * @throws QueryException query exception
    */
-  public Value collection(final QueryInput qi, final IO baseIO, final InputInfo info)
+  public synchronized Value collection(final QueryInput qi, final IO baseIO, final InputInfo info)
       throws QueryException {
 
     // favor default database
@@ -241,7 +283,7 @@ public final class QueryResources {
    * Returns a reference to the updates.
    * @return updates
    */
-  public Updates updates() {
+  public synchronized Updates updates() {
     if(updates == null) updates = new Updates();
     return updates;
   }
@@ -259,12 +301,12 @@ public final class QueryResources {
    * Removes and closes a database if it has not been added by the global context.
    * @param name name of database to be removed
    */
-  public void remove(final String name) {
+  public synchronized void remove(final String name) {
     final int ds = datas.size();
     for(int d = globalData ? 1 : 0; d < ds; d++) {
       final Data data = datas.get(d);
       if(data.meta.name.equals(name)) {
-        Close.close(data, qc.context);
+        close(data);
         datas.remove(d);
         break;
       }
@@ -361,6 +403,21 @@ public final class QueryResources {
     return null;
   }
 
+  /**
+   * Closes a data reference. If the reference is a snapshot, the snapshot and the database
+   * from which it was created will be closed.
+   * @param data data reference
+   */
+  private void close(final Data data) {
+    final Data origin = snapshots.remove(data);
+    if(origin != null) {
+      data.close();
+      Close.close(origin, qc.context);
+    } else {
+      Close.close(data, qc.context);
+    }
+  }
+
   /**
    * Creates a new database instance.
    * @param input query input
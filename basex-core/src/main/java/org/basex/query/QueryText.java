@@ -740,6 +740,8 @@ public interface QueryText {
   byte[] MIN = token("min");
   /** Maximum. */
   byte[] MAX = token("max");
+  /** Query Plan. */
+  byte[] TASKS = token("tasks");
   /** Infinity. */
   byte[] INF = token("inf");
   /** Tailcall. */
@@ -799,6 +801,10 @@ public interface QueryText {
   /** Optimization info. */
   String OPTPRED = "rewriting % to predicate(s)";
   /** Optimization info. */
+  String OPTJOIN = "rewriting % to hash join";
+  /** Optimization info. */
+  String OPTAGGR = "computing % while grouping";
+  /** Optimization info. */
   String OPTCAST = "removing redundant % cast.";
   /** Optimization info. */
   String OPTVAR = "removing variable %";
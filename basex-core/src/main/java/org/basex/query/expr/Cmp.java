@@ -16,7 +16,7 @@ import org.basex.util.*;
  */
 public abstract class Cmp extends Arr {
   /** Collation used for comparisons. */
-  final Collation coll;
+  public final Collation coll;
 
   /**
    * Constructor.
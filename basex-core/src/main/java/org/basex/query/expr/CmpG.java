@@ -269,7 +269,7 @@ public final class CmpG extends Cmp {
    * @return result of check
    * @throws QueryException query exception
    */
-  private boolean eval(final Item it1, final Item it2) throws QueryException {
+  public boolean eval(final Item it1, final Item it2) throws QueryException {
     final Type t1 = it1.type, t2 = it2.type;
     if(!(it1 instanceof FItem || it2 instanceof FItem) &&
         (t1 == t2 || t1.isUntyped() || t2.isUntyped() ||
@@ -278,6 +278,14 @@ public final class CmpG extends Cmp {
     throw diffError(info, it1, it2);
   }
 
+  /**
+   * Checks if this is an equality comparison.
+   * @return result of check
+   */
+  public boolean equality() {
+    return op == OpG.EQ;
+  }
+
   @Override
   public CmpG invert() {
     final Expr e1 = exprs[0], e2 = exprs[1];
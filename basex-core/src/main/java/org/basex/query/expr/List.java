@@ -129,8 +129,20 @@ public final class List extends Arr {
 
   @Override
   public Value value(final QueryContext qc) throws QueryException {
+    // sequences that are extended step by step (e.g.: ($seq, $item) in recursive functions)
+    // are stored in a tree. this way, the items need not be copied in each step
+    final int el = exprs.length;
+    final Value[] values = new Value[el];
+    boolean tree = false;
+    for(int e = 0; e < el; e++) {
+      final Value v = qc.value(exprs[e]);
+      if(v instanceof TreeSeq || exprs[e] instanceof VarRef && TreeSeq.extensible(v)) tree = true;
+      values[e] = v;
+    }
+    if(tree) return TreeSeq.get(values);
+
     final ValueBuilder vb = new ValueBuilder();
-    for(final Expr e : exprs) vb.add(qc.value(e));
+    for(final Value v : values) vb.add(v);
     return vb.value();
   }
 
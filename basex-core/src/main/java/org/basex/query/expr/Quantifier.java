@@ -23,7 +23,7 @@ import org.basex.util.hash.*;
  */
 public final class Quantifier extends Single {
   /** Every flag. */
-  private final boolean every;
+  public final boolean every;
 
   /**
    * Constructor.
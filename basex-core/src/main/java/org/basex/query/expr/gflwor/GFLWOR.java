@@ -1,7 +1,10 @@
 package org.basex.query.expr.gflwor;
 
 import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
 
+import org.basex.core.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.expr.path.*;
@@ -26,9 +29,11 @@ import org.basex.util.hash.*;
  */
 public final class GFLWOR extends ParseExpr {
   /** FLWOR clauses. */
-  private final LinkedList<Clause> clauses;
+  final LinkedList<Clause> clauses;
   /** Return expression. */
   public Expr ret;
+  /** Number of tasks in which the outer for clause will be evaluated in parallel. */
+  private int parallel = 1;
 
   /**
    * Constructor.
@@ -43,7 +48,19 @@ public final class GFLWOR extends ParseExpr {
   }
 
   @Override
-  public Iter iter(final QueryContext qc) {
+  public Iter iter(final QueryContext qc) throws QueryException {
+    // only the outermost expression is evaluated in parallel; nested ones are iterated lazily
+    return parallel > 1 && !ForkJoinTask.inForkJoinPool() ? parallel(qc).iter() :
+      iter(clauses, qc);
+  }
+
+  /**
+   * Returns an iterator for the specified clauses and the return expression.
+   * @param cls clauses
+   * @param qc query context
+   * @return iterator
+   */
+  private Iter iter(final List<Clause> cls, final QueryContext qc) {
     // Start evaluator, doing nothing, once.
     Eval e = new Eval() {
       /** First-evaluation flag. */
@@ -56,7 +73,7 @@ public final class GFLWOR extends ParseExpr {
       }
     };
 
-    for(final Clause cls : clauses) e = cls.eval(e);
+    for(final Clause clause : cls) e = clause.eval(e);
     final Eval ev = e;
 
     return new Iter() {
@@ -81,8 +98,48 @@ public final class GFLWOR extends ParseExpr {
     };
   }
 
+  /**
+   * Partitions the sequence of the outer for clause, evaluates the partitions in parallel
+   * and concatenates the results in order.
+   * @param qc query context
+   * @return resulting value
+   * @throws QueryException query exception
+   */
+  private Value parallel(final QueryContext qc) throws QueryException {
+    final For fst = (For) clauses.getFirst();
+    final Value seq = qc.value(fst.expr);
+    final int ss = (int) seq.size(), ps = Math.min(parallel, ss);
+    final List<Clause> rest = clauses.subList(1, clauses.size());
+    if(ps < 2) {
+      final LinkedList<Clause> cls = new LinkedList<>(rest);
+      cls.addFirst(new For(fst.var, null, null, seq, false, fst.info));
+      return iter(cls, qc).value();
+    }
+
+    final Item[] items = new Item[ss];
+    seq.writeTo(items, 0);
+    final Parallel.Task[] tasks = new Parallel.Task[ps];
+    for(int p = 0; p < ps; p++) {
+      final Value part = Seq.get(Arrays.copyOfRange(items,
+          (int) ((long) ss * p / ps), (int) ((long) ss * (p + 1) / ps)));
+      final LinkedList<Clause> cls = new LinkedList<>(rest);
+      cls.addFirst(new For(fst.var, null, null, part, false, fst.info));
+      tasks[p] = new Parallel.Task() {
+        @Override
+        public Value eval(final QueryContext qctx) throws QueryException {
+          return iter(cls, qctx).value();
+        }
+      };
+    }
+    final ValueBuilder vb = new ValueBuilder();
+    for(final Value value : Parallel.eval(tasks, qc)) vb.add(value);
+    return vb.value();
+  }
+
   @Override
   public Expr compile(final QueryContext qc, final VarScope scp) throws QueryException {
+    final int tasks = qc.context.options.get(MainOptions.QUERYTHREADS);
+    parallel = tasks > 0 ? tasks : Runtime.getRuntime().availableProcessors();
     int i = 0;
     try {
       for(final Clause clause : clauses) {
@@ -225,6 +282,7 @@ public final class GFLWOR extends ParseExpr {
     }
 
     seqType = SeqType.get(ret.seqType().type, size);
+    if(parallel > 1 && !parallelizable()) parallel = 1;
 
     if(clauses.getFirst() instanceof Where) {
       // where A <...> return B  ===>  if(A) then <...> return B else ()
@@ -235,6 +293,24 @@ public final class GFLWOR extends ParseExpr {
     return this;
   }
 
+  /**
+   * Checks if the outer for clause can be partitioned and evaluated in parallel. This is the
+   * case if it has no positional or score variable, if no other clause depends on the order
+   * or number of all tuples, and if the expression has no side effects.
+   * @return result of check
+   */
+  private boolean parallelizable() {
+    final Clause fst = clauses.getFirst();
+    if(!(fst instanceof For)) return false;
+    final For fr = (For) fst;
+    if(fr.pos != null || fr.score != null || fr.empty) return false;
+    for(final Clause clause : clauses) {
+      if(clause instanceof OrderBy || clause instanceof GroupBy || clause instanceof Count)
+        return false;
+    }
+    return !has(Flag.NDT) && !has(Flag.UPD);
+  }
+
   /**
    * Pre-calculates the number of results of this FLWOR expression.
    * @return result size if statically computable, {@code -1} otherwise
@@ -251,6 +327,22 @@ public final class GFLWOR extends ParseExpr {
     return output >= 0 && minMax[1] >= 0 && minMax[0] == minMax[1] ? minMax[1] * output : -1;
   }
 
+  /**
+   * Assigns the maximum number of results that will be requested. If each tuple yields at
+   * least one result, and if the last tuple-filtering clause is an {@code order by} clause,
+   * the remaining tuples will be discarded while sorting.
+   * @param max maximum number of results
+   */
+  public void limit(final long max) {
+    if(max < 1 || ret.seqType().mayBeZero()) return;
+    final Iterator<Clause> iter = clauses.descendingIterator();
+    while(iter.hasNext()) {
+      final Clause clause = iter.next();
+      if(clause instanceof OrderBy) ((OrderBy) clause).limit(max);
+      if(!(clause instanceof Let || clause instanceof Count)) return;
+    }
+  }
+
   /**
    * Tries to convert for clauses that iterate ver a single item into let bindings.
    * @param qc query context
@@ -525,12 +617,26 @@ public final class GFLWOR extends ParseExpr {
         }
 
         final int newPos = insert < 0 ? i : insert;
+        // rewrite comparisons with independent sequences to semi joins
+        final Join semi = Join.get(wh, clauses.subList(0, newPos), qc, scp);
+        if(semi != null) {
+          clauses.set(newPos, semi);
+          changed = true;
+          continue;
+        }
+
         for(int b4 = newPos; --b4 >= 0;) {
           final Clause before = clauses.get(b4);
-          if(before instanceof For && ((For) before).toPredicate(qc, scp, wh.expr)) {
-            clauses.remove(newPos);
-            i--;
-            changed = true;
+          if(before instanceof For) {
+            // rewrite to hash join or predicate
+            final For fr = (For) before;
+            final Join join = Join.get(fr, wh, clauses.subList(0, b4), qc, scp);
+            if(join != null || fr.toPredicate(qc, scp, wh.expr)) {
+              if(join != null) clauses.set(b4, join);
+              clauses.remove(newPos);
+              i--;
+              changed = true;
+            }
           } else if(before instanceof Where) {
             continue;
           }
@@ -713,7 +819,8 @@ public final class GFLWOR extends ParseExpr {
     final ListIterator<Clause> iter = clauses.listIterator(idx);
     while(iter.hasPrevious()) {
       final Clause b4 = iter.previous();
-      if(b4 instanceof For || b4 instanceof Window || b4 instanceof Where) {
+      if(b4 instanceof For || b4 instanceof Window || b4 instanceof Where ||
+          b4 instanceof Join) {
         iter.next();
         while(iter.hasNext()) {
           iter.next();
@@ -730,7 +837,9 @@ public final class GFLWOR extends ParseExpr {
   public Expr copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
     final LinkedList<Clause> cls = new LinkedList<>();
     for(final Clause clause : clauses) cls.add(clause.copy(qc, scp, vs));
-    return copyType(new GFLWOR(info, cls, ret.copy(qc, scp, vs)));
+    final GFLWOR gflwor = new GFLWOR(info, cls, ret.copy(qc, scp, vs));
+    gflwor.parallel = parallel;
+    return copyType(gflwor);
   }
 
   /**
@@ -782,7 +891,7 @@ public final class GFLWOR extends ParseExpr {
 
   @Override
   public void plan(final FElem plan) {
-    final FElem e = planElem();
+    final FElem e = planElem(QueryText.TASKS, parallel > 1 ? parallel : null);
     for(final Clause clause : clauses) clause.plan(e);
     ret.plan(e);
     plan.add(e);
@@ -820,7 +929,7 @@ public final class GFLWOR extends ParseExpr {
    */
   public abstract static class Clause extends ParseExpr {
     /** All variables declared in this clause. */
-    final Var[] vars;
+    Var[] vars;
     /**
      * Constructor.
      * @param info input info
@@ -1,15 +1,24 @@
 package org.basex.query.expr.gflwor;
 
+import static org.basex.query.QueryError.*;
 import static org.basex.query.QueryText.*;
 
+import java.io.*;
 import java.util.*;
 
+import org.basex.core.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.expr.gflwor.GFLWOR.Eval;
+import org.basex.query.func.*;
+import org.basex.query.func.fn.*;
 import org.basex.query.iter.*;
 import org.basex.query.util.*;
 import org.basex.query.util.collation.*;
+import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.seq.*;
@@ -26,12 +35,19 @@ import org.basex.util.hash.*;
  * @author Leo Woerteler
  */
 public final class GroupBy extends GFLWOR.Clause {
+  /** Number of bits used for choosing the partition of a spilled group. */
+  private static final int PARTBITS = 4;
+  /** Number of partitions for spilled groups. */
+  private static final int PARTS = 1 << PARTBITS;
+
   /** Grouping specs. */
   private final Spec[] specs;
   /** Non-grouping variable expressions. */
   private Expr[] preExpr;
   /** Non-grouping variables. */
   private Var[] post;
+  /** Aggregation functions of the non-grouping variables ({@code null}: collect values). */
+  private Function[] funcs;
   /** Number of non-occluded grouping variables. */
   private final int nonOcc;
 
@@ -48,6 +64,8 @@ public final class GroupBy extends GFLWOR.Clause {
     this.post = post;
     preExpr = new Expr[pre.length];
     System.arraycopy(pre, 0, preExpr, 0, pre.length);
+    funcs = new Function[pre.length];
+    for(final Var var : post) var.group = this;
     int n = 0;
     for(final Spec spec : specs) if(!spec.occluded) n++;
     nonOcc = n;
@@ -58,16 +76,22 @@ public final class GroupBy extends GFLWOR.Clause {
    * @param specs grouping specs
    * @param pre pre-grouping expressions
    * @param post post-grouping variables
+   * @param funcs aggregation functions
    * @param nonOcc number of non-occluded grouping variables
    * @param info input info
    */
-  private GroupBy(final Spec[] specs, final Expr[] pre, final Var[] post, final int nonOcc,
-      final InputInfo info) {
+  private GroupBy(final Spec[] specs, final Expr[] pre, final Var[] post,
+      final Function[] funcs, final int nonOcc, final InputInfo info) {
     super(info, vars(specs, post));
     this.specs = specs;
     preExpr = pre;
     this.post = post;
+    this.funcs = funcs;
     this.nonOcc = nonOcc;
+    final int pl = post.length;
+    for(int p = 0; p < pl; p++) {
+      if(funcs[p] == null) post[p].group = this;
+    }
   }
 
   /**
@@ -91,11 +115,17 @@ public final class GroupBy extends GFLWOR.Clause {
       private Group[] groups;
       /** Current position. */
       private int pos;
+      /** Partitions of spilled groups ({@code null} if no groups were written to disk). */
+      private Partitions parts;
 
       @Override
       public boolean next(final QueryContext qc) throws QueryException {
         if(groups == null) groups = init(qc);
-        if(pos == groups.length) return false;
+        while(pos == groups.length) {
+          // proceed with the groups of the next partition
+          if(parts == null || (groups = parts.next(qc)) == null) return false;
+          pos = 0;
+        }
 
         final Group curr = groups[pos];
         // be nice to the garbage collector
@@ -109,96 +139,108 @@ public final class GroupBy extends GFLWOR.Clause {
           }
         }
         final int pl = post.length;
-        for(int i = 0; i < pl; i++) qc.set(post[i], curr.ngv[i].value(), info);
+        for(int i = 0; i < pl; i++) qc.set(post[i], curr.value(i), info);
         return true;
       }
 
       /**
        * Builds up the groups.
        * @param qc query context
+       * @return groups
        * @throws QueryException query exception
        */
       private Group[] init(final QueryContext qc) throws QueryException {
-        final ArrayList<Group> grps = new ArrayList<>();
-        final IntObjMap<Group> map = new IntObjMap<>();
-        final Collation[] colls = new Collation[nonOcc];
-        int c = 0;
-        for(final Spec spec : specs) {
-          if(!spec.occluded) colls[c++] = spec.coll;
-        }
+        final int splitSize = qc.context.options.get(MainOptions.GROUPSPLITSIZE);
+        boolean spillable = splitSize > 0;
+        Groups grps = new Groups();
 
         while(sub.next(qc)) {
           final Item[] key = new Item[nonOcc];
-          int p = 0, hash = 1;
+          int p = 0;
           for(final Spec spec : specs) {
             final Item atom = spec.atomItem(qc, info);
-            if(!spec.occluded) {
-              key[p++] = atom;
-              // If the values are compared using a special collation, we let them collide
-              // here and let the comparison do all the work later.
-              // This enables other non-collation specs to avoid the collision.
-              hash = 31 * hash + (atom == null || spec.coll != null ? 0 : atom.hash(info));
-            }
+            if(!spec.occluded) key[p++] = atom;
             qc.set(spec.var, atom == null ? Empty.SEQ : atom, info);
           }
 
-          // find the group for this key
-          final Group fst;
-          Group grp = null;
-          // no collations, so we can use hashing
-          for(Group g = fst = map.get(hash); g != null; g = g.next) {
-            if(eq(key, g.key, colls)) {
-              grp = g;
-              break;
-            }
-          }
-
+          // add values of non-grouping variables to the group
+          final Group grp = grps.get(key, hash(key));
           final int pl = preExpr.length;
-          if(grp == null) {
-            // new group, add it to the list
-            final ValueBuilder[] ngs = new ValueBuilder[pl];
-            final int nl = ngs.length;
-            for(int n = 0; n < nl; n++) ngs[n] = new ValueBuilder();
-            grp = new Group(key, ngs);
-            grps.add(grp);
-
-            // insert the group into the hash table
-            if(fst == null) {
-              map.put(hash, grp);
-            } else {
-              final Group nxt = fst.next;
-              fst.next = grp;
-              grp.next = nxt;
+          for(int g = 0; g < pl; g++) grp.add(g, preExpr[g].value(qc), false);
+
+          // write groups to disk if the maximum number of groups is exceeded
+          if(spillable && grps.size() > splitSize) {
+            spillable = grps.spillable();
+            if(spillable) {
+              if(parts == null) parts = new Partitions(qc);
+              parts.write(grps);
+              grps = new Groups();
             }
           }
-
-          // add values of non-grouping variables to the group
-          for(int g = 0; g < pl; g++) grp.ngv[g].add(preExpr[g].value(qc));
         }
+        if(parts == null) return grps.toArray();
 
-        // we're finished, copy the array so the list can be garbage-collected
-        return grps.toArray(new Group[grps.size()]);
+        parts.write(grps);
+        parts.finish();
+        return new Group[0];
       }
     };
   }
 
   /**
-   * Checks two keys for equality.
-   * @param its1 first keys
-   * @param its2 second keys
-   * @param coll collations
-   * @return {@code true} if the compare as equal, {@code false} otherwise
+   * Computes the hash value of a grouping key.
+   * @param key grouping key
+   * @return hash value
+   * @throws QueryException query exception
+   */
+  private int hash(final Item[] key) throws QueryException {
+    int hash = 1, k = 0;
+    for(final Spec spec : specs) {
+      if(spec.occluded) continue;
+      final Item atom = key[k++];
+      // If the values are compared using a special collation, we let them collide
+      // here and let the comparison do all the work later.
+      // This enables other non-collation specs to avoid the collision.
+      hash = 31 * hash + (atom == null || spec.coll != null ? 0 : atom.hash(info));
+    }
+    return hash;
+  }
+
+  /**
+   * Returns a reference to a non-grouping variable that is bound to the result of the
+   * specified aggregation function. If the function is applied to another non-grouping
+   * variable of this clause, the result can be computed while the groups are built,
+   * and the values of the original variable need not be materialized.
+   * @param call function call ({@link Function#COUNT} or {@link Function#SUM})
+   * @param qc query context
+   * @param scp variable scope
+   * @return variable reference or the original call
    * @throws QueryException query exception
    */
-  private boolean eq(final Item[] its1, final Item[] its2, final Collation[] coll)
+  public Expr aggregate(final StandardFunc call, final QueryContext qc, final VarScope scp)
       throws QueryException {
 
-    final int il = its1.length;
-    for(int i = 0; i < il; i++) {
-      final Item it1 = its1[i], it2 = its2[i];
-      if(it1 == null ^ it2 == null || it1 != null && !it1.equiv(it2, coll[i], info)) return false;
+    final Function func = call.func;
+    final Var var = ((VarRef) call.exprs[0]).var;
+    final int pl = post.length;
+    int p = 0;
+    while(p < pl && !post[p].is(var)) p++;
+    // sums of non-numeric values may raise errors: only compute them in advance for numbers
+    if(p == pl || func == Function.SUM && !preExpr[p].seqType().type.isNumber()) return call;
+
+    qc.compInfo(OPTAGGR, call);
+    for(int a = 0; a < pl; a++) {
+      if(funcs[a] == func && preExpr[a].sameAs(preExpr[p])) {
+        return new VarRef(call.info, post[a]).optimize(qc, scp);
+      }
     }
-    return true;
+    final Var v = scp.newLocal(qc, var.name, null, false);
+    v.refineType(call.seqType(), qc, info);
+    preExpr = Array.add(preExpr, preExpr[p].copy(qc, scp, new IntObjMap<Var>()));
+    post = Array.add(post, v);
+    funcs = Array.add(funcs, func);
+    vars = vars(specs, post);
+    return new VarRef(call.info, v).optimize(qc, scp);
   }
 
   @Override
@@ -218,6 +260,7 @@ public final class GroupBy extends GFLWOR.Clause {
   public GroupBy optimize(final QueryContext qc, final VarScope scp) throws QueryException {
     final int pl = preExpr.length;
     for(int p = 0; p < pl; p++) {
+      if(funcs[p] != null) continue;
       final SeqType it = preExpr[p].seqType();
       post[p].refineType(it.withOcc(it.mayBeZero() ? Occ.ZERO_MORE : Occ.ONE_MORE), qc, info);
     }
@@ -257,7 +300,7 @@ public final class GroupBy extends GFLWOR.Clause {
     }
 
     // done
-    return new GroupBy(Arr.copyAll(qc, scp, vs, specs), pEx, ps, nonOcc, info);
+    return new GroupBy(Arr.copyAll(qc, scp, vs, specs), pEx, ps, funcs.clone(), nonOcc, info);
   }
 
   @Override
@@ -270,15 +313,17 @@ public final class GroupBy extends GFLWOR.Clause {
 
   @Override
   boolean clean(final IntObjMap<Var> decl, final BitArray used) {
-    // [LW] does not fix {@link #vars}
     final int len = preExpr.length;
     for(int p = 0; p < post.length; p++) {
       if(!used.get(post[p].id)) {
         preExpr = Array.delete(preExpr, p);
+        funcs = Array.delete(funcs, p);
         post = Array.delete(post, p--);
       }
     }
-    return preExpr.length < len;
+    if(preExpr.length == len) return false;
+    vars = vars(specs, post);
+    return true;
   }
 
   @Override
@@ -318,7 +363,10 @@ public final class GroupBy extends GFLWOR.Clause {
     final int pl = post.length;
     for(int p = 0; p < pl; p++) {
       sb.append(LET).append(" (: post-group :) ").append(post[p]);
-      sb.append(' ').append(ASSIGN).append(' ').append(preExpr[p]).append(' ');
+      sb.append(' ').append(ASSIGN).append(' ');
+      if(funcs[p] == null) sb.append(preExpr[p]);
+      else sb.append(funcs[p].args(preExpr[p]));
+      sb.append(' ');
     }
     sb.append(GROUP).append(' ').append(BY);
     final int sl = specs.length;
@@ -395,28 +443,266 @@ public final class GroupBy extends GFLWOR.Clause {
     }
   }
 
+  /**
+   * Checks two keys for equality.
+   * @param its1 first keys
+   * @param its2 second keys
+   * @return {@code true} if the compare as equal, {@code false} otherwise
+   * @throws QueryException query exception
+   */
+  private boolean eq(final Item[] its1, final Item[] its2) throws QueryException {
+    int i = 0;
+    for(final Spec spec : specs) {
+      if(spec.occluded) continue;
+      final Item it1 = its1[i], it2 = its2[i++];
+      if(it1 == null ^ it2 == null || it1 != null && !it1.equiv(it2, spec.coll, info)) return false;
+    }
+    return true;
+  }
+
   /**
    * A group of tuples of post-grouping variables.
    *
    * @author BaseX Team 2005-15, BSD License
    * @author Leo Woerteler
    */
-  private static final class Group {
+  private final class Group {
     /** Grouping key, may contain {@code null} values. */
     final Item[] key;
-    /** Non-grouping variables. */
+    /** Hash value of the grouping key. */
+    final int hash;
+    /** Values of non-grouping variables ({@code null} for aggregated variables). */
     final ValueBuilder[] ngv;
+    /** Aggregated values of non-grouping variables. */
+    final Item[] aggr;
     /** Overflow list. */
     Group next;
 
     /**
      * Constructor.
-     * @param k grouping key
-     * @param ng non-grouping variables
+     * @param key grouping key
+     * @param hash hash value of the grouping key
+     */
+    Group(final Item[] key, final int hash) {
+      this.key = key;
+      this.hash = hash;
+      final int pl = post.length;
+      ngv = new ValueBuilder[pl];
+      aggr = new Item[pl];
+      for(int p = 0; p < pl; p++) {
+        if(funcs[p] == null) ngv[p] = new ValueBuilder();
+      }
+    }
+
+    /**
+     * Adds a value to a non-grouping variable.
+     * @param p index of the variable
+     * @param value value to be added
+     * @param partial indicates if the value is a partial result of an aggregation
+     * @throws QueryException query exception
+     */
+    void add(final int p, final Value value, final boolean partial) throws QueryException {
+      final Function func = funcs[p];
+      if(func == null) {
+        ngv[p].add(value);
+      } else if(func == Function.COUNT) {
+        final long c = partial ? ((Item) value).itr(info) : value.size();
+        aggr[p] = Int.get(aggr[p] == null ? c : aggr[p].itr(info) + c);
+      } else {
+        for(final Item it : value) aggr[p] = FnSum.add(aggr[p], it, info);
+      }
+    }
+
+    /**
+     * Returns the value of a non-grouping variable.
+     * @param p index of the variable
+     * @return value
+     */
+    Value value(final int p) {
+      return ngv[p] != null ? ngv[p].value() : aggr[p] != null ? aggr[p] : Int.get(0);
+    }
+
+    /**
+     * Returns the value of a non-grouping variable, or a partial result of its aggregation.
+     * @param p index of the variable
+     * @return value
+     */
+    Value partial(final int p) {
+      return ngv[p] != null ? ngv[p].value() : aggr[p] != null ? aggr[p] : Empty.SEQ;
+    }
+
+    /**
+     * Checks if the group can be written to disk.
+     * @return result of check
+     */
+    boolean spillable() {
+      if(!Spill.spillable(key) || !Spill.spillable(aggr)) return false;
+      for(final ValueBuilder vb : ngv) {
+        if(vb == null) continue;
+        final long vs = vb.size();
+        for(long v = 0; v < vs; v++) if(!Spill.spillable(vb.get(v))) return false;
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Hash table with groups.
+   */
+  private final class Groups {
+    /** Groups, in the order in which they were created. */
+    private final ArrayList<Group> list = new ArrayList<>();
+    /** Groups, indexed by the hash values of their keys. */
+    private final IntObjMap<Group> map = new IntObjMap<>();
+
+    /**
+     * Returns the group for the specified key. A new group is created if none exists.
+     * @param key grouping key
+     * @param hash hash value of the key
+     * @return group
+     * @throws QueryException query exception
+     */
+    Group get(final Item[] key, final int hash) throws QueryException {
+      final Group fst = map.get(hash);
+      for(Group g = fst; g != null; g = g.next) {
+        if(eq(key, g.key)) return g;
+      }
+
+      // new group, add it to the list
+      final Group grp = new Group(key, hash);
+      list.add(grp);
+      // insert the group into the hash table
+      if(fst == null) {
+        map.put(hash, grp);
+      } else {
+        grp.next = fst.next;
+        fst.next = grp;
+      }
+      return grp;
+    }
+
+    /**
+     * Returns the number of groups.
+     * @return number of groups
+     */
+    int size() {
+      return list.size();
+    }
+
+    /**
+     * Checks if all groups can be written to disk.
+     * @return result of check
+     */
+    boolean spillable() {
+      for(final Group grp : list) if(!grp.spillable()) return false;
+      return true;
+    }
+
+    /**
+     * Returns all groups.
+     * @return groups
+     */
+    Group[] toArray() {
+      return list.toArray(new Group[list.size()]);
+    }
+  }
+
+  /**
+   * Groups that have been written to disk. The groups are distributed to partitions by the
+   * hash values of their keys. Groups with the same key that have been written at different
+   * times will end up in the same partition, and they are merged when the partition is read.
+   */
+  private final class Partitions {
+    /** Temporary storage. */
+    private final Spill spill;
+    /** Files of the partitions. */
+    private final IOFile[] files = new IOFile[PARTS];
+    /** Output streams of the partitions. */
+    private final DataOutput[] outs = new DataOutput[PARTS];
+    /** Number of groups that have been written to the partitions. */
+    private final int[] sizes = new int[PARTS];
+    /** Next partition to be read. */
+    private int part;
+
+    /**
+     * Constructor.
+     * @param qc query context
      */
-    Group(final Item[] k, final ValueBuilder[] ng) {
-      key = k;
-      ngv = ng;
+    Partitions(final QueryContext qc) {
+      spill = new Spill(qc, info);
+    }
+
+    /**
+     * Writes groups to the partitions.
+     * @param grps groups
+     * @throws QueryException query exception
+     */
+    void write(final Groups grps) throws QueryException {
+      final int pl = post.length;
+      try {
+        for(final Group grp : grps.list) {
+          // choose partition by the upper bits of the spread hash value
+          final int p = grp.hash * 0x9E3779B9 >>> 32 - PARTBITS;
+          if(outs[p] == null) {
+            files[p] = spill.file();
+            outs[p] = new DataOutput(files[p]);
+          }
+          final DataOutput out = outs[p];
+          for(final Item it : grp.key) spill.write(out, it);
+          for(int v = 0; v < pl; v++) spill.write(out, grp.partial(v));
+          sizes[p]++;
+        }
+      } catch(final IOException ex) {
+        throw IOERR_X.get(info, ex);
+      }
+    }
+
+    /**
+     * Finishes writing.
+     * @throws QueryException query exception
+     */
+    void finish() throws QueryException {
+      try {
+        for(final DataOutput out : outs) if(out != null) out.close();
+      } catch(final IOException ex) {
+        throw IOERR_X.get(info, ex);
+      }
+    }
+
+    /**
+     * Reads the groups of the next partition.
+     * @param qc query context
+     * @return groups, or {@code null} if all partitions have been read
+     * @throws QueryException query exception
+     */
+    Group[] next(final QueryContext qc) throws QueryException {
+      final int pl = post.length;
+      while(part < PARTS) {
+        final IOFile file = files[part];
+        final int size = sizes[part++];
+        if(file == null) continue;
+
+        final Groups grps = new Groups();
+        try {
+          final DataInput in = new DataInput(file);
+          try {
+            for(int s = 0; s < size; s++) {
+              qc.checkStop();
+              final Item[] key = new Item[nonOcc];
+              for(int k = 0; k < nonOcc; k++) key[k] = spill.read(in);
+              final Group grp = grps.get(key, hash(key));
+              for(int v = 0; v < pl; v++) grp.add(v, spill.readValue(in), true);
+            }
+          } finally {
+            in.close();
+          }
+        } catch(final IOException ex) {
+          throw IOERR_X.get(info, ex);
+        }
+        file.delete();
+        return grps.toArray();
+      }
+      return null;
     }
   }
 }
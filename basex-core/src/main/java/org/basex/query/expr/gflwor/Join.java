@@ -0,0 +1,646 @@
+package org.basex.query.expr.gflwor;
+
+import static org.basex.query.QueryText.*;
+
+import java.util.List;
+
+import org.basex.data.*;
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.expr.gflwor.GFLWOR.Clause;
+import org.basex.query.expr.gflwor.GFLWOR.Eval;
+import org.basex.query.expr.path.*;
+import org.basex.query.func.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.type.*;
+import org.basex.query.value.type.SeqType.Occ;
+import org.basex.query.var.*;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * FLWOR hash join. This clause is created by the optimizer for equality comparisons between
+ * the tuple stream and a sequence that is independent of the loop variables:
+ * <ul>
+ *   <li>{@code for $a in X for $b in Y where $a/@id = $b/@ref} (join),</li>
+ *   <li>{@code where some $b in Y satisfies $a/@id = $b/@ref},
+ *       {@code where exists(Y[@ref = $a/@id])} and {@code where $a/@id = Y} (semi join).</li>
+ * </ul>
+ * The independent sequence is evaluated once, and its comparison keys are indexed in
+ * hash tables. The keys of each incoming tuple are then looked up in these tables.
+ * All candidates are verified with the semantics of the general comparison. Strings that
+ * are compared with a collation, and atomic items other than strings and numbers are
+ * compared sequentially. If an item cannot be compared with the keys of another hash
+ * table, it is compared with one of these keys to raise the error of the comparison.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class Join extends Clause {
+  /** Variable bound to the items of the independent sequence ({@code null}: context item). */
+  private final Var var;
+  /** Independent sequence. */
+  private Expr expr;
+  /** Key expression ({@code null}: the items of the sequence are the keys). */
+  private Expr key;
+  /** Probe expression, evaluated for each tuple. */
+  private Expr probe;
+  /** Original comparison. */
+  private final CmpG cmp;
+  /** Indicates if the probe expression is the first operand of the comparison. */
+  private final boolean first;
+  /** Semi join (tuples will only be filtered; no variable will be bound). */
+  private final boolean semi;
+
+  /**
+   * Constructor.
+   * @param var variable ({@code null}: context item)
+   * @param expr independent sequence
+   * @param key key expression ({@code null}: items of the sequence)
+   * @param probe probe expression
+   * @param cmp original comparison
+   * @param first indicates if the probe expression is the first operand
+   * @param semi semi join
+   * @param info input info
+   */
+  private Join(final Var var, final Expr expr, final Expr key, final Expr probe, final CmpG cmp,
+      final boolean first, final boolean semi, final InputInfo info) {
+    super(info, semi ? new Var[0] : new Var[] { var });
+    this.var = var;
+    this.expr = expr;
+    this.key = key;
+    this.probe = probe;
+    this.cmp = cmp;
+    this.first = first;
+    this.semi = semi;
+  }
+
+  /**
+   * Tries to rewrite a for clause and a subsequent where clause to a join.
+   * @param fr for clause
+   * @param wh where clause
+   * @param before clauses preceding the for clause
+   * @param qc query context
+   * @param scp variable scope
+   * @return join or {@code null}
+   * @throws QueryException query exception
+   */
+  static Join get(final For fr, final Where wh, final List<Clause> before,
+      final QueryContext qc, final VarScope scp) throws QueryException {
+
+    if(fr.pos != null || fr.score != null || fr.empty || !loop(before) ||
+        !independent(fr.expr, before) || indexed(fr.expr) || !equality(wh.expr)) return null;
+
+    final CmpG cm = (CmpG) wh.expr;
+    for(int k = 0; k < 2; k++) {
+      final Expr ky = cm.exprs[k], pr = cm.exprs[k ^ 1];
+      if(ky.uses(fr.var) && independent(ky, before) && !pr.uses(fr.var) &&
+          dependent(pr, before)) {
+        qc.compInfo(OPTJOIN, cm);
+        return new Join(fr.var, fr.expr, ky, pr, cm, k == 1, false, fr.info).optimize(qc, scp);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Tries to rewrite a where clause to a semi join.
+   * @param wh where clause
+   * @param before clauses preceding the where clause
+   * @param qc query context
+   * @param scp variable scope
+   * @return join or {@code null}
+   * @throws QueryException query exception
+   */
+  static Join get(final Where wh, final List<Clause> before, final QueryContext qc,
+      final VarScope scp) throws QueryException {
+
+    if(!loop(before)) return null;
+    final Expr ex = wh.expr;
+    Join join = null;
+    if(equality(ex)) {
+      // where $a/@id = Y
+      int b = before.size();
+      while(--b >= 0 && before.get(b) instanceof Where);
+      final Clause cl = before.get(b);
+      if(cl instanceof For && indexed(((For) cl).expr)) return null;
+
+      final CmpG cm = (CmpG) ex;
+      for(int k = 0; k < 2 && join == null; k++) {
+        final Expr ky = cm.exprs[k], pr = cm.exprs[k ^ 1];
+        if(!ky.seqType().zeroOrOne() && independent(ky, before) && dependent(pr, before))
+          join = new Join(null, ky, null, pr, cm, k == 1, true, wh.info);
+      }
+    } else if(ex instanceof Quantifier && !((Quantifier) ex).every) {
+      // where some $b in Y satisfies $a/@id = $b/@ref
+      final Expr sat = ((Quantifier) ex).expr;
+      if(!(sat instanceof GFLWOR)) return null;
+      final GFLWOR gflwor = (GFLWOR) sat;
+      if(gflwor.clauses.size() != 1 || !(gflwor.clauses.getFirst() instanceof For) ||
+          !equality(gflwor.ret)) return null;
+      final For fr = (For) gflwor.clauses.getFirst();
+      if(fr.pos != null || fr.score != null || fr.empty || !independent(fr.expr, before))
+        return null;
+
+      final CmpG cm = (CmpG) gflwor.ret;
+      for(int k = 0; k < 2 && join == null; k++) {
+        final Expr ky = cm.exprs[k], pr = cm.exprs[k ^ 1];
+        if(ky.uses(fr.var) && independent(ky, before) && !pr.uses(fr.var) &&
+            dependent(pr, before)) join = new Join(fr.var, fr.expr, ky, pr, cm, k == 1, true,
+            wh.info);
+      }
+    } else {
+      // where exists(Y[@ref = $a/@id])
+      final boolean exists = ex.isFunction(Function.EXISTS);
+      final Expr flt = exists ? ((Arr) ex).exprs[0] : ex;
+      if(!(flt instanceof Filter)) return null;
+      final Filter filter = (Filter) flt;
+      if(!exists && !(filter.root.seqType().type instanceof NodeType) ||
+          filter.preds.length != 1 || !equality(filter.preds[0]) ||
+          !independent(filter.root, before)) return null;
+
+      final CmpG cm = (CmpG) filter.preds[0];
+      for(int k = 0; k < 2 && join == null; k++) {
+        final Expr ky = cm.exprs[k], pr = cm.exprs[k ^ 1];
+        if(ky.has(Flag.CTX) && !ky.has(Flag.FCS) && independent(ky, before) &&
+            !pr.has(Flag.CTX) && !pr.has(Flag.FCS) && dependent(pr, before))
+          join = new Join(null, filter.root, ky, pr, cm, k == 1, true, wh.info);
+      }
+    }
+    if(join == null) return null;
+    qc.compInfo(OPTJOIN, ex);
+    return join.optimize(qc, scp);
+  }
+
+  /**
+   * Checks if the specified expression is an equality comparison that can be rewritten.
+   * @param ex expression
+   * @return result of check
+   */
+  private static boolean equality(final Expr ex) {
+    return ex instanceof CmpG && ((CmpG) ex).equality() && !ex.has(Flag.NDT) &&
+        !ex.has(Flag.UPD);
+  }
+
+  /**
+   * Checks if the preceding clauses contain a loop.
+   * @param before preceding clauses
+   * @return result of check
+   */
+  private static boolean loop(final List<Clause> before) {
+    for(final Clause cl : before) if(cl instanceof For || cl instanceof Window) return true;
+    return false;
+  }
+
+  /**
+   * Checks if the specified expression can be evaluated once. This is the case if it is
+   * deterministic, does not construct nodes, and if it only references variables that are
+   * declared before the first loop.
+   * @param ex expression
+   * @param before preceding clauses
+   * @return result of check
+   */
+  private static boolean independent(final Expr ex, final List<Clause> before) {
+    if(ex.has(Flag.NDT) || ex.has(Flag.CNS) || ex.has(Flag.UPD)) return false;
+    boolean once = true;
+    for(final Clause cl : before) {
+      if(cl instanceof For || cl instanceof Window) once = false;
+      if(!once) for(final Var v : cl.vars) if(ex.uses(v)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Checks if the specified expression references variables of the preceding clauses.
+   * @param ex expression
+   * @param before preceding clauses
+   * @return result of check
+   */
+  private static boolean dependent(final Expr ex, final List<Clause> before) {
+    for(final Clause cl : before) for(final Var v : cl.vars) if(ex.uses(v)) return true;
+    return false;
+  }
+
+  /**
+   * Checks if the specified expression refers to a database with value indexes.
+   * In this case, the rewriting of comparisons to predicates will lead to index access.
+   * @param ex expression
+   * @return result of check
+   */
+  private static boolean indexed(final Expr ex) {
+    final Data data = ex.data();
+    return data != null && (data.meta.textindex || data.meta.attrindex);
+  }
+
+  @Override
+  Eval eval(final Eval sub) {
+    return new Eval() {
+      /** Hash table (created with the first tuple). */
+      private Table table;
+      /** Positions of the items matching the current tuple. */
+      private IntList matches;
+      /** Current match. */
+      private int m;
+
+      @Override
+      public boolean next(final QueryContext qc) throws QueryException {
+        while(true) {
+          if(matches != null && m < matches.size()) {
+            qc.set(var, table.items.itemAt(matches.get(m++)), info);
+            return true;
+          }
+          if(!sub.next(qc)) return false;
+          if(table == null) table = new Table(qc);
+          if(semi) {
+            if(table.matches(qc, null)) return true;
+          } else {
+            matches = new IntList();
+            table.matches(qc, matches);
+            if(matches.size() > 1) matches.sort().distinct();
+            m = 0;
+          }
+        }
+      }
+    };
+  }
+
+  @Override
+  public Join compile(final QueryContext qc, final VarScope scp) throws QueryException {
+    expr = expr.compile(qc, scp);
+    probe = probe.compile(qc, scp);
+    if(key != null) {
+      final Value cv = focus(qc);
+      try {
+        key = key.compile(qc, scp);
+      } finally {
+        qc.value = cv;
+      }
+    }
+    return optimize(qc, scp);
+  }
+
+  @Override
+  public Join optimize(final QueryContext qc, final VarScope scp) throws QueryException {
+    if(var != null) {
+      seqType = SeqType.get(expr.seqType().type, Occ.ONE);
+      var.refineType(seqType, qc, info);
+      var.size = 1;
+      var.data = expr.data();
+    }
+    return this;
+  }
+
+  @Override
+  public boolean has(final Flag flag) {
+    return expr.has(flag) || probe.has(flag) || key != null &&
+        (var != null || flag != Flag.CTX && flag != Flag.FCS) && key.has(flag);
+  }
+
+  @Override
+  public boolean removable(final Var v) {
+    return expr.removable(v) && probe.removable(v) &&
+        (key == null || (var != null ? key.removable(v) : !key.uses(v)));
+  }
+
+  @Override
+  public VarUsage count(final Var v) {
+    final VarUsage uses = VarUsage.sum(v, expr, probe);
+    return key == null ? uses : uses.plus(key.count(v).times(-1));
+  }
+
+  @Override
+  public Clause inline(final QueryContext qc, final VarScope scp, final Var v, final Expr ex)
+      throws QueryException {
+
+    final Expr e = expr.inline(qc, scp, v, ex), p = probe.inline(qc, scp, v, ex);
+    Expr k = null;
+    if(key != null) {
+      final Value cv = focus(qc);
+      try {
+        k = key.inline(qc, scp, v, ex);
+      } finally {
+        qc.value = cv;
+      }
+    }
+    if(e == null && p == null && k == null) return null;
+    if(e != null) expr = e;
+    if(p != null) probe = p;
+    if(k != null) key = k;
+    return optimize(qc, scp);
+  }
+
+  @Override
+  public Join copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
+    final Expr e = expr.copy(qc, scp, vs), p = probe.copy(qc, scp, vs);
+    Var v = null;
+    if(var != null) {
+      v = scp.newCopyOf(qc, var);
+      vs.put(var.id, v);
+    }
+    final Expr k = key == null ? null : key.copy(qc, scp, vs);
+    return new Join(v, e, k, p, cmp, first, semi, info);
+  }
+
+  @Override
+  public boolean accept(final ASTVisitor visitor) {
+    if(!expr.accept(visitor) || !probe.accept(visitor)) return false;
+    if(key == null) return true;
+    if(var != null) return visitor.declared(var) && key.accept(visitor);
+    visitor.enterFocus();
+    if(!key.accept(visitor)) return false;
+    visitor.exitFocus();
+    return true;
+  }
+
+  @Override
+  public void checkUp() throws QueryException {
+    checkNoneUp(expr, key, probe);
+  }
+
+  @Override
+  void calcSize(final long[] minMax) {
+    minMax[0] = 0;
+    if(!semi) {
+      final long sz = expr.size(), max = minMax[1];
+      minMax[1] = sz < 0 ? -1 : max > 0 ? max * sz : max;
+    }
+  }
+
+  @Override
+  public int exprSize() {
+    return expr.exprSize() + probe.exprSize() + (key == null ? 0 : key.exprSize());
+  }
+
+  @Override
+  public void plan(final FElem plan) {
+    final FElem e = planElem(TYP, semi ? "semi" : "join");
+    if(var != null) var.plan(e);
+    expr.plan(e);
+    if(key != null) key.plan(e);
+    probe.plan(e);
+    plan.add(e);
+  }
+
+  @Override
+  public String toString() {
+    final String k = key == null ? expr.toString() : key.toString();
+    final String c = first ? probe + " = " + k : k + " = " + probe;
+    final StringBuilder sb = new StringBuilder();
+    if(!semi) {
+      sb.append(FOR).append(' ').append(var).append(' ').append(IN).append(' ').append(expr);
+      return sb.append(' ').append(WHERE).append(' ').append(c).toString();
+    }
+    sb.append(WHERE).append(' ');
+    if(var != null) {
+      sb.append(SOME).append(' ').append(var).append(' ').append(IN).append(' ').append(expr);
+      return sb.append(' ').append(SATISFIES).append(' ').append(c).toString();
+    }
+    if(key == null) return sb.append(c).toString();
+    return sb.append("exists((").append(expr).append(")[").append(c).append("])").toString();
+  }
+
+  /**
+   * Assigns the focus of the independent sequence for compiling the key expression.
+   * @param qc query context
+   * @return original context value
+   */
+  private Value focus(final QueryContext qc) {
+    final Value cv = qc.value;
+    if(var == null) qc.value = Path.initial(qc, expr);
+    return cv;
+  }
+
+  /**
+   * Converts a numeric value to a hash key. All numbers that are equal when being compared
+   * as integers, decimals, floats or doubles yield the same key.
+   * @param d double value (must not be {@code NaN})
+   * @return hash key
+   */
+  private static int hash(final double d) {
+    final float f = (float) d;
+    return f == 0 ? 0 : Float.floatToIntBits(f);
+  }
+
+  /**
+   * Converts an untyped value to a double. {@code NaN} is returned if the value cannot be
+   * converted, as it is never equal to any other number.
+   * @param value value
+   * @return double value
+   */
+  private static double number(final byte[] value) {
+    final double d = Token.toDouble(value);
+    if(!Double.isNaN(d)) return d;
+    final byte[] v = Token.trim(value);
+    return Token.eq(v, Token.INF) ? Double.POSITIVE_INFINITY :
+      Token.eq(v, Token.NINF) ? Double.NEGATIVE_INFINITY : Double.NaN;
+  }
+
+  /**
+   * Adds an entry to a hash table.
+   * @param map hash table
+   * @param h hash key
+   * @param a atom index
+   */
+  private static void add(final IntObjMap<IntList> map, final int h, final int a) {
+    IntList list = map.get(h);
+    if(list == null) {
+      list = new IntList(1);
+      map.put(h, list);
+    }
+    list.add(a);
+  }
+
+  /**
+   * Hash tables with the atomized keys of the independent sequence.
+   */
+  private final class Table {
+    /** Items of the independent sequence. */
+    private final Value items;
+    /** Atomized keys. */
+    private final ValueBuilder atoms = new ValueBuilder();
+    /** Positions of the items of the atomized keys. */
+    private final IntList owners = new IntList();
+    /** Strings and untyped keys, indexed by their string values. */
+    private final IntObjMap<IntList> strings = new IntObjMap<>();
+    /** Numeric keys. */
+    private final IntObjMap<IntList> numbers = new IntObjMap<>();
+    /** Untyped keys, indexed by their numeric values (created on demand). */
+    private IntObjMap<IntList> untypedNumbers;
+    /** Untyped keys. */
+    private final IntList untyped = new IntList();
+    /** Keys that will be compared sequentially. */
+    private final IntList others = new IntList();
+    /** First string key ({@code -1}: none). */
+    private int str = -1;
+    /** First numeric key ({@code -1}: none). */
+    private int num = -1;
+    /** First key that is no string, number or untyped value ({@code -1}: none). */
+    private int other = -1;
+    /** First untyped key that cannot be converted to a number ({@code -1}: none). */
+    private int invalid = -1;
+    /** Collation. */
+    private final boolean coll;
+
+    /**
+     * Constructor.
+     * @param qc query context
+     * @throws QueryException query exception
+     */
+    Table(final QueryContext qc) throws QueryException {
+      coll = cmp.coll != null;
+      items = expr.value(qc);
+      final int is = (int) items.size();
+      if(key == null) {
+        for(int i = 0; i < is; i++) {
+          qc.checkStop();
+          final Iter ir = items.itemAt(i).atomIter(qc, info);
+          for(Item it; (it = ir.next()) != null;) add(it, i);
+        }
+      } else {
+        final Value cv = qc.value;
+        try {
+          for(int i = 0; i < is; i++) {
+            qc.checkStop();
+            final Item item = items.itemAt(i);
+            if(var != null) qc.set(var, item, info);
+            else qc.value = item;
+            final Iter ir = key.atomIter(qc, info);
+            for(Item it; (it = ir.next()) != null;) add(it, i);
+          }
+        } finally {
+          qc.value = cv;
+        }
+      }
+    }
+
+    /**
+     * Indexes an atomized key.
+     * @param it item
+     * @param owner position of the item of the independent sequence
+     * @throws QueryException query exception
+     */
+    private void add(final Item it, final int owner) throws QueryException {
+      final int a = owners.size();
+      if(it.type.isUntyped()) {
+        untyped.add(a);
+        if(coll) others.add(a);
+        else Join.add(strings, Token.hash(it.string(info)), a);
+      } else if(it instanceof AStr) {
+        if(str == -1) str = a;
+        if(coll) others.add(a);
+        else Join.add(strings, Token.hash(it.string(info)), a);
+      } else if(it instanceof ANum) {
+        if(num == -1) num = a;
+        // NaN is never equal to any other value
+        final double d = it.dbl(info);
+        if(!Double.isNaN(d)) Join.add(numbers, hash(d), a);
+      } else {
+        if(other == -1) other = a;
+        others.add(a);
+      }
+      atoms.add(it);
+      owners.add(owner);
+    }
+
+    /**
+     * Finds the items that match the probe expression.
+     * @param qc query context
+     * @param list list for positions of matching items ({@code null}: stop after first match)
+     * @return {@code true} if a match was found
+     * @throws QueryException query exception
+     */
+    boolean matches(final QueryContext qc, final IntList list) throws QueryException {
+      final Iter ir = probe.atomIter(qc, info);
+      for(Item it; (it = ir.next()) != null;) {
+        if(it.type.isUntyped()) {
+          if(!coll && find(it, strings.get(Token.hash(it.string(info))), list)) return true;
+          if(num != -1) {
+            final double d = number(it.string(info));
+            // values that cannot be converted to numbers raise an error
+            if(Double.isNaN(d)) eval(it, num);
+            else if(find(it, numbers.get(hash(d)), list)) return true;
+          }
+          if(find(it, others, list)) return true;
+        } else if(it instanceof AStr) {
+          if(find(it, coll ? others : strings.get(Token.hash(it.string(info))), list)) return true;
+          if(num != -1) eval(it, num);
+          if(other != -1) eval(it, other);
+        } else if(it instanceof ANum) {
+          final IntObjMap<IntList> un = untypedNumbers();
+          final double d = it.dbl(info);
+          if(!Double.isNaN(d)) {
+            final int h = hash(d);
+            if(find(it, numbers.get(h), list) || find(it, un.get(h), list)) return true;
+          }
+          if(str != -1) eval(it, str);
+          if(other != -1) eval(it, other);
+          if(invalid != -1) eval(it, invalid);
+        } else {
+          if(find(it, others, list) || !coll && find(it, untyped, list)) return true;
+          if(str != -1) eval(it, str);
+          if(num != -1) eval(it, num);
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Compares an item with the specified candidates.
+     * @param it item
+     * @param cands candidates (can be {@code null})
+     * @param list list for positions of matching items ({@code null}: stop after first match)
+     * @return {@code true} if the search can be stopped
+     * @throws QueryException query exception
+     */
+    private boolean find(final Item it, final IntList cands, final IntList list)
+        throws QueryException {
+
+      if(cands == null) return false;
+      final int cs = cands.size();
+      for(int c = 0; c < cs; c++) {
+        final int a = cands.get(c);
+        if(!eval(it, a)) continue;
+        if(list == null) return true;
+        list.add(owners.get(a));
+      }
+      return false;
+    }
+
+    /**
+     * Compares an item with a key. An error is raised if the types are not comparable.
+     * @param it item
+     * @param a atom index of the key
+     * @return result of comparison
+     * @throws QueryException query exception
+     */
+    private boolean eval(final Item it, final int a) throws QueryException {
+      final Item at = atoms.get(a);
+      return first ? cmp.eval(it, at) : cmp.eval(at, it);
+    }
+
+    /**
+     * Returns the untyped keys that can be converted to numbers.
+     * @return hash table
+     * @throws QueryException query exception
+     */
+    private IntObjMap<IntList> untypedNumbers() throws QueryException {
+      if(untypedNumbers == null) {
+        untypedNumbers = new IntObjMap<>();
+        final int us = untyped.size();
+        for(int u = 0; u < us; u++) {
+          final int a = untyped.get(u);
+          final byte[] value = atoms.get(a).string(info);
+          final double d = number(value);
+          if(!Double.isNaN(d)) Join.add(untypedNumbers, hash(d), a);
+          else if(invalid == -1 && !Token.eq(Token.trim(value), Token.NAN)) invalid = a;
+        }
+      }
+      return untypedNumbers;
+    }
+  }
+}
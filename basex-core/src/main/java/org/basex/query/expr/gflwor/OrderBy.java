@@ -1,11 +1,7 @@
 package org.basex.query.expr.gflwor;
 
-import static org.basex.query.QueryError.*;
 import static org.basex.query.QueryText.*;
 
-import java.util.*;
-import java.util.List;
-
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.expr.gflwor.GFLWOR.Eval;
@@ -29,6 +25,8 @@ public final class OrderBy extends GFLWOR.Clause {
   private VarRef[] refs;
   /** Sort keys. */
   private final Key[] keys;
+  /** Maximum number of tuples that will be requested. */
+  private long limit = Long.MAX_VALUE;
 
   /**
    * Constructor.
@@ -46,19 +44,12 @@ public final class OrderBy extends GFLWOR.Clause {
   Eval eval(final Eval sub) {
     return new Eval() {
       /** Sorted output tuples. */
-      private Value[][] tpls;
-      /** Permutation of the values. */
-      private Integer[] perm;
-      /** Current position. */
-      int pos;
+      private Sorter sorter;
       @Override
       public boolean next(final QueryContext qc) throws QueryException {
-        if(tpls == null) sort(qc);
-        if(pos == tpls.length) return false;
-        final int p = perm[pos++];
-        final Value[] tuple = tpls[p];
-        // free the space occupied by the tuple
-        tpls[p] = null;
+        if(sorter == null) sort(qc);
+        final Value[] tuple = sorter.next();
+        if(tuple == null) return false;
         final int rl = refs.length;
         for(int r = 0; r < rl; r++) qc.set(refs[r].var, tuple[r], info);
         return true;
@@ -70,67 +61,33 @@ public final class OrderBy extends GFLWOR.Clause {
        * @throws QueryException evaluation exception
        */
       private void sort(final QueryContext qc) throws QueryException {
-        // keys are stored at odd positions, values at even ones
-        List<Value[]> tuples = new ArrayList<>();
+        sorter = new Sorter(keys, refs.length, limit, qc, info);
         while(sub.next(qc)) {
           final int kl = keys.length;
           final Item[] key = new Item[kl];
           for(int k = 0; k < kl; k++) key[k] = keys[k].expr.atomItem(qc, keys[k].info);
-          tuples.add(key);
 
           final int rl = refs.length;
           final Value[] vals = new Value[rl];
           for(int r = 0; r < rl; r++) vals[r] = refs[r].value(qc);
-          tuples.add(vals);
-        }
-
-        final int len = tuples.size() >>> 1;
-        final Item[][] ks = new Item[len][];
-        perm = new Integer[len];
-        tpls = new Value[len][];
-        for(int i = 0; i < len; i++) {
-          perm[i] = i;
-          tpls[i] = tuples.get(i << 1 | 1);
-          ks[i] = (Item[]) tuples.get(i << 1);
-        }
-        // be nice to the garbage collector
-        tuples = null;
-        try {
-          Arrays.sort(perm, new Comparator<Integer>() {
-            @Override
-            public int compare(final Integer x, final Integer y) {
-              try {
-                final Item[] a = ks[x], b = ks[y];
-                final int kl = keys.length;
-                for(int k = 0; k < kl; k++) {
-                  final Key or = keys[k];
-                  Item m = a[k], n = b[k];
-                  if(m == Dbl.NAN || m == Flt.NAN) m = null;
-                  if(n == Dbl.NAN || n == Flt.NAN) n = null;
-                  if(m != null && n != null && !m.comparable(n))
-                    throw castError(or.info, n, m.type);
-
-                  final int c = m == null
-                      ? n == null ? 0                 : or.least ? -1 : 1
-                      : n == null ? or.least ? 1 : -1 : m.diff(n, or.coll, or.info);
-                  if(c != 0) return or.desc ? -c : c;
-                }
-                return 0;
-              } catch(final QueryException ex) {
-                throw new QueryRTException(ex);
-              }
-            }
-          });
-        } catch(final QueryRTException ex) {
-          throw ex.getCause();
+          sorter.add(key, vals);
         }
+        sorter.finish();
       }
     };
   }
 
+  /**
+   * Assigns the maximum number of tuples that will be requested.
+   * @param max maximum number of tuples
+   */
+  void limit(final long max) {
+    limit = Math.min(limit, max);
+  }
+
   @Override
   public void plan(final FElem plan) {
-    final FElem e = planElem();
+    final FElem e = planElem(MAX, limit == Long.MAX_VALUE ? null : limit);
     for(final Key k : keys) k.plan(e);
     plan.add(e);
   }
@@ -182,7 +139,10 @@ public final class OrderBy extends GFLWOR.Clause {
 
   @Override
   public OrderBy copy(final QueryContext qc, final VarScope scp, final IntObjMap<Var> vs) {
-    return new OrderBy(Arr.copyAll(qc, scp, vs, refs), Arr.copyAll(qc, scp, vs, keys), info);
+    final OrderBy ob = new OrderBy(Arr.copyAll(qc, scp, vs, refs),
+        Arr.copyAll(qc, scp, vs, keys), info);
+    ob.limit = limit;
+    return ob;
   }
 
   @Override
@@ -238,11 +198,11 @@ public final class OrderBy extends GFLWOR.Clause {
    */
   public static final class Key extends Single {
     /** Descending order flag. */
-    private final boolean desc;
+    final boolean desc;
     /** Position of empty sort keys. */
-    private final boolean least;
+    final boolean least;
     /** Collation. */
-    private final Collation coll;
+    final Collation coll;
 
     /**
      * Constructor.
@@ -0,0 +1,515 @@
+package org.basex.query.expr.gflwor;
+
+import static org.basex.query.QueryError.*;
+
+import java.io.*;
+import java.math.*;
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.index.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.query.*;
+import org.basex.query.expr.gflwor.OrderBy.Key;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+import org.basex.util.Array;
+
+/**
+ * Sorts the tuples of an {@code order by} clause.
+ *
+ * If all sort keys of a column are numbers or strings, they are converted to primitive values
+ * before the tuples are sorted. If only the first tuples will be requested, the remaining
+ * tuples are discarded as soon as twice the number of requested tuples has been buffered.
+ * Otherwise, if the number of buffered tuples exceeds {@link MainOptions#SORTSPLITSIZE},
+ * the buffered tuples are sorted and written to a temporary file, and all sorted runs are
+ * finally merged. Runs are only written if all tuples consist of database nodes and
+ * atomic items of basic types.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class Sorter {
+  /** Largest integer that can be exactly represented as double. */
+  private static final long EXACT = 1L << 53;
+
+  /** Sort keys. */
+  private final Key[] keys;
+  /** Number of variables of a tuple. */
+  private final int vars;
+  /** Maximum number of tuples to be returned. */
+  private final long limit;
+  /** Indicates if only the first tuples will be kept. */
+  private final boolean top;
+  /** Number of tuples to be sorted in main memory ({@code 0}: no limit). */
+  private final int splitSize;
+  /** Query context. */
+  private final QueryContext qc;
+  /** Input info. */
+  private final InputInfo info;
+
+  /** Sort keys of the buffered tuples. */
+  private Item[][] ks = new Item[Array.CAPACITY][];
+  /** Values of the buffered tuples. */
+  private Value[][] vs = new Value[Array.CAPACITY][];
+  /** Number of buffered tuples. */
+  private int size;
+  /** Indicates if the buffered tuples can be written to disk. */
+  private boolean spillable = true;
+  /** Temporary files with sorted runs. */
+  private final ArrayList<IOFile> files = new ArrayList<>();
+  /** Temporary storage of the sorted runs ({@code null} if no runs have been written). */
+  private Spill spill;
+
+  /** Sorted order of the buffered tuples. */
+  private int[] order;
+  /** Number of returned tuples. */
+  private long returned;
+  /** Runs to be merged ({@code null} if no runs have been written). */
+  private Run[] runs;
+  /** Merger of the sorted runs. */
+  private LoserTree<Run> merger;
+
+  /**
+   * Constructor.
+   * @param keys sort keys
+   * @param vars number of variables of a tuple
+   * @param limit maximum number of tuples to be returned
+   * @param qc query context
+   * @param info input info
+   */
+  Sorter(final Key[] keys, final int vars, final long limit, final QueryContext qc,
+      final InputInfo info) {
+    this.keys = keys;
+    this.vars = vars;
+    this.limit = limit;
+    this.qc = qc;
+    this.info = info;
+    splitSize = qc.context.options.get(MainOptions.SORTSPLITSIZE);
+    top = limit <= Integer.MAX_VALUE >> 2 && (splitSize <= 0 || limit << 1 <= splitSize);
+  }
+
+  /**
+   * Adds a tuple.
+   * @param key sort keys (entries are {@code null} if a key is empty)
+   * @param values values of the variables
+   * @throws QueryException query exception
+   */
+  void add(final Item[] key, final Value[] values) throws QueryException {
+    if(size == ks.length) {
+      final int s = Array.newSize(size);
+      ks = Arrays.copyOf(ks, s);
+      vs = Arrays.copyOf(vs, s);
+    }
+    ks[size] = key;
+    vs[size++] = values;
+
+    if(top) {
+      // discard all tuples that will not be requested
+      if(size == limit << 1) reorder(sort(), (int) limit);
+    } else if(splitSize > 0) {
+      spillable = spillable && Spill.spillable(key);
+      for(int v = 0; spillable && v < vars; v++) spillable = Spill.spillable(values[v]);
+      if(spillable && size >= splitSize) write();
+    }
+  }
+
+  /**
+   * Sorts the buffered tuples and prepares the merge of the sorted runs.
+   * @throws QueryException query exception
+   */
+  void finish() throws QueryException {
+    order = sort();
+    if(files.isEmpty()) return;
+
+    final int fs = files.size();
+    runs = new Run[fs + 1];
+    try {
+      for(int f = 0; f < fs; f++) runs[f] = new FileRun(files.get(f));
+      runs[fs] = new MemRun();
+      merger = new LoserTree<Run>(runs) {
+        @Override
+        protected boolean done(final Run run) {
+          return run.key == null;
+        }
+
+        @Override
+        protected int compare(final Run run1, final Run run2) {
+          try {
+            return Sorter.this.compare(run1.key, run2.key);
+          } catch(final QueryException ex) {
+            throw new QueryRTException(ex);
+          }
+        }
+      };
+    } catch(final IOException ex) {
+      throw IOERR_X.get(info, ex);
+    } catch(final QueryRTException ex) {
+      throw ex.getCause();
+    }
+  }
+
+  /**
+   * Returns the values of the next tuple.
+   * @return values, or {@code null} if all tuples have been returned
+   * @throws QueryException query exception
+   */
+  Value[] next() throws QueryException {
+    if(returned == limit) return null;
+    if(merger == null) {
+      if(returned == size) return null;
+      final int p = order[(int) returned++];
+      final Value[] values = vs[p];
+      // free the space occupied by the tuple
+      vs[p] = null;
+      return values;
+    }
+
+    try {
+      final int w = merger.winner();
+      if(w == -1) return null;
+      final Run run = runs[w];
+      final Value[] values = run.values;
+      run.next();
+      merger.next();
+      returned++;
+      return values;
+    } catch(final IOException ex) {
+      throw IOERR_X.get(info, ex);
+    } catch(final QueryRTException ex) {
+      throw ex.getCause();
+    }
+  }
+
+  /**
+   * Returns a stable sort order of the buffered tuples.
+   * @return order
+   * @throws QueryException query exception
+   */
+  private int[] sort() throws QueryException {
+    final int kl = keys.length;
+    final Column[] cols = new Column[kl];
+    for(int k = 0; k < kl; k++) cols[k] = column(k);
+
+    final int[] ord = new int[size];
+    for(int o = 0; o < size; o++) ord[o] = o;
+    sort(ord.clone(), ord, 0, size, cols);
+    return ord;
+  }
+
+  /**
+   * Sorts the specified range of an array (merge sort).
+   * @param src source array
+   * @param dst destination array (contains the same entries as the source array)
+   * @param low first index
+   * @param high index after the last entry
+   * @param cols columns with the sort keys
+   * @throws QueryException query exception
+   */
+  private static void sort(final int[] src, final int[] dst, final int low, final int high,
+      final Column[] cols) throws QueryException {
+
+    final int len = high - low;
+    if(len < 8) {
+      // insertion sort on small arrays
+      for(int i = low + 1; i < high; i++) {
+        for(int j = i; j > low && compare(cols, dst[j - 1], dst[j]) > 0; j--) {
+          final int t = dst[j];
+          dst[j] = dst[j - 1];
+          dst[j - 1] = t;
+        }
+      }
+      return;
+    }
+
+    final int mid = low + high >>> 1;
+    sort(dst, src, low, mid, cols);
+    sort(dst, src, mid, high, cols);
+    if(compare(cols, src[mid - 1], src[mid]) <= 0) {
+      System.arraycopy(src, low, dst, low, len);
+      return;
+    }
+    for(int i = low, p = low, q = mid; i < high; i++) {
+      dst[i] = q >= high || p < mid && compare(cols, src[p], src[q]) <= 0 ? src[p++] : src[q++];
+    }
+  }
+
+  /**
+   * Compares two buffered tuples.
+   * @param cols columns with the sort keys
+   * @param t1 first tuple
+   * @param t2 second tuple
+   * @return result of comparison
+   * @throws QueryException query exception
+   */
+  private static int compare(final Column[] cols, final int t1, final int t2)
+      throws QueryException {
+    for(final Column col : cols) {
+      final int c = col.compare(t1, t2);
+      if(c != 0) return col.key.desc ? -c : c;
+    }
+    return 0;
+  }
+
+  /**
+   * Compares the sort keys of two tuples.
+   * @param key1 first keys
+   * @param key2 second keys
+   * @return result of comparison
+   * @throws QueryException query exception
+   */
+  private int compare(final Item[] key1, final Item[] key2) throws QueryException {
+    final int kl = keys.length;
+    for(int k = 0; k < kl; k++) {
+      final Key key = keys[k];
+      final int c = compare(key, key1[k], key2[k]);
+      if(c != 0) return key.desc ? -c : c;
+    }
+    return 0;
+  }
+
+  /**
+   * Compares two sort keys in ascending order.
+   * @param key sort key
+   * @param it1 first item (can be {@code null})
+   * @param it2 second item (can be {@code null})
+   * @return result of comparison
+   * @throws QueryException query exception
+   */
+  private static int compare(final Key key, final Item it1, final Item it2)
+      throws QueryException {
+    Item m = it1, n = it2;
+    if(m == Dbl.NAN || m == Flt.NAN) m = null;
+    if(n == Dbl.NAN || n == Flt.NAN) n = null;
+    if(m != null && n != null && !m.comparable(n)) throw castError(key.info, n, m.type);
+    return m == null ? n == null ? 0 : key.least ? -1 : 1 :
+      n == null ? key.least ? 1 : -1 : m.diff(n, key.coll, key.info);
+  }
+
+  /**
+   * Returns a column with the sort keys of the buffered tuples.
+   * @param k index of the sort key
+   * @return column
+   * @throws QueryException query exception
+   */
+  private Column column(final int k) throws QueryException {
+    final Key key = keys[k];
+    // numbers: all floats, or doubles, decimals and integers that can be represented as doubles
+    boolean flt = true, dbl = true, str = key.coll == null;
+    for(int s = 0; s < size && (flt || dbl || str); s++) {
+      final Item it = ks[s][k];
+      if(it == null) continue;
+      flt &= it instanceof Flt;
+      dbl &= it instanceof Dbl || it instanceof Int && Math.abs(it.itr(info)) <= EXACT ||
+          it instanceof Dec && exact(it.dec(info));
+      str &= it.type.isStringOrUntyped();
+    }
+
+    if(flt || dbl) {
+      final double[] nums = new double[size];
+      for(int s = 0; s < size; s++) {
+        final Item it = ks[s][k];
+        nums[s] = it == null ? Double.NaN : it.dbl(info);
+      }
+      return new Column(key) {
+        @Override
+        int compare(final int t1, final int t2) {
+          // NaN is treated like the empty sequence
+          final double d1 = nums[t1], d2 = nums[t2];
+          final boolean e1 = Double.isNaN(d1), e2 = Double.isNaN(d2);
+          return e1 ? e2 ? 0 : key.least ? -1 : 1 : e2 ? key.least ? 1 : -1 :
+            d1 < d2 ? -1 : d1 > d2 ? 1 : 0;
+        }
+      };
+    }
+    if(str) {
+      final byte[][] strings = new byte[size][];
+      for(int s = 0; s < size; s++) {
+        final Item it = ks[s][k];
+        if(it != null) strings[s] = it.string(info);
+      }
+      return new Column(key) {
+        @Override
+        int compare(final int t1, final int t2) {
+          final byte[] s1 = strings[t1], s2 = strings[t2];
+          return s1 == null ? s2 == null ? 0 : key.least ? -1 : 1 :
+            s2 == null ? key.least ? 1 : -1 : Token.diff(s1, s2);
+        }
+      };
+    }
+    return new Column(key) {
+      @Override
+      int compare(final int t1, final int t2) throws QueryException {
+        return Sorter.compare(key, ks[t1][k], ks[t2][k]);
+      }
+    };
+  }
+
+  /**
+   * Checks if the specified decimal can be represented as double.
+   * @param dec decimal
+   * @return result of check
+   */
+  private static boolean exact(final BigDecimal dec) {
+    final double d = dec.doubleValue();
+    return !Double.isInfinite(d) && new BigDecimal(d).compareTo(dec) == 0;
+  }
+
+  /**
+   * Keeps the specified number of buffered tuples in the given order.
+   * @param ord order
+   * @param n number of tuples to keep
+   */
+  private void reorder(final int[] ord, final int n) {
+    final Item[][] k = new Item[ks.length][];
+    final Value[][] v = new Value[vs.length][];
+    for(int o = 0; o < n; o++) {
+      k[o] = ks[ord[o]];
+      v[o] = vs[ord[o]];
+    }
+    ks = k;
+    vs = v;
+    size = n;
+  }
+
+  /**
+   * Sorts the buffered tuples and writes them to a temporary file.
+   * @throws QueryException query exception
+   */
+  private void write() throws QueryException {
+    final int[] ord = sort();
+    if(spill == null) spill = new Spill(qc, info);
+    try {
+      final IOFile file = spill.file();
+      files.add(file);
+      final DataOutput out = new DataOutput(file);
+      try {
+        out.writeNum(size);
+        for(final int o : ord) {
+          for(final Item it : ks[o]) spill.write(out, it);
+          for(final Value value : vs[o]) spill.write(out, value);
+        }
+      } finally {
+        out.close();
+      }
+    } catch(final IOException ex) {
+      throw IOERR_X.get(info, ex);
+    }
+    ks = new Item[Array.CAPACITY][];
+    vs = new Value[Array.CAPACITY][];
+    size = 0;
+  }
+
+  /**
+   * Column with the sort keys of the buffered tuples.
+   */
+  private abstract static class Column {
+    /** Sort key. */
+    final Key key;
+
+    /**
+     * Constructor.
+     * @param key sort key
+     */
+    Column(final Key key) {
+      this.key = key;
+    }
+
+    /**
+     * Compares the keys of two tuples in ascending order.
+     * @param t1 first tuple
+     * @param t2 second tuple
+     * @return result of comparison
+     * @throws QueryException query exception
+     */
+    abstract int compare(int t1, int t2) throws QueryException;
+  }
+
+  /**
+   * Sorted run.
+   */
+  private abstract static class Run {
+    /** Sort keys of the current tuple ({@code null} if the run is exhausted). */
+    Item[] key;
+    /** Values of the current tuple. */
+    Value[] values;
+
+    /**
+     * Proceeds to the next tuple.
+     * @throws IOException I/O exception
+     */
+    abstract void next() throws IOException;
+  }
+
+  /**
+   * Sorted run in a temporary file.
+   */
+  private final class FileRun extends Run {
+    /** File. */
+    private final IOFile file;
+    /** Input stream. */
+    private final DataInput in;
+    /** Number of remaining tuples. */
+    private int remaining;
+
+    /**
+     * Constructor.
+     * @param file file
+     * @throws IOException I/O exception
+     */
+    FileRun(final IOFile file) throws IOException {
+      this.file = file;
+      in = new DataInput(file);
+      remaining = in.readNum();
+      next();
+    }
+
+    @Override
+    void next() throws IOException {
+      if(remaining-- == 0) {
+        key = null;
+        values = null;
+        in.close();
+        file.delete();
+        return;
+      }
+      final int kl = keys.length;
+      key = new Item[kl];
+      for(int k = 0; k < kl; k++) key[k] = spill.read(in);
+      values = new Value[vars];
+      for(int v = 0; v < vars; v++) values[v] = spill.readValue(in);
+    }
+  }
+
+  /**
+   * Sorted tuples in main memory.
+   */
+  private final class MemRun extends Run {
+    /** Current position. */
+    private int pos;
+
+    /**
+     * Constructor.
+     */
+    MemRun() {
+      next();
+    }
+
+    @Override
+    void next() {
+      if(pos == size) {
+        key = null;
+        values = null;
+      } else {
+        final int p = order[pos++];
+        key = ks[p];
+        values = vs[p];
+        ks[p] = null;
+        vs[p] = null;
+      }
+    }
+  }
+}
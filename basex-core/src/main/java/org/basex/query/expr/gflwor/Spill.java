@@ -0,0 +1,235 @@
+package org.basex.query.expr.gflwor;
+
+import java.io.*;
+import java.math.*;
+import java.util.*;
+
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.seq.*;
+import org.basex.query.value.type.*;
+import org.basex.util.*;
+
+/**
+ * Temporary files, to which the tuples of FLWOR clauses are written if they exceed the
+ * available main memory. Only database nodes and atomic items of basic types can be
+ * written. Nodes are stored as references, and the files are deleted when the query is
+ * closed.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class Spill {
+  /** Item types. */
+  private static final int NONE = 0, STR = 1, ATM = 2, ITR = 3, DBL = 4, FLT = 5, DEC = 6,
+      BLN = 7, NODE = 8;
+
+  /** Query context. */
+  private final QueryContext qc;
+  /** Input info. */
+  private final InputInfo info;
+  /** Databases referenced by the written nodes. */
+  private final ArrayList<Data> datas = new ArrayList<>();
+
+  /**
+   * Constructor.
+   * @param qc query context
+   * @param info input info
+   */
+  Spill(final QueryContext qc, final InputInfo info) {
+    this.qc = qc;
+    this.info = info;
+  }
+
+  /**
+   * Creates a new temporary file.
+   * @return file
+   * @throws IOException I/O exception
+   */
+  IOFile file() throws IOException {
+    final IOFile file = new IOFile(File.createTempFile(Prop.NAME, IO.BASEXSUFFIX));
+    TempFiles tf;
+    synchronized(qc.resources) {
+      tf = qc.resources.get(TempFiles.class);
+      if(tf == null) {
+        tf = new TempFiles();
+        qc.resources.add(tf);
+      }
+    }
+    tf.add(file);
+    return file;
+  }
+
+  /**
+   * Checks if the specified items can be written to disk.
+   * @param items items (entries can be {@code null})
+   * @return result of check
+   */
+  static boolean spillable(final Item[] items) {
+    for(final Item it : items) if(it != null && !spillable(it)) return false;
+    return true;
+  }
+
+  /**
+   * Checks if the specified value can be written to disk.
+   * @param value value
+   * @return result of check
+   */
+  static boolean spillable(final Value value) {
+    for(final Item it : value) {
+      if(it instanceof DBNode) continue;
+      final Type t = it.type;
+      if(t != AtomType.STR && t != AtomType.ATM && t != AtomType.ITR && t != AtomType.DBL &&
+          t != AtomType.FLT && t != AtomType.DEC && t != AtomType.BLN) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Writes a value.
+   * @param out output stream
+   * @param value value
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  void write(final DataOutput out, final Value value) throws IOException, QueryException {
+    out.writeNum((int) value.size());
+    for(final Item it : value) write(out, it);
+  }
+
+  /**
+   * Writes an item.
+   * @param out output stream
+   * @param it item (can be {@code null})
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  void write(final DataOutput out, final Item it) throws IOException, QueryException {
+    if(it == null) {
+      out.write1(NONE);
+    } else if(it instanceof DBNode) {
+      final DBNode node = (DBNode) it;
+      int d = datas.indexOf(node.data);
+      if(d == -1) {
+        d = datas.size();
+        datas.add(node.data);
+      }
+      out.write1(NODE);
+      out.writeNum(d);
+      out.writeNum(node.pre);
+    } else {
+      final Type t = it.type;
+      if(t == AtomType.ITR) {
+        out.write1(ITR);
+        writeLong(out, it.itr(info));
+      } else if(t == AtomType.DBL) {
+        out.write1(DBL);
+        writeLong(out, Double.doubleToRawLongBits(it.dbl(info)));
+      } else if(t == AtomType.FLT) {
+        out.write1(FLT);
+        out.write4(Float.floatToRawIntBits(it.flt(info)));
+      } else if(t == AtomType.BLN) {
+        out.write1(BLN);
+        out.writeBool(it.bool(info));
+      } else {
+        out.write1(t == AtomType.STR ? STR : t == AtomType.ATM ? ATM : DEC);
+        out.writeToken(it.string(info));
+      }
+    }
+  }
+
+  /**
+   * Reads a value.
+   * @param in input stream
+   * @return value
+   * @throws IOException I/O exception
+   */
+  Value readValue(final DataInput in) throws IOException {
+    final int s = in.readNum();
+    if(s == 0) return Empty.SEQ;
+    if(s == 1) return read(in);
+    final ValueBuilder vb = new ValueBuilder(s);
+    for(int i = 0; i < s; i++) vb.add(read(in));
+    return vb.value();
+  }
+
+  /**
+   * Reads an item.
+   * @param in input stream
+   * @return item (can be {@code null})
+   * @throws IOException I/O exception
+   */
+  Item read(final DataInput in) throws IOException {
+    switch(in.read()) {
+      case NONE: return null;
+      case STR:  return Str.get(in.readToken());
+      case ATM:  return new Atm(in.readToken());
+      case ITR:  return Int.get(readLong(in));
+      case DBL:  return Dbl.get(Double.longBitsToDouble(readLong(in)));
+      case FLT:  return Flt.get(Float.intBitsToFloat(readInt(in)));
+      case DEC:  return Dec.get(new BigDecimal(Token.string(in.readToken())));
+      case BLN:  return Bln.get(in.readBool());
+      default:   return new DBNode(datas.get(in.readNum()), in.readNum());
+    }
+  }
+
+  /**
+   * Writes a long value.
+   * @param out output stream
+   * @param v value
+   * @throws IOException I/O exception
+   */
+  private static void writeLong(final DataOutput out, final long v) throws IOException {
+    out.write4((int) (v >>> 32));
+    out.write4((int) v);
+  }
+
+  /**
+   * Reads an integer value.
+   * @param in input stream
+   * @return value
+   * @throws IOException I/O exception
+   */
+  private static int readInt(final DataInput in) throws IOException {
+    return in.read() << 24 | in.read() << 16 | in.read() << 8 | in.read();
+  }
+
+  /**
+   * Reads a long value.
+   * @param in input stream
+   * @return value
+   * @throws IOException I/O exception
+   */
+  private static long readLong(final DataInput in) throws IOException {
+    return (long) readInt(in) << 32 | readInt(in) & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Temporary files of a query, which will be deleted when the query is closed.
+   */
+  static final class TempFiles implements QueryResource {
+    /** Files. */
+    private final ArrayList<IOFile> files = new ArrayList<>();
+
+    /**
+     * Adds a file.
+     * @param file file
+     */
+    synchronized void add(final IOFile file) {
+      files.add(file);
+    }
+
+    @Override
+    public synchronized void close() {
+      for(final IOFile file : files) file.delete();
+      files.clear();
+    }
+  }
+}
@@ -450,6 +450,9 @@ public enum Function {
   /** XQuery function. */
   _ARRAY_GET(ArrayGet.class, "get(array,pos)", arg(ARRAY_O, ITR), ITEM_ZM, ARRAY_URI),
   /** XQuery function. */
+  _ARRAY_PUT(ArrayPut.class, "put(array,pos,value)", arg(ARRAY_O, ITR, ITEM_ZM), ARRAY_O,
+      ARRAY_URI),
+  /** XQuery function. */
   _ARRAY_APPEND(ArrayAppend.class, "append(array,value)",
       arg(ARRAY_O, ITEM_ZM), ARRAY_O, ARRAY_URI),
   /** XQuery function. */
@@ -1189,6 +1192,9 @@ public enum Function {
       arg(STR, ITEM), NOD, flag(NDT), XQUERY_URI),
   /** XQuery function. */
   _XQUERY_TYPE(XQueryType.class, "type(value)", arg(ITEM_ZM), ITEM_ZM, XQUERY_URI),
+  /** XQuery function. */
+  _XQUERY_FORK_JOIN(XQueryForkJoin.class, "fork-join(functions)", arg(FUN_ZM), ITEM_ZM,
+      flag(HOF), XQUERY_URI),
 
   /* XSLT Module. */
 
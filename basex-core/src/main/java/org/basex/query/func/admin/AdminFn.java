@@ -27,4 +27,6 @@ abstract class AdminFn extends StandardFunc {
   static final String TYPE = "type";
   /** QName: ms. */
   static final String MS = "ms";
+  /** QName: wait. */
+  static final String WAIT = "wait";
 }
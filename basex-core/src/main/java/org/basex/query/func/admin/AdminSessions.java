@@ -8,6 +8,7 @@ import org.basex.query.iter.*;
 import org.basex.query.util.*;
 import org.basex.query.value.node.*;
 import org.basex.server.*;
+import org.basex.util.*;
 
 /**
  * Function implementation.
@@ -26,7 +27,8 @@ public final class AdminSessions extends AdminFn {
         final String user = sp.context().user().name();
         final String addr = sp.address();
         final Data data = sp.context().data();
-        final FElem elem = new FElem(SESSION).add(USER, user).add(ADDRESS, addr);
+        final String wait = Performance.getTime(sp.context().lockWait(), 1);
+        final FElem elem = new FElem(SESSION).add(USER, user).add(ADDRESS, addr).add(WAIT, wait);
         if(data != null) elem.add(DATABASE, data.meta.name);
         vb.add(elem);
       }
@@ -1,8 +1,5 @@
 package org.basex.query.func.fn;
 
-import static org.basex.query.QueryError.*;
-import static org.basex.query.value.type.AtomType.*;
-
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.func.*;
@@ -25,19 +22,10 @@ abstract class Aggr extends StandardFunc {
    * @throws QueryException query exception
    */
   Item sum(final Iter iter, final Item it, final boolean avg) throws QueryException {
-    Item rs = it.type.isUntyped() ? Dbl.get(it.dbl(info)) : it;
-    final boolean num = rs instanceof ANum, dtd = rs.type == DTD, ymd = rs.type == YMD;
-    if(!num && !dtd && !ymd) throw SUM_X_X.get(info, rs.type, rs);
-
+    Item rs = FnSum.add(null, it, info);
     int c = 1;
     for(Item i; (i = iter.next()) != null;) {
-      if(i.type.isNumberOrUntyped()) {
-        if(!num) throw SUMDUR_X_X.get(info, i.type, i);
-      } else {
-        if(num) throw SUMNUM_X_X.get(info, i.type, i);
-        if(dtd && i.type != DTD || ymd && i.type != YMD) throw SUMDUR_X_X.get(info, i.type, i);
-      }
-      rs = Calc.PLUS.ev(info, rs, i);
+      rs = FnSum.add(rs, i, info);
       ++c;
     }
     return avg ? Calc.DIV.ev(info, rs, Int.get(c)) : rs;
@@ -2,6 +2,7 @@ package org.basex.query.func.fn;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.expr.gflwor.*;
 import org.basex.query.func.*;
 import org.basex.query.func.map.*;
 import org.basex.query.iter.*;
@@ -30,10 +31,15 @@ public final class FnCount extends StandardFunc {
   }
 
   @Override
-  protected Expr opt(final QueryContext qc, final VarScope scp) {
+  protected Expr opt(final QueryContext qc, final VarScope scp) throws QueryException {
     // skip non-deterministic and variable expressions
     final Expr e = exprs[0];
-    if(e.has(Flag.NDT) || e.has(Flag.UPD) || e instanceof VarRef) return this;
+    if(e instanceof VarRef) {
+      // count items of non-grouping variable while grouping
+      final GroupBy group = ((VarRef) e).var.group;
+      return group != null ? group.aggregate(this, qc, scp) : this;
+    }
+    if(e.has(Flag.NDT) || e.has(Flag.UPD)) return this;
 
     final long c = e.size();
     if(c >= 0) return Int.get(c);
@@ -3,7 +3,9 @@ package org.basex.query.func.fn;
 import org.basex.query.*;
 import org.basex.query.func.*;
 import org.basex.query.iter.*;
+import org.basex.query.value.*;
 import org.basex.query.value.item.*;
+import org.basex.query.value.seq.*;
 
 /**
  * Function implementation.
@@ -33,4 +35,12 @@ public final class FnInsertBefore extends StandardFunc {
       }
     };
   }
+
+  @Override
+  public Value value(final QueryContext qc) throws QueryException {
+    final long pos = Math.max(1, toLong(exprs[1], qc)) - 1;
+    final Value val = qc.value(exprs[0]), ins = qc.value(exprs[2]);
+    final long vs = val.size(), p = Math.min(pos, vs);
+    return TreeSeq.get(SubSeq.get(val, 0, p), ins, SubSeq.get(val, p, vs - p));
+  }
 }
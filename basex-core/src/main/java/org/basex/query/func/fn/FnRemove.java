@@ -38,6 +38,7 @@ public final class FnRemove extends StandardFunc {
     final long p = toLong(exprs[1], qc) - 1, vs = val.size() - 1;
     if(p < 0 || p > vs) return val;
     if(p == 0 || p == vs) return SubSeq.get(val, p == 0 ? 1 : 0, vs);
+    if(vs >= TreeSeq.MIN) return TreeSeq.get(SubSeq.get(val, 0, p), SubSeq.get(val, p + 1, vs - p));
     final ValueBuilder vb = new ValueBuilder((int) vs);
     for(int v = 0; v <= vs; v++) if(v != p) vb.add(val.itemAt(v));
     return vb.value();
@@ -2,6 +2,7 @@ package org.basex.query.func.fn;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.expr.gflwor.*;
 import org.basex.query.func.*;
 import org.basex.query.iter.*;
 import org.basex.query.value.*;
@@ -136,7 +137,17 @@ public final class FnSubsequence extends StandardFunc {
   }
 
   @Override
-  protected Expr opt(final QueryContext qc, final VarScope scp) {
+  protected Expr opt(final QueryContext qc, final VarScope scp) throws QueryException {
+    boolean values = true;
+    final int el = exprs.length;
+    for(int e = 1; e < el; e++) values &= exprs[e].isValue();
+    if(values && exprs[0] instanceof GFLWOR) {
+      // only the first tuples of an ordered FLWOR expression will be requested
+      final long[] range = range(qc);
+      if(range != null && range != ALL && range[1] != Long.MAX_VALUE) {
+        ((GFLWOR) exprs[0]).limit(range[0] + range[1] - 1);
+      }
+    }
     final SeqType st = exprs[0].seqType();
     seqType = SeqType.get(st.type, st.zeroOrOne() ? Occ.ZERO_ONE : Occ.ZERO_MORE);
     return this;
@@ -1,11 +1,13 @@
 package org.basex.query.func.fn;
 
 import static org.basex.query.QueryError.*;
+import static org.basex.query.value.type.AtomType.*;
 
 import java.math.*;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.expr.gflwor.*;
 import org.basex.query.iter.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.seq.*;
@@ -55,12 +57,45 @@ public final class FnSum extends Aggr {
     return it != null ? sum(iter, it, false) : def;
   }
 
+  /**
+   * Adds an item to a sum. Sums can be computed incrementally by calling this function for
+   * each item.
+   * @param sum current sum ({@code null} if no item has been added yet)
+   * @param it item to be added
+   * @param ii input info
+   * @return new sum
+   * @throws QueryException query exception
+   */
+  public static Item add(final Item sum, final Item it, final InputInfo ii)
+      throws QueryException {
+    if(sum == null) {
+      final Item rs = it.type.isUntyped() ? Dbl.get(it.dbl(ii)) : it;
+      if(!(rs instanceof ANum) && rs.type != DTD && rs.type != YMD)
+        throw SUM_X_X.get(ii, rs.type, rs);
+      return rs;
+    }
+    final boolean num = sum instanceof ANum, dtd = sum.type == DTD, ymd = sum.type == YMD;
+    if(it.type.isNumberOrUntyped()) {
+      if(!num) throw SUMDUR_X_X.get(ii, it.type, it);
+    } else {
+      if(num) throw SUMNUM_X_X.get(ii, it.type, it);
+      if(dtd && it.type != DTD || ymd && it.type != YMD) throw SUMDUR_X_X.get(ii, it.type, it);
+    }
+    return Calc.PLUS.ev(ii, sum, it);
+  }
+
   @Override
-  protected Expr opt(final QueryContext qc, final VarScope scp) {
+  protected Expr opt(final QueryContext qc, final VarScope scp) throws QueryException {
     final Expr e1 = exprs[0], e2 = exprs.length == 2 ? exprs[1] : null;
     final Type st1 = e1.seqType().type, st2 = e2 != null ? e2.seqType().type : st1;
     if(st1.isNumberOrUntyped() && st2.isNumberOrUntyped()) seqType = Calc.type(st1, st2).seqType();
 
+    if(e1 instanceof VarRef && e2 == null) {
+      // sum up items of non-grouping variable while grouping
+      final GroupBy group = ((VarRef) e1).var.group;
+      if(group != null) return group.aggregate(this, qc, scp);
+    }
+
     // pre-evaluate 0 results (skip non-deterministic and variable expressions)
     final long c = e1.size();
     return c != 0 || e1.has(Flag.NDT) || e1.has(Flag.UPD) || e1 instanceof VarRef ? this :
@@ -0,0 +1,45 @@
+package org.basex.query.func.xquery;
+
+import static org.basex.query.QueryError.*;
+
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.func.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+
+/**
+ * Function implementation.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class XQueryForkJoin extends StandardFunc {
+  @Override
+  public Iter iter(final QueryContext qc) throws QueryException {
+    return value(qc).iter();
+  }
+
+  @Override
+  public Value value(final QueryContext qc) throws QueryException {
+    final Value funcs = qc.value(exprs[0]);
+    final int fs = (int) funcs.size();
+    final Parallel.Task[] tasks = new Parallel.Task[fs];
+    for(int f = 0; f < fs; f++) {
+      final FItem func = checkArity(funcs.itemAt(f), 0, qc);
+      if(func.has(Flag.UPD)) throw BXXQ_UPDATING.get(info);
+      tasks[f] = new Parallel.Task() {
+        @Override
+        public Value eval(final QueryContext qctx) throws QueryException {
+          return func.invokeValue(qctx, info);
+        }
+      };
+    }
+
+    final ValueBuilder vb = new ValueBuilder();
+    for(final Value value : Parallel.eval(tasks, qc)) vb.add(value);
+    return vb.value();
+  }
+}
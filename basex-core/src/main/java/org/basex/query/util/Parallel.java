@@ -0,0 +1,145 @@
+package org.basex.query.util;
+
+import java.util.concurrent.*;
+
+import org.basex.query.*;
+import org.basex.query.value.*;
+
+/**
+ * Evaluates independent tasks of a query in parallel. All tasks are run on a pool that is
+ * shared by all queries. Each task is evaluated with its own copy of the query context,
+ * which inherits the focus, the variable bindings and the date and time of the parent.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class Parallel {
+  /** Shared pool (created on demand). */
+  private static ForkJoinPool pool;
+
+  /** Private constructor. */
+  private Parallel() { }
+
+  /**
+   * Task to be evaluated in a child query context.
+   */
+  public abstract static class Task {
+    /**
+     * Evaluates the task.
+     * @param qc child query context
+     * @return resulting value
+     * @throws QueryException query exception
+     */
+    public abstract Value eval(QueryContext qc) throws QueryException;
+  }
+
+  /**
+   * Evaluates the specified tasks and returns their results in the order of the tasks.
+   * If tasks fail, the error of the first failing task will be thrown.
+   * @param tasks tasks
+   * @param qc query context
+   * @return results
+   * @throws QueryException query exception
+   */
+  public static Value[] eval(final Task[] tasks, final QueryContext qc) throws QueryException {
+    final int tl = tasks.length;
+    final Value[] results = new Value[tl];
+    if(tl == 0) return results;
+
+    // assign date and time before they are copied to the child contexts
+    qc.initDateTime();
+    final Throwable[] errors = new Throwable[tl];
+    final Job job = new Job(tasks, results, errors, qc, 0, tl);
+    if(ForkJoinTask.inForkJoinPool()) job.invoke();
+    else pool().invoke(job);
+
+    for(final Throwable th : errors) {
+      if(th instanceof QueryException) throw (QueryException) th;
+      if(th instanceof RuntimeException) throw (RuntimeException) th;
+      if(th instanceof Error) throw (Error) th;
+    }
+    return results;
+  }
+
+  /**
+   * Creates a child context for evaluating a task.
+   * @param qc parent context
+   * @return child context
+   */
+  private static QueryContext child(final QueryContext qc) {
+    final QueryContext qctx = new QueryContext(qc);
+    qctx.value = qc.value;
+    qctx.pos = qc.pos;
+    qctx.size = qc.size;
+    qctx.date = qc.date;
+    qctx.dtm = qc.dtm;
+    qctx.time = qc.time;
+    qctx.zone = qc.zone;
+    qctx.nano = qc.nano;
+    qctx.maxCalls = qc.maxCalls;
+    qctx.stack.copy(qc.stack);
+    return qctx;
+  }
+
+  /**
+   * Returns the shared pool.
+   * @return pool
+   */
+  private static synchronized ForkJoinPool pool() {
+    if(pool == null) pool = new ForkJoinPool();
+    return pool;
+  }
+
+  /**
+   * Job that evaluates a range of tasks by recursively splitting it.
+   */
+  private static final class Job extends RecursiveAction {
+    /** Tasks. */
+    private final Task[] tasks;
+    /** Results. */
+    private final Value[] results;
+    /** Errors. */
+    private final Throwable[] errors;
+    /** Parent context. */
+    private final QueryContext qc;
+    /** First task (inclusive). */
+    private final int start;
+    /** Last task (exclusive). */
+    private final int end;
+
+    /**
+     * Constructor.
+     * @param tasks tasks
+     * @param results results
+     * @param errors errors
+     * @param qc parent context
+     * @param start first task (inclusive)
+     * @param end last task (exclusive)
+     */
+    Job(final Task[] tasks, final Value[] results, final Throwable[] errors,
+        final QueryContext qc, final int start, final int end) {
+      this.tasks = tasks;
+      this.results = results;
+      this.errors = errors;
+      this.qc = qc;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+      if(end - start > 1) {
+        final int mid = start + end >>> 1;
+        invokeAll(new Job(tasks, results, errors, qc, start, mid),
+            new Job(tasks, results, errors, qc, mid, end));
+        return;
+      }
+      try(final QueryContext qctx = child(qc)) {
+        qc.checkStop();
+        results[start] = tasks[start].eval(qctx);
+      } catch(final QueryException | RuntimeException | Error ex) {
+        errors[start] = ex;
+      }
+    }
+  }
+}
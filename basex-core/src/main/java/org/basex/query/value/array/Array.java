@@ -3,6 +3,8 @@ package org.basex.query.value.array;
 import static org.basex.query.QueryError.*;
 import static org.basex.query.QueryText.*;
 
+import java.util.Iterator;
+
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.func.fn.*;
@@ -14,6 +16,7 @@ import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.map.*;
 import org.basex.query.value.node.*;
+import org.basex.query.value.tree.*;
 import org.basex.query.value.type.*;
 import org.basex.query.var.*;
 import org.basex.util.*;
@@ -26,35 +29,35 @@ import org.basex.util.*;
  */
 public final class Array extends FItem {
   /** Empty array. */
-  public static final Array EMPTY = new Array(new Value[0], 0, 0);
+  public static final Array EMPTY = new Array(Tree.EMPTY);
   /** Members of the array. */
-  private final Value[] members;
-  /** Starting index. */
-  private final int start;
-  /** Length. */
-  private final int size;
+  private final Tree members;
 
   /**
    * Constructor.
-   * @param members array members
-   * @param start starting index
-   * @param size number of members
+   * @param members members
    */
-  private Array(final Value[] members, final int start, final int size) {
+  private Array(final Tree members) {
     super(SeqType.ANY_ARRAY, new Ann());
     this.members = members;
-    this.start = start;
-    this.size = size;
   }
 
   /**
    * Returns an instance of this class.
-   * @param members values
+   * @param members values (will be adopted by the array)
    * @return instance
    */
   public static Array get(final Value... members) {
-    final int s = members.length;
-    return s == 0 ? EMPTY : new Array(members, 0, s);
+    return members.length == 0 ? EMPTY : new Array(Tree.get(members));
+  }
+
+  /**
+   * Returns an instance of this class.
+   * @param members members
+   * @return instance
+   */
+  private static Array get(final Tree members) {
+    return members.size() == 0 ? EMPTY : new Array(members);
   }
 
   /**
@@ -65,8 +68,63 @@ public final class Array extends FItem {
    * @return resulting array
    */
   public static Array get(final Array array, final int start, final int size) {
-    return size == 0 ? EMPTY : start == 0 && size == array.size ? array :
-      new Array(array.members, array.start + start, size);
+    return get(array.members.sub(start, size));
+  }
+
+  /**
+   * Returns a new array with the specified member appended.
+   * @param value member to be added
+   * @return new array
+   */
+  public Array append(final Value value) {
+    return new Array(members.append(value));
+  }
+
+  /**
+   * Returns a new array with the specified member prepended.
+   * @param value member to be added
+   * @return new array
+   */
+  public Array prepend(final Value value) {
+    return new Array(members.prepend(value));
+  }
+
+  /**
+   * Returns a new array with the specified member inserted at the specified position.
+   * @param index index of the new member ({@code 0 <= index <= size})
+   * @param value member to be inserted
+   * @return new array
+   */
+  public Array insertBefore(final int index, final Value value) {
+    return new Array(members.insertBefore(index, value));
+  }
+
+  /**
+   * Returns a new array in which the member at the specified position is replaced.
+   * @param index index of the member ({@code 0 <= index < size})
+   * @param value new member
+   * @return new array
+   */
+  public Array put(final int index, final Value value) {
+    return new Array(members.put(index, value));
+  }
+
+  /**
+   * Returns a new array without the member at the specified position.
+   * @param index index of the member ({@code 0 <= index < size})
+   * @return new array
+   */
+  public Array remove(final int index) {
+    return get(members.remove(index));
+  }
+
+  /**
+   * Returns a new array with the members of this and the specified array.
+   * @param array array to be appended
+   * @return new array
+   */
+  public Array concat(final Array array) {
+    return get(members.concat(array.members));
   }
 
   @Override
@@ -95,6 +153,7 @@ public final class Array extends FItem {
       throw castError(ii, key, AtomType.ITR);
 
     final long pos = key.itr(ii);
+    final int size = members.size();
     if(pos > 0 && pos <= size) return get((int) pos - 1);
     throw (size == 0 ? ARRAYEMPTY : ARRAYBOUNDS_X_X).get(ii, pos, size);
   }
@@ -134,8 +193,8 @@ public final class Array extends FItem {
    * Returns a member iterator.
    * @return iterator
    */
-  public ArrayIterator<Value> members() {
-    return new ArrayIterator<>(members, start, start + size);
+  public Iterable<Value> members() {
+    return members;
   }
 
   /**
@@ -144,7 +203,7 @@ public final class Array extends FItem {
    * @return value
    */
   public Value get(final int index) {
-    return members[start + index];
+    return members.get(index);
   }
 
   /**
@@ -152,13 +211,13 @@ public final class Array extends FItem {
    * @return size
    */
   public int arraySize() {
-    return size;
+    return members.size();
   }
 
   @Override
   public Item materialize(final InputInfo ii) throws QueryException {
-    final ValueList vl = new ValueList(size);
-    for(int a = 0; a < size; a++) vl.add(get(a).materialize(ii));
+    final ValueList vl = new ValueList(members.size());
+    for(final Value v : members()) vl.add(v.materialize(ii));
     return vl.array();
   }
 
@@ -176,8 +235,7 @@ public final class Array extends FItem {
   @Override
   public long atomSize() {
     long s = 0;
-    for(int a = 0; a < size; a++) {
-      final Value v = get(a);
+    for(final Value v : members()) {
       final long vs = v.size();
       for(int i = 0; i < vs; i++) s += v.itemAt(i).atomSize();
     }
@@ -194,9 +252,9 @@ public final class Array extends FItem {
   private Value atm(final InputInfo ii, final boolean single) throws QueryException {
     final long s = atomSize();
     if(single && s > 1) throw SEQFOUND_X.get(ii, this);
-    if(size == 1) return get(0).atomValue(ii);
+    if(members.size() == 1) return get(0).atomValue(ii);
     final ValueBuilder vb = new ValueBuilder((int) s);
-    for(int a = 0; a < size; a++) vb.add(get(a).atomValue(ii));
+    for(final Value v : members()) vb.add(v.atomValue(ii));
     return vb.value();
   }
 
@@ -221,9 +279,8 @@ public final class Array extends FItem {
   public void string(final TokenBuilder tb, final InputInfo ii) throws QueryException {
     tb.add('[');
     int c = 0;
-    for(int a = 0; a < size; a++) {
+    for(final Value v : members()) {
       if(c++ > 0) tb.add(", ");
-      final Value v = get(a);
       final long vs = v.size();
       if(vs != 1) tb.add('(');
       int cc = 0;
@@ -246,7 +303,7 @@ public final class Array extends FItem {
    */
   public boolean hasType(final ArrayType t) {
     if(!t.retType.eq(SeqType.ITEM_ZM)) {
-      for(int a = 0; a < size; a++) if(!t.retType.instance(get(a))) return false;
+      for(final Value v : members()) if(!t.retType.instance(v)) return false;
     }
     return true;
   }
@@ -264,9 +321,10 @@ public final class Array extends FItem {
 
     if(item instanceof Array) {
       final Array o = (Array) item;
-      if(size != o.size) return false;
-      for(int a = 0; a < size; a++) {
-        final Value v1 = get(a), v2 = o.get(a);
+      if(members.size() != o.arraySize()) return false;
+      final Iterator<Value> it = o.members().iterator();
+      for(final Value v1 : members()) {
+        final Value v2 = it.next();
         if(v1.size() != v2.size() || !new Compare(ii).collation(coll).equal(v1, v2))
           return false;
       }
@@ -282,25 +340,25 @@ public final class Array extends FItem {
 
   @Override
   public void plan(final FElem plan) {
-    final FElem el = planElem(SIZE, size);
-    final int max = Math.min(size, 5);
+    final FElem el = planElem(SIZE, members.size());
+    final int max = Math.min(members.size(), 5);
     for(int i = 0; i < max; i++) get(i).plan(el);
     addPlan(plan, el);
   }
 
   @Override
   public Object toJava() throws QueryException {
-    final Object[] tmp = new Object[size];
-    for(int a = 0; a < size; a++) tmp[a] = get(a).toJava();
+    final Object[] tmp = new Object[members.size()];
+    int a = 0;
+    for(final Value v : members()) tmp[a++] = v.toJava();
     return tmp;
   }
 
   @Override
   public String toString() {
     final StringBuilder tb = new StringBuilder().append('[');
-    for(int a = 0; a < size; a++) {
-      if(a != 0) tb.append(", ");
-      final Value value = get(a);
+    for(final Value value : members()) {
+      if(tb.length() > 1) tb.append(", ");
       final long vs = value.size();
       if(vs != 1) tb.append('(');
       for(int i = 0; i < vs; i++) {
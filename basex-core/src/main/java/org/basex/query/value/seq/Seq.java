@@ -92,7 +92,7 @@ public abstract class Seq extends Value {
   }
 
   @Override
-  public final ValueIter iter() {
+  public ValueIter iter() {
     return new ValueIter() {
       int c;
       @Override
@@ -34,6 +34,7 @@ public final class SubSeq extends Seq {
     if(n == vs) return val;
     if(n <= 0) return Empty.SEQ;
     if(n == 1) return val.itemAt(from);
+    if(val instanceof TreeSeq) return ((TreeSeq) val).sub(from, n);
     if(val instanceof SubSeq) {
       final SubSeq ss = (SubSeq) val;
       return new SubSeq(ss.sub, ss.start + from, n);
@@ -0,0 +1,217 @@
+package org.basex.query.value.seq;
+
+import static org.basex.query.QueryError.*;
+
+import java.util.*;
+
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.tree.*;
+import org.basex.query.value.type.*;
+import org.basex.query.value.type.SeqType.Occ;
+import org.basex.util.*;
+
+/**
+ * Sequence, whose items are stored in a persistent {@link Tree}.
+ *
+ * This representation is chosen for larger sequences that are built incrementally, e.g.
+ * by recursive functions: items can be appended and prepended in amortized constant time,
+ * and subsequences can be created and items can be inserted or removed in logarithmic time.
+ * A sequence is reversed by flipping a flag.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class TreeSeq extends Seq {
+  /** Minimum size of sequences that will be stored in a tree. */
+  public static final int MIN = 64;
+  /** Items (instances of {@link Item}). */
+  private final Tree items;
+  /** Indicates if the items are accessed in reverse order. */
+  private final boolean reversed;
+
+  /**
+   * Constructor.
+   * @param items items
+   * @param reversed reverse flag
+   * @param type type of all items, or {@link AtomType#ITEM}
+   */
+  private TreeSeq(final Tree items, final boolean reversed, final Type type) {
+    super(items.size(), type);
+    this.items = items;
+    this.reversed = reversed;
+  }
+
+  /**
+   * Concatenates the specified values. If the resulting sequence has at least {@link #MIN}
+   * items, it will be stored in a tree.
+   * @param values values
+   * @return resulting value
+   */
+  public static Value get(final Value... values) {
+    long s = 0;
+    for(final Value v : values) s += v.size();
+    if(s < MIN || s > Integer.MAX_VALUE) {
+      final ValueBuilder vb = new ValueBuilder((int) s);
+      for(final Value v : values) vb.add(v);
+      return vb.value();
+    }
+
+    Tree tree = Tree.EMPTY;
+    Type type = null;
+    for(final Value v : values) {
+      if(v.isEmpty()) continue;
+      final Type t = v.homogeneous() ? v.type : AtomType.ITEM;
+      type = type == null || type == t ? t : AtomType.ITEM;
+      tree = tree.concat(tree(v));
+    }
+    return new TreeSeq(tree, false, type);
+  }
+
+  /**
+   * Checks if a tree will be created if the specified value is extended by further items.
+   * This is the case if the value has at least {@link #MIN} items, which are stored in a
+   * generic array. Compact representations (e.g. ranges or database nodes) are preserved.
+   * @param value value
+   * @return result of check
+   */
+  public static boolean extensible(final Value value) {
+    return value instanceof ItemSeq && value.size() >= MIN;
+  }
+
+  /**
+   * Returns a subsequence.
+   * @param start index of the first item
+   * @param length number of items ({@code > 1})
+   * @return subsequence
+   */
+  Value sub(final long start, final long length) {
+    final long s = reversed ? size - start - length : start;
+    return new TreeSeq(items.sub((int) s, (int) length), reversed, type);
+  }
+
+  /**
+   * Returns a tree with the items of the specified value.
+   * @param value value
+   * @return tree
+   */
+  private static Tree tree(final Value value) {
+    if(value instanceof TreeSeq) {
+      final TreeSeq ts = (TreeSeq) value;
+      return ts.reversed ? ts.items.reverse() : ts.items;
+    }
+    final Value[] tmp = new Value[(int) value.size()];
+    int i = 0;
+    for(final Item it : value) tmp[i++] = it;
+    return Tree.get(tmp);
+  }
+
+  @Override
+  public Value reverse() {
+    return new TreeSeq(items, !reversed, type);
+  }
+
+  @Override
+  public Item itemAt(final long pos) {
+    return (Item) items.get((int) (reversed ? size - 1 - pos : pos));
+  }
+
+  @Override
+  public ValueIter iter() {
+    return new ValueIter() {
+      /** Iterator over the leaves of the tree (assigned on first request). */
+      private Iterator<Value> iter;
+      /** Items in reverse order (assigned on first request). */
+      private Item[] cache;
+      /** Number of returned items. */
+      private int c;
+
+      @Override
+      public Item next() {
+        if(c == size) return null;
+        if(reversed) {
+          if(cache == null) {
+            cache = new Item[(int) size];
+            writeTo(cache, 0);
+          }
+          return cache[c++];
+        }
+        if(iter == null) iter = items.iterator();
+        c++;
+        return (Item) iter.next();
+      }
+      @Override
+      public Item get(final long i) { return itemAt(i); }
+      @Override
+      public long size() { return size; }
+      @Override
+      public Value value() { return TreeSeq.this; }
+    };
+  }
+
+  @Override
+  public int writeTo(final Item[] arr, final int index) {
+    final int n = (int) Math.min(arr.length - index, size);
+    // reversed sequence: the first items are found at the end of the tree
+    final Tree tree = reversed ? items.sub((int) size - n, n) : items;
+    int i = 0;
+    for(final Value v : tree) {
+      if(i == n) break;
+      arr[index + (reversed ? n - 1 - i : i)] = (Item) v;
+      i++;
+    }
+    return n;
+  }
+
+  @Override
+  public boolean homogeneous() {
+    return type != AtomType.ITEM;
+  }
+
+  @Override
+  public Item ebv(final QueryContext qc, final InputInfo ii) throws QueryException {
+    final Item fst = itemAt(0);
+    if(fst instanceof ANode) return fst;
+    throw EBV_X.get(ii, this);
+  }
+
+  @Override
+  public SeqType seqType() {
+    return SeqType.get(type, Occ.ONE_MORE);
+  }
+
+  @Override
+  public boolean has(final Flag flag) {
+    if(flag == Flag.UPD) {
+      for(final Value v : items) {
+        if(v.has(Flag.UPD)) return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public Value materialize(final InputInfo ii) throws QueryException {
+    final ValueBuilder vb = new ValueBuilder((int) size);
+    for(final Item it : this) vb.add(it.materialize(ii));
+    return vb.value();
+  }
+
+  @Override
+  public Value atomValue(final InputInfo ii) throws QueryException {
+    final ValueBuilder vb = new ValueBuilder((int) size);
+    for(final Item it : this) vb.add(it.atomValue(ii));
+    return vb.value();
+  }
+
+  @Override
+  public long atomSize() {
+    long s = 0;
+    for(final Value v : items) s += ((Item) v).atomSize();
+    return s;
+  }
+}
@@ -0,0 +1,150 @@
+package org.basex.query.value.tree;
+
+import java.util.*;
+
+import org.basex.query.value.*;
+
+/**
+ * Inner node of a value tree. As the child nodes may contain different numbers of
+ * values, the accumulated sizes are stored and searched to find a value.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class Branch extends TreeNode {
+  /** Child nodes (must not be modified). */
+  final TreeNode[] kids;
+  /** Accumulated sizes of the child nodes (must not be modified). */
+  private final int[] ends;
+  /** Height. */
+  private final int height;
+
+  /**
+   * Constructor.
+   * @param kids child nodes (at least one, all with the same height)
+   */
+  Branch(final TreeNode[] kids) {
+    this(kids, ends(kids));
+  }
+
+  /**
+   * Constructor.
+   * @param kids child nodes
+   * @param ends accumulated sizes of the child nodes
+   */
+  private Branch(final TreeNode[] kids, final int[] ends) {
+    super(ends[ends.length - 1]);
+    this.kids = kids;
+    this.ends = ends;
+    height = kids[0].height() + 1;
+  }
+
+  @Override
+  int height() {
+    return height;
+  }
+
+  @Override
+  int width() {
+    return kids.length;
+  }
+
+  @Override
+  Value get(final int index) {
+    final int k = kid(index);
+    return kids[k].get(index - start(k));
+  }
+
+  @Override
+  TreeNode put(final int index, final Value value) {
+    final int k = kid(index);
+    final TreeNode[] tmp = kids.clone();
+    tmp[k] = kids[k].put(index - start(k), value);
+    return new Branch(tmp, ends);
+  }
+
+  @Override
+  TreeNode merge(final TreeNode node) {
+    final TreeNode[] nk = ((Branch) node).kids, tmp = Arrays.copyOf(kids, kids.length + nk.length);
+    System.arraycopy(nk, 0, tmp, kids.length, nk.length);
+    return new Branch(tmp);
+  }
+
+  @Override
+  TreeNode[] split(final int index) {
+    final int k = kid(index), i = index - start(k), kl = kids.length;
+    if(i == 0) return new TreeNode[] { node(0, k), node(k, kl) };
+    final TreeNode[] nodes = kids[k].split(i);
+    return new TreeNode[] { concat(node(0, k), nodes[0]), concat(nodes[1], node(k + 1, kl)) };
+  }
+
+  /**
+   * Replaces a child node with the specified nodes.
+   * @param k index of the child node
+   * @param nodes new nodes (one or two)
+   * @return one or two branches
+   */
+  TreeNode[] replace(final int k, final TreeNode[] nodes) {
+    final int kl = kids.length, nl = nodes.length, s = kl - 1 + nl;
+    final TreeNode[] tmp = new TreeNode[s];
+    System.arraycopy(kids, 0, tmp, 0, k);
+    System.arraycopy(nodes, 0, tmp, k, nl);
+    System.arraycopy(kids, k + 1, tmp, k + nl, kl - k - 1);
+    if(s <= MAX) return new TreeNode[] { new Branch(tmp) };
+
+    final int h = s >>> 1;
+    return new TreeNode[] {
+      new Branch(Arrays.copyOf(tmp, h)), new Branch(Arrays.copyOfRange(tmp, h, s))
+    };
+  }
+
+  /**
+   * Returns a tree with the specified range of child nodes.
+   * @param s first child node
+   * @param e last child node (exclusive)
+   * @return tree or {@code null}
+   */
+  private TreeNode node(final int s, final int e) {
+    return s == e ? null : e - s == 1 ? kids[s] :
+      new Branch(Arrays.copyOfRange(kids, s, e));
+  }
+
+  /**
+   * Returns the index of the child node containing the specified value.
+   * @param index index of the value
+   * @return index of the child node
+   */
+  private int kid(final int index) {
+    int l = 0, h = ends.length - 1;
+    while(l < h) {
+      final int m = l + h >>> 1;
+      if(ends[m] <= index) l = m + 1;
+      else h = m;
+    }
+    return l;
+  }
+
+  /**
+   * Returns the index of the first value of the specified child node.
+   * @param k index of the child node
+   * @return index of the value
+   */
+  private int start(final int k) {
+    return k == 0 ? 0 : ends[k - 1];
+  }
+
+  /**
+   * Computes the accumulated sizes of the specified nodes.
+   * @param kids nodes
+   * @return accumulated sizes
+   */
+  private static int[] ends(final TreeNode[] kids) {
+    final int kl = kids.length;
+    final int[] ends = new int[kl];
+    for(int k = 0, s = 0; k < kl; k++) {
+      s += kids[k].size;
+      ends[k] = s;
+    }
+    return ends;
+  }
+}
@@ -0,0 +1,61 @@
+package org.basex.query.value.tree;
+
+import java.util.*;
+
+import org.basex.query.value.*;
+
+/**
+ * Leaf of a value tree, containing values.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class Leaf extends TreeNode {
+  /** Members (must not be modified). */
+  final Value[] values;
+
+  /**
+   * Constructor.
+   * @param values values
+   */
+  Leaf(final Value[] values) {
+    super(values.length);
+    this.values = values;
+  }
+
+  @Override
+  int height() {
+    return 0;
+  }
+
+  @Override
+  int width() {
+    return size;
+  }
+
+  @Override
+  Value get(final int index) {
+    return values[index];
+  }
+
+  @Override
+  TreeNode put(final int index, final Value value) {
+    final Value[] tmp = values.clone();
+    tmp[index] = value;
+    return new Leaf(tmp);
+  }
+
+  @Override
+  TreeNode merge(final TreeNode node) {
+    final Value[] mem = ((Leaf) node).values, tmp = Arrays.copyOf(values, size + mem.length);
+    System.arraycopy(mem, 0, tmp, size, mem.length);
+    return new Leaf(tmp);
+  }
+
+  @Override
+  TreeNode[] split(final int index) {
+    return new TreeNode[] {
+      new Leaf(Arrays.copyOf(values, index)), new Leaf(Arrays.copyOfRange(values, index, size))
+    };
+  }
+}
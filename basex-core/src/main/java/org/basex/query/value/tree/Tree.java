@@ -0,0 +1,297 @@
+package org.basex.query.value.tree;
+
+import java.util.*;
+
+import org.basex.query.value.*;
+import org.basex.util.*;
+
+/**
+ * Persistent list of values, which is used to store the members of arrays and the items
+ * of sequences that are built incrementally.
+ *
+ * Most values are stored in a relaxed balanced tree (see {@link TreeNode}). Up to
+ * {@link TreeNode#MAX} values at both ends of the list are stored in separate buffers.
+ * This way, values can be appended and prepended in amortized constant time.
+ * Values can be accessed and replaced, and lists can be concatenated and split, in
+ * logarithmic time. Instances of this class are never modified.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class Tree implements Iterable<Value> {
+  /** No values. */
+  private static final Value[] NONE = {};
+  /** Empty list. */
+  public static final Tree EMPTY = new Tree(NONE, null, NONE);
+
+  /** Values at the start of the list. */
+  private final Value[] front;
+  /** Tree with the remaining values (can be {@code null}). */
+  private final TreeNode root;
+  /** Values at the end of the list. */
+  private final Value[] back;
+  /** Number of values. */
+  private final int size;
+
+  /**
+   * Constructor.
+   * @param front values at the start of the list
+   * @param root tree with the remaining values
+   * @param back values at the end of the list
+   */
+  private Tree(final Value[] front, final TreeNode root, final Value[] back) {
+    this.front = front;
+    this.root = root;
+    this.back = back;
+    size = front.length + (root == null ? 0 : root.size) + back.length;
+  }
+
+  /**
+   * Returns an instance of this class.
+   * @param values values (will be adopted by the list)
+   * @return instance
+   */
+  public static Tree get(final Value... values) {
+    final int s = values.length;
+    return s == 0 ? EMPTY : s <= TreeNode.MAX ? new Tree(NONE, null, values) :
+      new Tree(NONE, TreeNode.build(values), NONE);
+  }
+
+  /**
+   * Returns an instance of this class.
+   * @param node tree (can be {@code null})
+   * @return instance
+   */
+  private static Tree get(final TreeNode node) {
+    final TreeNode n = TreeNode.trim(node);
+    return n == null ? EMPTY : n instanceof Leaf ? new Tree(NONE, null, ((Leaf) n).values) :
+      new Tree(NONE, n, NONE);
+  }
+
+  /**
+   * Returns the number of values.
+   * @return size
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the value at the specified index.
+   * @param index index ({@code 0 <= index < size})
+   * @return value
+   */
+  public Value get(final int index) {
+    final int fl = front.length;
+    if(index < fl) return front[index];
+    final int i = index - fl, rs = size - fl - back.length;
+    return i < rs ? root.get(i) : back[i - rs];
+  }
+
+  /**
+   * Returns a new list with the specified value appended.
+   * @param value value to be added
+   * @return new list
+   */
+  public Tree append(final Value value) {
+    final int bl = back.length;
+    if(bl < TreeNode.MAX) {
+      final Value[] tmp = Arrays.copyOf(back, bl + 1);
+      tmp[bl] = value;
+      return new Tree(front, root, tmp);
+    }
+    return new Tree(front, TreeNode.concat(root, new Leaf(back)), new Value[] { value });
+  }
+
+  /**
+   * Returns a new list with the specified value prepended.
+   * @param value value to be added
+   * @return new list
+   */
+  public Tree prepend(final Value value) {
+    final int fl = front.length;
+    if(fl < TreeNode.MAX) {
+      final Value[] tmp = new Value[fl + 1];
+      tmp[0] = value;
+      System.arraycopy(front, 0, tmp, 1, fl);
+      return new Tree(tmp, root, back);
+    }
+    return new Tree(new Value[] { value }, TreeNode.concat(new Leaf(front), root), back);
+  }
+
+  /**
+   * Returns a new list with the specified value inserted at the specified position.
+   * @param index index of the new value ({@code 0 <= index <= size})
+   * @param value value to be inserted
+   * @return new list
+   */
+  public Tree insertBefore(final int index, final Value value) {
+    if(index == 0) return prepend(value);
+    if(index == size) return append(value);
+    final TreeNode[] nodes = TreeNode.split(node(), index);
+    final TreeNode left = TreeNode.concat(nodes[0], new Leaf(new Value[] { value }));
+    return get(TreeNode.concat(left, nodes[1]));
+  }
+
+  /**
+   * Returns a new list in which the value at the specified position is replaced.
+   * @param index index of the value ({@code 0 <= index < size})
+   * @param value new value
+   * @return new list
+   */
+  public Tree put(final int index, final Value value) {
+    final int fl = front.length, rs = size - fl - back.length;
+    if(index < fl) {
+      final Value[] tmp = front.clone();
+      tmp[index] = value;
+      return new Tree(tmp, root, back);
+    }
+    final int i = index - fl;
+    if(i < rs) return new Tree(front, root.put(i, value), back);
+    final Value[] tmp = back.clone();
+    tmp[i - rs] = value;
+    return new Tree(front, root, tmp);
+  }
+
+  /**
+   * Returns a new list without the value at the specified position.
+   * @param index index of the value ({@code 0 <= index < size})
+   * @return new list
+   */
+  public Tree remove(final int index) {
+    if(index == 0 || index == size - 1) return sub(index == 0 ? 1 : 0, size - 1);
+    final TreeNode[] nodes = TreeNode.split(node(), index);
+    return get(TreeNode.concat(nodes[0], TreeNode.split(nodes[1], 1)[1]));
+  }
+
+  /**
+   * Returns a new list with the values of this and the specified list.
+   * @param tree list to be appended
+   * @return new list
+   */
+  public Tree concat(final Tree tree) {
+    if(size == 0) return tree;
+    final int ts = tree.size;
+    if(ts == 0) return this;
+    if(ts == 1) return append(tree.get(0));
+    if(size == 1) return tree.prepend(get(0));
+    return get(TreeNode.concat(node(), tree.node()));
+  }
+
+  /**
+   * Returns a sublist.
+   * @param start index of the first value
+   * @param length number of values
+   * @return sublist
+   */
+  public Tree sub(final int start, final int length) {
+    if(length == 0) return EMPTY;
+    if(start == 0 && length == size) return this;
+    final TreeNode left = TreeNode.split(node(), start + length)[0];
+    return get(TreeNode.split(left, start)[1]);
+  }
+
+  /**
+   * Returns a list with the values in reverse order.
+   * @return new list
+   */
+  public Tree reverse() {
+    final Value[] tmp = new Value[size];
+    int i = size;
+    for(final Value v : this) tmp[--i] = v;
+    return get(tmp);
+  }
+
+  /**
+   * Returns a single tree with all values of this list.
+   * @return tree or {@code null}
+   */
+  private TreeNode node() {
+    TreeNode n = root;
+    if(front.length != 0) n = TreeNode.concat(new Leaf(front), n);
+    if(back.length != 0) n = TreeNode.concat(n, new Leaf(back));
+    return n;
+  }
+
+  @Override
+  public Iterator<Value> iterator() {
+    return new TreeIterator();
+  }
+
+  /** Iterator over the values of a list. */
+  private final class TreeIterator implements Iterator<Value> {
+    /** Branches on the path to the current leaf. */
+    private final Branch[] branches;
+    /** Indexes of the child nodes on the path to the current leaf. */
+    private final int[] kids;
+    /** Current values. */
+    private Value[] values = front;
+    /** Position in the current values. */
+    private int v;
+    /** Number of returned values. */
+    private int c;
+    /** Indicates if the tree has been entered. */
+    private boolean entered;
+
+    /** Constructor. */
+    TreeIterator() {
+      final int h = root == null ? 0 : root.height();
+      branches = new Branch[h];
+      kids = new int[h];
+    }
+
+    @Override
+    public boolean hasNext() {
+      return c < size;
+    }
+
+    @Override
+    public Value next() {
+      while(v == values.length) {
+        values = nextValues();
+        v = 0;
+      }
+      c++;
+      return values[v++];
+    }
+
+    /**
+     * Returns the values that follow the current values.
+     * @return next values
+     */
+    private Value[] nextValues() {
+      if(root != null) {
+        if(!entered) {
+          entered = true;
+          return leaf(root, 0);
+        }
+        for(int d = branches.length - 1; d >= 0; d--) {
+          final TreeNode[] nodes = branches[d].kids;
+          if(++kids[d] < nodes.length) return leaf(nodes[kids[d]], d + 1);
+        }
+      }
+      return back;
+    }
+
+    /**
+     * Descends to the first leaf of the specified node.
+     * @param node node
+     * @param depth depth of the node
+     * @return values of the leaf
+     */
+    private Value[] leaf(final TreeNode node, final int depth) {
+      TreeNode n = node;
+      for(int d = depth; n instanceof Branch; d++) {
+        branches[d] = (Branch) n;
+        kids[d] = 0;
+        n = branches[d].kids[0];
+      }
+      return ((Leaf) n).values;
+    }
+
+    @Override
+    public void remove() {
+      throw Util.notExpected();
+    }
+  }
+}
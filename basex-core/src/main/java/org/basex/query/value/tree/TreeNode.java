@@ -0,0 +1,157 @@
+package org.basex.query.value.tree;
+
+import org.basex.query.value.*;
+
+/**
+ * Abstract superclass of the nodes of a persistent value tree.
+ *
+ * Leaves store up to {@link #MAX} values, and branches up to {@link #MAX} child nodes.
+ * All leaves have the same depth. Nodes are never modified; updates copy the nodes on
+ * the path to the affected leaf and share all other nodes.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+abstract class TreeNode {
+  /** Maximum number of entries of a node. */
+  static final int MAX = 32;
+
+  /** Number of values stored in this node. */
+  final int size;
+
+  /**
+   * Constructor.
+   * @param size number of values
+   */
+  TreeNode(final int size) {
+    this.size = size;
+  }
+
+  /**
+   * Returns the height of this node (leaves have height {@code 0}).
+   * @return height
+   */
+  abstract int height();
+
+  /**
+   * Returns the number of entries (values or child nodes) of this node.
+   * @return number of entries
+   */
+  abstract int width();
+
+  /**
+   * Returns the value at the specified index.
+   * @param index index
+   * @return value
+   */
+  abstract Value get(int index);
+
+  /**
+   * Returns a copy of this node in which the value at the specified index is replaced.
+   * @param index index
+   * @param value new value
+   * @return new node
+   */
+  abstract TreeNode put(int index, Value value);
+
+  /**
+   * Merges the entries of this node and the specified node, which has the same height.
+   * The number of entries of both nodes must not exceed {@link #MAX}.
+   * @param node node to be appended
+   * @return merged node
+   */
+  abstract TreeNode merge(TreeNode node);
+
+  /**
+   * Splits this node at the specified index.
+   * @param index index of the first value of the second part
+   *   ({@code 0 < index < size})
+   * @return two nodes
+   */
+  abstract TreeNode[] split(int index);
+
+  /**
+   * Concatenates two trees.
+   * @param left left tree (can be {@code null})
+   * @param right right tree (can be {@code null})
+   * @return resulting tree or {@code null}
+   */
+  static TreeNode concat(final TreeNode left, final TreeNode right) {
+    if(left == null) return right;
+    if(right == null) return left;
+    final TreeNode[] nodes = join(left, right);
+    return nodes.length == 1 ? nodes[0] : new Branch(nodes);
+  }
+
+  /**
+   * Splits a tree at the specified index.
+   * @param node tree (can be {@code null})
+   * @param index index of the first value of the second part
+   * @return left and right tree (both can be {@code null})
+   */
+  static TreeNode[] split(final TreeNode node, final int index) {
+    if(index == 0) return new TreeNode[] { null, node };
+    if(node == null || index == node.size) return new TreeNode[] { node, null };
+    final TreeNode[] nodes = node.split(index);
+    return new TreeNode[] { trim(nodes[0]), trim(nodes[1]) };
+  }
+
+  /**
+   * Removes root branches with a single child node.
+   * @param node tree (can be {@code null})
+   * @return resulting tree
+   */
+  static TreeNode trim(final TreeNode node) {
+    TreeNode n = node;
+    while(n instanceof Branch && n.width() == 1) n = ((Branch) n).kids[0];
+    return n;
+  }
+
+  /**
+   * Builds a tree from the specified values.
+   * @param values values
+   * @return tree or {@code null}
+   */
+  static TreeNode build(final Value[] values) {
+    final int ms = values.length;
+    if(ms == 0) return null;
+
+    TreeNode[] nodes = new TreeNode[(ms + MAX - 1) / MAX];
+    for(int n = 0, m = 0; m < ms; n++, m += MAX) {
+      final Value[] vals = new Value[Math.min(MAX, ms - m)];
+      System.arraycopy(values, m, vals, 0, vals.length);
+      nodes[n] = new Leaf(vals);
+    }
+    for(int ns = nodes.length; ns > 1; ns = nodes.length) {
+      final TreeNode[] tmp = new TreeNode[(ns + MAX - 1) / MAX];
+      for(int t = 0, n = 0; n < ns; t++, n += MAX) {
+        final TreeNode[] kids = new TreeNode[Math.min(MAX, ns - n)];
+        System.arraycopy(nodes, n, kids, 0, kids.length);
+        tmp[t] = new Branch(kids);
+      }
+      nodes = tmp;
+    }
+    return nodes[0];
+  }
+
+  /**
+   * Joins two trees.
+   * @param left left tree
+   * @param right right tree
+   * @return one or two nodes with the height of the higher tree
+   */
+  private static TreeNode[] join(final TreeNode left, final TreeNode right) {
+    final int lh = left.height(), rh = right.height();
+    if(lh == rh) {
+      return left.width() + right.width() <= MAX ? new TreeNode[] { left.merge(right) } :
+        new TreeNode[] { left, right };
+    }
+    if(lh > rh) {
+      final Branch b = (Branch) left;
+      final int k = b.kids.length - 1;
+      return b.replace(k, join(b.kids[k], right));
+    }
+    final Branch b = (Branch) right;
+    return b.replace(0, join(left, b.kids[0]));
+  }
+}
@@ -61,6 +61,18 @@ public final class QueryStack {
     }
   }
 
+  /**
+   * Copies all variable bindings and the current stack frame of the specified stack.
+   * Used to evaluate expressions of the same scope in parallel.
+   * @param qs stack to copy
+   */
+  public void copy(final QueryStack qs) {
+    ensureCapacity(qs.sl);
+    System.arraycopy(qs.stack, 0, stack, 0, qs.sl);
+    fp = qs.fp;
+    sl = qs.sl;
+  }
+
   /**
    * Ensures that the query stack has at least the given size.
    * @param newSize required size of the stack
@@ -30,7 +30,9 @@ public final class StaticVar extends StaticDecl {
   private final boolean lazy;
 
   /** Bound value. */
-  Value val;
+  volatile Value val;
+  /** Query context in which the variable is currently evaluated. */
+  private QueryContext owner;
 
   /**
    * Constructor for a variable declared in a query.
@@ -80,37 +82,57 @@ public final class StaticVar extends StaticDecl {
   }
 
   /**
-   * Evaluates this variable lazily.
+   * Evaluates this variable lazily. As the variable may be requested by tasks that are
+   * evaluated in parallel, the first evaluation is synchronized.
    * @param qc query context
    * @return value of this variable
    * @throws QueryException query exception
    */
   Value value(final QueryContext qc) throws QueryException {
-    if(dontEnter) throw circVarError(this);
-    if(lazy) {
-      if(!compiled) throw Util.notExpected(this + " was not compiled.");
+    final Value v = val;
+    return v != null ? v : eval(qc);
+  }
+
+  /**
+   * Evaluates and binds the value of this variable. Other tasks that request the variable
+   * wait until the value has been bound. If the variable is requested while it is evaluated
+   * in the same context, or in a task that has been forked by this evaluation, the variable
+   * depends on itself.
+   * @param qc query context
+   * @return value of this variable
+   * @throws QueryException query exception
+   */
+  private Value eval(final QueryContext qc) throws QueryException {
+    synchronized(this) {
+      if(dontEnter) throw circVarError(this);
+      while(owner != null) {
+        if(qc.derived(owner)) throw circVarError(this);
+        try {
+          wait();
+        } catch(final InterruptedException ex) {
+          throw Util.notExpected(ex);
+        }
+      }
       if(val != null) return val;
-      dontEnter = true;
-      final int fp = scope.enter(qc);
-      try {
-        return bind(expr.value(qc));
-      } catch(final QueryException qe) {
-        throw qe.notCatchable();
-      } finally {
-        scope.exit(qc, fp);
-        dontEnter = false;
+      if(lazy) {
+        if(!compiled) throw Util.notExpected(this + " was not compiled.");
+      } else if(expr == null) {
+        throw VAREMPTY_X.get(info, this);
       }
+      owner = qc;
     }
 
-    if(val != null) return val;
-    if(expr == null) throw VAREMPTY_X.get(info, this);
-    dontEnter = true;
     final int fp = scope.enter(qc);
     try {
       return bind(expr.value(qc));
+    } catch(final QueryException qe) {
+      throw lazy ? qe.notCatchable() : qe;
     } finally {
       scope.exit(qc, fp);
-      dontEnter = false;
+      synchronized(this) {
+        owner = null;
+        notifyAll();
+      }
     }
   }
 
@@ -0,0 +1,132 @@
+package org.basex.server;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.basex.util.*;
+
+/**
+ * This class parks idle client sessions in a selector and dispatches incoming requests
+ * to a bounded pool of worker threads. This way, idle sessions occupy no threads.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class ClientDispatcher extends Thread {
+  /** Selector for idle sessions. */
+  private final Selector selector;
+  /** Worker threads. */
+  private final ExecutorService workers;
+  /** Sessions to be parked. */
+  private final ConcurrentLinkedQueue<ClientListener> parked = new ConcurrentLinkedQueue<>();
+  /** Sessions with pending requests (only accessed by the dispatcher thread). */
+  private final ArrayList<ClientListener> ready = new ArrayList<>();
+  /** Indicates if the dispatcher is running. */
+  private volatile boolean running = true;
+
+  /**
+   * Constructor.
+   * @param threads number of worker threads
+   * @throws IOException I/O exception
+   */
+  public ClientDispatcher(final int threads) throws IOException {
+    super(Util.className(ClientDispatcher.class));
+    setDaemon(true);
+    selector = Selector.open();
+
+    final AtomicInteger count = new AtomicInteger();
+    workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable r) {
+        final Thread t = new Thread(r, getName() + '-' + count.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+
+  /**
+   * Processes the specified session in a worker thread.
+   * @param client client session
+   */
+  public void dispatch(final ClientListener client) {
+    workers.execute(new Runnable() {
+      @Override
+      public void run() {
+        client.serve(ClientDispatcher.this);
+      }
+    });
+  }
+
+  /**
+   * Parks the specified session until new input arrives.
+   * @param client client session
+   */
+  void park(final ClientListener client) {
+    parked.add(client);
+    selector.wakeup();
+  }
+
+  /**
+   * Stops the dispatcher and its worker threads.
+   */
+  public void close() {
+    running = false;
+    workers.shutdownNow();
+    try {
+      selector.close();
+    } catch(final IOException ex) {
+      Util.debug(ex);
+    }
+  }
+
+  @Override
+  public void run() {
+    while(running) {
+      try {
+        selector.select();
+
+        // the cancelled keys have been flushed: resume sessions in blocking mode
+        for(final ClientListener client : ready) {
+          try {
+            client.channel().configureBlocking(true);
+            dispatch(client);
+          } catch(final IOException ex) {
+            Util.debug(ex);
+            client.quit();
+          }
+        }
+        ready.clear();
+
+        // register parked sessions
+        for(ClientListener client; (client = parked.poll()) != null;) {
+          final SocketChannel channel = client.channel();
+          try {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, client);
+          } catch(final IOException ex) {
+            Util.debug(ex);
+            client.quit();
+          }
+        }
+
+        // cancel keys of sessions with new input; they will be dispatched in the next run
+        final Set<SelectionKey> keys = selector.selectedKeys();
+        for(final SelectionKey key : keys) {
+          key.cancel();
+          ready.add((ClientListener) key.attachment());
+        }
+        keys.clear();
+        if(!ready.isEmpty()) selector.wakeup();
+      } catch(final ClosedSelectorException ex) {
+        break;
+      } catch(final IOException ex) {
+        Util.stack(ex);
+        break;
+      }
+    }
+  }
+}
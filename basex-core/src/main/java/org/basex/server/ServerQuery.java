@@ -120,6 +120,8 @@ public final class ServerQuery extends Proc {
     try {
       // parses the query and registers the process
       ctx.register(parse());
+      // read databases from snapshots and release their locks
+      if(qp.qc.snapshots()) ctx.relock(qp);
 
       // create serializer
       qp.compile();
@@ -0,0 +1,336 @@
+package org.basex.util;
+
+import java.util.*;
+
+import org.basex.core.MainOptions.MainCodec;
+import org.basex.util.list.*;
+
+/**
+ * Byte-oriented LZ77 codec, similar to the LZ4 block format. A packed value consists of
+ * sequences, each comprising a token, literal bytes, and a back reference:
+ *
+ * <ul>
+ *   <li>The upper and lower 4 bits of the token contain the number of literals and the
+ *   length of the match minus 4. The value 15 indicates that more length bytes follow
+ *   (each of them is added until a byte other than 255 is found).</li>
+ *   <li>The 2-byte offset of the match is stored in little-endian order.</li>
+ *   <li>The last sequence only contains literals.</li>
+ * </ul>
+ *
+ * An optional dictionary is virtually placed in front of each value, so back references
+ * can also point to common substrings of the dictionary. Dictionaries are built from
+ * sample values with {@link #build}.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+final class LZCodec extends ValueCodec {
+  /** Maximum dictionary size. */
+  static final int MAXDICT = 1 << 15;
+  /** Minimum length of a match. */
+  private static final int MINMATCH = 4;
+  /** Maximum offset of a match. */
+  private static final int MAXOFF = (1 << 16) - 1;
+  /** Minimum length of values to be compressed. */
+  private static final int MINLEN = 8;
+  /** Number of hash bits for positions of the current value. */
+  private static final int HBITS = 12;
+  /** Number of hash bits for positions of the dictionary. */
+  private static final int DBITS = 15;
+
+  /** Length of substrings that are counted while training a dictionary. */
+  private static final int DMER = 6;
+  /** Length of the segments that are added to a dictionary. */
+  private static final int SEGMENT = 48;
+  /** Number of hash bits for counting substrings. */
+  private static final int FBITS = 20;
+
+  /** Hash tables for the current value (positions and generations). */
+  private static final ThreadLocal<int[][]> TABLES = new ThreadLocal<int[][]>() {
+    @Override
+    protected int[][] initialValue() {
+      return new int[][] { new int[1 << HBITS], new int[1 << HBITS], { 0 } };
+    }
+  };
+
+  /** Dictionary. */
+  private final byte[] dict;
+  /** Hash table with dictionary positions ({@code -1}: no entry). */
+  private final int[] dtable;
+
+  /**
+   * Constructor.
+   * @param type codec type
+   * @param dict dictionary
+   */
+  LZCodec(final MainCodec type, final byte[] dict) {
+    super(type);
+    this.dict = dict;
+    final int dl = dict.length;
+    dtable = new int[dl == 0 ? 0 : 1 << DBITS];
+    Arrays.fill(dtable, -1);
+    for(int d = 0; d + MINMATCH <= dl; d++) dtable[hash(dict, d) >>> 32 - DBITS] = d;
+  }
+
+  @Override
+  public byte[] dictionary() {
+    return dict;
+  }
+
+  @Override
+  public byte[] pack(final byte[] value) {
+    final int vl = value.length;
+    if(vl < MINLEN) return value;
+
+    // worst case: one additional length byte per 255 literals
+    final byte[] out = new byte[vl + vl / 255 + 16];
+    Num.set(out, vl, 0);
+    int op = Num.length(vl);
+
+    // tables for the current value are invalidated by incrementing the generation
+    final int[][] tables = TABLES.get();
+    final int[] pos = tables[0], gens = tables[1];
+    final int gen = ++tables[2][0];
+    if(gen == Integer.MAX_VALUE) {
+      Arrays.fill(gens, 0);
+      tables[2][0] = 0;
+    }
+
+    final byte[] dct = dict;
+    final int dl = dct.length;
+    int anchor = 0, i = 0;
+    while(i + MINMATCH <= vl) {
+      final int h = hash(value, i);
+      int len = 0, off = 0;
+
+      // find match in current value
+      final int hh = h >>> 32 - HBITS;
+      if(gens[hh] == gen) {
+        final int c = pos[hh];
+        final int l = matchLength(value, c, i, value, vl);
+        if(l >= MINMATCH && i - c <= MAXOFF) {
+          len = l;
+          off = i - c;
+        }
+      }
+      pos[hh] = i;
+      gens[hh] = gen;
+
+      // find longer match in dictionary
+      if(dl != 0) {
+        final int c = dtable[h >>> 32 - DBITS];
+        if(c != -1 && i + dl - c <= MAXOFF) {
+          final int l = matchLength(dct, c, i, value, Math.min(vl, i + dl - c));
+          if(l >= MINMATCH && l > len) {
+            len = l;
+            off = i + dl - c;
+          }
+        }
+      }
+
+      if(len == 0) {
+        i++;
+      } else {
+        op = sequence(out, op, value, anchor, i - anchor, off, len);
+        // give up if the value cannot be compressed
+        if(op >= vl) return value;
+        i += len;
+        anchor = i;
+      }
+    }
+    op = sequence(out, op, value, anchor, vl - anchor, 0, 0);
+    return op < vl ? Arrays.copyOf(out, op) : value;
+  }
+
+  @Override
+  public byte[] unpack(final byte[] value) {
+    final int vl = Num.get(value, 0), end = value.length;
+    final byte[] out = new byte[vl], dct = dict;
+    int ip = Num.length(value, 0), op = 0;
+    while(true) {
+      final int token = value[ip++] & 0xFF;
+      // copy literals
+      int lit = token >>> 4;
+      if(lit == 15) {
+        int b;
+        do {
+          b = value[ip++] & 0xFF;
+          lit += b;
+        } while(b == 255);
+      }
+      System.arraycopy(value, ip, out, op, lit);
+      ip += lit;
+      op += lit;
+      if(ip >= end) break;
+
+      // copy match
+      final int off = value[ip++] & 0xFF | (value[ip++] & 0xFF) << 8;
+      int len = token & 15;
+      if(len == 15) {
+        int b;
+        do {
+          b = value[ip++] & 0xFF;
+          len += b;
+        } while(b == 255);
+      }
+      len += MINMATCH;
+      int src = op - off;
+      if(src < 0) {
+        // match starts in dictionary
+        final int n = Math.min(-src, len);
+        System.arraycopy(dct, dct.length + src, out, op, n);
+        op += n;
+        len -= n;
+        src = 0;
+      }
+      if(op - src >= len) {
+        System.arraycopy(out, src, out, op, len);
+        op += len;
+      } else {
+        // overlapping match
+        while(len-- > 0) out[op++] = out[src++];
+      }
+    }
+    return out;
+  }
+
+  /**
+   * Builds a dictionary from the specified sample values. The dictionary consists of the
+   * segments of the sample with the most frequent substrings.
+   * @param samples sample values
+   * @return dictionary
+   */
+  static byte[] build(final TokenList samples) {
+    final ByteList bl = new ByteList();
+    for(final byte[] sample : samples) bl.add(sample);
+    final byte[] smp = bl.finish();
+    final int sl = smp.length;
+    if(sl <= MAXDICT) return smp;
+
+    // count substrings
+    final int[] freqs = new int[1 << FBITS];
+    final int dmers = sl - DMER + 1;
+    for(int s = 0; s < dmers; s++) freqs[dmer(smp, s)]++;
+
+    // choose best segment from each epoch of the sample
+    final int segs = MAXDICT / SEGMENT, epoch = sl / segs, window = SEGMENT - DMER + 1;
+    final ByteList dct = new ByteList(MAXDICT);
+    for(int e = 0; e < segs; e++) {
+      final int es = e * epoch, ee = Math.min(dmers, es + epoch);
+      if(ee - es < window) break;
+      long sum = 0, max = 0;
+      int best = -1;
+      for(int s = es; s < ee; s++) {
+        sum += score(freqs, dmer(smp, s));
+        if(s - es >= window) sum -= score(freqs, dmer(smp, s - window));
+        if(s - es >= window - 1 && sum > max) {
+          max = sum;
+          best = s - window + 1;
+        }
+      }
+      if(best == -1) continue;
+      dct.add(smp, best, best + SEGMENT);
+      // substrings of chosen segments will not be counted again
+      for(int s = best; s < best + window; s++) freqs[dmer(smp, s)] = 0;
+    }
+    return dct.finish();
+  }
+
+  /**
+   * Writes a sequence.
+   * @param out output array
+   * @param op output position
+   * @param value value
+   * @param start start of literals
+   * @param lit number of literals
+   * @param off match offset ({@code 0}: last sequence)
+   * @param len match length
+   * @return new output position
+   */
+  private static int sequence(final byte[] out, final int op, final byte[] value,
+      final int start, final int lit, final int off, final int len) {
+
+    final int tp = op;
+    int o = op + 1, token = Math.min(lit, 15) << 4;
+    if(lit >= 15) o = length(out, o, lit - 15);
+    System.arraycopy(value, start, out, o, lit);
+    o += lit;
+    if(off != 0) {
+      out[o++] = (byte) off;
+      out[o++] = (byte) (off >>> 8);
+      final int l = len - MINMATCH;
+      token |= Math.min(l, 15);
+      if(l >= 15) o = length(out, o, l - 15);
+    }
+    out[tp] = (byte) token;
+    return o;
+  }
+
+  /**
+   * Writes an additional length.
+   * @param out output array
+   * @param op output position
+   * @param length length
+   * @return new output position
+   */
+  private static int length(final byte[] out, final int op, final int length) {
+    int o = op, l = length;
+    for(; l >= 255; l -= 255) out[o++] = (byte) 255;
+    out[o++] = (byte) l;
+    return o;
+  }
+
+  /**
+   * Returns the length of a match.
+   * @param src source array
+   * @param sp position in source array
+   * @param vp position in value
+   * @param value value
+   * @param end end of value
+   * @return length
+   */
+  private static int matchLength(final byte[] src, final int sp, final int vp,
+      final byte[] value, final int end) {
+    int s = sp, v = vp;
+    final int sl = src.length;
+    while(v < end && s < sl && src[s] == value[v]) {
+      s++;
+      v++;
+    }
+    return v - vp;
+  }
+
+  /**
+   * Computes a hash value for the four bytes at the specified position.
+   * @param array array
+   * @param pos position
+   * @return hash value
+   */
+  private static int hash(final byte[] array, final int pos) {
+    return ((array[pos] & 0xFF) | (array[pos + 1] & 0xFF) << 8 | (array[pos + 2] & 0xFF) << 16 |
+        (array[pos + 3] & 0xFF) << 24) * -1640531535;
+  }
+
+  /**
+   * Computes a hash value for the substring at the specified position.
+   * @param array array
+   * @param pos position
+   * @return hash value
+   */
+  private static int dmer(final byte[] array, final int pos) {
+    long v = 0;
+    for(int d = 0; d < DMER; d++) v = v << 8 | array[pos + d] & 0xFF;
+    return (int) (v * 0x9E3779B97F4A7C15L >>> 64 - FBITS);
+  }
+
+  /**
+   * Returns the score of a substring.
+   * @param freqs frequencies
+   * @param dmer substring hash
+   * @return score (substrings that occur only once are ignored)
+   */
+  private static int score(final int[] freqs, final int dmer) {
+    final int f = freqs[dmer];
+    return f > 1 ? f : 0;
+  }
+}
@@ -107,6 +107,10 @@ public final class Prop {
   public static boolean debug;
   /** GUI mode. */
   public static boolean gui;
+  /** Number of buffered pages per database file (applied to newly opened files). */
+  public static int buffers = 16;
+  /** Maximum number of cached entries per index (applied to newly opened indexes). */
+  public static int indexcache = 1 << 16;
 
   /**
    * <p>Determines the project's home directory for storing property files
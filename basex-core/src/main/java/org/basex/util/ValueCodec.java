@@ -0,0 +1,107 @@
+package org.basex.util;
+
+import org.basex.core.MainOptions.MainCodec;
+import org.basex.util.list.*;
+
+/**
+ * This class compresses and decompresses text and attribute values of disk-based databases.
+ * Packed values start with the length of the original value, followed by the codec-specific
+ * payload. If a value cannot be compressed, it is returned unchanged.
+ *
+ * Codec instances are thread-safe.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public abstract class ValueCodec {
+  /** Maximum number of bytes of the sample values that are used for training a dictionary. */
+  public static final int SAMPLE = 1 << 20;
+
+  /** Codec type. */
+  public final MainCodec type;
+
+  /**
+   * Constructor.
+   * @param type codec type
+   */
+  ValueCodec(final MainCodec type) {
+    this.type = type;
+  }
+
+  /**
+   * Returns a codec instance.
+   * @param type codec type
+   * @param dict dictionary (only considered by the {@link MainCodec#DICT} codec)
+   * @return codec
+   */
+  public static ValueCodec get(final MainCodec type, final byte[] dict) {
+    switch(type) {
+      case NONE: return new ValueCodec(type) {
+        @Override
+        public byte[] pack(final byte[] value) { return value; }
+        @Override
+        public byte[] unpack(final byte[] value) { return value; }
+      };
+      case BITS: return new ValueCodec(type) {
+        @Override
+        public byte[] pack(final byte[] value) { return BITS.get().pack(value); }
+        @Override
+        public byte[] unpack(final byte[] value) { return BITS.get().unpack(value); }
+      };
+      case LZ: return new LZCodec(type, Token.EMPTY);
+      default: return new LZCodec(type, dict == null ? Token.EMPTY : dict);
+    }
+  }
+
+  /**
+   * Returns a dictionary codec, which is trained on the specified sample values.
+   * @param samples sample values
+   * @return codec
+   */
+  public static ValueCodec train(final TokenList samples) {
+    return new LZCodec(MainCodec.DICT, LZCodec.build(samples));
+  }
+
+  /** Bit packer (not thread-safe). */
+  private static final ThreadLocal<Compress> BITS = new ThreadLocal<Compress>() {
+    @Override
+    protected Compress initialValue() {
+      return new Compress();
+    }
+  };
+
+  /**
+   * Compresses the specified value.
+   * @param value value to be packed
+   * @return packed value, or original value if it could not be compressed
+   */
+  public abstract byte[] pack(byte[] value);
+
+  /**
+   * Decompresses the specified value.
+   * @param value value to be unpacked
+   * @return unpacked value
+   */
+  public abstract byte[] unpack(byte[] value);
+
+  /**
+   * Returns the dictionary of this codec.
+   * @return dictionary (empty if no dictionary is used)
+   */
+  public byte[] dictionary() {
+    return Token.EMPTY;
+  }
+
+  /**
+   * Indicates if this codec needs a dictionary that has not been trained yet.
+   * @return result of check
+   */
+  public final boolean untrained() {
+    return type == MainCodec.DICT && dictionary().length == 0;
+  }
+
+  @Override
+  public String toString() {
+    return type.toString();
+  }
+}
@@ -9,7 +9,6 @@ import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.io.*;
 import org.basex.io.in.DataInput;
-import org.basex.io.out.DataOutput;
 import org.basex.util.*;
 import org.basex.util.hash.*;
 
@@ -26,18 +25,12 @@ public final class StopWords extends TokenSet {
   public StopWords() { }
 
   /**
-   * Constructor, reading stopword list from disk.
-   * And creating database stopword file.
-   * @param data data reference
+   * Constructor, reading the stopword list that is specified in the options.
    * @param options main options
-   * @throws IOException I/O exception
    */
-  public StopWords(final Data data, final MainOptions options) throws IOException {
+  public StopWords(final MainOptions options) {
     final String file = options.get(MainOptions.STOPWORDS);
     if(!file.isEmpty()) read(IO.get(file), false);
-    try(final DataOutput out = new DataOutput(data.meta.dbfile(DATASWL))) {
-      write(out);
-    }
   }
 
   /**
@@ -37,6 +37,17 @@ public class TokenSet extends ASet implements Iterable<byte[]> {
     for(final byte[] i : key) add(i);
   }
 
+  /**
+   * Copy constructor.
+   * @param set set to be copied
+   */
+  protected TokenSet(final TokenSet set) {
+    keys = set.keys.clone();
+    next = set.next.clone();
+    buckets = set.buckets.clone();
+    size = set.size;
+  }
+
   /**
    * Constructor, specifying some initial input.
    * @param in input stream
@@ -129,6 +129,31 @@ public final class AddDeleteTest extends SandboxTest {
     assertEquals(NFLDR, docs());
   }
 
+  /**
+   * Adds a folder and a zip file, using multiple parser threads.
+   * The documents must be added in the same order as by a single thread.
+   * @throws BaseXException exception
+   */
+  @Test
+  public void addParallel() throws BaseXException {
+    final String query = "for $d in db:open('" + NAME + "') " +
+        "return (document-uri($d), serialize($d))";
+    new Set(MainOptions.PARSETHREADS, 1).execute(context);
+    new Add("", FLDR).execute(context);
+    new Add("zip", ZIPFILE).execute(context);
+    final String expected = new XQuery(query).execute(context);
+
+    new CreateDB(NAME).execute(context);
+    new Set(MainOptions.PARSETHREADS, 4).execute(context);
+    try {
+      new Add("", FLDR).execute(context);
+      new Add("zip", ZIPFILE).execute(context);
+      assertEquals(expected, new XQuery(query).execute(context));
+    } finally {
+      new Set(MainOptions.PARSETHREADS, 1).execute(context);
+    }
+  }
+
   /**
    * Adds/deletes with target.
    * @throws BaseXException exception
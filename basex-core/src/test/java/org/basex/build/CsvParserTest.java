@@ -164,6 +164,44 @@ public final class CsvParserTest extends SandboxTest {
     assertEquals("true", new XQuery("exists(//entry[@name = 'Name'])").execute(context));
   }
 
+  /**
+   * Infers column types and normalizes numeric values.
+   * @throws Exception exception
+   */
+  @Test
+  public void types() throws Exception {
+    final CsvParserOptions copts = context.options.get(MainOptions.CSVPARSER);
+    copts.set(CsvParserOptions.TYPES, true);
+    write(" 42 ,2.50,007,a\n+1,-1.0,12,1e2\n");
+    new CreateDB(NAME, TEMP).execute(context);
+    assertEquals("42,2.5,007,a,1,-1,12,1e2",
+        new XQuery("string-join(//entry, ',')").execute(context));
+  }
+
+  /**
+   * Parses a large input in parallel and compares the result with a sequential import.
+   * @throws Exception exception
+   */
+  @Test
+  public void chunks() throws Exception {
+    final StringBuilder sb = new StringBuilder();
+    for(int r = 0; sb.length() < 5 << 20; r++) {
+      sb.append(r).append(",\"a\nb,\"\"").append(r).append("\"\"\",c\r\n");
+    }
+    write(sb.toString());
+    try {
+      new Set(MainOptions.PARSETHREADS, 1).execute(context);
+      new CreateDB(NAME + '2', TEMP).execute(context);
+      new Set(MainOptions.PARSETHREADS, 2).execute(context);
+      new CreateDB(NAME, TEMP).execute(context);
+      assertEquals("true", new XQuery("deep-equal(db:open('" + NAME + "'), db:open('" +
+          NAME + "2'))").execute(context));
+    } finally {
+      new Set(MainOptions.PARSETHREADS, 1).execute(context);
+      new DropDB(NAME + '2').execute(context);
+    }
+  }
+
   /**
    * Writes the specified test file.
    * @param data data to write
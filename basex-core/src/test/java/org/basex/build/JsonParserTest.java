@@ -0,0 +1,136 @@
+package org.basex.build;
+
+import static org.basex.util.Token.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.*;
+import org.basex.build.json.*;
+import org.basex.build.json.JsonOptions.*;
+import org.basex.core.*;
+import org.basex.core.MainOptions.MainParser;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * JSON Parser Test.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class JsonParserTest extends SandboxTest {
+  /** Temporary JSON file. */
+  private static final String TEMP = Prop.TMP + NAME + IO.JSONSUFFIX;
+  /** JSON document. */
+  private static final String JSON =
+      "{ \"a\": 1, \"b c\": [ true, null, \" x \", {} ], \"\": { \"d\": \"\" } }";
+
+  /**
+   * Creates the initial database.
+   * @throws BaseXException exception
+   */
+  @BeforeClass
+  public static void before() throws BaseXException {
+    new Set(MainOptions.PARSER, MainParser.JSON).execute(context);
+  }
+
+  /**
+   * Removes the temporary JSON file.
+   */
+  @AfterClass
+  public static void after() {
+    new IOFile(TEMP).delete();
+  }
+
+  /**
+   * Sets initial options.
+   * @throws BaseXException exception
+   */
+  @Before
+  public void init() throws BaseXException {
+    new Set(MainOptions.JSONPARSER, new JsonParserOptions()).execute(context);
+  }
+
+  /**
+   * Drops the database.
+   * @throws BaseXException exception
+   */
+  @After
+  public void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Compares streamed and converted documents.
+   * @throws Exception exception
+   */
+  @Test
+  public void formats() throws Exception {
+    write(JSON);
+    final JsonParserOptions jopts = context.options.get(MainOptions.JSONPARSER);
+    compare("");
+    jopts.set(JsonOptions.STRINGS, true);
+    compare("'strings': true()");
+    jopts.set(JsonOptions.FORMAT, JsonFormat.ATTRIBUTES);
+    compare("'strings': true(), 'format': 'attributes'");
+    jopts.set(JsonOptions.STRINGS, false);
+    jopts.set(JsonOptions.MERGE, true);
+    compare("'merge': true(), 'format': 'attributes'");
+    jopts.set(JsonOptions.FORMAT, JsonFormat.DIRECT);
+    compare("'merge': true()");
+  }
+
+  /**
+   * Adds line-delimited input.
+   * @throws Exception exception
+   */
+  @Test
+  public void lines() throws Exception {
+    final JsonParserOptions jopts = context.options.get(MainOptions.JSONPARSER);
+    jopts.set(JsonOptions.LINES, true);
+    write(JSON + '\n' + "[1]\r\n\n" + "\"x\"\n");
+    new CreateDB(NAME, TEMP).execute(context);
+    assertEquals("3", new XQuery("count(db:open('" + NAME + "'))").execute(context));
+    assertEquals(NAME + ".json/2", new XQuery("db:path(//_[. = '1'])").execute(context));
+    assertEquals("x", new XQuery("db:open('" + NAME + "', '" + NAME + ".json/3')/data()").
+        execute(context));
+
+    // serialize documents as line-delimited output
+    assertEquals("{\"a\":1,\"b c\":[true,null,\" x \",{}],\"\":{\"d\":\"\"}}\n[1]\n\"x\"",
+        new XQuery("declare option output:method 'json';" +
+        "declare option output:json 'lines=true'; db:open('" + NAME + "')").execute(context));
+
+    // invalid input: error is raised for the correct line
+    write("[1]\n[2}");
+    try {
+      new CreateDB(NAME, TEMP).execute(context);
+      fail("Error expected.");
+    } catch(final BaseXException ex) {
+      assertTrue(ex.getMessage(), ex.getMessage().contains("(2:3)"));
+    }
+  }
+
+  /**
+   * Compares the imported document with the result of json:parse.
+   * @param options options for json:parse
+   * @throws BaseXException exception
+   */
+  private static void compare(final String options) throws BaseXException {
+    new CreateDB(NAME, TEMP).execute(context);
+    assertEquals("true", new XQuery("deep-equal(., json:parse(file:read-text('" + TEMP +
+        "'), map { " + options + " }))").execute(context));
+  }
+
+  /**
+   * Writes the specified test file.
+   * @param data data to write
+   * @throws IOException I/O exception
+   */
+  private static void write(final String data) throws IOException {
+    new IOFile(TEMP).write(token(data));
+  }
+}
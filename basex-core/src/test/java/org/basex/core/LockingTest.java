@@ -9,6 +9,8 @@ import java.util.concurrent.*;
 import org.basex.*;
 import org.basex.core.locks.*;
 import org.basex.core.users.*;
+import org.basex.util.Table;
+import org.basex.util.Token;
 import org.basex.util.list.*;
 import org.junit.*;
 import org.junit.runner.*;
@@ -16,7 +18,7 @@ import org.junit.runners.*;
 import org.junit.runners.Parameterized.Parameters;
 
 /**
- * Tests for {@link DBLocking}.
+ * Tests for {@link DBLocking} and {@link StripedLocking}.
  *
  * @author BaseX Team 2005-15, BSD License
  * @author Jens Erat
@@ -36,24 +38,33 @@ public final class LockingTest extends SandboxTest {
 
   /**
    * Enable repeated running of test to track down synchronization issues.
-   * @return Collection of empty object arrays
+   * @return Collection of object arrays with the locking implementation to be tested
    */
   @Parameters
   public static Collection<Object[]> generateParams() {
     final List<Object[]> params = new ArrayList<>();
     for(int i = 1; i <= REPEAT; i++) {
-      params.add(new Object[0]);
+      params.add(new Object[] { false });
+      params.add(new Object[] { true });
     }
     return params;
   }
 
   /** Locking instance used for testing. */
-  private final DBLocking locks = new DBLocking(context.soptions);
+  private final Locking locks;
   /** Objects used for locking. */
   private final String[] objects = new String[5];
   /** Empty string array for convenience. */
   private static final String[] NONE = new String[0];
 
+  /**
+   * Constructor.
+   * @param striped test striped locking
+   */
+  public LockingTest(final boolean striped) {
+    locks = striped ? new StripedLocking(context.soptions) : new DBLocking(context.soptions);
+  }
+
   /**
    * Test preparations: create objects for locking.
    */
@@ -498,6 +509,34 @@ public final class LockingTest extends SandboxTest {
     else th2.release();
   }
 
+  /**
+   * Checks the contention statistics.
+   * @throws InterruptedException Got interrupted.
+   */
+  @Test
+  public void statisticsTest() throws InterruptedException {
+    final CountDownLatch sync = new CountDownLatch(1), test = new CountDownLatch(1);
+    final LockTester th1 = new LockTester(null, NONE, objects, sync);
+    final LockTester th2 = new LockTester(sync, objects, NONE, test);
+    th1.start();
+    th2.start();
+    assertFalse(test.await(WAIT, TimeUnit.MILLISECONDS));
+    th1.release();
+    assertTrue(test.await(WAIT, TimeUnit.MILLISECONDS));
+    th2.release();
+
+    final Table table = locks.statistics();
+    if(table == null) return;
+    // one row per object and per admission lane
+    assertEquals(objects.length + 2, table.contents.size());
+    for(final TokenList tl : table.contents) {
+      final String name = Token.string(tl.get(0));
+      if(name.startsWith("%")) continue;
+      assertEquals("Locks on " + name, 2, Token.toInt(tl.get(2)));
+      assertTrue("Waits on " + name, Token.toInt(tl.get(3)) <= 1);
+    }
+  }
+
   /**
    * Fuzzing test, watch for deadlocks. Uses multiple threads in parallel which all fetch
    * random locks, hold them for a while, release them and fetch the next one.
@@ -112,4 +112,27 @@ public final class IdPreMapBulkTest extends IdPreMapBulkTestBase {
       }
     }
   }
+
+  /** Correctness: randomly insert/delete values and compact the map. */
+  @Test
+  public void bulkCompactCorrectness() {
+    for(int k = 0; k < ITER; ++k) {
+      setUp();
+      for(int i = 0, n = baseid + 1, id = baseid + 1; i < opcount; ++i) {
+        final int pre = RANDOM.nextInt(n + 1);
+        final int c;
+        if(RANDOM.nextBoolean() || n == 0) {
+          c = RANDOM.nextInt(BULK) + 1;
+          insert(pre, id, c);
+          id += c;
+        } else {
+          c = -Math.min(n - pre, RANDOM.nextInt(BULK) + 1);
+          if(c != 0) delete(pre, c);
+        }
+        n += c;
+        if(i % 10 == 0) compact();
+        check();
+      }
+    }
+  }
 }
@@ -59,6 +59,14 @@ public abstract class IdPreMapBulkTestBase {
     basemap.delete(pre, basemap.id(pre), c);
   }
 
+  /** Compacts {@link #testedmap} with the ids of {@link #basemap}. */
+  final void compact() {
+    final int bs = basemap.size();
+    final int[] ids = new int[bs];
+    for(int pre = 0; pre < bs; pre++) ids[pre] = basemap.id(pre);
+    testedmap.compact(ids, bs);
+  }
+
   /** Check the two mappings. */
   final void check() {
     final int bs = basemap.size();
@@ -1,11 +1,16 @@
 package org.basex.data;
 
 import static org.basex.query.func.Function.*;
+import static org.basex.util.Token.*;
+import static org.junit.Assert.*;
 
 import org.basex.core.*;
 import org.basex.core.cmd.*;
+import org.basex.index.*;
+import org.basex.index.query.*;
 import org.basex.query.*;
 import org.basex.query.func.*;
+import org.basex.util.*;
 import org.junit.*;
 import org.junit.Test;
 
@@ -23,7 +28,14 @@ public final class IndexTest extends AdvancedQueryTest {
   @After
   public void after() throws BaseXException {
     run(new Set(MainOptions.UPDINDEX, false));
+    run(new Set(MainOptions.TEXTINDEX, true));
+    run(new Set(MainOptions.ATTRINDEX, true));
     run(new Set(MainOptions.AUTOOPTIMIZE, false));
+    run(new Set(MainOptions.FTINDEX, false));
+    run(new Set(MainOptions.INDEXTHREADS, 0));
+    run(new Set(MainOptions.INDEXSPLITSIZE, 0));
+    run(new Set(MainOptions.FTINDEXSPLITSIZE, 0));
+    run(new Set(MainOptions.ONLINEOPTIMIZE, false));
   }
 
   /**
@@ -145,6 +157,61 @@ public final class IndexTest extends AdvancedQueryTest {
     run(new Close());
   }
 
+  /**
+   * Applies a large number of updates in bulk mode.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void updindexBulk() throws BaseXException {
+    run(new Set(MainOptions.UPDINDEX, true));
+    run(new CreateDB(NAME, "<X/>"));
+    query("insert node (for $i in 1 to 500 return <A a='{ $i mod 7 }'>{ $i mod 11 }</A>) "
+        + "into /X");
+    query("for $a in //A return ("
+        + "if($a mod 3 = 0) then delete node $a else (),"
+        + "if($a mod 3 = 1) then replace value of node $a with $a + 1 else (),"
+        + "if($a mod 4 = 2) then insert node text { 'y' } into $a else (),"
+        + "if($a/@a = '2') then replace value of node $a/@a with 'x' else (),"
+        + "if($a mod 5 = 0) then insert node <B b='{ $a }'>{ $a/text() }</B> before $a "
+        + "else ())");
+
+    final String texts = _INDEX_TEXTS.args(NAME) + " ! (. || ':' || @count)";
+    final String attrs = _INDEX_ATTRIBUTES.args(NAME) + " ! (. || ':' || @count)";
+    final String text = query(texts), attr = query(attrs);
+    query("every $e in " + _INDEX_TEXTS.args(NAME) + " satisfies "
+        + "(every $t in " + _DB_TEXT.args(NAME, " $e") + " satisfies $t = $e)", "true");
+    query("every $n in //node() satisfies "
+        + _DB_OPEN_ID.args(NAME, _DB_NODE_ID.args(" $n")) + " is $n", "true");
+    run(new OptimizeAll());
+    query(texts, text);
+    query(attrs, attr);
+  }
+
+  /**
+   * Compacts the ID -> PRE mapping after a large number of updates.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void updindexBulkIds() throws BaseXException {
+    run(new Set(MainOptions.UPDINDEX, true));
+    run(new Set(MainOptions.TEXTINDEX, false));
+    run(new Set(MainOptions.ATTRINDEX, false));
+    run(new CreateDB(NAME, "<X/>"));
+    query("insert node (for $i in 1 to 500 return <A>{ $i }</A>) into /X");
+    query("for $a in //A return ("
+        + "if($a mod 3 = 0) then delete node $a else (),"
+        + "if($a mod 5 = 0) then insert node <B/> before $a else ())");
+    final String ids = "every $n in //node() satisfies "
+        + _DB_OPEN_ID.args(NAME, _DB_NODE_ID.args(" $n")) + " is $n";
+    query(ids, "true");
+    query("delete node //B[1], insert node <C/> into /X", "");
+    query(ids, "true");
+    run(new Close());
+    run(new Open(NAME));
+    query(ids, "true");
+    error(_DB_OPEN_ID.args(NAME, 6), QueryError.BXDB_RANGE_X_X_X);
+  }
+
   /**
    * Test.
    * @throws BaseXException database exception
@@ -170,6 +237,194 @@ public final class IndexTest extends AdvancedQueryTest {
     query(Function._DB_INFO.args(NAME) + "//textindex/text()", "false");
   }
 
+  /**
+   * Tests the lazy iteration and skipping of large id lists.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void skipTo() throws BaseXException {
+    final StringBuilder sb = new StringBuilder("<x>");
+    for(int i = 0; i < 1000; i++) sb.append("<a>A</a><b>B</b>");
+    final String doc = sb.append("</x>").toString();
+
+    for(final boolean updindex : new boolean[] { false, true }) {
+      run(new Set(MainOptions.UPDINDEX, updindex));
+      run(new CreateDB(NAME, doc));
+      query("count(" + _DB_TEXT.args(NAME, "A") + ')', 1000);
+      query("sum(" + _DB_TEXT.args(NAME, "A") + "/db:node-pre(.))", 2001000);
+
+      // pre values of the texts: 3, 7, 11, ...
+      final Data data = context.data();
+      IndexIterator ii = data.iter(new StringToken(true, token("A")));
+      assertTrue(ii.skipTo(1000));
+      assertEquals(1003, ii.pre());
+      assertTrue(ii.more());
+      assertEquals(1007, ii.pre());
+      assertTrue(ii.skipTo(1007));
+      assertEquals(1011, ii.pre());
+      assertTrue(ii.skipTo(3999));
+      assertEquals(3999, ii.pre());
+      assertFalse(ii.more());
+
+      ii = data.iter(new StringToken(true, token("A")));
+      assertFalse(ii.skipTo(4000));
+      assertFalse(ii.more());
+    }
+  }
+
+  /**
+   * Compares indexes that have been built in parallel and with partial index structures.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void parallel() throws BaseXException {
+    final StringBuilder sb = new StringBuilder("<x>");
+    for(int i = 0; i < 40000; i++) {
+      sb.append("<a>w").append(i % 100).append("</a><b c='v").append(i % 50);
+      sb.append("'>x y").append(i % 7).append(' ').append(i % 1000).append("</b>");
+    }
+    final String doc = sb.append("</x>").toString();
+    final String[] queries = {
+      "string-join(" + _INDEX_TEXTS.args(NAME) + " ! (. || @count), ',')",
+      "string-join(" + _INDEX_ATTRIBUTES.args(NAME) + " ! (. || @count), ',')",
+      "string-join(" + _FT_TOKENS.args(NAME) + " ! (. || @count), ',')",
+      "for $t in ('w7', 'w99') let $p := " + _DB_TEXT.args(NAME, "$t") + "/db:node-pre(.) " +
+        "return (count($p), sum($p), deep-equal($p, sort($p)))",
+      "let $p := " + _DB_ATTRIBUTE.args(NAME, "v3") + "/db:node-pre(.) " +
+        "return (count($p), sum($p), deep-equal($p, sort($p)))",
+      "for $t in ('y3', '999') let $p := " + _FT_SEARCH.args(NAME, "$t") + "/db:node-pre(.) " +
+        "return (count($p), sum($p), deep-equal($p, sort($p)))",
+      "count(//b[text() contains text 'x y5'])"
+    };
+
+    run(new Set(MainOptions.FTINDEX, true));
+    run(new Set(MainOptions.INDEXTHREADS, 1));
+    run(new CreateDB(NAME, doc));
+    final String[] expected = new String[queries.length];
+    for(int q = 0; q < queries.length; q++) expected[q] = query(queries[q]);
+
+    for(final int split : new int[] { 0, 10000 }) {
+      run(new Set(MainOptions.INDEXSPLITSIZE, split));
+      run(new Set(MainOptions.FTINDEXSPLITSIZE, split));
+      for(final int threads : new int[] { 1, 4 }) {
+        run(new Set(MainOptions.INDEXTHREADS, threads));
+        run(new CreateDB(NAME, doc));
+        for(int q = 0; q < queries.length; q++) assertEquals(expected[q], query(queries[q]));
+      }
+    }
+  }
+
+  /**
+   * Optimizes a database while it can still be read.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void online() throws BaseXException {
+    final StringBuilder sb = new StringBuilder("<x>");
+    for(int i = 0; i < 10000; i++) {
+      sb.append("<a b='v").append(i % 10).append("'>w").append(i % 100).append(" x</a>");
+    }
+    final String doc = sb.append("</x>").toString();
+    final String[] queries = {
+      "string-join(" + _INDEX_TEXTS.args(NAME) + " ! (. || @count), ',')",
+      "string-join(" + _INDEX_ATTRIBUTES.args(NAME) + " ! (. || @count), ',')",
+      "string-join(" + _FT_TOKENS.args(NAME) + " ! (. || @count), ',')",
+      "count(" + _DB_TEXT.args(NAME, "w7") + ')',
+      "count(//a[text() contains text 'w8'])",
+      "string-join(" + _INDEX_ELEMENT_NAMES.args(NAME) + " ! (. || @count), ',')"
+    };
+
+    run(new Set(MainOptions.FTINDEX, true));
+    run(new CreateDB(NAME, doc));
+    final String[] expected = new String[queries.length];
+    for(int q = 0; q < queries.length; q++) expected[q] = query(queries[q]);
+
+    // invalidate indexes and statistics
+    run(new XQuery("insert node <a b='v1'>w1 x</a> into /x"));
+    run(new XQuery("delete node /x/a[last()]"));
+    query(_DB_INFO.args(NAME) + "//textindex/text()", "false");
+
+    run(new Set(MainOptions.ONLINEOPTIMIZE, true));
+    run(new Optimize());
+    for(int q = 0; q < queries.length; q++) assertEquals(expected[q], query(queries[q]));
+    query("string-join(" + _DB_INFO.args(NAME) +
+        "//(textindex, attrindex, ftindex, uptodate), ',')", "true,true,true,true");
+    assertEquals(0, context.data().meta.path.children(DataText.SHADOW + ".*").length);
+  }
+
+  /**
+   * Discards an index that has been built beside the live index if the database has been
+   * updated in the meantime.
+   * @throws Exception exception
+   */
+  @Test
+  public void onlineUpdates() throws Exception {
+    run(new Set(MainOptions.UPDINDEX, true));
+    run(new CreateDB(NAME, "<x><a>A</a><a>B</a></x>"));
+    final DiskData data = (DiskData) context.data();
+    data.indexBuilder(IndexType.TEXT, context.options).shadow();
+    data.startLog();
+    run(new XQuery("replace value of node /x/a[1] with 'C', insert node <a>D</a> into /x"));
+    data.startUpdate(context.options);
+    assertFalse(data.swapIndex(IndexType.TEXT));
+    assertTrue(data.stopLog());
+    data.finishUpdate(context.options);
+    assertEquals(0, data.meta.path.children(DataText.SHADOW + ".*").length);
+    query(_DB_TEXT.args(NAME, "A"), "");
+    query(_DB_TEXT.args(NAME, "C"), "C");
+    query(_DB_TEXT.args(NAME, "D"), "D");
+  }
+
+  /**
+   * Optimizes a database while it is updated by another client.
+   * Writers are blocked until the new structures have been swapped.
+   * @throws Exception exception
+   */
+  @Test
+  public void onlineConcurrent() throws Exception {
+    final StringBuilder sb = new StringBuilder("<x>");
+    for(int i = 0; i < 100000; i++) sb.append("<a>w").append(i % 100).append("</a>");
+    run(new Set(MainOptions.UPDINDEX, true));
+    run(new Set(MainOptions.TEXTINDEX, false));
+    run(new CreateDB(NAME, sb.append("</x>").toString()));
+    run(new XQuery("insert node <a>w1</a> into /x"));
+    context.data().meta.createtext = true;
+    run(new Set(MainOptions.ONLINEOPTIMIZE, true));
+
+    // update the database while it is being optimized
+    final Context ctx = new Context(context, null);
+    ctx.user(context.user());
+    final Throwable[] error = { null };
+    final Optimize opt = new Optimize();
+    final Thread optimize = new Thread() {
+      @Override
+      public void run() {
+        try {
+          IndexTest.run(opt);
+        } catch(final Throwable th) {
+          error[0] = th;
+        }
+      }
+    };
+    optimize.start();
+    while(!opt.registered() && optimize.isAlive()) Performance.sleep(1);
+    Performance.sleep(100);
+
+    // the update will be performed after the index has been swapped
+    final String info = '(' + _DB_INFO.args(NAME) + "//textindex, " +
+        _DB_INFO.args(NAME) + "//uptodate)";
+    assertEquals("true true", new XQuery("replace value of node " + _DB_OPEN.args(NAME) +
+        "/x/a[1] with 'u', " + _DB_OUTPUT.args("string-join(" + info + ", ' ')")).execute(ctx));
+    optimize.join();
+    if(error[0] != null) throw new AssertionError(error[0]);
+
+    query("string-join(" + info + ", ' ')", "true false");
+    query("string-join(" + _INDEX_TEXTS.args(NAME) + " ! (. || @count), ',')",
+        query("string-join(for $t in //text() group by $s := string($t) order by $s " +
+        "return $s || count($t), ',')"));
+    query("count(" + _DB_TEXT.args(NAME, "u") + ')', 1);
+  }
+
   /**
    * Runs the specified command.
    * @param cmd command to be run
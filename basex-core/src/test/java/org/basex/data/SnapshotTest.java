@@ -0,0 +1,247 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.locks.*;
+import org.basex.query.*;
+import org.basex.query.value.node.*;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests database snapshots.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class SnapshotTest extends SandboxTest {
+  /**
+   * Creates the database.
+   * @throws BaseXException exception
+   */
+  @Before
+  public void create() throws BaseXException {
+    // value indexes cannot be used by snapshots
+    new Set(MainOptions.TEXTINDEX, false).execute(context);
+    new Set(MainOptions.ATTRINDEX, false).execute(context);
+    new CreateDB(NAME, "<X><A>a</A></X>").execute(context);
+  }
+
+  /**
+   * Drops the database.
+   * @throws BaseXException exception
+   */
+  @After
+  public void drop() throws BaseXException {
+    new Set(MainOptions.SNAPSHOT, false).execute(context);
+    new Set(MainOptions.TEXTINDEX, true).execute(context);
+    new Set(MainOptions.ATTRINDEX, true).execute(context);
+    new Set(MainOptions.FTINDEX, false).execute(context);
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Checks that snapshots are not affected by updates.
+   * @throws Exception exception
+   */
+  @Test
+  public void updates() throws Exception {
+    final DiskData data = (DiskData) context.data();
+    update(0);
+    final String expected = serialize(data);
+    final DiskData snapshot = data.snapshot();
+    try {
+      update(1);
+      assertEquals(expected, serialize(snapshot));
+      assertNotEquals(expected, serialize(data));
+    } finally {
+      snapshot.close();
+    }
+
+    // blocks and texts are reused after the snapshot has been closed
+    final String result = serialize(data);
+    update(2);
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    assertNotEquals(result, serialize(context.data()));
+    assertEquals("a2", new XQuery("(//A)[1]/text()").execute(context));
+  }
+
+  /**
+   * Checks that databases are only unlocked after snapshots have been opened.
+   * @throws Exception exception
+   */
+  @Test
+  public void locks() throws Exception {
+    new Close().execute(context);
+    final String query = "db:open('" + NAME + "')";
+    try(final QueryContext qc = parse(query)) {
+      assertFalse(qc.snapshots());
+      assertTrue(locks(qc).read.contains(NAME));
+    }
+    new Set(MainOptions.SNAPSHOT, true).execute(context);
+    try(final QueryContext qc = parse(query)) {
+      assertTrue(locks(qc).read.contains(NAME));
+      assertTrue(qc.snapshots());
+      assertFalse(locks(qc).read.contains(NAME));
+    }
+    try(final QueryContext qc = parse("delete node " + query + "//A")) {
+      assertFalse(qc.snapshots());
+      assertTrue(locks(qc).write.contains(NAME));
+    }
+    assertEquals("a", new XQuery(query + "//A/text()").execute(context));
+  }
+
+  /**
+   * Checks that databases with value or full-text indexes are read directly.
+   * @throws Exception exception
+   */
+  @Test
+  public void indexes() throws Exception {
+    new Set(MainOptions.TEXTINDEX, true).execute(context);
+    new Set(MainOptions.FTINDEX, true).execute(context);
+    new CreateDB(NAME, "<X><A>a</A></X>").execute(context);
+    new Close().execute(context);
+    new Set(MainOptions.SNAPSHOT, true).execute(context);
+
+    final String query = "db:open('" + NAME + "')";
+    try(final QueryContext qc = parse(query)) {
+      assertFalse(qc.snapshots());
+      assertTrue(locks(qc).read.contains(NAME));
+    }
+    assertEquals("a", new XQuery("db:text('" + NAME + "', 'a')/string()").execute(context));
+    assertEquals("a", new XQuery("ft:search('" + NAME + "', 'a')/string()").execute(context));
+    assertEquals("A", new XQuery(query + "//text()[. = 'a']/../name()").execute(context));
+  }
+
+  /**
+   * Checks that a database that is read from a snapshot cannot be dropped.
+   * @throws Exception exception
+   */
+  @Test
+  public void pinned() throws Exception {
+    new Close().execute(context);
+    final Context ctx = new Context(context, null);
+    ctx.user(context.user());
+    new Set(MainOptions.SNAPSHOT, true).execute(ctx);
+    final String[] result = { null };
+    final Throwable[] error = { null };
+    final Thread query = new Thread() {
+      @Override
+      public void run() {
+        try {
+          result[0] = new XQuery("let $db := db:open('" + NAME + "') " +
+              "return (prof:sleep(500), $db//A/text())").execute(ctx);
+        } catch(final Throwable th) {
+          error[0] = th;
+        }
+      }
+    };
+    query.start();
+    Thread.sleep(200);
+    String info = null;
+    try {
+      new DropDB(NAME).execute(context);
+    } catch(final BaseXException ex) {
+      info = ex.getMessage().trim();
+    }
+    query.join();
+    if(error[0] != null) throw new AssertionError(error[0]);
+    assertEquals(Util.info(Text.DB_PINNED_X, NAME), info);
+    assertEquals("a", result[0]);
+  }
+
+  /**
+   * Checks that the document paths of snapshots are not affected by updates.
+   * @throws Exception exception
+   */
+  @Test
+  public void paths() throws Exception {
+    new Add("b.xml", "<b/>").execute(context);
+    new Add("c.xml", "<c/>").execute(context);
+    new XQuery("db:open('" + NAME + "', 'c.xml')").execute(context);
+    new Flush().execute(context);
+    new Close().execute(context);
+
+    // read documents from a snapshot while the database is updated
+    final String names = "string-join(('a.xml', 'b.xml', 'c.xml', 'd.xml') ! " +
+        "(. || '=' || db:open('" + NAME + "', .)/*/name()), ',')";
+    final Context ctx = new Context(context, null);
+    ctx.user(context.user());
+    new Set(MainOptions.SNAPSHOT, true).execute(ctx);
+    final String[] result = { null };
+    final Throwable[] error = { null };
+    final Thread query = new Thread() {
+      @Override
+      public void run() {
+        try {
+          result[0] = new XQuery("let $db := db:open('" + NAME + "') " +
+              "return (prof:sleep(500), " + names + ')').execute(ctx);
+        } catch(final Throwable th) {
+          error[0] = th;
+        }
+      }
+    };
+    query.start();
+    Thread.sleep(100);
+    new XQuery("db:add('" + NAME + "', <a/>, 'a.xml'), " +
+        "db:rename('" + NAME + "', 'c.xml', 'd.xml')").execute(context);
+    new Open(NAME).execute(context);
+    new Flush().execute(context);
+    query.join();
+    if(error[0] != null) throw new AssertionError(error[0]);
+    assertEquals("a.xml=,b.xml=b,c.xml=c,d.xml=", result[0]);
+    assertEquals("a.xml=a,b.xml=b,c.xml=,d.xml=c", new XQuery(names).execute(context));
+  }
+
+  /**
+   * Performs some updates.
+   * @param n number of the update
+   * @throws BaseXException exception
+   */
+  private static void update(final int n) throws BaseXException {
+    new XQuery("insert node (for $i in 1 to 2000 return <B a='" + n + "'>b{ $i }</B>) " +
+        "into /X").execute(context);
+    new XQuery("replace value of node (//A)[1] with 'a" + n + "'").execute(context);
+    new XQuery("for $b in //B[@a = '" + n + "'][position() mod 3 = 0] " +
+        "return replace value of node $b with 'c'").execute(context);
+    new XQuery("delete node //B[position() mod 5 = 0]").execute(context);
+  }
+
+  /**
+   * Serializes the specified database.
+   * @param data data reference
+   * @return string
+   * @throws Exception exception
+   */
+  private static String serialize(final Data data) throws Exception {
+    return new DBNode(data, 0).serialize().toString();
+  }
+
+  /**
+   * Parses the specified query.
+   * @param query query
+   * @return query context
+   * @throws QueryException query exception
+   */
+  private static QueryContext parse(final String query) throws QueryException {
+    final QueryContext qc = new QueryContext(context);
+    qc.parseMain(query, null, null);
+    return qc;
+  }
+
+  /**
+   * Returns the locks of the specified query context.
+   * @param qc query context
+   * @return locks
+   */
+  private static LockResult locks(final QueryContext qc) {
+    final LockResult lr = new LockResult();
+    qc.databases(lr);
+    return lr;
+  }
+}
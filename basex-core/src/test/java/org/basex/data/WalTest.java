@@ -0,0 +1,151 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests the write-ahead log and the recovery of databases.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class WalTest extends SandboxTest {
+  /** Name of the database copy. */
+  private static final String COPY = NAME + "copy";
+  /** Query for serializing the database. */
+  private static final String QUERY = "serialize(db:open('%'))";
+
+  /**
+   * Initializes the tests.
+   * @throws Exception exception
+   */
+  @BeforeClass
+  public static void init() throws Exception {
+    run(new Set(MainOptions.WAL, true));
+    run(new Set(MainOptions.AUTOFLUSH, false));
+  }
+
+  /**
+   * Resets the options.
+   * @throws Exception exception
+   */
+  @AfterClass
+  public static void finish() throws Exception {
+    run(new Set(MainOptions.WAL, false));
+    run(new Set(MainOptions.AUTOFLUSH, true));
+  }
+
+  /**
+   * Drops the databases.
+   * @throws BaseXException exception
+   */
+  @After
+  public void drop() throws BaseXException {
+    run(new DropDB(NAME));
+    run(new DropDB(COPY));
+  }
+
+  /**
+   * Recovers committed updates that have not been written back.
+   * @throws Exception exception
+   */
+  @Test
+  public void recover() throws Exception {
+    update();
+    final String expected = run(new XQuery(QUERY.replace("%", NAME)));
+    crash(false);
+    assertEquals(expected, run(new XQuery(QUERY.replace("%", COPY))));
+    assertFalse(MetaData.file(context.soptions.dbpath(COPY), DataText.DATAWAL).exists());
+  }
+
+  /**
+   * Ignores an incomplete record at the end of the log.
+   * @throws Exception exception
+   */
+  @Test
+  public void torn() throws Exception {
+    update();
+    final String expected = run(new XQuery(QUERY.replace("%", NAME)));
+    crash(true);
+    assertEquals(expected, run(new XQuery(QUERY.replace("%", COPY))));
+  }
+
+  /**
+   * Restores the original blocks of an uncommitted transaction.
+   * @throws Exception exception
+   */
+  @Test
+  public void undo() throws Exception {
+    // no committed blocks will be replayed
+    final StringBuilder sb = new StringBuilder("<X>");
+    for(int i = 0; i < 10000; i++) sb.append("<B>").append(i).append("</B>");
+    run(new CreateDB(NAME, sb.append("</X>").toString()));
+    final String expected = run(new XQuery(QUERY.replace("%", NAME)));
+
+    // change all texts, crash before the transaction is committed
+    final Data data = context.data();
+    data.startUpdate(context.options);
+    try {
+      final int size = data.meta.size;
+      for(int pre = 0; pre < size; pre++) {
+        if(data.kind(pre) == Data.TEXT) data.update(pre, Data.TEXT, Token.token("x"));
+      }
+      crash(false);
+    } finally {
+      data.finishUpdate(context.options);
+    }
+    assertNotEquals(expected, run(new XQuery(QUERY.replace("%", NAME))));
+    assertEquals(expected, run(new XQuery(QUERY.replace("%", COPY))));
+  }
+
+  /**
+   * Performs some updates.
+   * @throws BaseXException exception
+   */
+  private static void update() throws BaseXException {
+    run(new CreateDB(NAME, "<X><A>a</A></X>"));
+    for(int n = 0; n < 20; n++) {
+      run(new XQuery("insert node (for $i in 1 to 500 return <B a='" + n + "'>{ $i }</B>) " +
+          "into /X"));
+      run(new XQuery("replace value of node (//A)[1] with 'a" + n + "'"));
+      run(new XQuery("delete node (//B)[" + (n + 1) + ']'));
+    }
+  }
+
+  /**
+   * Simulates a crash by copying the files of the opened database.
+   * @param torn append an incomplete record to the log
+   * @throws Exception exception
+   */
+  private static void crash(final boolean torn) throws Exception {
+    final IOFile source = context.soptions.dbpath(NAME), target = context.soptions.dbpath(COPY);
+    target.md();
+    for(final IOFile file : source.children()) file.copyTo(new IOFile(target, file.name()));
+    final IOFile log = MetaData.file(target, DataText.DATAWAL);
+    assertTrue(log.exists());
+    if(torn) {
+      final byte[] data = log.read(), bytes = new byte[data.length + 20];
+      System.arraycopy(data, 0, bytes, 0, data.length);
+      bytes[data.length] = 3;
+      bytes[data.length + 4] = 100;
+      log.write(bytes);
+    }
+  }
+
+  /**
+   * Runs the specified command.
+   * @param cmd command to be run
+   * @return string result
+   * @throws BaseXException database exception
+   */
+  private static String run(final Command cmd) throws BaseXException {
+    return cmd.execute(context);
+  }
+}
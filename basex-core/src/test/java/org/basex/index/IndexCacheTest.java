@@ -5,6 +5,7 @@ import static org.junit.Assert.*;
 
 import java.util.*;
 
+import org.basex.util.*;
 import org.junit.*;
 
 /**
@@ -74,6 +75,54 @@ public final class IndexCacheTest {
     assertNull(cache.get(key));
   }
 
+  /** Tests the eviction of entries. */
+  @Test
+  public void testEviction() {
+    final int size = Prop.indexcache;
+    Prop.indexcache = 64;
+    try {
+      cache = new IndexCache();
+      final byte[] hot = token("keyHot");
+      cache.add(hot, 1, 1L);
+      for(int i = 0; i < 4000; ++i) {
+        cache.add(token("keyEvict" + i), i, i);
+        // referenced entries will be kept
+        assertCacheEntry(hot, 1, 1L);
+      }
+      assertTrue(cache.size() <= 64);
+
+      final long[] stats = cache.stats();
+      assertEquals(cache.size(), stats[0]);
+      assertEquals(4000, stats[1]);
+      assertEquals(4001 - cache.size(), stats[3]);
+    } finally {
+      Prop.indexcache = size;
+    }
+  }
+
+  /** Tests the deletion of entries from a full cache. */
+  @Test
+  public void testDeleteFull() {
+    final int size = Prop.indexcache;
+    Prop.indexcache = 16;
+    try {
+      cache = new IndexCache();
+      for(int i = 0; i < 1000; ++i) {
+        final byte[] key = token("keyFull" + i);
+        cache.add(key, i, i);
+        if(i % 3 == 0) {
+          cache.delete(key);
+          assertNull(cache.get(key));
+        } else {
+          assertCacheEntry(key, i, i);
+        }
+      }
+      assertTrue(cache.size() <= 16);
+    } finally {
+      Prop.indexcache = size;
+    }
+  }
+
   /**
    * Test that new records can be continuously added without hitting
    * {@link OutOfMemoryError}.
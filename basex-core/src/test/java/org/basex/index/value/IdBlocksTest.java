@@ -0,0 +1,215 @@
+package org.basex.index.value;
+
+import static org.basex.util.Token.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.*;
+import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.basex.index.query.*;
+import org.basex.io.*;
+import org.basex.io.out.DataOutput;
+import org.basex.io.random.*;
+import org.basex.util.list.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests for the block-compressed id lists of the value indexes ({@link IdBlocks}).
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class IdBlocksTest extends SandboxTest {
+  /** Number of ids per block. */
+  private static final int BLOCK = IdBlocks.BLOCK;
+
+  /** Temporary file. */
+  private IOFile file;
+
+  /** Initializes the test. */
+  @Before
+  public void init() {
+    file = new IOFile(sandbox(), "ids" + IO.BASEXSUFFIX);
+  }
+
+  /** Deletes the temporary file. */
+  @After
+  public void finish() {
+    file.delete();
+  }
+
+  /**
+   * Encodes and decodes an empty list.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void empty() throws IOException {
+    write(new IntList());
+    assertEquals(0, file.length());
+    assertEquals(0, decode(0).size());
+  }
+
+  /**
+   * Encodes and decodes a single id.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void single() throws IOException {
+    for(final int id : new int[] { 0, 1, 0x3F, 0x40, 0x3FFF, 0x4000, Integer.MAX_VALUE }) {
+      write(new IntList().add(id));
+      // no blocks are written
+      try(final DataAccess da = new DataAccess(file)) {
+        assertEquals(id, da.readNum());
+        assertFalse(da.more());
+      }
+      assertArrayEquals(new int[] { id }, decode(1).finish());
+    }
+  }
+
+  /**
+   * Encodes and decodes lists of different sizes and distances.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void lists() throws IOException {
+    final Random rnd = new Random(0);
+    for(final int size : new int[] { 2, 3, BLOCK - 1, BLOCK, BLOCK + 1, BLOCK * 2,
+        BLOCK * 5 + 7, 10000 }) {
+      for(final int max : new int[] { 1, 2, 255, 256, 1 << 16, 1 << 20 }) {
+        final IntList ids = new IntList(size);
+        for(int i = 0, id = rnd.nextInt(1000); i < size; i++) {
+          ids.add(id);
+          id += max == 1 ? 1 : 1 + rnd.nextInt(max);
+        }
+        write(ids);
+        final int[] exp = ids.finish();
+        assertArrayEquals(exp, decode(size).finish());
+
+        // decode single blocks
+        try(final DataAccess da = new DataAccess(file)) {
+          final int first = da.readNum();
+          final long start = da.cursor();
+          final int nb = IdBlocks.blocks(size);
+          final int[] block = new int[BLOCK];
+          for(int b = 0; b < nb; b++) {
+            if(nb > 1) assertEquals(exp[b * BLOCK], IdBlocks.first(da, start, b));
+            final int c = IdBlocks.decode(da, start, first, size, b, block);
+            assertEquals(Math.min(BLOCK, size - b * BLOCK), c);
+            for(int i = 0; i < c; i++) assertEquals(exp[b * BLOCK + i], block[i]);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Skips ids of an index list across block boundaries.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void skipTo() throws IOException {
+    // pre values of the texts: 'A': 3, 7, 11, ..., 'S': 5, 'B': 9, 13, ...
+    final int size = BLOCK * 3 + 5;
+    final StringBuilder sb = new StringBuilder("<x>");
+    for(int i = 0; i < size; i++) {
+      sb.append("<a>A</a><b>").append(i == 0 ? 'S' : 'B').append("</b>");
+    }
+    new CreateDB(NAME, sb.append("</x>").toString()).execute(context);
+    final Data data = context.data();
+    try {
+      // first ids of the blocks
+      for(int b = 1; b < 4; b++) {
+        final int pre = 3 + 4 * b * BLOCK;
+        IndexIterator ii = iter(data, "A");
+        assertTrue(ii.skipTo(pre));
+        assertEquals(pre, ii.pre());
+        assertTrue(ii.more());
+        assertEquals(pre + 4, ii.pre());
+
+        // last id of the preceding block
+        ii = iter(data, "A");
+        assertTrue(ii.skipTo(pre - 4));
+        assertEquals(pre - 4, ii.pre());
+        assertTrue(ii.more());
+        assertEquals(pre, ii.pre());
+
+        // id between the blocks
+        ii = iter(data, "A");
+        assertTrue(ii.skipTo(pre - 1));
+        assertEquals(pre, ii.pre());
+      }
+
+      // skip several blocks, backward skips and the end of the list
+      final int last = 3 + 4 * (size - 1);
+      IndexIterator ii = iter(data, "A");
+      assertTrue(ii.more());
+      assertEquals(3, ii.pre());
+      assertTrue(ii.skipTo(last - 4));
+      assertEquals(last - 4, ii.pre());
+      assertTrue(ii.skipTo(3));
+      assertEquals(last, ii.pre());
+      assertFalse(ii.skipTo(last));
+      assertFalse(ii.more());
+
+      ii = iter(data, "A");
+      assertFalse(ii.skipTo(last + 1));
+
+      // single id
+      ii = iter(data, "S");
+      assertTrue(ii.skipTo(0));
+      assertEquals(5, ii.pre());
+      assertFalse(ii.more());
+      ii = iter(data, "S");
+      assertTrue(ii.skipTo(5));
+      assertEquals(5, ii.pre());
+      ii = iter(data, "S");
+      assertFalse(ii.skipTo(6));
+
+      // empty list
+      ii = iter(data, "C");
+      assertFalse(ii.skipTo(0));
+      assertFalse(ii.more());
+    } finally {
+      new DropDB(NAME).execute(context);
+    }
+  }
+
+  /**
+   * Returns an index iterator for the specified text.
+   * @param data data reference
+   * @param text text
+   * @return iterator
+   */
+  private static IndexIterator iter(final Data data, final String text) {
+    return data.iter(new StringToken(true, token(text)));
+  }
+
+  /**
+   * Writes the specified ids to the temporary file.
+   * @param ids ids
+   * @throws IOException I/O exception
+   */
+  private void write(final IntList ids) throws IOException {
+    try(final DataOutput out = new DataOutput(file)) {
+      IdBlocks.write(out, ids);
+    }
+  }
+
+  /**
+   * Decodes the ids from the temporary file.
+   * @param size number of ids
+   * @return ids
+   * @throws IOException I/O exception
+   */
+  private IntList decode(final int size) throws IOException {
+    final IntList ids = new IntList();
+    try(final DataAccess da = new DataAccess(file)) {
+      IdBlocks.decode(da, size, ids);
+    }
+    return ids;
+  }
+}
@@ -0,0 +1,94 @@
+package org.basex.io.random;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.io.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Tests for class {@link Buffers}.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class BuffersTest {
+  /** Number of written blocks. */
+  private static final int BLOCKS = 64;
+
+  /** Temporary file. */
+  private IOFile file;
+  /** Original number of buffers. */
+  private int buffers;
+
+  /**
+   * Set up method.
+   */
+  @Before
+  public void setUp() {
+    file = new IOFile(Prop.TMP, "buffers" + IO.BASEXSUFFIX);
+    buffers = Prop.buffers;
+  }
+
+  /**
+   * Tear down method.
+   */
+  @After
+  public void tearDown() {
+    Prop.buffers = buffers;
+    file.delete();
+  }
+
+  /**
+   * Tests the rounding of the number of buffers.
+   */
+  @Test
+  public void size() {
+    assertEquals(2, Buffers.size(0));
+    assertEquals(2, Buffers.size(2));
+    assertEquals(16, Buffers.size(9));
+    assertEquals(16, Buffers.size(16));
+  }
+
+  /**
+   * Writes and reads blocks with different numbers of buffers.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void readWrite() throws IOException {
+    for(final int b : new int[] { 2, 16, 128 }) {
+      Prop.buffers = b;
+      try(final DataAccess da = new DataAccess(file)) {
+        for(int i = 0; i < BLOCKS; i++) da.write4((long) i * IO.BLOCKSIZE, i);
+        for(int i = BLOCKS - 1; i >= 0; i--) assertEquals(i, da.read4((long) i * IO.BLOCKSIZE));
+      }
+      try(final DataAccess da = new DataAccess(file)) {
+        for(int i = 0; i < BLOCKS; i += 7) assertEquals(i, da.read4((long) i * IO.BLOCKSIZE));
+      }
+      file.delete();
+    }
+  }
+
+  /**
+   * Checks the hit and miss counters.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void stats() throws IOException {
+    Prop.buffers = 4;
+    try(final DataAccess da = new DataAccess(file)) {
+      for(int i = 0; i < 4; i++) da.write4((long) i * IO.BLOCKSIZE, i);
+      final Buffers bm = da.buffers();
+      assertEquals(4, bm.size());
+      final long misses = bm.misses();
+      // all blocks are buffered
+      for(int i = 0; i < 4; i++) da.read4((long) i * IO.BLOCKSIZE);
+      assertEquals(misses, bm.misses());
+      // new block must be fetched
+      da.read4((long) 8 * IO.BLOCKSIZE);
+      assertEquals(misses + 1, bm.misses());
+    }
+  }
+}
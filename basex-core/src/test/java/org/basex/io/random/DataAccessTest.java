@@ -338,6 +338,38 @@ public class DataAccessTest {
     assertContent(pos, CINT1_BIN);
   }
 
+  /**
+   * Test method for {@link DataAccess#reader()}.
+   * @throws Exception exception
+   */
+  @Test
+  public final void testReader() throws Exception {
+    final DataAccess reader = da.reader();
+    assertNotSame(da, reader);
+    assertEquals(STR, Token.string(reader.readToken(0)));
+
+    // changed data: no reader will be returned
+    da.writeToken(0, Token.token(STR_LONG));
+    assertSame(da, da.reader());
+
+    // flushed data: reader will be returned in another thread, and it will see the changes
+    da.flush();
+    final DataAccess[] readers = new DataAccess[1];
+    final byte[][] tokens = new byte[1][];
+    final Thread thread = new Thread() {
+      @Override
+      public void run() {
+        readers[0] = da.reader();
+        tokens[0] = readers[0].readToken(0);
+      }
+    };
+    thread.start();
+    thread.join();
+    assertNotSame(reader, readers[0]);
+    assertEquals(STR_LONG, Token.string(tokens[0]));
+    assertEquals(STR_LONG, Token.string(da.reader().readToken(0)));
+  }
+
   /** Test method for {@link DataAccess#free(long, int)}. */
   @Ignore
   @Test
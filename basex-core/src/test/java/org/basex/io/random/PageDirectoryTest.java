@@ -0,0 +1,88 @@
+package org.basex.io.random;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.basex.io.*;
+import org.basex.util.list.*;
+import org.junit.*;
+
+/**
+ * Tests for class {@link PageDirectory}.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class PageDirectoryTest {
+  /** Number of random operations. */
+  private static final int OPS = 10000;
+
+  /**
+   * Creates a regular directory.
+   */
+  @Test
+  public void regular() {
+    final int entries = 10 * IO.ENTRIES + 5;
+    final PageDirectory pd = PageDirectory.regular(11, entries);
+    assertEquals(11, pd.size());
+    assertEquals(5, pd.entries(10));
+    assertEquals(10 * IO.ENTRIES, pd.fpre(10));
+    assertEquals(0, pd.find(0));
+    assertEquals(1, pd.find(IO.ENTRIES));
+    assertEquals(10, pd.find(entries - 1));
+  }
+
+  /**
+   * Compares random updates with a flat list of page sizes.
+   */
+  @Test
+  public void random() {
+    final Random rnd = new Random(0);
+    final PageDirectory pd = PageDirectory.regular(1, IO.ENTRIES);
+    final IntList sizes = new IntList();
+    sizes.add(IO.ENTRIES);
+    for(int o = 0; o < OPS; o++) {
+      final int ps = sizes.size(), p = rnd.nextInt(ps);
+      final int op = rnd.nextInt(4);
+      if(op == 0) {
+        // insert page
+        final int s = 1 + rnd.nextInt(IO.ENTRIES);
+        pd.insert(p, 1);
+        pd.block(p, o);
+        pd.add(p, s);
+        sizes.insert(p, new int[] { s });
+      } else if(op == 1 && ps > 1) {
+        // delete page
+        pd.delete(p, 1);
+        sizes.remove(p);
+      } else {
+        // change number of entries
+        final int n = rnd.nextInt(IO.ENTRIES - sizes.get(p) + 1) - sizes.get(p) / 2;
+        if(sizes.get(p) + n == 0) continue;
+        pd.add(p, n);
+        sizes.set(p, sizes.get(p) + n);
+      }
+      check(pd, sizes);
+    }
+  }
+
+  /**
+   * Compares the directory with the specified page sizes.
+   * @param pd directory
+   * @param sizes page sizes
+   */
+  private static void check(final PageDirectory pd, final IntList sizes) {
+    final int ps = sizes.size();
+    assertEquals(ps, pd.size());
+    int fpre = 0;
+    for(int p = 0; p < ps; p++) {
+      final int s = sizes.get(p);
+      assertEquals(s, pd.entries(p));
+      assertEquals(fpre, pd.fpre(p));
+      assertEquals(p, pd.find(fpre));
+      assertEquals(p, pd.find(fpre + s - 1));
+      fpre += s;
+    }
+  }
+}
@@ -1,7 +1,10 @@
 package org.basex.query.ast;
 
+import org.basex.core.*;
+import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.expr.gflwor.*;
+import org.basex.query.func.fn.*;
 import org.basex.util.*;
 import org.junit.*;
 
@@ -265,4 +268,152 @@ public final class GFLWOROptimizeTest extends QueryPlanTest {
         "exists(//Let)"
     );
   }
+
+  /** Tests the rewriting of value comparisons to hash joins. */
+  @Test public void join() {
+    final String xy = "let $x := (1 to 6) ! <x id='{ . }'/> " +
+        "let $y := (4, 2, 9, 4) ! <y ref='{ . }'/> ";
+    check(xy + "for $a in $x for $b in $y where $a/@id = $b/@ref " +
+        "return $a/@id || '/' || $b/@ref",
+        "2/2 4/4 4/4",
+        "exists(//Join[@type = 'join'])"
+    );
+    check(xy + "for $a in $x where some $b in $y satisfies $b/@ref = $a/@id " +
+        "return string($a/@id)",
+        "2 4",
+        "exists(//Join[@type = 'semi'])"
+    );
+    check(xy + "for $a in $x where exists($y[@ref = $a/@id]) return string($a/@id)",
+        "2 4",
+        "exists(//Join[@type = 'semi'])"
+    );
+    check(xy + "for $a in $x where $a/@id = $y/@ref return string($a/@id)",
+        "2 4",
+        "exists(//Join[@type = 'semi'])"
+    );
+
+    // untyped values, numbers, strings, NaN
+    check("let $y := (2, 3e0, <_>4</_>, <_>5</_>, 0e0 div 0e0, <_>-0</_>) " +
+        "for $a in (1, xs:float(2), <_>3</_>, <_>4</_>, 5.0, 0e0 div 0e0, 0) " +
+        "for $b in $y where $a = $b return $a || '=' || $b",
+        "2=2 3=3 4=4 5=5 0=-0",
+        "exists(//Join)"
+    );
+    check("let $y := ('a', <_>b</_>, xs:anyURI('c')) for $a in ('a', <_>b</_>, 'c', <_>a</_>) " +
+        "for $b in $y where $a = $b return $a || '=' || $b",
+        "a=a b=b c=c a=a",
+        "exists(//Join)"
+    );
+    // items that cannot be compared
+    error("let $y := (4, 5) for $a in ('4', 5) for $b in $y where $a = $b return $a",
+        QueryError.CMPTYPES_X_X);
+    error("let $y := (4, 5) for $a in (5, '4') where $a = $y return $a",
+        QueryError.CMPTYPES_X_X);
+    error("let $y := ('4', 5) for $a in xs:date('2000-01-01') where $a = $y return $a",
+        QueryError.CMPTYPES_X_X);
+    error("let $y := (xs:dateTime('2000-01-01T00:00:00'), 5) for $a in xs:date('2000-01-01') " +
+        "for $b in $y where $a = $b return $a", QueryError.CMPTYPES_X_X);
+    error("let $y := (<_>5</_>, <_>x</_>) for $a in 5 for $b in $y where $a = $b return $a",
+        QueryError.FUNCAST_X_X);
+    error("let $y := (1, 2) for $a in (<_>1</_>, <_>x</_>) for $b in $y where $a = $b " +
+        "return $a", QueryError.FUNCAST_X_X);
+    check("let $y := (<_>5</_>, <_>NaN</_>) for $a in (5, 6) for $b in $y where $a = $b " +
+        "return $a", "5", "exists(//Join)");
+    // collation
+    check("declare default collation " +
+        "'http://www.w3.org/2005/xpath-functions/collation/html-ascii-case-insensitive'; " +
+        "let $y := ('A', 'b') for $a in ('a', 'B', 'c') for $b in $y where $a = $b " +
+        "return $a || $b",
+        "aA Bb",
+        "exists(//Join)"
+    );
+    // dependent sequence: no join
+    check("for $a in 1 to 3 for $b in $a to 3 where $a = $b return $b",
+        "1 2 3",
+        "empty(//Join)"
+    );
+  }
+
+  /** Tests the limitation of sorted tuples. */
+  @Test public void orderLimit() {
+    final String flwor = "for $i in 1 to 10 order by $i mod 3, $i descending return $i";
+    check("(" + flwor + ")[position() <= 3]", "9 6 3", "exists(//OrderBy[@max = 3])");
+    check("subsequence(" + flwor + ", 2, 3)", "6 3 10", "exists(//OrderBy[@max = 4])");
+    check("head(" + flwor + ")", "9", "exists(//OrderBy[@max = 1])");
+    // results may be empty: no limit
+    check("(for $i in 1 to 10 order by -$i return $i[. > 5])[1]", "10",
+        "empty(//OrderBy/@max)");
+  }
+
+  /** Tests the sorting of tuples that are written to disk. */
+  @Test public void orderSplit() {
+    final String query = "for $i in 1 to 100 let $k := ($i * 37) mod 20 " +
+        "order by $k descending, string($i) return ($i, $i div 3, $i mod 2 = 0, string($k))";
+    final String expected = query(query);
+    context.options.set(MainOptions.SORTSPLITSIZE, 7);
+    try {
+      query(query, expected);
+      query("(" + query + ")[position() = 1 to 150]", query("subsequence(" + query + ", 1, 150)"));
+    } finally {
+      context.options.set(MainOptions.SORTSPLITSIZE, 0);
+    }
+  }
+
+  /** Tests the computation of aggregates while grouping. */
+  @Test public void groupAggregate() {
+    final String flwor = "for $i in 1 to 10 let $k := $i mod 3 group by $k order by $k ";
+    check(flwor + "return count($i) || ':' || sum($i)",
+        "3:18 4:22 3:15",
+        "empty(//" + Util.className(FnCount.class) + ')',
+        "empty(//" + Util.className(FnSum.class) + ')'
+    );
+    check(flwor + "return count($i) || ':' || $i[1]",
+        "3:3 4:1 3:2",
+        "empty(//" + Util.className(FnCount.class) + ')'
+    );
+    // untyped values: sum may raise an error
+    check("for $x in (<a>1</a>, <a>2</a>) let $k := 1 group by $k return sum($x)",
+        "3",
+        "exists(//" + Util.className(FnSum.class) + ')'
+    );
+  }
+
+  /** Tests the grouping of tuples that are written to disk. */
+  @Test public void groupSplit() {
+    final String query = "for $i in 1 to 100 let $k := ($i * 37) mod 20, $s := string($i) " +
+        "group by $k order by $k return ($k, count($i), sum($i), $s[last()])";
+    final String expected = query(query);
+    context.options.set(MainOptions.GROUPSPLITSIZE, 3);
+    try {
+      query(query, expected);
+    } finally {
+      context.options.set(MainOptions.GROUPSPLITSIZE, 0);
+    }
+  }
+
+  /** Tests the parallel evaluation of the outer for clause. */
+  @Test public void parallel() {
+    final String query = "for $i in 1 to 100 let $s := string($i) " +
+        "for $j in 1 to 3 where $i mod $j = 0 return $s || ':' || $j";
+    final String expected = query(query);
+    check("(# db:querythreads 4 #) { " + query + " }", expected, "//GFLWOR/@tasks = 4");
+    check("(# db:querythreads 4 #) { for $i in 1 to 10 count $c return $c }",
+        "1 2 3 4 5 6 7 8 9 10", "empty(//GFLWOR/@tasks)");
+    check("(# db:querythreads 4 #) { for $i in 1 to 10 order by -$i return $i }",
+        "10 9 8 7 6 5 4 3 2 1", "empty(//GFLWOR/@tasks)");
+    // lazy global variable, requested by all tasks
+    query("declare function local:f($n, $s) { if($n = 0) then $s else local:f($n - 1, $s + 1) }; " +
+        "declare %basex:lazy variable $v := local:f(100000, 0); " +
+        "sum((# db:querythreads 4 #) { for $i in 1 to 100 return $v - $i })", 9994950);
+    // nested expressions are iterated lazily (the cast would fail if the input was cached)
+    query("(# db:querythreads 4 #) { for $i in 1 to 4 " +
+        "return head(for $j in ($i, xs:integer($i || 'x')) return $j * 2) }", "2 4 6 8");
+    // lazy global variable, requested by the tasks that evaluate it
+    error("declare context item := local:f#0; declare function local:f() { $v }; " +
+        "declare %basex:lazy variable $v := sum((# db:querythreads 4 #) { " +
+        "for $i in 1 to 4 return .() + $i }); $v", QueryError.CIRCVAR_X);
+    error("declare context item := local:f#0; declare function local:f() { $v }; " +
+        "declare %basex:lazy variable $v := sum(xquery:fork-join((., .))); $v",
+        QueryError.CIRCVAR_X);
+  }
 }
@@ -34,6 +34,18 @@ public final class ArrayModuleTest extends AdvancedQueryTest {
     array(_ARRAY_APPEND.args(" [1,2,3]", "(4,5)"), "[1, 2, 3, (4, 5)]");
   }
 
+  /** Test method. */
+  @Test public void put() {
+    array(_ARRAY_PUT.args(" [1]", " 1", " 2"), "[2]");
+    array(_ARRAY_PUT.args(" [1, 2]", " 2", "()"), "[1, ()]");
+    array(_ARRAY_PUT.args(" array { 1 to 5 }", " 3", " (3, 4)"), "[1, 2, (3, 4), 4, 5]");
+    query(_ARRAY_GET.args(_ARRAY_PUT.args(" array { 1 to 100000 }", " 50000", "0"), " 50000"), 0);
+
+    error(_ARRAY_PUT.args(" []", " 1", " 1"), ARRAYEMPTY);
+    error(_ARRAY_PUT.args(" [1]", " 0", " 1"), ARRAYBOUNDS_X_X);
+    error(_ARRAY_PUT.args(" [1]", " 2", " 1"), ARRAYBOUNDS_X_X);
+  }
+
   /** Test method. */
   @Test public void subarray() {
     array(_ARRAY_SUBARRAY.args(" []", " 1"), "[]");
@@ -146,6 +158,29 @@ public final class ArrayModuleTest extends AdvancedQueryTest {
     array(_ARRAY_FOR_EACH_PAIR.args(" [1,2,3]", " [2]", "function($a,$b) { $a+$b }"), "[3]");
   }
 
+  /** Test method. */
+  @Test public void large() {
+    final String append = "fold-left(1 to 100000, [], function($a, $i) { " +
+        _ARRAY_APPEND.args("$a", "$i") + " })";
+    query("deep-equal(" + _ARRAY_FLATTEN.args(append) + ", 1 to 100000)", true);
+    query("let $a := " + append + " return deep-equal(" + _ARRAY_FLATTEN.args(_ARRAY_JOIN.args(
+        "(" + _ARRAY_SUBARRAY.args("$a", " 1", " 40000") + ", " +
+        _ARRAY_SUBARRAY.args("$a", " 40001") + ")")) + ", 1 to 100000)", true);
+
+    final String prepend = "fold-left(1 to 100000, [], function($a, $i) { " +
+        _ARRAY_INSERT_BEFORE.args("$a", " 1", "$i") + " })";
+    query("deep-equal(" + _ARRAY_FLATTEN.args(prepend) + ", reverse(1 to 100000))", true);
+
+    query("deep-equal(" + _ARRAY_FLATTEN.args("fold-left(1 to 3000, [], function($a, $i) { " +
+        _ARRAY_INSERT_BEFORE.args("$a", _ARRAY_SIZE.args("$a") + " idiv 2 + 1", "$i") +
+        " })") + ", fold-left(1 to 3000, (), function($s, $i) { " +
+        "insert-before($s, count($s) idiv 2 + 1, $i) }))", true);
+    query("deep-equal(" + _ARRAY_FLATTEN.args("fold-left(1 to 2000, array { 1 to 5000 }, " +
+        "function($a, $i) { " + _ARRAY_REMOVE.args("$a", "$i * 7 mod " +
+        _ARRAY_SIZE.args("$a") + " + 1") + " })") + ", fold-left(1 to 2000, 1 to 5000, " +
+        "function($s, $i) { remove($s, $i * 7 mod count($s) + 1) }))", true);
+  }
+
   /** Test method. */
   @Test public void sort() {
     array(_ARRAY_SORT.args(" [1,4,6,5,3]"), "[1, 3, 4, 5, 6]");
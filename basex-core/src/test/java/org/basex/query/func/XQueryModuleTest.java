@@ -101,4 +101,21 @@ public final class XQueryModuleTest extends AdvancedQueryTest {
       System.setErr(ERR);
     }
   }
+
+  /** Test method. */
+  @Test
+  public void forkJoin() {
+    query(_XQUERY_FORK_JOIN.args("()"), "");
+    query(_XQUERY_FORK_JOIN.args(" function() { 1 }"), "1");
+    query(_XQUERY_FORK_JOIN.args(" for $i in 1 to 5 return function() { $i * $i }"),
+        "1 4 9 16 25");
+    query("let $f := function($n) { function() { count(1 to $n) } } return " +
+        _XQUERY_FORK_JOIN.args(" ($f(2), $f(3))"), "2 3");
+    query(_XQUERY_FORK_JOIN.args(" function() { " +
+        _XQUERY_FORK_JOIN.args(" (function() { 1 }, function() { 2 })") + " }"), "1 2");
+    error(_XQUERY_FORK_JOIN.args(" function($a) { $a }"), INVCAST_X_X_X);
+    error(_XQUERY_FORK_JOIN.args(" (function() { 1 }, function() { error() })"), FUNERR1);
+    error(_XQUERY_FORK_JOIN.args(" %updating function() { delete node <a/> }"),
+        BXXQ_UPDATING);
+  }
 }
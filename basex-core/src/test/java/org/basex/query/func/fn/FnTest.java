@@ -5,6 +5,8 @@ import static org.basex.query.func.Function.*;
 import static org.junit.Assert.*;
 
 import org.basex.query.*;
+import org.basex.query.value.*;
+import org.basex.query.value.seq.*;
 import org.junit.*;
 
 /**
@@ -65,6 +67,67 @@ public final class FnTest extends AdvancedQueryTest {
     error("sum((), (1,2))", SEQFOUND_X);
   }
 
+  /** Tests for sequences that are built incrementally. */
+  @Test
+  public void incremental() {
+    final String append = "fold-left(1 to 100000, (), function($s, $i) { ($s, $i) })";
+    query("deep-equal(" + append + ", 1 to 100000)", true);
+    query("let $s := " + append + " return ($s[50000], count($s), sum($s))",
+        "50000 100000 5000050000");
+    final String prepend = "fold-left(1 to 100000, (), function($s, $i) { ($i, $s) })";
+    query("deep-equal(" + prepend + ", reverse(1 to 100000))", true);
+
+    final String seq = "fold-left(1 to 1000, (), function($s, $i) { ($s, $i) })";
+    query("deep-equal(reverse(" + seq + "), reverse(1 to 1000))", true);
+    query("deep-equal(" + SUBSEQUENCE.args("reverse(" + seq + ")", 10, 100) + ", " +
+        SUBSEQUENCE.args("reverse(1 to 1000)", 10, 100) + ")", true);
+    query("deep-equal(" + INSERT_BEFORE.args("reverse(" + seq + ")", 500, 0) + ", " +
+        "(reverse(502 to 1000), 0, reverse(1 to 501)))", true);
+    query("deep-equal(" + REMOVE.args("reverse(" + seq + ")", 500) + ", " +
+        "(reverse(502 to 1000), reverse(1 to 500)))", true);
+    query("deep-equal((reverse(" + seq + "), " + seq + "), (reverse(1 to 1000), 1 to 1000))",
+        true);
+    query("string-join(for $i in reverse(" + seq + ") return string($i), ',') = " +
+        "string-join(reverse(1 to 1000) ! string(), ',')", true);
+    query("(for $i in " + seq + " return $i)[position() = (1, 64, 65, 1000)]",
+        "1 64 65 1000");
+    query(seq + " instance of xs:integer+", true);
+    query("(" + seq + ", 'a') instance of xs:integer+", false);
+
+    query("deep-equal(fold-left(1 to 3000, (), function($s, $i) { " +
+        INSERT_BEFORE.args("$s", "count($s) idiv 2 + 1", "$i") + " }), " +
+        _ARRAY_FLATTEN.args("fold-left(1 to 3000, [], function($a, $i) { " +
+        _ARRAY_INSERT_BEFORE.args("$a", _ARRAY_SIZE.args("$a") + " idiv 2 + 1", "$i") +
+        " })") + ")", true);
+    query("deep-equal(fold-left(1 to 2000, 1 to 5000, function($s, $i) { " +
+        REMOVE.args("$s", "$i * 7 mod count($s) + 1") + " }), " +
+        _ARRAY_FLATTEN.args("fold-left(1 to 2000, array { 1 to 5000 }, function($a, $i) { " +
+        _ARRAY_REMOVE.args("$a", "$i * 7 mod " + _ARRAY_SIZE.args("$a") + " + 1") + " })") +
+        ")", true);
+
+    // only sequences that are extended step by step are stored in trees
+    assertTrue(value(append) instanceof TreeSeq);
+    assertTrue(value("(" + append + ", 0)") instanceof TreeSeq);
+    assertFalse(value("(1 to 1000, 0)") instanceof TreeSeq);
+    assertFalse(value("((1 to 1000) ! (. * 2), 0)") instanceof TreeSeq);
+    assertFalse(value(
+        "fold-left(1 to 2, 1 to 1000, function($s, $i) { ($s, $i) })") instanceof TreeSeq);
+  }
+
+  /**
+   * Evaluates the main expression of a query and returns the resulting value.
+   * @param query query
+   * @return value
+   */
+  private static Value value(final String query) {
+    try(final QueryProcessor qp = new QueryProcessor(query, context)) {
+      qp.compile();
+      return qp.qc.value(qp.qc.root.expr);
+    } catch(final QueryException ex) {
+      throw new AssertionError(ex);
+    }
+  }
+
   /** Tests for the {@code parse-ietf-date} function. */
   @Test
   public void parseIetfDate() {
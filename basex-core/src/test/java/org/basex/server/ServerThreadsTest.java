@@ -0,0 +1,185 @@
+package org.basex.server;
+
+import static org.basex.core.Text.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+
+import org.basex.*;
+import org.basex.api.client.*;
+import org.basex.core.*;
+import org.basex.core.users.*;
+import org.basex.io.in.*;
+import org.basex.util.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * This class tests the server with a bounded pool of worker threads.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class ServerThreadsTest extends SandboxTest {
+  /** Name of the system property for the number of worker threads. */
+  private static final String THREADS = Prop.DBPREFIX +
+      StaticOptions.SERVERTHREADS.name().toLowerCase(Locale.ENGLISH);
+  /** Number of worker threads. */
+  private static final int WORKERS = 2;
+  /** Server reference. */
+  private static BaseXServer server;
+
+  /**
+   * Starts the server.
+   * @throws IOException I/O exception
+   */
+  @BeforeClass
+  public static void start() throws IOException {
+    System.setProperty(THREADS, Integer.toString(WORKERS));
+    try {
+      server = createServer();
+    } finally {
+      System.clearProperty(THREADS);
+    }
+  }
+
+  /**
+   * Stops the server.
+   * @throws IOException I/O exception
+   */
+  @AfterClass
+  public static void stop() throws IOException {
+    stopServer(server);
+  }
+
+  /**
+   * Runs requests of more idle sessions than available worker threads.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void idleSessions() throws IOException {
+    final int cl = WORKERS * 5;
+    final ClientSession[] sessions = new ClientSession[cl];
+    try {
+      for(int c = 0; c < cl; c++) sessions[c] = createClient();
+      for(int r = 0; r < 3; r++) {
+        for(int c = 0; c < cl; c++) {
+          assertEquals(Integer.toString(c + r), sessions[c].execute("xquery " + c + " + " + r));
+        }
+      }
+    } finally {
+      for(final ClientSession s : sessions) if(s != null) s.close();
+    }
+  }
+
+  /**
+   * Runs requests of more concurrent clients than available worker threads.
+   * @throws Exception exception
+   */
+  @Test
+  public void concurrentClients() throws Exception {
+    final int cl = WORKERS * 10;
+    final Throwable[] error = { null };
+    final Thread[] clients = new Thread[cl];
+    for(int c = 0; c < cl; c++) {
+      final int n = c;
+      clients[c] = new Thread() {
+        @Override
+        public void run() {
+          try(final ClientSession cs = createClient()) {
+            for(int r = 0; r < 10; r++) {
+              final String result = cs.execute("xquery sum(1 to " + (n + r) + ')');
+              assertEquals(Long.toString((long) (n + r) * (n + r + 1) / 2), result);
+              // query session API
+              try(final ClientQuery query = cs.query("declare variable $n external; $n * 2")) {
+                query.bind("n", n + r, "xs:integer");
+                assertEquals(Integer.toString((n + r) * 2), query.execute());
+              }
+            }
+          } catch(final Throwable th) {
+            error[0] = th;
+          }
+        }
+      };
+    }
+    for(final Thread c : clients) c.start();
+    for(final Thread c : clients) c.join();
+    if(error[0] != null) throw new AssertionError(error[0]);
+  }
+
+  /**
+   * Sends requests and receives results that exceed the socket buffers.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void largeData() throws IOException {
+    final int size = 26 << 17;
+    final StringBuilder sb = new StringBuilder(size);
+    for(int s = 0; s < size; s++) sb.append((char) ('a' + s % 26));
+    final String string = sb.toString();
+
+    try(final ClientSession cs = createClient()) {
+      // large request
+      assertEquals(Integer.toString(size),
+          cs.execute("xquery string-length('" + string + "')"));
+      // large result
+      assertTrue(string.equals(cs.execute("xquery string-join((1 to " + size / 26 + ") ! " +
+          "'abcdefghijklmnopqrstuvwxyz')")));
+      // session is still usable
+      assertEquals("1", cs.execute("xquery 1"));
+    }
+  }
+
+  /**
+   * Sends requests in fragments.
+   * @throws Exception exception
+   */
+  @Test
+  public void fragmentedRequests() throws Exception {
+    try(final Socket socket = new Socket(S_LOCALHOST, 9999)) {
+      socket.setSoTimeout(10000);
+      final OutputStream os = socket.getOutputStream();
+      final BufferInput bi = new BufferInput(socket.getInputStream());
+
+      // authenticate, sending the hashed password in two chunks
+      final String[] response = Strings.split(bi.readString(), ':');
+      final String code = UserText.ADMIN + ':' + response[0] + ':' + UserText.ADMIN;
+      final String hash = Strings.md5(Strings.md5(code) + response[1]);
+      send(os, UserText.ADMIN + '\0' + hash.substring(0, 8));
+      send(os, hash.substring(8) + '\0');
+      assertEquals(0, bi.read());
+
+      // send commands in chunks
+      for(int r = 0; r < 3; r++) {
+        send(os, "xque");
+        send(os, "ry " + r + " +");
+        send(os, " 1\0");
+        assertEquals(Integer.toString(r + 1), bi.readString());
+        bi.readString();
+        assertEquals(0, bi.read());
+      }
+
+      // send two commands at once
+      send(os, "xquery 'a'\0xquery 'b'\0");
+      for(final String exp : new String[] { "a", "b" }) {
+        assertEquals(exp, bi.readString());
+        bi.readString();
+        assertEquals(0, bi.read());
+      }
+    }
+  }
+
+  /**
+   * Sends a string to the server and waits for a while.
+   * @param os output stream
+   * @param string string to be sent
+   * @throws IOException I/O exception
+   */
+  private static void send(final OutputStream os, final String string) throws IOException {
+    os.write(Token.token(string));
+    os.flush();
+    Performance.sleep(100);
+  }
+}
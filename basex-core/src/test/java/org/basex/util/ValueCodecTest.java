@@ -0,0 +1,131 @@
+package org.basex.util;
+
+import static org.basex.util.Token.*;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.MainOptions.MainCodec;
+import org.basex.core.cmd.*;
+import org.basex.core.cmd.Set;
+import org.basex.util.list.*;
+import org.junit.*;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link ValueCodec} implementations.
+ *
+ * @author BaseX Team 2005-15, BSD License
+ * @author Christian Gruen
+ */
+public final class ValueCodecTest extends SandboxTest {
+  /** Test file. */
+  private static final String FILE = "src/test/resources/xmark.xml";
+
+  /** Resets the codec option. */
+  @After
+  public void reset() {
+    context.options.set(MainOptions.VALUECODEC, MainCodec.BITS);
+  }
+
+  /** Compresses single values. */
+  @Test
+  public void values() {
+    final TokenList tl = new TokenList();
+    tl.add(token("abcdefghijklmnopqrstuvwxyz ABCDEFGHIJKLMNOPQRSTUVWXYZ"));
+    tl.add(token("abcabcabcabcabcabcabcabcabcabcabcabcabcabcabcabcabc"));
+    tl.add(token("short"));
+    tl.add(EMPTY);
+    final byte[] bytes = new byte[70000];
+    for(int b = 0; b < bytes.length; b++) bytes[b] = (byte) (b % 300 & 0xFF);
+    tl.add(bytes);
+    for(final MainCodec mc : MainCodec.values()) run(ValueCodec.get(mc, null), tl);
+    run(ValueCodec.train(tl), tl);
+  }
+
+  /** Compresses large values that cannot be compressed. */
+  @Test
+  public void random() {
+    final TokenList tl = new TokenList();
+    final Random rnd = new Random(0);
+    for(final int size : new int[] { 255, 65536, 2000000, 5000000 }) {
+      final byte[] bytes = new byte[size];
+      rnd.nextBytes(bytes);
+      tl.add(bytes);
+      // random value with repeated second half
+      final byte[] half = bytes.clone();
+      System.arraycopy(bytes, 0, half, size / 2, size - size / 2);
+      tl.add(half);
+    }
+    for(final MainCodec mc : MainCodec.values()) run(ValueCodec.get(mc, null), tl);
+    run(ValueCodec.train(tl), tl);
+  }
+
+  /**
+   * Compresses the texts of a document with a trained dictionary.
+   * @throws Exception exception
+   */
+  @Test
+  public void dictionary() throws Exception {
+    final TokenList tl = new TokenList();
+    for(final String s : new XQuery("doc('" + FILE + "')//text()").execute(context).split("\n")) {
+      tl.add(token(s));
+    }
+    final ValueCodec codec = ValueCodec.train(tl);
+    assertTrue(codec.dictionary().length > 0);
+    assertFalse(codec.untrained());
+    run(codec, tl);
+  }
+
+  /**
+   * Creates, updates and optimizes databases with all codecs.
+   * @throws Exception exception
+   */
+  @Test
+  public void databases() throws Exception {
+    final String query = "string-join((//text(), //@*), ' ')";
+    new CreateDB(NAME, FILE).execute(context);
+    final String expected = new XQuery(query).execute(context);
+
+    for(final MainCodec mc : MainCodec.values()) {
+      new Set(MainOptions.VALUECODEC, mc).execute(context);
+      new CreateDB(NAME, FILE).execute(context);
+      assertEquals(expected, new XQuery(query).execute(context));
+      assertTrue(new InfoStorage().execute(context).contains(mc.toString()));
+
+      // update values and reopen database
+      new XQuery("for $t in (//text())[position() < 10] " +
+          "return replace value of node $t with $t || ' updated value'").execute(context);
+      new Close().execute(context);
+      new Open(NAME).execute(context);
+      assertEquals("9", new XQuery("count(//text()[ends-with(., ' updated value')])").
+          execute(context));
+    }
+
+    // re-encode database with dictionary codec
+    new Set(MainOptions.VALUECODEC, MainCodec.BITS).execute(context);
+    new CreateDB(NAME, FILE).execute(context);
+    new Set(MainOptions.VALUECODEC, MainCodec.DICT).execute(context);
+    new OptimizeAll().execute(context);
+    assertEquals(expected, new XQuery(query).execute(context));
+    assertTrue(new InfoStorage().execute(context).contains(MainCodec.DICT.toString()));
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Tests if the specified values are correctly compressed and decompressed.
+   * @param codec codec
+   * @param values values
+   */
+  private static void run(final ValueCodec codec, final TokenList values) {
+    for(final byte[] value : values) {
+      final byte[] packed = codec.pack(value);
+      if(packed == value) continue;
+      assertTrue(codec + ": " + string(value), packed.length < value.length);
+      assertEquals(value.length, Num.get(packed, 0));
+      assertArrayEquals(codec + ": " + string(value), value, codec.unpack(packed));
+    }
+  }
+}